@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.sample;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Outer join of two DataFrames on a single key, by key type.
+ * LONG_SORTED: time series alignment. STRING: dimension breakdowns.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx1g")
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataFrameJoinBenchmark {
+
+  private static final String KEY = "key";
+
+  @Param({"LONG_SORTED", "LONG_UNSORTED", "STRING"})
+  String keyType;
+
+  @Param({"10000", "100000"})
+  int size;
+
+  DataFrame left;
+  DataFrame right;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    final long[] leftKeys = new long[size];
+    final long[] rightKeys = new long[size];
+    for (int i = 0; i < size; i++) {
+      // 3/4 of the keys match
+      leftKeys[i] = i;
+      rightKeys[i] = i + size / 4;
+    }
+    if (!keyType.equals("LONG_SORTED")) {
+      shuffle(leftKeys, random);
+      shuffle(rightKeys, random);
+    }
+    left = new DataFrame()
+        .addSeries(KEY, keySeries(leftKeys))
+        .addSeries("left_value", DoubleSeries.buildFrom(randomDoubles(random)));
+    right = new DataFrame()
+        .addSeries(KEY, keySeries(rightKeys))
+        .addSeries("right_value", DoubleSeries.buildFrom(randomDoubles(random)));
+  }
+
+  private Series keySeries(final long[] keys) {
+    return switch (keyType) {
+      case "LONG_SORTED", "LONG_UNSORTED" -> LongSeries.buildFrom(keys);
+      case "STRING" -> LongSeries.buildFrom(keys).getStrings();
+      default -> throw new IllegalArgumentException("Unknown key type " + keyType);
+    };
+  }
+
+  private double[] randomDoubles(final Random random) {
+    final double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = random.nextDouble();
+    }
+    return values;
+  }
+
+  private static void shuffle(final long[] values, final Random random) {
+    for (int i = values.length - 1; i > 0; i--) {
+      final int j = random.nextInt(i + 1);
+      final long tmp = values[i];
+      values[i] = values[j];
+      values[j] = tmp;
+    }
+  }
+
+  @Benchmark
+  public void joinOuter(final Blackhole blackhole) {
+    blackhole.consume(left.joinOuter(right, KEY));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.sample;
+
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.Grouping.SeriesGrouping;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Moving window aggregations, as used by the detectors and post-processors that smooth or bound
+ * a time series. 10% of the values are null.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx1g")
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataFrameRollingWindowBenchmark {
+
+  @Param({"LONG", "DOUBLE"})
+  String seriesType;
+
+  @Param({"10000"})
+  int size;
+
+  @Param({"7", "168"})
+  int windowSize;
+
+  SeriesGrouping grouping;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    final double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = random.nextInt(10) == 0 ? DoubleSeries.NULL : random.nextInt(1000);
+    }
+    final Series series = seriesType.equals("LONG")
+        ? DoubleSeries.buildFrom(values).getLongs()
+        : DoubleSeries.buildFrom(values);
+    grouping = series.groupByMovingWindow(windowSize);
+  }
+
+  @Benchmark
+  public Series min() {
+    return grouping.min().getValues();
+  }
+
+  @Benchmark
+  public Series max() {
+    return grouping.max().getValues();
+  }
+
+  @Benchmark
+  public Series mean() {
+    return grouping.mean().getValues();
+  }
+
+  @Benchmark
+  public Series std() {
+    return grouping.std().getValues();
+  }
+
+  @Benchmark
+  public Series median() {
+    return grouping.median().getValues();
+  }
+
+  /**
+   * Reference: the incremental sum that existed before the other rolling aggregations.
+   */
+  @Benchmark
+  public LongSeries sum() {
+    return grouping.sum().getValues().getLongs();
+  }
+}
@@ -15,6 +15,7 @@ package org.sample;
 
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import ai.startree.thirdeye.util.CompiledTemplate;
 import ai.startree.thirdeye.util.StringTemplateUtils;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
@@ -46,6 +47,7 @@ import org.openjdk.jmh.infra.Blackhole;
 public class StringTemplateUtilsBenchmark {
 
   AlertTemplateDTO template;
+  CompiledTemplate<AlertTemplateDTO> compiledTemplate;
   Map<String, Object> valuesMap;
 
   @Setup
@@ -73,10 +75,16 @@ public class StringTemplateUtilsBenchmark {
         .put("dataSource", "pinotQuickStartLocal")
         .put("dataset", "pageviews")
         .build();
+    compiledTemplate = CompiledTemplate.compile(template);
   }
 
   @Benchmark
   public void applyContext(Blackhole blackhole) throws IOException {
     blackhole.consume(StringTemplateUtils.applyContext(template, valuesMap));
   }
+
+  @Benchmark
+  public void renderCompiled(Blackhole blackhole) throws IOException {
+    blackhole.consume(compiledTemplate.render(valuesMap));
+  }
 }
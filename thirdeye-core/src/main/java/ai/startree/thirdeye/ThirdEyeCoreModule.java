@@ -15,6 +15,9 @@ package ai.startree.thirdeye;
 
 import ai.startree.thirdeye.config.UiConfiguration;
 import ai.startree.thirdeye.datalayer.ThirdEyePersistenceModule;
+import ai.startree.thirdeye.datalayer.util.EntityCacheConfiguration;
+import ai.startree.thirdeye.datasource.cache.DataSourceCoalescingConfiguration;
+import ai.startree.thirdeye.datasource.cache.DataSourceResultCacheConfiguration;
 import ai.startree.thirdeye.datasource.loader.DefaultAggregationLoader;
 import ai.startree.thirdeye.datasource.loader.DefaultMinMaxTimeLoader;
 import ai.startree.thirdeye.rootcause.configuration.RcaConfiguration;
@@ -35,30 +38,39 @@ public class ThirdEyeCoreModule extends AbstractModule {
   private static final Logger LOG = LoggerFactory.getLogger(ThirdEyeCoreModule.class);
 
   private final DataSource dataSource;
+  private final EntityCacheConfiguration entityCacheConfiguration;
   private final RcaConfiguration rcaConfiguration;
   private final UiConfiguration uiConfiguration;
   private final TimeConfiguration timeConfiguration;
   private final NamespaceConfigurationDTO defaultNamespaceConfiguration;
   private final QuotasConfiguration quotasConfiguration;
+  private final DataSourceCoalescingConfiguration dataSourceCoalescingConfiguration;
+  private final DataSourceResultCacheConfiguration dataSourceResultCacheConfiguration;
 
   public ThirdEyeCoreModule(final DataSource dataSource,
+      final EntityCacheConfiguration entityCacheConfiguration,
       final RcaConfiguration rcaConfiguration,
       final UiConfiguration uiConfiguration,
       final TimeConfiguration timeConfiguration,
       final NamespaceConfigurationDTO defaultNamespaceConfiguration,
-      final QuotasConfiguration quotasConfiguration) {
+      final QuotasConfiguration quotasConfiguration,
+      final DataSourceCoalescingConfiguration dataSourceCoalescingConfiguration,
+      final DataSourceResultCacheConfiguration dataSourceResultCacheConfiguration) {
     this.dataSource = dataSource;
+    this.entityCacheConfiguration = entityCacheConfiguration;
 
     this.rcaConfiguration = rcaConfiguration;
     this.uiConfiguration = uiConfiguration;
     this.timeConfiguration = timeConfiguration;
     this.defaultNamespaceConfiguration = defaultNamespaceConfiguration;
     this.quotasConfiguration = quotasConfiguration;
+    this.dataSourceCoalescingConfiguration = dataSourceCoalescingConfiguration;
+    this.dataSourceResultCacheConfiguration = dataSourceResultCacheConfiguration;
   }
 
   @Override
   protected void configure() {
-    install(new ThirdEyePersistenceModule(dataSource));
+    install(new ThirdEyePersistenceModule(dataSource, entityCacheConfiguration));
 
     bind(AggregationLoader.class).to(DefaultAggregationLoader.class).in(Scopes.SINGLETON);
     bind(MinMaxTimeLoader.class).to(DefaultMinMaxTimeLoader.class).in(Scopes.SINGLETON);
@@ -73,5 +85,7 @@ public class ThirdEyeCoreModule extends AbstractModule {
     }
     bind(NamespaceConfigurationDTO.class).toInstance(defaultNamespaceConfiguration);
     bind(QuotasConfiguration.class).toInstance(quotasConfiguration);
+    bind(DataSourceCoalescingConfiguration.class).toInstance(dataSourceCoalescingConfiguration);
+    bind(DataSourceResultCacheConfiguration.class).toInstance(dataSourceResultCacheConfiguration);
   }
 }
@@ -16,6 +16,7 @@ package ai.startree.thirdeye.alert;
 import static ai.startree.thirdeye.spi.ThirdEyeException.checkThirdEye;
 import static ai.startree.thirdeye.spi.ThirdEyeStatus.ERR_OBJECT_DOES_NOT_EXIST;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 
 import ai.startree.thirdeye.mapper.ApiBeanMapper;
 import ai.startree.thirdeye.spi.ThirdEyeException;
@@ -27,27 +28,59 @@ import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.template.TemplatePropertyMetadata;
-import ai.startree.thirdeye.util.StringTemplateUtils;
+import ai.startree.thirdeye.util.CompiledTemplate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+/**
+ * Templates are compiled once into a render plan, see {@link CompiledTemplate}. Plans are cached
+ * by template version. For enumeration items, the template rendered with the alert properties is
+ * compiled and cached by alert version: only the enumeration item params are applied at each
+ * render.
+ */
 @Singleton
 public class AlertTemplateRenderer {
 
+  private static final int CACHE_MAX_SIZE = 2000;
+  private static final Duration CACHE_EXPIRY = Duration.ofHours(1);
+
   private final AlertManager alertManager;
   private final AlertTemplateManager alertTemplateManager;
+  private final Cache<TemplateKey, CompiledTemplate<AlertTemplateDTO>> templatePlans;
+  private final Cache<AlertKey, AlertPlan> alertPlans;
 
   @Inject
   public AlertTemplateRenderer(final AlertManager alertManager,
       final AlertTemplateManager alertTemplateManager) {
     this.alertManager = alertManager;
     this.alertTemplateManager = alertTemplateManager;
+    this.templatePlans = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_MAX_SIZE)
+        .expireAfterAccess(CACHE_EXPIRY)
+        .recordStats()
+        .build();
+    this.alertPlans = CacheBuilder.newBuilder()
+        .maximumSize(CACHE_MAX_SIZE)
+        .expireAfterAccess(CACHE_EXPIRY)
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(Metrics.globalRegistry, templatePlans,
+        "thirdeye_cache_template_plans");
+    GuavaCacheMetrics.monitor(Metrics.globalRegistry, alertPlans, "thirdeye_cache_alert_plans");
   }
 
   /**
@@ -103,6 +136,11 @@ public class AlertTemplateRenderer {
    *     correctly
    */
   public AlertTemplateDTO renderAlert(final AlertDTO alert) {
+    final AlertTemplateDTO fullTemplate = findTemplate(alert);
+    return renderWithAlertProperties(alert, fullTemplate);
+  }
+
+  private AlertTemplateDTO findTemplate(final AlertDTO alert) {
     final AlertTemplateDTO fullTemplate = alertTemplateManager.findMatchInNamespaceOrUnsetNamespace(
         alert.getTemplate(), alert.namespace());
     if (fullTemplate == null) {
@@ -110,7 +148,18 @@ public class AlertTemplateRenderer {
           "Template not found. Name: %s. Namespace: %s. Id: %s. ".formatted(
               alert.getTemplate().getName(), alert.namespace(), alert.getTemplate().getName()));
     }
+    return fullTemplate;
+  }
 
+  /**
+   * Render the alert template for Alert task execution, with a template already loaded by the
+   * caller. Used to load the templates of many alerts at once.
+   *
+   * @param fullTemplate the template of the alert, as resolved by
+   *     {@link AlertTemplateManager#findMatchInNamespaceOrUnsetNamespace}
+   */
+  public AlertTemplateDTO renderWithAlertProperties(final AlertDTO alert,
+      final AlertTemplateDTO fullTemplate) {
     final Map<String, Object> alertProperties = alert.getTemplateProperties();
 
     try {
@@ -131,28 +180,42 @@ public class AlertTemplateRenderer {
   public AlertTemplateDTO renderAlert(final AlertDTO alert,
       @Nullable final EnumerationItemDTO enumerationItemDTO)
       throws IOException {
-    final AlertTemplateDTO templateWithAlertProperties = renderAlert(alert);
-
     if (enumerationItemDTO == null || enumerationItemDTO.getParams() == null
         || enumerationItemDTO.getParams().isEmpty()) {
-      return templateWithAlertProperties;
+      return renderAlert(alert);
     }
 
+    final AlertTemplateDTO fullTemplate = findTemplate(alert);
+    final AlertPlan alertPlan = getOrCompile(alertPlans, AlertKey.of(alert, fullTemplate),
+        () -> compileAlertPlan(alert, fullTemplate));
+
     // re-render with enum properties
-    // remove id and name to prevent template being re-fetched from db
+    final Map<String, Object> allProperties = new HashMap<>(alertPlan.defaultProperties());
+    allProperties.putAll(enumerationItemDTO.getParams());
+    final AlertTemplateDTO templateWithEnumProperties = alertPlan.plan().render(allProperties);
+    templateWithEnumProperties.setId(alertPlan.templateId());
+    templateWithEnumProperties.setName(alertPlan.templateName());
+    return templateWithEnumProperties;
+  }
+
+  private AlertPlan compileAlertPlan(final AlertDTO alert, final AlertTemplateDTO fullTemplate)
+      throws IOException {
+    final AlertTemplateDTO templateWithAlertProperties = renderWithAlertProperties(alert,
+        fullTemplate);
+    // remove id and name: the template with alert properties is rendered as an inline template
     final Long templateId = templateWithAlertProperties.getId();
     final String templateName = templateWithAlertProperties.getName();
     templateWithAlertProperties.setId(null);
     templateWithAlertProperties.setName(null);
-    final AlertDTO alertWithEnumProperties = new AlertDTO().setTemplate(templateWithAlertProperties)
-        .setTemplateProperties(enumerationItemDTO.getParams());
-    final AlertTemplateDTO templateWithEnumProperties = renderAlert(alertWithEnumProperties);
-    templateWithEnumProperties.setId(templateId);
-    templateWithEnumProperties.setName(templateName);
-    return templateWithEnumProperties;
+    // the inline template is not attached to an alert
+    addSourceMetadata(templateWithAlertProperties, null);
+    return new AlertPlan(CompiledTemplate.compile(templateWithAlertProperties),
+        defaultProperties(templateWithAlertProperties.getProperties()),
+        templateId,
+        templateName);
   }
 
-  private static AlertTemplateDTO renderTemplate(final @NonNull AlertTemplateDTO template,
+  private AlertTemplateDTO renderTemplate(final @NonNull AlertTemplateDTO template,
       final @Nullable Map<String, Object> properties, final String alertName)
       throws IOException {
     final Map<String, Object> defaultProperties = defaultProperties(template.getProperties());
@@ -160,7 +223,42 @@ public class AlertTemplateRenderer {
     if (properties != null) {
       allProperties.putAll(properties);
     }
-    // add source metadata to each node
+
+    final CompiledTemplate<AlertTemplateDTO> plan = getOrCompile(templatePlans,
+        TemplateKey.of(template, alertName),
+        () -> compileTemplatePlan(template, alertName));
+    return plan.render(allProperties);
+  }
+
+  /**
+   * @param key if null, the plan is compiled and not cached
+   */
+  private static <K, V> V getOrCompile(final Cache<K, V> cache, final @Nullable K key,
+      final PlanCompiler<V> compiler) throws IOException {
+    if (key == null) {
+      return compiler.compile();
+    }
+    try {
+      return cache.get(key, compiler::compile);
+    } catch (final ExecutionException e) {
+      // compile only throws IOException
+      throw (IOException) e.getCause();
+    } catch (final UncheckedExecutionException e) {
+      throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  private static CompiledTemplate<AlertTemplateDTO> compileTemplatePlan(
+      final @NonNull AlertTemplateDTO template, final @Nullable String alertName)
+      throws IOException {
+    addSourceMetadata(template, alertName);
+    return CompiledTemplate.compile(template);
+  }
+
+  // add source metadata to each node
+  private static void addSourceMetadata(final @NonNull AlertTemplateDTO template,
+      final @Nullable String alertName) {
     if (template.getNodes() != null) {
       template.getNodes()
           .stream()
@@ -169,8 +267,6 @@ public class AlertTemplateRenderer {
           .forEach(node -> node.getParams()
               .putValue("anomaly.source", String.format("%s/%s", alertName, node.getName())));
     }
-
-    return StringTemplateUtils.applyContext(template, allProperties);
   }
 
   private static @NonNull Map<String, Object> defaultProperties(
@@ -189,4 +285,48 @@ public class AlertTemplateRenderer {
 
     return res;
   }
+
+  @FunctionalInterface
+  private interface PlanCompiler<V> {
+
+    V compile() throws IOException;
+  }
+
+  /**
+   * A template version. The alert name is part of the rendered template.
+   */
+  private record TemplateKey(long templateId, Timestamp templateUpdateTime,
+                             @Nullable String alertName) {
+
+    private static @Nullable TemplateKey of(final AlertTemplateDTO template,
+        final @Nullable String alertName) {
+      if (template.getId() == null || template.getUpdateTime() == null) {
+        return null;
+      }
+      return new TemplateKey(template.getId(), template.getUpdateTime(), alertName);
+    }
+  }
+
+  /**
+   * An alert version, rendered with a template version.
+   */
+  private record AlertKey(long alertId, Timestamp alertUpdateTime, TemplateKey templateKey) {
+
+    private static @Nullable AlertKey of(final AlertDTO alert,
+        final AlertTemplateDTO fullTemplate) {
+      final TemplateKey templateKey = TemplateKey.of(fullTemplate, alert.getName());
+      if (alert.getId() == null || alert.getUpdateTime() == null || templateKey == null) {
+        return null;
+      }
+      return new AlertKey(alert.getId(), alert.getUpdateTime(), templateKey);
+    }
+  }
+
+  /**
+   * The template rendered with the alert properties, compiled.
+   */
+  private record AlertPlan(CompiledTemplate<AlertTemplateDTO> plan,
+                           Map<String, Object> defaultProperties,
+                           @Nullable Long templateId,
+                           @Nullable String templateName) {}
 }
@@ -19,6 +19,7 @@ import static java.util.Objects.requireNonNull;
 
 import ai.startree.thirdeye.spi.config.QuotasConfiguration;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datasource.DataSourceResultCache;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceFactory;
@@ -28,6 +29,7 @@ import com.google.inject.Singleton;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,7 +57,12 @@ public class DataSourcesLoader {
     dataSourceFactoryMap.put(f.name(), f);
   }
 
-  public ThirdEyeDataSource loadDataSource(DataSourceDTO dataSource) {
+  /**
+   * @param resultCache the cache of the query results of the datasource. Null if caching is
+   *     disabled.
+   */
+  public ThirdEyeDataSource loadDataSource(final DataSourceDTO dataSource,
+      final @Nullable DataSourceResultCache resultCache) {
     try {
       final String factoryName = dataSource.getType();
       checkArgument(dataSourceFactoryMap.containsKey(factoryName),
@@ -67,7 +74,7 @@ public class DataSourcesLoader {
 
       final ThirdEyeDataSource thirdEyeDataSource = dataSourceFactoryMap
           .get(factoryName)
-          .build(buildContext(dataSource));
+          .build(buildContext(dataSource, resultCache));
       return requireNonNull(thirdEyeDataSource, "thirdEyeDataSource is null");
     } catch (Exception e) {
       LOG.error("Exception creating data source. name: {}, type: {}",
@@ -78,13 +85,15 @@ public class DataSourcesLoader {
     }
   }
 
-  private ThirdEyeDataSourceContext buildContext(final DataSourceDTO dataSource) {
+  private ThirdEyeDataSourceContext buildContext(final DataSourceDTO dataSource,
+      final @Nullable DataSourceResultCache resultCache) {
     final Map<String, Object> values = new HashMap<>(System.getenv());
     try {
       final DataSourceDTO dataSourceWithEnvVarResolved = StringTemplateUtils.applyContext(
           dataSource, values);
       return new ThirdEyeDataSourceContext().setDataSourceDTO(dataSourceWithEnvVarResolved)
-          .setQuotasConfiguration(quotasConfiguration);
+          .setQuotasConfiguration(quotasConfiguration)
+          .setResultCache(resultCache);
     } catch (IOException e) {
       throw new RuntimeException(
           "Error while replacing env variables in datasource spec. spec: " + dataSource);
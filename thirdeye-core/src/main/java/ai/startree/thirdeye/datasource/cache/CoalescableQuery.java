@@ -0,0 +1,396 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static ai.startree.thirdeye.detectionpipeline.sql.filter.FilterEngine.QUOTE_IDENTIFIERS;
+import static ai.startree.thirdeye.util.CalciteUtils.identifierOf;
+import static ai.startree.thirdeye.util.CalciteUtils.nodeToQuery;
+import static ai.startree.thirdeye.util.CalciteUtils.numericLiteralOf;
+import static ai.startree.thirdeye.util.CalciteUtils.queryToNode;
+
+import ai.startree.thirdeye.spi.ThirdEyeException;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlDialect;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlLiteral;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlOrderBy;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.parser.SqlParser;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A GROUP BY query that can be answered by a coalesced query.
+ *
+ * The top-level conjunction of the WHERE clause is split in string equality predicates
+ * - dimension = 'value' - and base predicates. Queries with the same base query and the same
+ * filtered dimensions only differ by the filtered values: they are answered by a single query on
+ * the union of the values, that also groups by the filtered dimensions. The rows of the
+ * coalesced query are then split back by dimension values.
+ *
+ * Supported queries: SELECT with a GROUP BY and a LIMIT on a single table, without DISTINCT,
+ * OFFSET or window function, and whose projections are all aliased or plain columns. Queries
+ * without LIMIT are not supported: some data sources apply an implicit limit - Pinot returns 10
+ * groups by default - so the number of rows of each query could not be checked in the coalesced
+ * result. The operators used to build the coalesced query are the standard Calcite operators, so
+ * that the precedence of OR and AND is respected when the query is printed.
+ */
+class CoalescableQuery {
+
+  static final String DIMENSION_ALIAS_PREFIX = "__coalesced_dimension_";
+
+  private final DataSourceRequest request;
+  private final SqlSelect select;
+  private final SqlOrderBy orderBy;
+  private final List<SqlIdentifier> dimensions;
+  private final List<SqlLiteral> literals;
+  private final List<String> values;
+  private final long limit;
+  private final Key key;
+
+  private CoalescableQuery(final DataSourceRequest request, final SqlSelect select,
+      final SqlOrderBy orderBy, final Map<String, SqlCall> dimensionPredicates,
+      final long limit, final String baseQuery) {
+    this.request = request;
+    this.select = select;
+    this.orderBy = orderBy;
+    this.limit = limit;
+    this.dimensions = new ArrayList<>();
+    this.literals = new ArrayList<>();
+    this.values = new ArrayList<>();
+    for (final SqlCall predicate : dimensionPredicates.values()) {
+      dimensions.add(identifierOperand(predicate));
+      final SqlLiteral literal = literalOperand(predicate);
+      literals.add(literal);
+      values.add(literal.getValueAs(String.class));
+    }
+    this.key = new Key(request.getTable(),
+        baseQuery,
+        List.copyOf(dimensionPredicates.keySet()),
+        request.getOptions(),
+        request.getProperties());
+  }
+
+  /**
+   * Returns an empty optional if the query is not supported or has no string equality predicate.
+   */
+  static Optional<CoalescableQuery> parse(final DataSourceRequest request,
+      final SqlParser.Config sqlParserConfig, final SqlDialect sqlDialect) {
+    final SqlNode root;
+    try {
+      root = queryToNode(request.getQuery(), sqlParserConfig);
+    } catch (final ThirdEyeException e) {
+      return Optional.empty();
+    }
+    // a query with a LIMIT is parsed as a SqlOrderBy, even without ORDER BY
+    if (!(root instanceof SqlOrderBy orderBy && orderBy.query instanceof SqlSelect select
+        && orderBy.offset == null
+        && orderBy.fetch instanceof SqlLiteral fetch
+        && fetch.getTypeName() == SqlTypeName.DECIMAL)) {
+      return Optional.empty();
+    }
+    if (!isSupported(select)) {
+      return Optional.empty();
+    }
+    final long limit = fetch.longValue(true);
+
+    final List<SqlNode> conjuncts = new ArrayList<>();
+    flattenConjunction(select.getWhere(), conjuncts);
+    // sorted by dimension - queries filtering the same dimensions in a different order are
+    // coalesced
+    final Map<String, SqlCall> dimensionPredicates = new TreeMap<>();
+    final List<SqlNode> baseConjuncts = new ArrayList<>();
+    for (final SqlNode conjunct : conjuncts) {
+      if (isDimensionPredicate(conjunct)) {
+        final SqlCall predicate = (SqlCall) conjunct;
+        if (dimensionPredicates.putIfAbsent(identifierOperand(predicate).toString(), predicate)
+            == null) {
+          continue;
+        }
+      }
+      baseConjuncts.add(conjunct);
+    }
+    if (dimensionPredicates.isEmpty()) {
+      // identical queries are already deduplicated by the data sources
+      return Optional.empty();
+    }
+    select.setWhere(and(baseConjuncts));
+    final String baseQuery = nodeToQuery(root, sqlDialect, QUOTE_IDENTIFIERS);
+
+    return Optional.of(new CoalescableQuery(request,
+        select,
+        orderBy,
+        dimensionPredicates,
+        limit,
+        baseQuery));
+  }
+
+  private static boolean isSupported(final SqlSelect select) {
+    if (select.isDistinct()
+        || select.getWhere() == null
+        || select.getGroup() == null || select.getGroup().isEmpty()
+        || select.getFetch() != null || select.getOffset() != null
+        || (select.getOrderList() != null && !select.getOrderList().isEmpty())
+        || (select.getWindowList() != null && !select.getWindowList().isEmpty())
+        || select.getQualify() != null
+        || !isTable(select.getFrom())) {
+      return false;
+    }
+    for (final SqlNode item : select.getSelectList()) {
+      // the name of the columns of the result must not depend on how the query is printed
+      final boolean isNamed = item.getKind() == SqlKind.AS
+          || (item instanceof SqlIdentifier identifier && !identifier.isStar());
+      if (!isNamed || containsWindowFunction(item)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isTable(final @Nullable SqlNode from) {
+    if (from instanceof SqlIdentifier) {
+      return true;
+    }
+    return from != null && from.getKind() == SqlKind.AS
+        && ((SqlCall) from).operand(0) instanceof SqlIdentifier;
+  }
+
+  private static boolean containsWindowFunction(final SqlNode node) {
+    final boolean[] found = {false};
+    node.accept(new SqlBasicVisitor<Void>() {
+      @Override
+      public Void visit(final SqlCall call) {
+        if (call.getKind() == SqlKind.OVER) {
+          found[0] = true;
+        }
+        return super.visit(call);
+      }
+    });
+    return found[0];
+  }
+
+  private static void flattenConjunction(final SqlNode node, final List<SqlNode> conjuncts) {
+    if (node.getKind() == SqlKind.AND) {
+      for (final SqlNode operand : ((SqlCall) node).getOperandList()) {
+        flattenConjunction(operand, conjuncts);
+      }
+    } else {
+      conjuncts.add(node);
+    }
+  }
+
+  private static boolean isDimensionPredicate(final SqlNode node) {
+    if (node.getKind() != SqlKind.EQUALS) {
+      return false;
+    }
+    final List<SqlNode> operands = ((SqlCall) node).getOperandList();
+    return operands.size() == 2
+        && (isStringLiteral(operands.get(0)) && operands.get(1) instanceof SqlIdentifier
+        || operands.get(0) instanceof SqlIdentifier && isStringLiteral(operands.get(1)));
+  }
+
+  /**
+   * Only string literals: the values of the result can be compared exactly with the literals.
+   */
+  private static boolean isStringLiteral(final SqlNode node) {
+    return node instanceof SqlLiteral literal && literal.getTypeName() == SqlTypeName.CHAR;
+  }
+
+  private static SqlIdentifier identifierOperand(final SqlCall predicate) {
+    return predicate.operand(0) instanceof SqlIdentifier identifier
+        ? identifier
+        : predicate.operand(1);
+  }
+
+  private static SqlLiteral literalOperand(final SqlCall predicate) {
+    return predicate.operand(0) instanceof SqlLiteral literal ? literal : predicate.operand(1);
+  }
+
+  private static @Nullable SqlNode and(final List<SqlNode> predicates) {
+    SqlNode result = null;
+    for (final SqlNode predicate : predicates) {
+      result = result == null
+          ? predicate
+          : SqlStdOperatorTable.AND.createCall(SqlParserPos.ZERO, result, predicate);
+    }
+    return result;
+  }
+
+  private static @Nullable SqlNode or(final List<SqlNode> predicates) {
+    SqlNode result = null;
+    for (final SqlNode predicate : predicates) {
+      result = result == null
+          ? predicate
+          : SqlStdOperatorTable.OR.createCall(SqlParserPos.ZERO, result, predicate);
+    }
+    return result;
+  }
+
+  Key getKey() {
+    return key;
+  }
+
+  DataSourceRequest getRequest() {
+    return request;
+  }
+
+  /**
+   * Builds the query coalescing the given queries. The queries must have the same key.
+   * The parsed query of the first query is reused: the first query cannot be coalesced again.
+   */
+  static Coalesced coalesce(final List<CoalescableQuery> queries, final SqlDialect sqlDialect) {
+    final CoalescableQuery first = queries.getFirst();
+    final Map<List<String>, List<SqlLiteral>> distinctValues = new LinkedHashMap<>();
+    for (final CoalescableQuery query : queries) {
+      distinctValues.putIfAbsent(query.values, query.literals);
+    }
+
+    final SqlSelect select = first.select;
+    final SqlNodeList selectList = SqlNodeList.of(SqlParserPos.ZERO, select.getSelectList());
+    final SqlNodeList groupBy = SqlNodeList.of(SqlParserPos.ZERO, select.getGroup());
+    for (int i = 0; i < first.dimensions.size(); i++) {
+      selectList.add(SqlStdOperatorTable.AS.createCall(SqlParserPos.ZERO,
+          first.dimensions.get(i),
+          identifierOf(DIMENSION_ALIAS_PREFIX + i)));
+      groupBy.add(first.dimensions.get(i));
+    }
+    select.setSelectList(selectList);
+    select.setGroupBy(groupBy);
+    final List<SqlNode> predicates = new ArrayList<>();
+    if (select.getWhere() != null) {
+      predicates.add(select.getWhere());
+    }
+    predicates.add(valuesPredicate(first.dimensions, distinctValues.values()));
+    select.setWhere(and(predicates));
+
+    // the limit applies to each query - the coalesced query can return one limit per value
+    final long limit = Math.min(first.limit * distinctValues.size(), Integer.MAX_VALUE);
+    final SqlNode root = new SqlOrderBy(SqlParserPos.ZERO,
+        select,
+        first.orderBy.orderList,
+        null,
+        numericLiteralOf(limit));
+    final DataSourceRequest request = new DataSourceRequest(first.request.getTable(),
+        nodeToQuery(root, sqlDialect, QUOTE_IDENTIFIERS),
+        first.request.getOptions(),
+        first.request.getProperties());
+    return new Coalesced(request, first.dimensions.size(), limit);
+  }
+
+  private static SqlNode valuesPredicate(final List<SqlIdentifier> dimensions,
+      final Iterable<List<SqlLiteral>> distinctValues) {
+    if (dimensions.size() == 1) {
+      final SqlNodeList literals = new SqlNodeList(SqlParserPos.ZERO);
+      distinctValues.forEach(values -> literals.add(values.getFirst()));
+      return SqlStdOperatorTable.IN.createCall(SqlParserPos.ZERO, dimensions.getFirst(), literals);
+    }
+    final List<SqlNode> tuples = new ArrayList<>();
+    for (final List<SqlLiteral> values : distinctValues) {
+      final List<SqlNode> equalities = new ArrayList<>();
+      for (int i = 0; i < dimensions.size(); i++) {
+        equalities.add(SqlStdOperatorTable.EQUALS.createCall(SqlParserPos.ZERO,
+            dimensions.get(i),
+            values.get(i)));
+      }
+      tuples.add(and(equalities));
+    }
+    return or(tuples);
+  }
+
+  /**
+   * Returns the rows of the coalesced result that answer this query, without the dimension
+   * columns added by the coalesced query.
+   *
+   * Returns null if no row matches the values of this query. The values are matched as strings:
+   * a string literal on a numeric column - '01' or '1' for a value returned as 1.0 - matches no
+   * row although the data source returned rows for it. The query must then be sent on its own.
+   */
+  @Nullable DataTable extract(final Map<List<String>, int[]> rowsByValues,
+      final DataTable coalesced, final List<String> dimensionColumns) {
+    int[] rows = rowsByValues.get(values);
+    if (rows == null) {
+      return null;
+    }
+    if (rows.length > limit) {
+      rows = Arrays.copyOf(rows, (int) limit);
+    }
+    final DataFrame dataFrame = coalesced.getDataFrame()
+        .project(rows)
+        .dropSeries(dimensionColumns);
+    final DataTable dataTable = SimpleDataTable.fromDataFrame(dataFrame);
+    dataTable.addProperties(coalesced.getProperties());
+    return dataTable;
+  }
+
+  /**
+   * @param dimensionCount number of dimension columns added to the result
+   * @param limit limit of the coalesced query. If the coalesced query returns this number of
+   *     rows, some rows may be missing.
+   */
+  record Coalesced(DataSourceRequest request, int dimensionCount, long limit) {
+
+    List<String> dimensionColumns() {
+      final List<String> columns = new ArrayList<>();
+      for (int i = 0; i < dimensionCount; i++) {
+        columns.add(DIMENSION_ALIAS_PREFIX + i);
+      }
+      return columns;
+    }
+
+    boolean isTruncated(final DataTable result) {
+      return result.getDataFrame().size() >= limit;
+    }
+
+    /**
+     * Indexes the rows of the result by dimension values.
+     */
+    Map<List<String>, int[]> rowsByValues(final DataTable result) {
+      final DataFrame dataFrame = result.getDataFrame();
+      final List<String> columns = dimensionColumns();
+      final Map<List<String>, List<Integer>> rows = new HashMap<>();
+      for (int i = 0; i < dataFrame.size(); i++) {
+        final List<String> values = new ArrayList<>(columns.size());
+        for (final String column : columns) {
+          values.add(dataFrame.getString(column, i));
+        }
+        rows.computeIfAbsent(values, k -> new ArrayList<>()).add(i);
+      }
+      final Map<List<String>, int[]> indexes = new HashMap<>();
+      rows.forEach((values, list) -> indexes.put(values,
+          list.stream().mapToInt(Integer::intValue).toArray()));
+      return indexes;
+    }
+  }
+
+  record Key(String table, String baseQuery, List<String> dimensions, Map<String, String> options,
+             Map<String, String> properties) {}
+}
@@ -28,6 +28,7 @@ import static java.util.Collections.emptyList;
 import ai.startree.thirdeye.datasource.DataSourcesLoader;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datasource.DataSourceResultCache;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -44,6 +45,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +62,8 @@ public class DataSourceCache {
 
   private final DataSourceManager dataSourceManager;
   private final DataSourcesLoader dataSourcesLoader;
+  private final DataSourceCoalescingConfiguration coalescingConfiguration;
+  private final OffHeapResultCache resultCache;
 
   // fixme cyril - use a guava evicting cache based on time/usage
   private final Map<Long, CachedDataSourceEntry> cache = new HashMap<>();
@@ -73,9 +77,13 @@ public class DataSourceCache {
   @Inject
   public DataSourceCache(
       final DataSourceManager dataSourceManager,
-      final DataSourcesLoader dataSourcesLoader) {
+      final DataSourcesLoader dataSourcesLoader,
+      final DataSourceCoalescingConfiguration coalescingConfiguration,
+      final DataSourceResultCacheConfiguration resultCacheConfiguration) {
     this.dataSourceManager = dataSourceManager;
     this.dataSourcesLoader = dataSourcesLoader;
+    this.coalescingConfiguration = coalescingConfiguration;
+    this.resultCache = new OffHeapResultCache(resultCacheConfiguration, Metrics.globalRegistry);
 
     Gauge.builder("thirdeye_healthy_datasources",
             scheduledRefreshSupplier(this::getHealthyDatasourceCount, METRICS_CACHE_TIMEOUT))
@@ -131,39 +139,45 @@ public class DataSourceCache {
   }
 
   private ThirdEyeDataSource loadDataSource(final @NonNull DataSourceDTO dataSourceDto) {
-    final ThirdEyeDataSource dataSource = dataSourcesLoader.loadDataSource(dataSourceDto);
+    final DataSourceResultCache dataSourceResultCache = resultCache.forDataSource(dataSourceDto);
+    final ThirdEyeDataSource dataSource = dataSourcesLoader.loadDataSource(dataSourceDto,
+        dataSourceResultCache);
     checkState(dataSource != null,
         "Failed to construct a data source object for datasource %s", dataSourceDto);
-    final MeteredDataSource meteredDataSource = new MeteredDataSource(dataSource);
+    final MeteredDataSource meteredDataSource = new MeteredDataSource(dataSource,
+        coalescingConfiguration);
 
     // remove outdated cached datasource
     removeDataSource(dataSourceDto);
     cache.put(Objects.requireNonNull(dataSourceDto.getId()),
-        new CachedDataSourceEntry(meteredDataSource, dataSourceDto.getUpdateTime()));
+        new CachedDataSourceEntry(meteredDataSource, dataSourceDto.getUpdateTime(),
+            dataSourceResultCache));
     return meteredDataSource;
   }
 
   public void removeDataSource(final DataSourceDTO dataSourceDTO) {
     optional(cache.remove(Objects.requireNonNull(dataSourceDTO.getId())))
-        .map(CachedDataSourceEntry::dataSource)
         .ifPresent(this::close);
   }
 
   public void clear() {
     // TODO CYRIL authz validate design - for the moment clear is performed across all namespaces
-    cache.values().stream()
-        .map(CachedDataSourceEntry::dataSource)
-        .forEach(this::close);
+    cache.values().forEach(this::close);
     cache.clear();
   }
 
-  private void close(final ThirdEyeDataSource dataSource) {
+  private void close(final CachedDataSourceEntry entry) {
+    final ThirdEyeDataSource dataSource = entry.dataSource();
     try {
       dataSource.close();
     } catch (final Exception e) {
       LOG.error("Datasource {} was not flushed gracefully.", dataSource.getName(), e);
     }
+    if (entry.resultCache() != null) {
+      entry.resultCache().invalidateAll();
+    }
   }
 
-  private record CachedDataSourceEntry(MeteredDataSource dataSource, Timestamp timestamp) {}
+  private record CachedDataSourceEntry(MeteredDataSource dataSource, Timestamp timestamp,
+                                       @Nullable DataSourceResultCache resultCache) {}
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import java.time.Duration;
+
+/**
+ * Coalescing of the GROUP BY queries sent to the data sources. See {@link CoalescableQuery}.
+ */
+public class DataSourceCoalescingConfiguration {
+
+  /**
+   * Disabled by default: every eligible query waits for the window, even if no other query
+   * joins it.
+   */
+  private boolean enabled = false;
+  /**
+   * Time a query waits for other queries to coalesce with.
+   */
+  private Duration window = Duration.ofMillis(100);
+  /**
+   * Max number of queries coalesced in a single query. A full batch is sent without waiting for
+   * the end of the window.
+   */
+  private Integer maxBatchSize = 100;
+  /**
+   * Max time a query waits for the result of the coalesced query, after the window. Then the
+   * query is sent on its own.
+   */
+  private Duration timeout = Duration.ofMinutes(5);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public DataSourceCoalescingConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public Duration getWindow() {
+    return window;
+  }
+
+  public DataSourceCoalescingConfiguration setWindow(final Duration window) {
+    this.window = window;
+    return this;
+  }
+
+  public Integer getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public DataSourceCoalescingConfiguration setMaxBatchSize(final Integer maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+    return this;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  public DataSourceCoalescingConfiguration setTimeout(final Duration timeout) {
+    this.timeout = timeout;
+    return this;
+  }
+}
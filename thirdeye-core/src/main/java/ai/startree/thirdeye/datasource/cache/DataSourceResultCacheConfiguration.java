@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import java.time.Duration;
+
+/**
+ * Off-heap cache of the query results of the data sources. See {@link OffHeapResultCache}.
+ */
+public class DataSourceResultCacheConfiguration {
+
+  /**
+   * Max size of the cached results, in bytes, shared by all the data sources. The results are
+   * stored in direct memory: -XX:MaxDirectMemorySize must be larger. 0 disables the cache.
+   */
+  private long maxSizeInBytes = 64L * 1024 * 1024;
+  private Duration expiry = Duration.ofMinutes(15);
+
+  public long getMaxSizeInBytes() {
+    return maxSizeInBytes;
+  }
+
+  public DataSourceResultCacheConfiguration setMaxSizeInBytes(final long maxSizeInBytes) {
+    this.maxSizeInBytes = maxSizeInBytes;
+    return this;
+  }
+
+  public Duration getExpiry() {
+    return expiry;
+  }
+
+  public DataSourceResultCacheConfiguration setExpiry(final Duration expiry) {
+    this.expiry = expiry;
+    return this;
+  }
+}
@@ -15,6 +15,7 @@ package ai.startree.thirdeye.datasource.cache;
 
 import static ai.startree.thirdeye.spi.Constants.METRICS_TIMER_PERCENTILES;
 
+import ai.startree.thirdeye.detectionpipeline.sql.SqlLanguageTranslator;
 import ai.startree.thirdeye.spi.api.DemoDatasetApi;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
@@ -26,16 +27,23 @@ import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import io.micrometer.core.instrument.Metrics;
 import java.util.List;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * This class intercepts all data source calls and helps with telemetry, etc.
+ *
+ * When coalescing is enabled, GROUP BY queries that only differ by their dimension filters are
+ * coalesced in a single query when they are sent within a short window. This happens when many
+ * alerts on the same dataset are scheduled on the same cron. See {@link RequestCoalescer}.
  */
 public class MeteredDataSource implements ThirdEyeDataSource {
 
   private final ThirdEyeDataSource delegate;
   private final io.micrometer.core.instrument.Timer fetchTableTimer;
+  private final @Nullable RequestCoalescer requestCoalescer;
 
-  public MeteredDataSource(final ThirdEyeDataSource delegate) {
+  public MeteredDataSource(final ThirdEyeDataSource delegate,
+      final DataSourceCoalescingConfiguration coalescingConfiguration) {
     this.delegate = delegate;
     
     // deprecated with no replacement - should not be used anymore - metric should be inside the delegate
@@ -44,6 +52,13 @@ public class MeteredDataSource implements ThirdEyeDataSource {
         .description("Start: an input SQL query string is passed to the DataSource implementation. End: the result of the query is returned as a dataframe OR an exception is thrown.")
         .publishPercentiles(METRICS_TIMER_PERCENTILES)
         .register(Metrics.globalRegistry);
+    final SqlLanguage sqlLanguage = delegate.getSqlLanguage();
+    requestCoalescer = coalescingConfiguration.isEnabled() && sqlLanguage != null
+        ? new RequestCoalescer(this::fetchDelegateDataTable,
+        SqlLanguageTranslator.translate(sqlLanguage.getSqlParserConfig()),
+        SqlLanguageTranslator.translate(sqlLanguage.getSqlDialect()),
+        coalescingConfiguration)
+        : null;
   }
 
   @Override
@@ -73,6 +88,13 @@ public class MeteredDataSource implements ThirdEyeDataSource {
 
   @Override
   public DataTable fetchDataTable(final DataSourceRequest request) throws Exception {
+    if (requestCoalescer != null) {
+      return requestCoalescer.fetch(request);
+    }
+    return fetchDelegateDataTable(request);
+  }
+
+  private DataTable fetchDelegateDataTable(final DataSourceRequest request) throws Exception {
     return fetchTableTimer.recordCallable(() -> delegate.fetchDataTable(request));
   }
 
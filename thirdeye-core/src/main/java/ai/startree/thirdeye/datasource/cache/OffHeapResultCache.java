@@ -0,0 +1,223 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datasource.DataSourceResultCache;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Query result cache shared by all the data sources. Owned by the {@link DataSourceCache}: each
+ * data source gets its own view, see {@link #forDataSource(DataSourceDTO)}.
+ *
+ * Results are stored as the bytes written by the data source, in a direct buffer per entry. The
+ * cache is bounded by a global budget on these bytes. The buffer of a removed entry is freed by
+ * the GC. Direct memory is also bounded by -XX:MaxDirectMemorySize: the JVM runs a GC before
+ * failing an allocation above it.
+ *
+ * Metrics are published per data source, tagged with the data source name and namespace.
+ */
+public class OffHeapResultCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OffHeapResultCache.class);
+  private static final String CACHE_NAME = "thirdeye_cache_datasource_result";
+
+  private final long maxSizeInBytes;
+  private final @Nullable Cache<CacheKey, ByteBuffer> cache;
+  private final MeterRegistry registry;
+  private final AtomicLong sizeInBytes = new AtomicLong();
+  // a data source that is reloaded keeps its meters
+  private final Map<Tags, ViewStats> statsByTags = new ConcurrentHashMap<>();
+
+  public OffHeapResultCache(final DataSourceResultCacheConfiguration configuration,
+      final MeterRegistry registry) {
+    this.maxSizeInBytes = configuration.getMaxSizeInBytes();
+    this.registry = registry;
+    LOG.info("Data source result cache size is set to {} bytes", maxSizeInBytes);
+    this.cache = maxSizeInBytes <= 0 ? null : CacheBuilder.newBuilder()
+        // the weight budget is split across segments: a single segment can hold an entry as
+        // large as the whole budget
+        .concurrencyLevel(1)
+        .expireAfterWrite(configuration.getExpiry())
+        .maximumWeight(maxSizeInBytes)
+        .weigher((CacheKey k, ByteBuffer v) -> v.capacity())
+        .removalListener(this::onRemoval)
+        .build();
+    Gauge.builder(CACHE_NAME + "_bytes", sizeInBytes, AtomicLong::get)
+        .description("Number of direct memory bytes used by the cached data source results")
+        .register(registry);
+    Gauge.builder(CACHE_NAME + "_max_bytes", () -> maxSizeInBytes)
+        .register(registry);
+  }
+
+  /**
+   * Returns the view of the cache of the data source. Returns null if the cache is disabled.
+   */
+  public @Nullable DataSourceResultCache forDataSource(final DataSourceDTO dataSourceDto) {
+    if (cache == null) {
+      return null;
+    }
+    final Tags tags = Tags.of("datasource_name", dataSourceDto.getName(),
+        "namespace", optional(dataSourceDto.namespace()).orElse("null"));
+    return new View(statsByTags.computeIfAbsent(tags, this::newViewStats));
+  }
+
+  private ViewStats newViewStats(final Tags tags) {
+    final ViewStats stats = new ViewStats();
+    stats.registerMeters(registry, tags);
+    return stats;
+  }
+
+  private void onRemoval(final RemovalNotification<CacheKey, ByteBuffer> removal) {
+    final ByteBuffer buffer = removal.getValue();
+    if (buffer == null) {
+      return;
+    }
+    final ViewStats stats = removal.getKey().view().stats;
+    stats.entries.decrementAndGet();
+    stats.bytes.addAndGet(-buffer.capacity());
+    sizeInBytes.addAndGet(-buffer.capacity());
+    if (removal.wasEvicted()) {
+      stats.evictions.increment();
+    }
+  }
+
+  @VisibleForTesting
+  long sizeInBytes() {
+    return sizeInBytes.get();
+  }
+
+  @VisibleForTesting
+  void cleanUp() {
+    if (cache != null) {
+      cache.cleanUp();
+    }
+  }
+
+  private class View implements DataSourceResultCache {
+
+    private final ViewStats stats;
+
+    private View(final ViewStats stats) {
+      this.stats = stats;
+    }
+
+    @Override
+    public <T> @Nullable T get(final Object key, final Function<ByteBuffer, T> reader) {
+      final ByteBuffer buffer = cache.getIfPresent(new CacheKey(this, key));
+      if (buffer == null) {
+        stats.misses.increment();
+        return null;
+      }
+      stats.hits.increment();
+      return reader.apply(buffer.asReadOnlyBuffer());
+    }
+
+    @Override
+    public void put(final Object key, final int sizeInBytes, final Consumer<ByteBuffer> writer) {
+      if (sizeInBytes > maxSizeInBytes) {
+        return;
+      }
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(sizeInBytes);
+      writer.accept(buffer.duplicate());
+      stats.entries.incrementAndGet();
+      stats.bytes.addAndGet(sizeInBytes);
+      OffHeapResultCache.this.sizeInBytes.addAndGet(sizeInBytes);
+      cache.put(new CacheKey(this, key), buffer);
+    }
+
+    @Override
+    public void invalidate(final Object key) {
+      cache.invalidate(new CacheKey(this, key));
+    }
+
+    @Override
+    public void invalidateAll() {
+      cache.asMap().keySet().removeIf(key -> key.view() == this);
+    }
+  }
+
+  /**
+   * The view is compared by identity: a data source never reads the results of another one, nor
+   * of a previous instance of itself.
+   */
+  private record CacheKey(View view, Object key) {
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof CacheKey that && view == that.view && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(view) + key.hashCode();
+    }
+  }
+
+  /**
+   * Statistics of the entries of a data source. The meters follow the naming of
+   * {@link io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics}.
+   */
+  private static class ViewStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private void registerMeters(final MeterRegistry registry, final Tags viewTags) {
+      final Tags tags = viewTags.and("cache", CACHE_NAME);
+      FunctionCounter.builder("cache.gets", hits, LongAdder::doubleValue)
+          .tags(tags).tag("result", "hit")
+          .description("The number of times cache lookup methods have returned a cached value.")
+          .register(registry);
+      FunctionCounter.builder("cache.gets", misses, LongAdder::doubleValue)
+          .tags(tags).tag("result", "miss")
+          .description("The number of times cache lookup methods have returned an uncached (newly loaded) value")
+          .register(registry);
+      FunctionCounter.builder("cache.evictions", evictions, LongAdder::doubleValue)
+          .tags(tags)
+          .description("The number of times the cache was evicted.")
+          .register(registry);
+      Gauge.builder("cache.size", entries, AtomicLong::get)
+          .tags(tags)
+          .description("The number of entries in this cache.")
+          .register(registry);
+      Gauge.builder(CACHE_NAME + "_datasource_bytes", bytes, AtomicLong::get)
+          .tags(viewTags)
+          .description("Number of direct memory bytes used by the cached results of the datasource")
+          .register(registry);
+    }
+  }
+}
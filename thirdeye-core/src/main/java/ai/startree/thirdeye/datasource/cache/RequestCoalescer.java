@@ -0,0 +1,212 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import ai.startree.thirdeye.datasource.cache.CoalescableQuery.Coalesced;
+import ai.startree.thirdeye.datasource.cache.CoalescableQuery.Key;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.calcite.sql.SqlDialect;
+import org.apache.calcite.sql.parser.SqlParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the queries that can be coalesced during a short window, and sends a single coalesced
+ * query for them. See {@link CoalescableQuery}.
+ *
+ * The first query of a batch leads it: it waits for the window or for the batch to be full, then
+ * sends the coalesced query and distributes the rows to the other queries of the batch.
+ * If the coalesced query fails or may be truncated by its limit, each query is sent on its own.
+ */
+class RequestCoalescer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RequestCoalescer.class);
+
+  private final Fetcher fetcher;
+  private final SqlParser.Config sqlParserConfig;
+  private final SqlDialect sqlDialect;
+  private final long windowMillis;
+  private final int maxBatchSize;
+  private final long timeoutMillis;
+  private final Map<Key, Batch> openBatches = new ConcurrentHashMap<>();
+
+  private final Counter coalescedRequestsCounter;
+  private final Counter fallbackRequestsCounter;
+
+  RequestCoalescer(final Fetcher fetcher,
+      final SqlParser.Config sqlParserConfig,
+      final SqlDialect sqlDialect,
+      final DataSourceCoalescingConfiguration configuration) {
+    this.fetcher = fetcher;
+    this.sqlParserConfig = sqlParserConfig;
+    this.sqlDialect = sqlDialect;
+    this.windowMillis = configuration.getWindow().toMillis();
+    this.maxBatchSize = configuration.getMaxBatchSize();
+    this.timeoutMillis = configuration.getTimeout().toMillis();
+
+    coalescedRequestsCounter = Counter.builder("thirdeye_fetch_data_table_coalesced")
+        .description("Count of fetch data table requests served by a coalesced query.")
+        .register(Metrics.globalRegistry);
+    fallbackRequestsCounter = Counter.builder("thirdeye_fetch_data_table_coalescing_fallback")
+        .description("Count of fetch data table requests sent on their own after the coalesced query failed, was truncated or timed out.")
+        .register(Metrics.globalRegistry);
+  }
+
+  DataTable fetch(final DataSourceRequest request) throws Exception {
+    final Optional<CoalescableQuery> query = CoalescableQuery.parse(request,
+        sqlParserConfig,
+        sqlDialect);
+    if (query.isEmpty()) {
+      return fetcher.fetch(request);
+    }
+    final Member member = new Member(query.get());
+    while (true) {
+      final Batch batch = openBatches.computeIfAbsent(member.query.getKey(), k -> new Batch());
+      final int position = batch.add(member);
+      if (position == 0) {
+        return lead(batch, member);
+      } else if (position > 0) {
+        return awaitResult(member);
+      }
+      // the batch was sealed concurrently
+      openBatches.remove(member.query.getKey(), batch);
+    }
+  }
+
+  private DataTable lead(final Batch batch, final Member leader) throws Exception {
+    try {
+      batch.full.await(windowMillis, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      batch.seal().forEach(Member::sendOnItsOwn);
+      openBatches.remove(leader.query.getKey(), batch);
+      throw e;
+    }
+    final List<Member> members = batch.seal();
+    openBatches.remove(leader.query.getKey(), batch);
+    if (members.size() == 1) {
+      return fetcher.fetch(leader.query.getRequest());
+    }
+    try {
+      final Coalesced coalesced = CoalescableQuery.coalesce(members.stream()
+          .map(m -> m.query)
+          .toList(), sqlDialect);
+      final DataTable result = fetcher.fetch(coalesced.request());
+      if (coalesced.isTruncated(result)) {
+        LOG.debug("Coalesced query may be truncated by its limit. Sending {} queries on their own.",
+            members.size());
+      } else {
+        final Map<List<String>, int[]> rowsByValues = coalesced.rowsByValues(result);
+        final List<String> dimensionColumns = coalesced.dimensionColumns();
+        for (final Member member : members) {
+          final DataTable extracted = member.query.extract(rowsByValues, result, dimensionColumns);
+          // a member without matching rows is sent on its own below
+          if (extracted != null) {
+            member.result.complete(extracted);
+            coalescedRequestsCounter.increment();
+          }
+        }
+      }
+    } catch (final Exception e) {
+      LOG.warn("Coalesced query failed. Sending {} queries on their own.", members.size(), e);
+    } finally {
+      // no-op for the members that received their result
+      members.forEach(Member::sendOnItsOwn);
+    }
+    return resultOrFetch(leader, leader.result.getNow(null));
+  }
+
+  private DataTable awaitResult(final Member member) throws Exception {
+    DataTable result;
+    try {
+      result = member.result.get(windowMillis + timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (final TimeoutException e) {
+      LOG.warn("Timeout waiting for the coalesced query. Sending the query on its own.");
+      result = null;
+    } catch (final ExecutionException e) {
+      // never completed exceptionally
+      result = null;
+    }
+    return resultOrFetch(member, result);
+  }
+
+  private DataTable resultOrFetch(final Member member, final DataTable result) throws Exception {
+    if (result != null) {
+      return result;
+    }
+    fallbackRequestsCounter.increment();
+    return fetcher.fetch(member.query.getRequest());
+  }
+
+  interface Fetcher {
+
+    DataTable fetch(DataSourceRequest request) throws Exception;
+  }
+
+  private static class Member {
+
+    private final CoalescableQuery query;
+    /**
+     * Completed with null if the query must be sent on its own.
+     */
+    private final CompletableFuture<DataTable> result = new CompletableFuture<>();
+
+    private Member(final CoalescableQuery query) {
+      this.query = query;
+    }
+
+    private void sendOnItsOwn() {
+      result.complete(null);
+    }
+  }
+
+  private class Batch {
+
+    private final List<Member> members = new ArrayList<>();
+    private final CountDownLatch full = new CountDownLatch(1);
+    private boolean sealed = false;
+
+    /**
+     * Returns the position of the member in the batch, or -1 if the batch is sealed.
+     */
+    private synchronized int add(final Member member) {
+      if (sealed) {
+        return -1;
+      }
+      members.add(member);
+      if (members.size() >= maxBatchSize) {
+        sealed = true;
+        full.countDown();
+      }
+      return members.size() - 1;
+    }
+
+    private synchronized List<Member> seal() {
+      sealed = true;
+      return List.copyOf(members);
+    }
+  }
+}
@@ -19,10 +19,12 @@ import static ai.startree.thirdeye.datasource.query.QueryProjection.getColName;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static ai.startree.thirdeye.util.CalciteUtils.identifierDescOf;
 import static ai.startree.thirdeye.util.CalciteUtils.identifierOf;
+import static com.google.common.base.Preconditions.checkArgument;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
 import ai.startree.thirdeye.datasource.query.SelectQuery;
 import ai.startree.thirdeye.datasource.query.SelectQueryTranslator;
+import ai.startree.thirdeye.rootcause.configuration.RcaConfiguration;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.dataframe.LongSeries;
@@ -40,15 +42,20 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.apache.calcite.sql.SqlIdentifier;
 import org.apache.commons.collections4.MapUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,15 +66,20 @@ public class DefaultAggregationLoader implements AggregationLoader {
 
   private static final long TIMEOUT = 600000;
   private static final String ROLLUP_NAME = "OTHER";
+  private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
 
   private final DataSourceCache dataSourceCache;
-  private final ExecutorService executorService;
+  private final int maxConcurrentQueries;
+  private final Map<DataSourceKey, ExecutorService> executors = new ConcurrentHashMap<>();
 
   @Inject
-  public DefaultAggregationLoader(final DataSourceCache dataSourceCache) {
+  public DefaultAggregationLoader(final DataSourceCache dataSourceCache,
+      final RcaConfiguration rcaConfiguration) {
     this.dataSourceCache = dataSourceCache;
-    executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat(
-        "aggregation-loader-%d").build());
+    this.maxConcurrentQueries = rcaConfiguration.getMaxConcurrentQueriesPerDataSource();
+    checkArgument(maxConcurrentQueries > 0,
+        "rca.maxConcurrentQueriesPerDataSource must be strictly positive. Got %s",
+        maxConcurrentQueries);
   }
 
   /**
@@ -117,6 +129,35 @@ public class DefaultAggregationLoader implements AggregationLoader {
 
   @Override
   public DataFrame loadBreakdown(final MetricSlice slice, final int limit) throws Exception {
+    return loadBreakdowns(List.of(slice), limit).get(0);
+  }
+
+  /**
+   * Submits the queries of all the slices before collecting any result, so that the breakdowns of
+   * the current and baseline windows are fetched in a single round of queries.
+   */
+  @Override
+  public List<DataFrame> loadBreakdowns(final List<MetricSlice> slices, final int limit)
+      throws Exception {
+    final List<Map<String, Future<DataFrame>>> responses = new ArrayList<>(slices.size());
+    for (final MetricSlice slice : slices) {
+      responses.add(submitBreakdown(slice, limit));
+    }
+
+    final List<DataFrame> breakdowns = new ArrayList<>(slices.size());
+    for (int i = 0; i < slices.size(); i++) {
+      breakdowns.add(collectBreakdown(slices.get(i), responses.get(i)));
+    }
+    return breakdowns;
+  }
+
+  /**
+   * Submits one query per dimension of the slice.
+   *
+   * @return the query results, keyed by dimension, in the order of the dimensions
+   */
+  private Map<String, Future<DataFrame>> submitBreakdown(final MetricSlice slice,
+      final int limit) {
     final DatasetConfigDTO datasetConfigDTO = slice.getDatasetConfigDTO();
 
     final List<String> dimensions = new ArrayList<>(optional(datasetConfigDTO.getDimensions()).map(
@@ -129,16 +170,7 @@ public class DefaultAggregationLoader implements AggregationLoader {
 
     LOG.info("Querying breakdown '{}' for dimensions '{}'", slice, dimensions);
 
-    final DataFrame dfAll = DataFrame
-        .builder(COL_DIMENSION_NAME + ":STRING",
-            COL_DIMENSION_VALUE + ":STRING",
-            Constants.COL_VALUE + ":DOUBLE")
-        .build()
-        .setIndex(COL_DIMENSION_NAME, COL_DIMENSION_VALUE);
-
-    final Map<String, Future<DataFrame>> responses = new HashMap<>();
-
-    // submit requests
+    final Map<String, Future<DataFrame>> responses = new LinkedHashMap<>();
     for (final String dimension : dimensions) {
       final SqlIdentifier dimensionIdentifier = identifierOf(dimension);
       final SelectQueryTranslator request = SelectQuery.from(slice)
@@ -148,15 +180,24 @@ public class DefaultAggregationLoader implements AggregationLoader {
           .orderBy(identifierDescOf(Constants.COL_VALUE))
           .limit(limit)
           .build();
-      final Future<DataFrame> res = getQueryResultAsync(request, slice.getDataSourceDto());
-
-      responses.put(dimension, res);
+      responses.put(dimension, getQueryResultAsync(request, slice.getDataSourceDto()));
     }
+    return responses;
+  }
+
+  private DataFrame collectBreakdown(final MetricSlice slice,
+      final Map<String, Future<DataFrame>> responses) throws Exception {
+    final DataFrame dfAll = DataFrame
+        .builder(COL_DIMENSION_NAME + ":STRING",
+            COL_DIMENSION_VALUE + ":STRING",
+            Constants.COL_VALUE + ":DOUBLE")
+        .build()
+        .setIndex(COL_DIMENSION_NAME, COL_DIMENSION_VALUE);
 
-    // collect responses
     final List<DataFrame> results = new ArrayList<>();
-    for (final String dimension : dimensions) {
-      final DataFrame res = responses.get(dimension).get(TIMEOUT, TimeUnit.MILLISECONDS);
+    for (final Map.Entry<String, Future<DataFrame>> response : responses.entrySet()) {
+      final String dimension = response.getKey();
+      final DataFrame res = response.getValue().get(TIMEOUT, TimeUnit.MILLISECONDS);
       final DataFrame dfResult = new DataFrame()
           .addSeries(COL_DIMENSION_NAME, StringSeries.fillValues(res.size(), dimension))
           .addSeries(COL_DIMENSION_VALUE, res.get(dimension))
@@ -196,12 +237,42 @@ public class DefaultAggregationLoader implements AggregationLoader {
           .select(dimensionIdentifier)
           .groupBy(dimensionIdentifier);
     }
+    if (!dimensions.isEmpty()) {
+      // ensure multiple runs return the same groups when num rows > limit - see te-636
+      selectQuery.orderBy(identifierDescOf(Constants.COL_VALUE));
+    }
     return getQueryResultAsync(selectQuery.build(), slice.getDataSourceDto());
   }
 
   private Future<DataFrame> getQueryResultAsync(final SelectQueryTranslator request,
       final DataSourceDTO dataSourceDto) {
-    return executorService.submit(() -> getQueryResult(request, dataSourceDto));
+    return getExecutor(dataSourceDto).submit(() -> getQueryResult(request, dataSourceDto));
+  }
+
+  /**
+   * Queries are run by one bounded executor per datasource, so that a breakdown on a dataset with
+   * many dimensions does not send all its queries at once to the datasource. Queries above the
+   * limit wait in the queue of the executor. Executors are keyed by datasource namespace and
+   * name: a datasource that is not persisted has no id.
+   */
+  private ExecutorService getExecutor(final DataSourceDTO dataSourceDto) {
+    final DataSourceKey dataSourceKey = new DataSourceKey(dataSourceDto.namespace(),
+        Objects.requireNonNull(dataSourceDto.getName(), "datasource name is null"));
+    return executors.computeIfAbsent(dataSourceKey, key -> {
+      final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrentQueries,
+          maxConcurrentQueries,
+          IDLE_THREAD_TIMEOUT_SECONDS,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder()
+              .setNameFormat(("aggregation-loader-" + key.namespace() + "-" + key.name())
+                  .replace("%", "%%") + "-%d")
+              .setDaemon(true)
+              .build());
+      // threads of datasources that are not queried anymore are released
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    });
   }
 
   private DataFrame getQueryResult(final SelectQueryTranslator request, final DataSourceDTO dataSourceDto)
@@ -214,4 +285,6 @@ public class DefaultAggregationLoader implements AggregationLoader {
     final DataSourceRequest requestV2 = new DataSourceRequest(null, query, customOptions, Map.of());
     return thirdEyeDataSource.fetchDataTable(requestV2).getDataFrame();
   }
+
+  private record DataSourceKey(@Nullable String namespace, String name) {}
 }
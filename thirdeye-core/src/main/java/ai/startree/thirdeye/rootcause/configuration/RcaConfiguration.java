@@ -26,6 +26,7 @@ public class RcaConfiguration {
 
   private List<String> formatters = Collections.emptyList();
   private int parallelism = 1;
+  private int maxConcurrentQueriesPerDataSource = 8;
   @JsonProperty("topContributors")
   private ContributorsFinderConfiguration contributorsFinderConfiguration = new ContributorsFinderConfiguration();
 
@@ -38,6 +39,16 @@ public class RcaConfiguration {
     return this;
   }
 
+  public int getMaxConcurrentQueriesPerDataSource() {
+    return maxConcurrentQueriesPerDataSource;
+  }
+
+  public RcaConfiguration setMaxConcurrentQueriesPerDataSource(
+      final int maxConcurrentQueriesPerDataSource) {
+    this.maxConcurrentQueriesPerDataSource = maxConcurrentQueriesPerDataSource;
+    return this;
+  }
+
   public List<String> getFormatters() {
     return formatters;
   }
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.util;
+
+import static ai.startree.thirdeye.spi.ThirdEyeStatus.ERR_TEMPLATE_MISSING_PROPERTY;
+import static com.google.common.base.Preconditions.checkArgument;
+
+import ai.startree.thirdeye.spi.ThirdEyeException;
+import ai.startree.thirdeye.spi.datalayer.Templatable;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.FloatNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.fasterxml.jackson.databind.node.ShortNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.text.StringSubstitutor;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A template compiled into a reusable render plan.
+ *
+ * The template is converted once to a json tree. String values containing a ${...} placeholder
+ * and templated {@link Templatable} values are recorded as slots in the tree. Rendering rebuilds
+ * the nodes on the path of the slots only, substitutes the slots, and binds the tree to the
+ * template class. There is no json text serialization and parsing.
+ *
+ * Compiled templates are immutable and thread-safe. They can be cached.
+ */
+public class CompiledTemplate<T> {
+
+  private static final String PLACEHOLDER_PREFIX = "${";
+  private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new SimpleModule()
+      .addSerializer(Templatable.class, new TemplatableSlotSerializer())
+      .addSerializer(String.class, new StringSlotSerializer()));
+  private static final JsonNodeFactory NODE_FACTORY = JsonNodeFactory.instance;
+
+  private final Class<T> templateClass;
+  private final JsonNode tree;
+  // container nodes of the tree that contain a slot. Compared by identity.
+  private final Set<JsonNode> nodesWithSlots;
+
+  private CompiledTemplate(final Class<T> templateClass, final JsonNode tree,
+      final Set<JsonNode> nodesWithSlots) {
+    this.templateClass = templateClass;
+    this.tree = tree;
+    this.nodesWithSlots = nodesWithSlots;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> CompiledTemplate<T> compile(final T template) throws IOException {
+    final JsonNode tree = toTree(template);
+    final Set<JsonNode> nodesWithSlots = Collections.newSetFromMap(new IdentityHashMap<>());
+    final JsonNode preparedTree = prepare(tree, nodesWithSlots);
+    return new CompiledTemplate<>((Class<T>) template.getClass(), preparedTree, nodesWithSlots);
+  }
+
+  /**
+   * Returns a new instance of the template, with the values applied.
+   *
+   * @throws JsonMappingException if a property used by the template is missing in the values
+   */
+  public T render(final Map<String, Object> values) throws IOException {
+    final JsonNode renderedTree;
+    try {
+      renderedTree = renderTree(new Substitution(values));
+    } catch (final ThirdEyeException | IllegalArgumentException e) {
+      throw new JsonMappingException(null, e.getMessage(), e);
+    }
+    return MAPPER.treeToValue(renderedTree, templateClass);
+  }
+
+  private JsonNode renderTree(final Substitution substitution) throws IOException {
+    return render(tree, substitution);
+  }
+
+  private JsonNode render(final JsonNode node, final Substitution substitution)
+      throws IOException {
+    if (node instanceof POJONode pojoNode && pojoNode.getPojo() instanceof Slot slot) {
+      return resolve(slot, substitution);
+    }
+    if (!nodesWithSlots.contains(node)) {
+      // no slot in the subtree - the node is shared between renders. It is never mutated.
+      return node;
+    }
+    if (node instanceof ObjectNode objectNode) {
+      final ObjectNode copy = NODE_FACTORY.objectNode();
+      final Iterator<Map.Entry<String, JsonNode>> fields = objectNode.fields();
+      while (fields.hasNext()) {
+        final Map.Entry<String, JsonNode> field = fields.next();
+        copy.set(field.getKey(), render(field.getValue(), substitution));
+      }
+      return copy;
+    }
+    final ArrayNode copy = NODE_FACTORY.arrayNode(node.size());
+    for (final JsonNode element : node) {
+      copy.add(render(element, substitution));
+    }
+    return copy;
+  }
+
+  private static JsonNode resolve(final Slot slot, final Substitution substitution)
+      throws IOException {
+    if (slot instanceof StringSlot stringSlot) {
+      return TextNode.valueOf(substitution.replace(stringSlot));
+    }
+    final String property = ((TemplatableSlot) slot).property();
+    checkArgument(substitution.values.containsKey(property),
+        "Property not provided for templatable value: %s", property);
+    final @Nullable Object value = substitution.values.get(property);
+    // the value is rendered too - it can contain placeholders
+    final JsonNode valueNode;
+    if (value == null) {
+      valueNode = NullNode.getInstance();
+    } else if (value instanceof String stringValue) {
+      valueNode = TextNode.valueOf(stringValue.contains(PLACEHOLDER_PREFIX)
+          ? substitution.replace(StringSlot.of(stringValue))
+          : stringValue);
+    } else if (value instanceof Integer intValue) {
+      valueNode = IntNode.valueOf(intValue);
+    } else if (value instanceof Long longValue) {
+      valueNode = normalizedNumber(LongNode.valueOf(longValue));
+    } else if (value instanceof Double doubleValue) {
+      valueNode = DoubleNode.valueOf(doubleValue);
+    } else if (value instanceof Boolean booleanValue) {
+      valueNode = BooleanNode.valueOf(booleanValue);
+    } else {
+      valueNode = compile(value).renderTree(substitution);
+    }
+    return NODE_FACTORY.objectNode().set(Templatable.VALUE_FIELD_STRING, valueNode);
+  }
+
+  private static JsonNode toTree(final Object value) throws IOException {
+    try (final TokenBuffer buffer = new TokenBuffer(MAPPER, false)) {
+      MAPPER.writeValue(buffer, value);
+      try (final JsonParser parser = buffer.asParser()) {
+        return MAPPER.readTree(parser);
+      }
+    }
+  }
+
+  /**
+   * Marks the container nodes that contain a slot. Numbers are normalized to the types
+   * obtained when parsing json text, so that untyped values (eg Map<String, Object>) are bound
+   * to the same java types as when the template is read from the database.
+   *
+   * @return the node to use in place of the given node
+   */
+  private static JsonNode prepare(final JsonNode node, final Set<JsonNode> nodesWithSlots) {
+    if (node instanceof ObjectNode objectNode) {
+      boolean hasSlot = false;
+      for (final Map.Entry<String, JsonNode> field : objectNode.properties()) {
+        final JsonNode preparedChild = prepare(field.getValue(), nodesWithSlots);
+        if (preparedChild != field.getValue()) {
+          field.setValue(preparedChild);
+        }
+        hasSlot |= isSlot(preparedChild) || nodesWithSlots.contains(preparedChild);
+      }
+      if (hasSlot) {
+        nodesWithSlots.add(objectNode);
+      }
+      return objectNode;
+    }
+    if (node instanceof ArrayNode arrayNode) {
+      boolean hasSlot = false;
+      for (int i = 0; i < arrayNode.size(); i++) {
+        final JsonNode child = arrayNode.get(i);
+        final JsonNode preparedChild = prepare(child, nodesWithSlots);
+        if (preparedChild != child) {
+          arrayNode.set(i, preparedChild);
+        }
+        hasSlot |= isSlot(preparedChild) || nodesWithSlots.contains(preparedChild);
+      }
+      if (hasSlot) {
+        nodesWithSlots.add(arrayNode);
+      }
+      return arrayNode;
+    }
+    return normalizedNumber(node);
+  }
+
+  private static JsonNode normalizedNumber(final JsonNode node) {
+    if (node instanceof ShortNode) {
+      return IntNode.valueOf(node.intValue());
+    } else if (node instanceof LongNode || node instanceof BigIntegerNode) {
+      if (node.canConvertToInt()) {
+        return IntNode.valueOf(node.intValue());
+      } else if (node.canConvertToLong()) {
+        return LongNode.valueOf(node.longValue());
+      }
+      return node;
+    } else if (node instanceof FloatNode || node instanceof DecimalNode) {
+      // same value as the one parsed from the json text of the number
+      return DoubleNode.valueOf(Double.parseDouble(node.asText()));
+    } else if (node instanceof BinaryNode) {
+      // binary values are base64 strings in json text
+      return TextNode.valueOf(node.asText());
+    }
+    return node;
+  }
+
+  private static boolean isSlot(final JsonNode node) {
+    return node instanceof POJONode pojoNode && pojoNode.getPojo() instanceof Slot;
+  }
+
+  private sealed interface Slot permits StringSlot, TemplatableSlot {}
+
+  /**
+   * A string value containing at least one placeholder.
+   *
+   * @param segments if the placeholders are simple ${name} variables, the literal and variable
+   *     segments of the text, alternating and starting with a literal. Else null: the text is
+   *     rendered with a {@link StringSubstitutor}.
+   */
+  private record StringSlot(String text, @Nullable String[] segments) implements Slot {
+
+    private static StringSlot of(final String text) {
+      if (text.contains("$$") || text.contains(":-")) {
+        // escaped placeholders and default values
+        return new StringSlot(text, null);
+      }
+      final List<String> segments = new ArrayList<>();
+      int literalStart = 0;
+      int placeholderStart;
+      while ((placeholderStart = text.indexOf(PLACEHOLDER_PREFIX, literalStart)) >= 0) {
+        final int nameStart = placeholderStart + PLACEHOLDER_PREFIX.length();
+        final int placeholderEnd = text.indexOf('}', nameStart);
+        if (placeholderEnd < 0) {
+          return new StringSlot(text, null);
+        }
+        final String name = text.substring(nameStart, placeholderEnd);
+        if (name.isEmpty() || name.indexOf('$') >= 0 || name.indexOf('{') >= 0) {
+          // nested placeholders
+          return new StringSlot(text, null);
+        }
+        segments.add(text.substring(literalStart, placeholderStart));
+        segments.add(name);
+        literalStart = placeholderEnd + 1;
+      }
+      segments.add(text.substring(literalStart));
+      return new StringSlot(text, segments.toArray(String[]::new));
+    }
+  }
+
+  /**
+   * A {@link Templatable} with a templated value.
+   */
+  private record TemplatableSlot(String property) implements Slot {}
+
+  /**
+   * Values of a render. Not thread-safe.
+   */
+  private static class Substitution {
+
+    private final Map<String, Object> values;
+    private @Nullable StringSubstitutor substitutor = null;
+
+    private Substitution(final Map<String, Object> values) {
+      this.values = values;
+    }
+
+    private String replace(final StringSlot slot) {
+      if (slot.segments() == null) {
+        return replace(slot.text());
+      }
+      final String[] segments = slot.segments();
+      final StringBuilder sb = new StringBuilder(slot.text().length());
+      for (int i = 0; i < segments.length; i++) {
+        if (i % 2 == 0) {
+          sb.append(segments[i]);
+        } else {
+          final @Nullable Object value = values.get(segments[i]);
+          if (value == null) {
+            // same message as the StringSubstitutor
+            throw new ThirdEyeException(ERR_TEMPLATE_MISSING_PROPERTY,
+                "Cannot resolve variable '%s' (enableSubstitutionInVariables=true).".formatted(
+                    segments[i]));
+          }
+          sb.append(value);
+        }
+      }
+      return sb.toString();
+    }
+
+    private String replace(final String text) {
+      if (substitutor == null) {
+        substitutor = new StringSubstitutor(values).setDisableSubstitutionInValues(true)
+            .setEnableSubstitutionInVariables(true)
+            .setEnableUndefinedVariableException(true);
+      }
+      try {
+        return substitutor.replace(text);
+      } catch (final IllegalArgumentException e) {
+        throw new ThirdEyeException(ERR_TEMPLATE_MISSING_PROPERTY, e.getMessage());
+      }
+    }
+  }
+
+  private static class StringSlotSerializer extends JsonSerializer<String> {
+
+    @Override
+    public void serialize(final String value, final JsonGenerator jsonGenerator,
+        final SerializerProvider serializerProvider) throws IOException {
+      if (value.contains(PLACEHOLDER_PREFIX)) {
+        jsonGenerator.writeEmbeddedObject(StringSlot.of(value));
+      } else {
+        jsonGenerator.writeString(value);
+      }
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static class TemplatableSlotSerializer extends JsonSerializer<Templatable> {
+
+    @Override
+    public void serialize(final Templatable templatable, final JsonGenerator jsonGenerator,
+        final SerializerProvider serializerProvider) throws IOException {
+      final String templatedValue = templatable.getTemplatedValue();
+      if (templatedValue != null) {
+        final String property = templatedValue.substring(2, templatedValue.length() - 1);
+        jsonGenerator.writeEmbeddedObject(new TemplatableSlot(property));
+      } else {
+        jsonGenerator.writeStartObject();
+        serializerProvider.defaultSerializeField(Templatable.VALUE_FIELD_STRING,
+            templatable.getValue(), jsonGenerator);
+        jsonGenerator.writeEndObject();
+      }
+    }
+  }
+}
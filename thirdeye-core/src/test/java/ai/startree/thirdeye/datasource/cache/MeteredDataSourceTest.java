@@ -0,0 +1,320 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static ai.startree.thirdeye.datasource.cache.CoalescableQuery.DIMENSION_ALIAS_PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdEyeSqlParserConfig;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdeyeSqlDialect;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MeteredDataSourceTest {
+
+  private static final String COUNTRY_COLUMN = DIMENSION_ALIAS_PREFIX + "0";
+
+  private ExecutorService executorService;
+
+  @BeforeMethod
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(3);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  private static DataSourceRequest request(final String query) {
+    return new DataSourceRequest("table", query, Map.of(), Map.of());
+  }
+
+  private static String countryQuery(final String country) {
+    return countryQuery(country, 1000);
+  }
+
+  private static String countryQuery(final String country, final int limit) {
+    return "SELECT ts AS ts, SUM(met) AS met FROM mytable WHERE ts >= 0 AND ts < 10 AND country = '"
+        + country + "' GROUP BY ts ORDER BY ts LIMIT " + limit;
+  }
+
+  /**
+   * The batch is sent when it is full: the window is long enough for all the requests to join.
+   */
+  private static MeteredDataSource meteredDataSource(final StubDataSource delegate,
+      final int batchSize) {
+    return new MeteredDataSource(delegate, new DataSourceCoalescingConfiguration()
+        .setEnabled(true)
+        .setWindow(Duration.ofMinutes(1))
+        .setMaxBatchSize(batchSize));
+  }
+
+  private List<DataTable> fetchConcurrently(final MeteredDataSource dataSource,
+      final List<DataSourceRequest> requests) throws Exception {
+    final List<Future<DataTable>> futures = new ArrayList<>();
+    for (final DataSourceRequest request : requests) {
+      futures.add(executorService.submit(() -> dataSource.fetchDataTable(request)));
+    }
+    final List<DataTable> results = new ArrayList<>();
+    for (final Future<DataTable> future : futures) {
+      results.add(future.get(10, TimeUnit.SECONDS));
+    }
+    return results;
+  }
+
+  @Test
+  public void testRequestsWithDifferentFiltersAreCoalesced() throws Exception {
+    final StubDataSource delegate = new StubDataSource(query -> new DataFrame()
+        .addSeries("ts", 1L, 1L, 2L, 2L, 2L)
+        .addSeries("met", 10., 20., 11., 21., 31.)
+        .addSeries(COUNTRY_COLUMN, "US", "FR", "US", "FR", "IN"));
+    final MeteredDataSource dataSource = meteredDataSource(delegate, 3);
+
+    final List<DataTable> results = fetchConcurrently(dataSource, List.of(
+        request(countryQuery("US")),
+        request(countryQuery("FR")),
+        request(countryQuery("IN"))));
+
+    assertThat(delegate.queries).hasSize(1);
+    final String coalescedQuery = delegate.queries.getFirst();
+    assertThat(coalescedQuery).contains("\"country\" IN (");
+    assertThat(coalescedQuery).contains("'US'", "'FR'", "'IN'");
+    assertThat(coalescedQuery).contains("GROUP BY \"ts\", \"country\"");
+    assertThat(results.get(0).getDataFrame()).isEqualTo(new DataFrame()
+        .addSeries("ts", 1L, 2L)
+        .addSeries("met", 10., 11.));
+    assertThat(results.get(1).getDataFrame()).isEqualTo(new DataFrame()
+        .addSeries("ts", 1L, 2L)
+        .addSeries("met", 20., 21.));
+    assertThat(results.get(2).getDataFrame()).isEqualTo(new DataFrame()
+        .addSeries("ts", 2L)
+        .addSeries("met", 31.));
+  }
+
+  @Test
+  public void testRequestsFilteringMultipleDimensionsAreCoalesced() throws Exception {
+    final StubDataSource delegate = new StubDataSource(query -> new DataFrame()
+        .addSeries("ts", 1L, 1L)
+        .addSeries("met", 10., 20.)
+        .addSeries(COUNTRY_COLUMN, "US", "FR")
+        .addSeries(DIMENSION_ALIAS_PREFIX + "1", "ios", "web"));
+    final MeteredDataSource dataSource = meteredDataSource(delegate, 2);
+
+    final List<DataTable> results = fetchConcurrently(dataSource, List.of(
+        request("SELECT ts AS ts, SUM(met) AS met FROM mytable WHERE ts >= 0 "
+            + "AND country = 'US' AND platform = 'ios' GROUP BY ts LIMIT 1000"),
+        request("SELECT ts AS ts, SUM(met) AS met FROM mytable WHERE ts >= 0 "
+            + "AND platform = 'web' AND country = 'FR' GROUP BY ts LIMIT 1000")));
+
+    assertThat(delegate.queries).hasSize(1);
+    // tuples of values - not the cross product of the values
+    assertThat(delegate.queries.getFirst()).contains(
+        "WHERE \"ts\" >= 0 AND (",
+        "\"country\" = 'US' AND \"platform\" = 'ios'",
+        " OR ",
+        "\"country\" = 'FR' AND \"platform\" = 'web'");
+    assertThat(results.get(0).getDataFrame().getDoubles("met").toList()).containsExactly(10.);
+    assertThat(results.get(1).getDataFrame().getDoubles("met").toList()).containsExactly(20.);
+  }
+
+  @Test
+  public void testSingleRequestIsSentAsIs() throws Exception {
+    final StubDataSource delegate = new StubDataSource(query -> new DataFrame()
+        .addSeries("ts", 1L)
+        .addSeries("met", 10.));
+    final MeteredDataSource dataSource = new MeteredDataSource(delegate,
+        new DataSourceCoalescingConfiguration().setEnabled(true).setWindow(Duration.ZERO));
+
+    final DataTable result = dataSource.fetchDataTable(request(countryQuery("US")));
+
+    assertThat(delegate.queries).containsExactly(countryQuery("US"));
+    assertThat(result.getDataFrame().getSeriesNames()).containsExactly("ts", "met");
+  }
+
+  @Test
+  public void testCoalescingIsDisabledByDefault() throws Exception {
+    final StubDataSource delegate = new StubDataSource(query -> new DataFrame()
+        .addSeries("ts", 1L)
+        .addSeries("met", 10.));
+    final MeteredDataSource dataSource = new MeteredDataSource(delegate,
+        new DataSourceCoalescingConfiguration());
+
+    fetchConcurrently(dataSource, List.of(request(countryQuery("US")),
+        request(countryQuery("FR"))));
+
+    assertThat(delegate.queries).containsExactlyInAnyOrder(countryQuery("US"),
+        countryQuery("FR"));
+  }
+
+  @Test
+  public void testUnsupportedRequestsAreNotCoalesced() throws Exception {
+    final StubDataSource delegate = new StubDataSource(query -> new DataFrame()
+        .addSeries("ts", 1L));
+    final MeteredDataSource dataSource = meteredDataSource(delegate, 2);
+    final String notGrouped = "SELECT ts, met FROM mytable WHERE country = 'US' LIMIT 1000";
+    final String notNamed =
+        "SELECT ts, SUM(met) FROM mytable WHERE country = 'US' GROUP BY ts LIMIT 1000";
+    // some data sources apply an implicit limit to GROUP BY queries
+    final String noLimit =
+        "SELECT ts AS ts, SUM(met) AS met FROM mytable WHERE country = 'US' GROUP BY ts";
+
+    dataSource.fetchDataTable(request(notGrouped));
+    dataSource.fetchDataTable(request(notNamed));
+    dataSource.fetchDataTable(request(noLimit));
+
+    assertThat(delegate.queries).containsExactly(notGrouped, notNamed, noLimit);
+  }
+
+  @Test
+  public void testTruncatedCoalescedResultFallsBackToSeparateRequests() throws Exception {
+    final StubDataSource delegate = new StubDataSource(query -> query.contains(COUNTRY_COLUMN)
+        ? new DataFrame()
+        .addSeries("ts", 1L, 1L, 2L, 2L)
+        .addSeries("met", 10., 20., 11., 21.)
+        .addSeries(COUNTRY_COLUMN, "US", "FR", "US", "FR")
+        : new DataFrame()
+            .addSeries("ts", 1L, 2L)
+            .addSeries("met", 1., 2.));
+    final MeteredDataSource dataSource = meteredDataSource(delegate, 2);
+
+    final List<DataTable> results = fetchConcurrently(dataSource, List.of(
+        request(countryQuery("US", 2)),
+        request(countryQuery("FR", 2))));
+
+    assertThat(delegate.queries).hasSize(3);
+    // one limit per value
+    assertThat(delegate.queries.getFirst()).contains("FETCH NEXT 4 ROWS ONLY");
+    assertThat(delegate.queries.subList(1, 3)).containsExactlyInAnyOrder(
+        countryQuery("US", 2),
+        countryQuery("FR", 2));
+    for (final DataTable result : results) {
+      assertThat(result.getDataFrame().getDoubles("met").toList()).containsExactly(1., 2.);
+    }
+  }
+
+  @Test
+  public void testUnmatchedValueFallsBackToSeparateRequest() throws Exception {
+    // a string literal on a numeric column: '01' is returned as 1
+    final StubDataSource delegate = new StubDataSource(query -> query.contains(COUNTRY_COLUMN)
+        ? new DataFrame()
+        .addSeries("ts", 1L, 1L)
+        .addSeries("met", 10., 20.)
+        .addSeries(COUNTRY_COLUMN, "1", "2")
+        : new DataFrame()
+            .addSeries("ts", 1L)
+            .addSeries("met", 10.));
+    final MeteredDataSource dataSource = meteredDataSource(delegate, 2);
+
+    final List<DataTable> results = fetchConcurrently(dataSource, List.of(
+        request(countryQuery("01")),
+        request(countryQuery("2"))));
+
+    assertThat(delegate.queries).hasSize(2);
+    assertThat(delegate.queries.get(1)).isEqualTo(countryQuery("01"));
+    assertThat(results.get(0).getDataFrame().getDoubles("met").toList()).containsExactly(10.);
+    assertThat(results.get(1).getDataFrame().getDoubles("met").toList()).containsExactly(20.);
+  }
+
+  @Test
+  public void testFailedCoalescedQueryFallsBackToSeparateRequests() throws Exception {
+    final StubDataSource delegate = new StubDataSource(query -> {
+      if (query.contains(COUNTRY_COLUMN)) {
+        throw new IllegalStateException("unsupported query");
+      }
+      return new DataFrame().addSeries("ts", 1L).addSeries("met", 1.);
+    });
+    final MeteredDataSource dataSource = meteredDataSource(delegate, 2);
+
+    final List<DataTable> results = fetchConcurrently(dataSource, List.of(
+        request(countryQuery("US")),
+        request(countryQuery("FR"))));
+
+    assertThat(delegate.queries).hasSize(3);
+    assertThat(results).allSatisfy(result ->
+        assertThat(result.getDataFrame().getDoubles("met").toList()).containsExactly(1.));
+  }
+
+  private static class StubDataSource implements ThirdEyeDataSource {
+
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+    private final Function<String, DataFrame> results;
+
+    private StubDataSource(final Function<String, DataFrame> results) {
+      this.results = results;
+    }
+
+    @Override
+    public String getName() {
+      return "stub";
+    }
+
+    @Override
+    public void init(final ThirdEyeDataSourceContext context) {
+    }
+
+    @Override
+    public DataTable fetchDataTable(final DataSourceRequest request) {
+      queries.add(request.getQuery());
+      return SimpleDataTable.fromDataFrame(results.apply(request.getQuery()));
+    }
+
+    @Override
+    public SqlLanguage getSqlLanguage() {
+      return new PinotLikeSqlLanguage();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static class PinotLikeSqlLanguage implements SqlLanguage {
+
+    @Override
+    public ThirdEyeSqlParserConfig getSqlParserConfig() {
+      return new ThirdEyeSqlParserConfig.Builder()
+          .withLex("MYSQL_ANSI")
+          .withConformance("BABEL")
+          .withParserFactory("SqlBabelParserImpl")
+          .build();
+    }
+
+    @Override
+    public ThirdeyeSqlDialect getSqlDialect() {
+      return new ThirdeyeSqlDialect.Builder()
+          .withBaseDialect("AnsiSqlDialect")
+          .withIdentifierQuoteString("\"")
+          .build();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datasource.DataSourceResultCache;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import org.testng.annotations.Test;
+
+public class OffHeapResultCacheTest {
+
+  private static final DataSourceDTO DATA_SOURCE = new DataSourceDTO().setName("pinot");
+
+  private static OffHeapResultCache newCache(final long maxSizeInBytes,
+      final SimpleMeterRegistry registry) {
+    return new OffHeapResultCache(new DataSourceResultCacheConfiguration()
+        .setMaxSizeInBytes(maxSizeInBytes), registry);
+  }
+
+  private static void putLong(final DataSourceResultCache cache, final String key,
+      final long value) {
+    cache.put(key, 8, buffer -> buffer.putLong(value));
+  }
+
+  private static Long getLong(final DataSourceResultCache cache, final String key) {
+    return cache.get(key, ByteBuffer::getLong);
+  }
+
+  @Test
+  public void testHitReadsTheWrittenBytes() {
+    final OffHeapResultCache cache = newCache(1_000, new SimpleMeterRegistry());
+    final DataSourceResultCache view = cache.forDataSource(DATA_SOURCE);
+
+    assertThat(getLong(view, "q1")).isNull();
+    putLong(view, "q1", 42L);
+
+    assertThat(getLong(view, "q1")).isEqualTo(42L);
+    assertThat(cache.sizeInBytes()).isEqualTo(8);
+  }
+
+  @Test
+  public void testEntriesAreEvictedWhenByteBudgetIsExceeded() {
+    final OffHeapResultCache cache = newCache(16, new SimpleMeterRegistry());
+    final DataSourceResultCache view = cache.forDataSource(DATA_SOURCE);
+
+    for (int i = 0; i < 10; i++) {
+      putLong(view, "q" + i, i);
+    }
+    cache.cleanUp();
+
+    // the size only counts the cached entries
+    assertThat(cache.sizeInBytes()).isLessThanOrEqualTo(16);
+    // too large for the budget
+    view.put("large", 17, buffer -> buffer.put(new byte[17]));
+    assertThat(view.get("large", ByteBuffer::remaining)).isNull();
+  }
+
+  @Test
+  public void testEntryLargerThanAQuarterOfTheBudgetIsCached() {
+    // the budget is not split across cache segments
+    final OffHeapResultCache cache = newCache(1_000, new SimpleMeterRegistry());
+    final DataSourceResultCache view = cache.forDataSource(DATA_SOURCE);
+
+    view.put("large", 900, buffer -> buffer.put(new byte[900]));
+    cache.cleanUp();
+
+    assertThat(view.get("large", ByteBuffer::remaining)).isEqualTo(900);
+    assertThat(cache.sizeInBytes()).isEqualTo(900);
+  }
+
+  @Test
+  public void testViewsDoNotShareEntries() {
+    final OffHeapResultCache cache = newCache(1_000, new SimpleMeterRegistry());
+    final DataSourceResultCache view = cache.forDataSource(DATA_SOURCE);
+    final DataSourceResultCache otherView = cache.forDataSource(DATA_SOURCE);
+    putLong(view, "q1", 1L);
+    putLong(otherView, "q1", 2L);
+
+    view.invalidateAll();
+
+    assertThat(getLong(view, "q1")).isNull();
+    assertThat(getLong(otherView, "q1")).isEqualTo(2L);
+    assertThat(cache.sizeInBytes()).isEqualTo(8);
+  }
+
+  @Test
+  public void testDisabledCache() {
+    assertThat(newCache(0, new SimpleMeterRegistry()).forDataSource(DATA_SOURCE)).isNull();
+  }
+
+  @Test
+  public void testMetricsArePublishedPerDataSource() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final OffHeapResultCache cache = newCache(1_000, registry);
+    final Tags tags = Tags.of("datasource_name", "pinot", "namespace", "null");
+    final DataSourceResultCache view = cache.forDataSource(DATA_SOURCE);
+
+    getLong(view, "q1");
+    putLong(view, "q1", 1L);
+    getLong(view, "q1");
+
+    assertThat(registry.get("cache.gets").tags(tags).tag("result", "hit")
+        .functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("cache.gets").tags(tags).tag("result", "miss")
+        .functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("cache.size").tags(tags).gauge().value()).isEqualTo(1);
+    assertThat(registry.get("thirdeye_cache_datasource_result_datasource_bytes").tags(tags)
+        .gauge().value()).isEqualTo(8);
+
+    // a reloaded data source keeps publishing with the same meters
+    view.invalidateAll();
+    final DataSourceResultCache reloadedView = cache.forDataSource(DATA_SOURCE);
+    assertThat(registry.get("cache.size").tags(tags).gauge().value()).isEqualTo(0);
+    getLong(reloadedView, "q1");
+    assertThat(registry.get("cache.gets").tags(tags).tag("result", "miss")
+        .functionCounter().count()).isEqualTo(2);
+    assertThat(registry.get("thirdeye_cache_datasource_result_bytes").gauge().value())
+        .isEqualTo(0);
+  }
+}
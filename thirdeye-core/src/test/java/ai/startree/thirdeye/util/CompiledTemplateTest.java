@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ai.startree.thirdeye.spi.Constants;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+
+public class CompiledTemplateTest {
+
+  @Test
+  public void testRenderIsRepeatableWithDifferentValues() throws IOException {
+    final Map<String, Object> template = new HashMap<>(Map.of(
+        "constant", "no placeholder",
+        "nested", Map.of("k", "prefix_${k1}"),
+        "list", List.of("${k1}", "${k2}")));
+    final CompiledTemplate<Map<String, Object>> compiled = CompiledTemplate.compile(template);
+
+    final Map<String, Object> first = compiled.render(Map.of("k1", "a", "k2", "b"));
+    final Map<String, Object> second = compiled.render(Map.of("k1", "c", "k2", "d"));
+
+    assertThat(first).isEqualTo(Map.of(
+        "constant", "no placeholder",
+        "nested", Map.of("k", "prefix_a"),
+        "list", List.of("a", "b")));
+    assertThat(second).isEqualTo(Map.of(
+        "constant", "no placeholder",
+        "nested", Map.of("k", "prefix_c"),
+        "list", List.of("c", "d")));
+    // the template is not modified
+    assertThat(template.get("nested")).isEqualTo(Map.of("k", "prefix_${k1}"));
+  }
+
+  @Test
+  public void testUntypedNumbersAreBoundAsParsedFromJson() throws IOException {
+    final Map<String, Object> template = new HashMap<>(Map.of(
+        "long", 5L,
+        "bigLong", 5_000_000_000L,
+        "float", 0.1f));
+
+    final Map<String, Object> rendered = CompiledTemplate.compile(template).render(Map.of());
+
+    assertThat(rendered.get("long")).isEqualTo(5);
+    assertThat(rendered.get("bigLong")).isEqualTo(5_000_000_000L);
+    assertThat(rendered.get("float")).isEqualTo(0.1);
+  }
+
+  @Test
+  public void testCompiledAlertTemplateRendersLikeApplyContext() throws IOException {
+    final AlertTemplateDTO template = Constants.TEMPLATABLE_OBJECT_MAPPER.readValue(
+        IOUtils.resourceToString("/alertTemplateDto.json", StandardCharsets.UTF_8),
+        AlertTemplateDTO.class);
+    final CompiledTemplate<AlertTemplateDTO> compiled = CompiledTemplate.compile(template);
+    final Map<String, Object> values = new HashMap<>(Map.of(
+        "aggregationColumn", "views",
+        "completenessDelay", "P0D",
+        "monitoringGranularity", "P1D",
+        "max", "${max}",
+        "timezone", "UTC",
+        "queryFilters", "",
+        "aggregationFunction", "sum",
+        "rcaExcludedDimensions", List.of(),
+        "timeColumnFormat", "1,DAYS,SIMPLE_DATE_FORMAT,yyyyMMdd",
+        "timeColumn", "date"));
+    values.putAll(Map.of(
+        "min", "${min}",
+        "rcaAggregationFunction", "",
+        "queryLimit", "100000000",
+        "startTime", 1,
+        "endTime", 2,
+        "dataSource", "pinotQuickStartLocal",
+        "dataset", "pageviews"));
+
+    final Map<String, Object> otherValues = new HashMap<>(values);
+    otherValues.putAll(Map.of("dataset", "other dataset", "startTime", 3));
+    compiled.render(otherValues);
+    final AlertTemplateDTO rendered = compiled.render(values);
+
+    final String expected = IOUtils.resourceToString("/alertTemplateDtoRendered.json",
+        StandardCharsets.UTF_8);
+    assertThat(Constants.TEMPLATABLE_OBJECT_MAPPER.readTree(
+        Constants.TEMPLATABLE_OBJECT_MAPPER.writeValueAsString(rendered)))
+        .isEqualTo(Constants.TEMPLATABLE_OBJECT_MAPPER.readTree(expected));
+  }
+
+  @Test
+  public void testFailAtMissingValue() throws IOException {
+    final CompiledTemplate<Map<String, Object>> compiled = CompiledTemplate.compile(
+        new HashMap<>(Map.of("k", "${k1}")));
+
+    assertThatThrownBy(() -> compiled.render(Map.of("k2", "v2")))
+        .isInstanceOf(JsonMappingException.class);
+  }
+}
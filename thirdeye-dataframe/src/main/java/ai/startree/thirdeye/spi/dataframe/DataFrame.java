@@ -409,8 +409,7 @@ public class DataFrame {
     }
 
     // perform join, generate row pairs
-    Series.JoinPairs pairs = filterJoinPairs(Series.hashJoinOuter(leftSeries, rightSeries),
-        joinType);
+    Series.JoinPairs pairs = filterJoinPairs(Joins.joinOuter(leftSeries, rightSeries), joinType);
 
     // extract projection indices
     int[] fromIndexLeft = new int[pairs.size()];
@@ -955,6 +955,63 @@ public abstract class Grouping {
       return super.makeResult(StringSeries.buildFrom(values));
     }
 
+    @Override
+    GroupingDataFrame min(Series s) {
+      switch (s.type()) {
+        case LONG:
+          return super.makeResult(LongSeries.buildFrom(
+              RollingWindows.min(s.getLongs().values(), this.windowSize)));
+        case DOUBLE:
+          return super.makeResult(DoubleSeries.buildFrom(
+              RollingWindows.min(s.getDoubles().values(), this.windowSize)));
+      }
+      return super.min(s);
+    }
+
+    @Override
+    GroupingDataFrame max(Series s) {
+      switch (s.type()) {
+        case LONG:
+          return super.makeResult(LongSeries.buildFrom(
+              RollingWindows.max(s.getLongs().values(), this.windowSize)));
+        case DOUBLE:
+          return super.makeResult(DoubleSeries.buildFrom(
+              RollingWindows.max(s.getDoubles().values(), this.windowSize)));
+      }
+      return super.max(s);
+    }
+
+    @Override
+    GroupingDataFrame mean(Series s) {
+      if (isNumeric(s)) {
+        return super.makeResult(DoubleSeries.buildFrom(
+            RollingWindows.mean(s.getDoubles().values(), this.windowSize)));
+      }
+      return super.mean(s);
+    }
+
+    @Override
+    GroupingDataFrame median(Series s) {
+      if (isNumeric(s)) {
+        return super.makeResult(DoubleSeries.buildFrom(
+            RollingWindows.median(s.getDoubles().values(), this.windowSize)));
+      }
+      return super.median(s);
+    }
+
+    @Override
+    GroupingDataFrame std(Series s) {
+      if (isNumeric(s)) {
+        return super.makeResult(DoubleSeries.buildFrom(
+            RollingWindows.std(s.getDoubles().values(), this.windowSize)));
+      }
+      return super.std(s);
+    }
+
+    private static boolean isNumeric(Series s) {
+      return s.type() == Series.SeriesType.LONG || s.type() == Series.SeriesType.DOUBLE;
+    }
+
     public static GroupingByMovingWindow from(int windowSize, int size) {
       if (windowSize <= 0) {
         throw new IllegalArgumentException("windowSize must be > 0");
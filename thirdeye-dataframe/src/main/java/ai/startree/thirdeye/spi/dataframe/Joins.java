@@ -0,0 +1,265 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Join algorithms specialized for the common key types. Falls back to
+ * {@link Series#hashJoinOuter(Series[], Series[])} for the other cases.
+ *
+ * The join pairs are the same as the generic join, in the same order: the left rows in order,
+ * each with its matching right rows in order, then the right rows without a match, in order.
+ * As in the generic join, the right keys are converted to the type of the left keys, and null
+ * values match null values.
+ */
+final class Joins {
+
+  /**
+   * Marks a left row that cannot match any right row. Codes of the right rows are positive.
+   */
+  private static final long NO_MATCH = -1;
+
+  private Joins() {
+  }
+
+  /**
+   * Returns the pairs of an outer join. Selects the algorithm from the key types:
+   * - a single LONG key: merge join if both sides are sorted, else primitive hash join
+   * - one or two STRING keys: keys are dictionary encoded to ints, then joined as above
+   * - any other key: generic hash join
+   */
+  static Series.JoinPairs joinOuter(final Series[] left, final Series[] right) {
+    if (left.length != right.length) {
+      throw new IllegalArgumentException(
+          "Number of series on the left side of the join must be equal to the right side");
+    }
+    if (left.length <= 0) {
+      throw new IllegalArgumentException("Must join on at least one series");
+    }
+    Series.assertSameLength(left);
+    Series.assertSameLength(right);
+
+    if (left.length == 1 && left[0].type() == Series.SeriesType.LONG) {
+      return joinOuter(left[0].getLongs().values(), right[0].getLongs().values());
+    }
+    if (left.length <= 2 && allOfType(left, Series.SeriesType.STRING)) {
+      return joinOuterStrings(left, right);
+    }
+    return Series.hashJoinOuter(left, right);
+  }
+
+  private static boolean allOfType(final Series[] series, final Series.SeriesType type) {
+    for (final Series s : series) {
+      if (s.type() != type) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Series.JoinPairs joinOuter(final long[] left, final long[] right) {
+    if (isSorted(left) && isSorted(right)) {
+      return mergeJoinOuter(left, right);
+    }
+    return hashJoinOuter(left, right);
+  }
+
+  /**
+   * Encodes each string key to the index of its value in a dictionary of the right values.
+   * Two keys are combined into a single long. Left rows with a value absent on the right are
+   * encoded to NO_MATCH. The codes of dictionary-encoded series are reused.
+   */
+  private static Series.JoinPairs joinOuterStrings(final Series[] left, final Series[] right) {
+    final long[] leftCodes = new long[left[0].size()];
+    final long[] rightCodes = new long[right[0].size()];
+    for (int column = 0; column < left.length; column++) {
+      final StringSeries leftSeries = left[column].getStrings();
+      final StringSeries rightSeries = right[column].getStrings();
+      final Map<String, Integer> dictionary = new HashMap<>();
+      final StringSeries.Encoding rightEncoding = rightSeries.encoding();
+      if (rightEncoding != null) {
+        final String[] rightDictionary = rightEncoding.dictionary();
+        for (int code = 0; code < rightDictionary.length; code++) {
+          dictionary.put(rightDictionary[code], code);
+        }
+        final int[] codes = rightEncoding.codes();
+        for (int j = 0; j < codes.length; j++) {
+          rightCodes[j] = (rightCodes[j] << Integer.SIZE) | codes[j];
+        }
+      } else {
+        final String[] rightValues = rightSeries.values();
+        for (int j = 0; j < rightValues.length; j++) {
+          final int code = dictionary.computeIfAbsent(rightValues[j], v -> dictionary.size());
+          rightCodes[j] = (rightCodes[j] << Integer.SIZE) | code;
+        }
+      }
+      final StringSeries.Encoding leftEncoding = leftSeries.encoding();
+      if (leftEncoding != null) {
+        // translate the left dictionary once, then each row with an array lookup
+        final String[] leftDictionary = leftEncoding.dictionary();
+        final long[] translated = new long[leftDictionary.length];
+        for (int code = 0; code < leftDictionary.length; code++) {
+          final Integer rightCode = dictionary.get(leftDictionary[code]);
+          translated[code] = rightCode == null ? NO_MATCH : rightCode;
+        }
+        final int[] codes = leftEncoding.codes();
+        for (int i = 0; i < codes.length; i++) {
+          leftCodes[i] = combine(leftCodes[i], translated[codes[i]]);
+        }
+      } else {
+        final String[] leftValues = leftSeries.values();
+        for (int i = 0; i < leftValues.length; i++) {
+          final Integer code = dictionary.get(leftValues[i]);
+          leftCodes[i] = combine(leftCodes[i], code == null ? NO_MATCH : code);
+        }
+      }
+    }
+    return hashJoinOuter(leftCodes, rightCodes);
+  }
+
+  private static long combine(final long previousCodes, final long code) {
+    if (previousCodes == NO_MATCH || code == NO_MATCH) {
+      return NO_MATCH;
+    }
+    return (previousCodes << Integer.SIZE) | code;
+  }
+
+  private static boolean isSorted(final long[] values) {
+    for (int i = 1; i < values.length; i++) {
+      if (values[i - 1] > values[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Outer join of two sorted arrays. The right rows matching a left row are contiguous.
+   */
+  private static Series.JoinPairs mergeJoinOuter(final long[] left, final long[] right) {
+    final Series.JoinPairs pairs = new Series.JoinPairs(left.length);
+    final boolean[] touchedRight = new boolean[right.length];
+    int start = 0;
+    for (int i = 0; i < left.length; i++) {
+      final long key = left[i];
+      while (start < right.length && right[start] < key) {
+        start++;
+      }
+      int j = start;
+      while (j < right.length && right[j] == key) {
+        pairs.add(i, j);
+        touchedRight[j] = true;
+        j++;
+      }
+      if (j == start) {
+        pairs.add(i, -1);
+      }
+    }
+    addUntouchedRight(pairs, touchedRight);
+    return pairs;
+  }
+
+  /**
+   * Outer join with a hash table of the right keys. Left keys equal to NO_MATCH do not match.
+   */
+  private static Series.JoinPairs hashJoinOuter(final long[] left, final long[] right) {
+    final Series.JoinPairs pairs = new Series.JoinPairs(left.length);
+    final boolean[] touchedRight = new boolean[right.length];
+    final LongMultimap hashRight = new LongMultimap(right);
+    for (int i = 0; i < left.length; i++) {
+      int j = left[i] == NO_MATCH ? -1 : hashRight.first(left[i]);
+      if (j == -1) {
+        pairs.add(i, -1);
+        continue;
+      }
+      while (j != -1) {
+        pairs.add(i, j);
+        touchedRight[j] = true;
+        j = hashRight.next(j);
+      }
+    }
+    addUntouchedRight(pairs, touchedRight);
+    return pairs;
+  }
+
+  private static void addUntouchedRight(final Series.JoinPairs pairs,
+      final boolean[] touchedRight) {
+    for (int j = 0; j < touchedRight.length; j++) {
+      if (!touchedRight[j]) {
+        pairs.add(-1, j);
+      }
+    }
+  }
+
+  /**
+   * Open-addressing hash table from a long key to the rows with this key. The rows of a key are
+   * chained in increasing order.
+   */
+  private static final class LongMultimap {
+
+    private final long[] keys;
+    private final int[] heads;
+    private final int[] next;
+    private final int mask;
+
+    private LongMultimap(final long[] values) {
+      final int capacity = Integer.highestOneBit(Math.max(1, values.length) * 2) * 2;
+      this.keys = new long[capacity];
+      // head row + 1 - 0 is empty
+      this.heads = new int[capacity];
+      this.next = new int[values.length];
+      this.mask = capacity - 1;
+      // insert in reverse order so that chains are in increasing order
+      for (int j = values.length - 1; j >= 0; j--) {
+        final int slot = slot(values[j]);
+        next[j] = heads[slot] - 1;
+        keys[slot] = values[j];
+        heads[slot] = j + 1;
+      }
+    }
+
+    private int slot(final long key) {
+      int slot = hash(key) & mask;
+      while (heads[slot] != 0 && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    /**
+     * @return the first row with the key, -1 if there is none
+     */
+    private int first(final long key) {
+      return heads[slot(key)] - 1;
+    }
+
+    /**
+     * @return the next row with the same key as the row, -1 if there is none
+     */
+    private int next(final int row) {
+      return next[row];
+    }
+
+    private static int hash(final long key) {
+      // murmur3 finalizer
+      long h = key;
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      return (int) h;
+    }
+  }
+}
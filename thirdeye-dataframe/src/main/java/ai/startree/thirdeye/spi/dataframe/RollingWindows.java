@@ -0,0 +1,323 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.dataframe;
+
+import java.util.Arrays;
+
+/**
+ * Linear-time aggregations over moving windows, used by
+ * {@link Grouping.GroupingByMovingWindow}.
+ *
+ * The results are the same as aggregating each window separately: null values are ignored, and
+ * the result is null if the window has no value (or fewer than two values for std). The first
+ * {@code windowSize - 1} results are null, because their window is incomplete.
+ */
+final class RollingWindows {
+
+  private RollingWindows() {
+  }
+
+  static long[] min(final long[] values, final int windowSize) {
+    return minOrMax(values, windowSize, false);
+  }
+
+  static long[] max(final long[] values, final int windowSize) {
+    return minOrMax(values, windowSize, true);
+  }
+
+  static double[] min(final double[] values, final int windowSize) {
+    return minOrMax(values, windowSize, false);
+  }
+
+  static double[] max(final double[] values, final int windowSize) {
+    return minOrMax(values, windowSize, true);
+  }
+
+  /**
+   * Monotonic deque: holds the indices of the window values that can still become the min (or
+   * max), with values in increasing (or decreasing) order. The head is the result.
+   */
+  private static long[] minOrMax(final long[] values, final int windowSize, final boolean max) {
+    final long[] results = new long[values.length];
+    final int[] deque = new int[values.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (head < tail && deque[head] <= i - windowSize) {
+        head++;
+      }
+      if (!LongSeries.isNull(values[i])) {
+        while (head < tail && (max ? values[deque[tail - 1]] <= values[i]
+            : values[deque[tail - 1]] >= values[i])) {
+          tail--;
+        }
+        deque[tail++] = i;
+      }
+      results[i] = i < windowSize - 1 || head == tail ? LongSeries.NULL : values[deque[head]];
+    }
+    return results;
+  }
+
+  private static double[] minOrMax(final double[] values, final int windowSize,
+      final boolean max) {
+    final double[] results = new double[values.length];
+    final int[] deque = new int[values.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (head < tail && deque[head] <= i - windowSize) {
+        head++;
+      }
+      if (!DoubleSeries.isNull(values[i])) {
+        while (head < tail && (max ? values[deque[tail - 1]] <= values[i]
+            : values[deque[tail - 1]] >= values[i])) {
+          tail--;
+        }
+        deque[tail++] = i;
+      }
+      results[i] = i < windowSize - 1 || head == tail ? DoubleSeries.NULL : values[deque[head]];
+    }
+    return results;
+  }
+
+  static double[] mean(final double[] values, final int windowSize) {
+    return moments(values, windowSize, false);
+  }
+
+  static double[] std(final double[] values, final int windowSize) {
+    return moments(values, windowSize, true);
+  }
+
+  /**
+   * Running sums of the values and of their squares. The values are shifted by an estimate of
+   * the window mean to limit cancellation errors. The sums are recomputed from the window every
+   * {@code windowSize} steps, so rounding errors do not accumulate: O(n) in total.
+   */
+  private static double[] moments(final double[] values, final int windowSize,
+      final boolean std) {
+    final double[] results = new double[values.length];
+    double shift = 0;
+    double sum = 0;
+    double sumSquares = 0;
+    int count = 0;
+    int stepsSinceRecompute = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (!DoubleSeries.isNull(values[i])) {
+        final double d = values[i] - shift;
+        sum += d;
+        sumSquares += d * d;
+        count++;
+      }
+      if (i >= windowSize && !DoubleSeries.isNull(values[i - windowSize])) {
+        final double d = values[i - windowSize] - shift;
+        sum -= d;
+        sumSquares -= d * d;
+        count--;
+        if (!Double.isFinite(d)) {
+          // infinity - infinity: the sums cannot be updated
+          stepsSinceRecompute = windowSize;
+        }
+      }
+
+      if (++stepsSinceRecompute >= windowSize) {
+        final int from = Math.max(0, i - windowSize + 1);
+        shift = meanOf(values, from, i + 1);
+        if (!Double.isFinite(shift)) {
+          shift = 0;
+        }
+        sum = 0;
+        sumSquares = 0;
+        for (int j = from; j <= i; j++) {
+          if (!DoubleSeries.isNull(values[j])) {
+            final double d = values[j] - shift;
+            sum += d;
+            sumSquares += d * d;
+          }
+        }
+        stepsSinceRecompute = 0;
+      }
+
+      if (i < windowSize - 1) {
+        results[i] = DoubleSeries.NULL;
+      } else if (std) {
+        results[i] = count <= 1 ? DoubleSeries.NULL
+            : Math.sqrt(Math.max(0, (sumSquares - sum * sum / count) / (count - 1)));
+      } else {
+        results[i] = count <= 0 ? DoubleSeries.NULL : shift + sum / count;
+      }
+    }
+    return results;
+  }
+
+  private static double meanOf(final double[] values, final int from, final int to) {
+    double sum = 0;
+    int count = 0;
+    for (int j = from; j < to; j++) {
+      if (!DoubleSeries.isNull(values[j])) {
+        sum += values[j];
+        count++;
+      }
+    }
+    return count <= 0 ? 0 : sum / count;
+  }
+
+  /**
+   * Two heaps: the lower half of the window values in a max heap, the upper half in a min heap.
+   * The lower heap holds one more value than the upper heap if the count is odd. Values leaving
+   * the window are removed directly with their position in the heap: O(n log w) in total.
+   */
+  static double[] median(final double[] values, final int windowSize) {
+    final double[] results = new double[values.length];
+    final int heapCapacity = Math.min(windowSize, values.length);
+    final IndexHeap lower = new IndexHeap(values, heapCapacity, true);
+    final IndexHeap upper = new IndexHeap(values, heapCapacity, false);
+    for (int i = 0; i < values.length; i++) {
+      if (i >= windowSize && !DoubleSeries.isNull(values[i - windowSize])) {
+        if (!lower.remove(i - windowSize)) {
+          upper.remove(i - windowSize);
+        }
+      }
+      if (!DoubleSeries.isNull(values[i])) {
+        // the max of the lower half and the new value goes to the upper half
+        lower.add(i);
+        upper.add(lower.poll());
+      }
+      while (upper.size() > lower.size()) {
+        lower.add(upper.poll());
+      }
+      while (lower.size() > upper.size() + 1) {
+        upper.add(lower.poll());
+      }
+
+      if (i < windowSize - 1 || lower.isEmpty()) {
+        results[i] = DoubleSeries.NULL;
+      } else if (lower.size() > upper.size()) {
+        results[i] = values[lower.peek()];
+      } else {
+        results[i] = (values[lower.peek()] + values[upper.peek()]) / 2;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Binary heap of indices, ordered by the values at the indices. Tracks the position of each
+   * index in the heap, so that any index can be removed in O(log n).
+   */
+  private static final class IndexHeap {
+
+    private final double[] values;
+    private final boolean max;
+    private final int[] heap;
+    // position in the heap by index modulo capacity, -1 if the index is not in the heap
+    private final int[] positions;
+    private int size = 0;
+
+    private IndexHeap(final double[] values, final int capacity, final boolean max) {
+      this.values = values;
+      this.max = max;
+      this.heap = new int[capacity];
+      this.positions = new int[capacity];
+      Arrays.fill(this.positions, -1);
+    }
+
+    private boolean isEmpty() {
+      return size == 0;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private int peek() {
+      return heap[0];
+    }
+
+    private void add(final int index) {
+      heap[size] = index;
+      positions[index % positions.length] = size;
+      size++;
+      siftUp(size - 1);
+    }
+
+    private int poll() {
+      final int index = heap[0];
+      removeAt(0);
+      return index;
+    }
+
+    /**
+     * @return false if the index is not in the heap
+     */
+    private boolean remove(final int index) {
+      final int position = positions[index % positions.length];
+      if (position == -1 || heap[position] != index) {
+        return false;
+      }
+      removeAt(position);
+      return true;
+    }
+
+    private void removeAt(final int position) {
+      positions[heap[position] % positions.length] = -1;
+      size--;
+      if (position == size) {
+        return;
+      }
+      heap[position] = heap[size];
+      positions[heap[position] % positions.length] = position;
+      siftDown(position);
+      siftUp(position);
+    }
+
+    private void siftUp(int position) {
+      while (position > 0) {
+        final int parent = (position - 1) / 2;
+        if (!before(heap[position], heap[parent])) {
+          return;
+        }
+        swap(position, parent);
+        position = parent;
+      }
+    }
+
+    private void siftDown(int position) {
+      while (true) {
+        final int left = 2 * position + 1;
+        if (left >= size) {
+          return;
+        }
+        final int right = left + 1;
+        final int child = right < size && before(heap[right], heap[left]) ? right : left;
+        if (!before(heap[child], heap[position])) {
+          return;
+        }
+        swap(position, child);
+        position = child;
+      }
+    }
+
+    private boolean before(final int a, final int b) {
+      return max ? values[a] > values[b] : values[a] < values[b];
+    }
+
+    private void swap(final int a, final int b) {
+      final int index = heap[a];
+      heap[a] = heap[b];
+      heap[b] = index;
+      positions[heap[a] % positions.length] = a;
+      positions[heap[b] % positions.length] = b;
+    }
+  }
+}
@@ -28,6 +28,14 @@ import org.apache.commons.lang3.math.NumberUtils;
 
 /**
  * Series container for String objects.
+ *
+ * <br/>A series can be dictionary encoded: it then only stores an int code per row that indexes a
+ * dictionary of the distinct values, and values are decoded on access.
+ * Calling {@link #values()} decodes the series once: it then stores the decoded values instead
+ * of the codes and is no longer encoded.
+ * Sorting, grouping by value and joins then operate on the codes instead of the strings.
+ * Low-cardinality series, like dimension columns, are encoded when built with
+ * {@link #buildCompressedFrom(String...)}. Projections of an encoded series share its dictionary.
  */
 public final class StringSeries extends TypedSeries<StringSeries> {
 
@@ -132,7 +140,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     @Override
     public Builder addSeries(Collection<Series> series) {
       for (Series s : series) {
-        this.addValues(s.getStrings().values);
+        this.addValues(s.getStrings().readValues());
       }
       return this;
     }
@@ -157,6 +165,41 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     return new StringSeries(values);
   }
 
+  /**
+   * Returns a dictionary-encoded series if the values have a low cardinality, else a plain
+   * series that wraps the array without copy. The cardinality is first estimated on a sample
+   * of the values, so that high-cardinality values are not hashed.
+   *
+   * @param values series values
+   * @return string series
+   */
+  public static StringSeries buildCompressedFrom(String... values) {
+    if (values.length > CARDINALITY_SAMPLE_SIZE && !hasLowCardinalitySample(values)) {
+      return new StringSeries(values);
+    }
+    StringSeries encoded = encode(values, values.length / MIN_ROWS_PER_DICTIONARY_VALUE);
+    if (encoded != null) {
+      return encoded;
+    }
+    return new StringSeries(values);
+  }
+
+  /**
+   * Returns {@code true} if a sample of evenly spaced values has at least
+   * {@link #MIN_ROWS_PER_DICTIONARY_VALUE} rows per distinct value.
+   */
+  private static boolean hasLowCardinalitySample(String[] values) {
+    int step = values.length / CARDINALITY_SAMPLE_SIZE;
+    Set<String> distinct = new HashSet<>();
+    for (int i = 0; i < CARDINALITY_SAMPLE_SIZE; i++) {
+      distinct.add(values[i * step]);
+      if (distinct.size() > CARDINALITY_SAMPLE_SIZE / MIN_ROWS_PER_DICTIONARY_VALUE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public static StringSeries empty() {
     return new StringSeries();
   }
@@ -169,13 +212,38 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     return builder().fillValues(size, value).build();
   }
 
-  // CAUTION: The array is final, but values are inherently modifiable
-  private final String[] values;
+  /**
+   * A series is dictionary encoded only if it has at least this many rows per distinct value.
+   */
+  private static final int MIN_ROWS_PER_DICTIONARY_VALUE = 2;
+
+  /**
+   * Number of values sampled to estimate the cardinality before dictionary encoding a series.
+   */
+  private static final int CARDINALITY_SAMPLE_SIZE = 1024;
+
+  // CAUTION: values are inherently modifiable
+  // null while the series is dictionary encoded - set once when values() decodes the series
+  private volatile String[] values;
+
+  // null if the series is not encoded - released when values() decodes the series
+  // read before the values: the values are set before the encoding is released
+  private volatile Encoding encoding;
+
+  /**
+   * Dictionary encoding of a series. Value i is {@code dictionary[codes[i]]}. Equal values have
+   * equal codes. The dictionary may contain values that are not in the series.
+   */
+  record Encoding(int[] codes, String[] dictionary) {}
 
   private StringSeries(String... values) {
     this.values = values;
   }
 
+  private StringSeries(Encoding encoding) {
+    this.encoding = encoding;
+  }
+
   @Override
   public Builder getBuilder() {
     return new Builder();
@@ -188,7 +256,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public double getDouble(int index) {
-    return getDouble(this.values[index]);
+    return getDouble(this.get(index));
   }
 
   public static double getDouble(String value) {
@@ -200,7 +268,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public long getLong(int index) {
-    return getLong(this.values[index]);
+    return getLong(this.get(index));
   }
 
   public static long getLong(String value) {
@@ -216,7 +284,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public byte getBoolean(int index) {
-    return getBoolean(this.values[index]);
+    return getBoolean(this.get(index));
   }
 
   public static byte getBoolean(String value) {
@@ -231,7 +299,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public String getString(int index) {
-    return getString(this.values[index]);
+    return getString(this.get(index));
   }
 
   public static String getString(String string) {
@@ -240,7 +308,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public Object getObject(int index) {
-    return getObject(this.values[index]);
+    return getObject(this.get(index));
   }
 
   public static Object getObject(String value) {
@@ -251,16 +319,24 @@ public final class StringSeries extends TypedSeries<StringSeries> {
   }
 
   public String get(int index) {
+    final Encoding encoding = this.encoding;
+    if (encoding != null) {
+      return encoding.dictionary[encoding.codes[index]];
+    }
     return this.values[index];
   }
 
   @Override
   public boolean isNull(int index) {
-    return isNull(this.values[index]);
+    return isNull(this.get(index));
   }
 
   @Override
   public int size() {
+    final Encoding encoding = this.encoding;
+    if (encoding != null) {
+      return encoding.codes.length;
+    }
     return this.values.length;
   }
 
@@ -269,43 +345,124 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     return SeriesType.STRING;
   }
 
+  /**
+   * Returns the values of the series. If the series is dictionary encoded, it is decoded on the
+   * first call and then stores the returned array: as for a series that is not encoded, writes to
+   * the array are visible in the series.
+   *
+   * @return series values
+   */
   public String[] values() {
+    final String[] values = this.values;
+    if (values != null) {
+      return values;
+    }
+    return this.decode();
+  }
+
+  private synchronized String[] decode() {
+    final Encoding encoding = this.encoding;
+    if (encoding != null) {
+      this.values = decode(encoding);
+      this.encoding = null;
+    }
     return this.values;
   }
 
+  /**
+   * Returns the values of the series for read only use. If the series is dictionary encoded, the
+   * values are decoded in a new array, and the series stays encoded.
+   */
+  private String[] readValues() {
+    final Encoding encoding = this.encoding;
+    if (encoding != null) {
+      return decode(encoding);
+    }
+    return this.values;
+  }
+
+  private static String[] decode(Encoding encoding) {
+    String[] values = new String[encoding.codes.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = encoding.dictionary[encoding.codes[i]];
+    }
+    return values;
+  }
+
   public String value() {
     if (this.size() != 1) {
       throw new IllegalStateException("Series must contain exactly one element");
     }
-    return this.values[0];
+    return this.get(0);
   }
 
   @Override
   public StringSeries unique() {
-    Set<String> uniques = new HashSet<>(Arrays.asList(this.values));
+    Set<String> uniques = new HashSet<>(Arrays.asList(this.readValues()));
     String[] values = new String[uniques.size()];
     return StringSeries.buildFrom(uniques.toArray(values));
   }
 
   /**
    * Returns a compressed series via string de-duplication. After applying this method,
-   * equal strings in the series reference the same string instance.
+   * equal strings in the series reference the same string instance. The returned series is
+   * dictionary encoded, whatever the cardinality of the values.
    *
    * @return compressed string series
    */
   public StringSeries compress() {
-    Map<String, String> map = new HashMap<>();
+    if (this.isDictionaryEncoded()) {
+      return this;
+    }
+    return encode(this.readValues(), Integer.MAX_VALUE);
+  }
 
-    String[] values = new String[this.values.length];
+  /**
+   * Returns {@code true} if the series is stored as codes of a dictionary of distinct values.
+   *
+   * @return {@code true} if the series is dictionary encoded
+   */
+  public boolean isDictionaryEncoded() {
+    return this.encoding != null;
+  }
+
+  /**
+   * Returns the dictionary encoding of the series. Returns {@code null} if the series is not
+   * dictionary encoded. Callers read the encoding once: the series may be decoded concurrently.
+   */
+  Encoding encoding() {
+    return this.encoding;
+  }
+
+  /**
+   * Dictionary encodes the values. The array is not retained.
+   * Returns {@code null} if there are more than {@code maxDictionarySize} distinct values.
+   */
+  private static StringSeries encode(String[] values, int maxDictionarySize) {
+    Map<String, Integer> codeByValue = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    int[] codes = new int[values.length];
     for (int i = 0; i < values.length; i++) {
-      String v = this.values[i];
-      if (!map.containsKey(v)) {
-        map.put(v, v);
+      Integer code = codeByValue.get(values[i]);
+      if (code == null) {
+        if (dictionary.size() >= maxDictionarySize) {
+          return null;
+        }
+        code = dictionary.size();
+        codeByValue.put(values[i], code);
+        dictionary.add(values[i]);
       }
-      values[i] = map.get(v);
+      codes[i] = code;
     }
+    return new StringSeries(new Encoding(codes, dictionary.toArray(new String[0])));
+  }
 
-    return buildFrom(values);
+  /**
+   * A projection keeps the shared dictionary only if the dictionary is not larger than the
+   * projected series. Else the dictionary would cost more than it saves.
+   */
+  private static boolean keepsEncoding(Encoding encoding, int size) {
+    return encoding != null && encoding.dictionary.length <= size;
   }
 
   /**
@@ -314,7 +471,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    * @return list of series elements
    */
   public List<String> toList() {
-    return Arrays.asList(this.values);
+    return Arrays.asList(this.values());
   }
 
   /**
@@ -332,7 +489,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     boolean isLong = true;
     boolean isDouble = true;
 
-    for (String s : this.values) {
+    for (String s : this.readValues()) {
       isBoolean &= (s == null) || (s.length() <= 0) || (s.compareToIgnoreCase("true") == 0
           || s.compareToIgnoreCase("false") == 0);
       isLong &=
@@ -367,7 +524,12 @@ public final class StringSeries extends TypedSeries<StringSeries> {
   public StringSeries slice(int from, int to) {
     from = Math.max(Math.min(this.size(), from), 0);
     to = Math.max(Math.min(this.size(), to), 0);
-    return StringSeries.buildFrom(Arrays.copyOfRange(this.values, from, to));
+    final Encoding encoding = this.encoding;
+    if (keepsEncoding(encoding, to - from)) {
+      return new StringSeries(new Encoding(Arrays.copyOfRange(encoding.codes, from, to),
+          encoding.dictionary));
+    }
+    return StringSeries.buildFrom(Arrays.copyOfRange(this.readValues(), from, to));
   }
 
   // TODO validate design decision
@@ -462,8 +624,8 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     }
     assertSameLength(this, mask, other);
 
-    String[] values = Arrays.copyOf(this.values, this.values.length);
-    for (int i = 0; i < this.values.length; i++) {
+    String[] values = Arrays.copyOf(this.readValues(), this.size());
+    for (int i = 0; i < values.length; i++) {
       if (BooleanSeries.isTrue(mask.getBoolean(i))) {
         values[i] = other.getString(i);
       }
@@ -473,12 +635,12 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   public StringSeries set(BooleanSeries mask, String value) {
     assertSameLength(this, mask);
-    String[] values = new String[this.values.length];
+    String[] values = new String[this.size()];
     for (int i = 0; i < mask.size(); i++) {
       if (BooleanSeries.isTrue(mask.getBoolean(i))) {
         values[i] = value;
       } else {
-        values[i] = this.values[i];
+        values[i] = this.get(i);
       }
     }
     return buildFrom(values);
@@ -486,8 +648,8 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   public int count(String value) {
     int count = 0;
-    for (String v : this.values) {
-      if (nullSafeStringComparator(v, value) == 0) {
+    for (int i = 0; i < this.size(); i++) {
+      if (nullSafeStringComparator(this.get(i), value) == 0) {
         count++;
       }
     }
@@ -514,7 +676,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
   public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("StringSeries{");
-    for (String s : this.values) {
+    for (String s : this.readValues()) {
       if (isNull(s)) {
         builder.append("null ");
       } else {
@@ -532,7 +694,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     if (this.isNull(index)) {
       return TOSTRING_NULL;
     }
-    return this.values[index];
+    return this.get(index);
   }
 
   @Override
@@ -548,7 +710,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    * @return series copy without nulls
    */
   public StringSeries fillNull(String value) {
-    String[] values = Arrays.copyOf(this.values, this.values.length);
+    String[] values = Arrays.copyOf(this.readValues(), this.size());
     for (int i = 0; i < values.length; i++) {
       if (isNull(values[i])) {
         values[i] = value;
@@ -559,17 +721,43 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   StringSeries project(int[] fromIndex) {
+    final Encoding encoding = this.encoding;
+    if (keepsEncoding(encoding, fromIndex.length)) {
+      return projectEncoded(encoding, fromIndex);
+    }
     String[] values = new String[fromIndex.length];
     for (int i = 0; i < fromIndex.length; i++) {
       if (fromIndex[i] == -1) {
         values[i] = NULL;
       } else {
-        values[i] = this.values[fromIndex[i]];
+        values[i] = this.get(fromIndex[i]);
       }
     }
     return StringSeries.buildFrom(values);
   }
 
+  private static StringSeries projectEncoded(Encoding encoding, int[] fromIndex) {
+    String[] dictionary = encoding.dictionary;
+    int nullCode = -1;
+    int[] codes = new int[fromIndex.length];
+    for (int i = 0; i < fromIndex.length; i++) {
+      if (fromIndex[i] == -1) {
+        if (nullCode == -1) {
+          nullCode = Arrays.asList(dictionary).indexOf(NULL);
+          if (nullCode == -1) {
+            // the dictionary is shared: extend a copy
+            nullCode = dictionary.length;
+            dictionary = Arrays.copyOf(dictionary, dictionary.length + 1);
+          }
+        }
+        codes[i] = nullCode;
+      } else {
+        codes[i] = encoding.codes[fromIndex[i]];
+      }
+    }
+    return new StringSeries(new Encoding(codes, dictionary));
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -581,22 +769,32 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
     StringSeries that = (StringSeries) o;
 
-    return Arrays.equals(this.values, that.values);
+    return Arrays.equals(this.readValues(), that.readValues());
   }
 
   @Override
   int compare(Series that, int indexThis, int indexThat) {
-    return nullSafeStringComparator(this.values[indexThis], that.getString(indexThat));
+    return nullSafeStringComparator(this.get(indexThis), that.getString(indexThat));
   }
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(this.values);
+    return Arrays.hashCode(this.readValues());
+  }
+
+  @Override
+  boolean equals(Series that, int indexThis, int indexThat) {
+    final Encoding encoding = this.encoding;
+    if (that == this && encoding != null) {
+      // dictionary values are distinct
+      return encoding.codes[indexThis] == encoding.codes[indexThat];
+    }
+    return super.equals(that, indexThis, indexThat);
   }
 
   @Override
   int hashCode(int index) {
-    return Objects.hashCode(this.values[index]);
+    return Objects.hashCode(this.get(index));
   }
 
   /**
@@ -710,7 +908,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    * @see Series#aggregate(Function)
    */
   public static StringSeries aggregate(StringFunction function, Series series) {
-    return buildFrom(function.apply(series.dropNull().getStrings().values));
+    return buildFrom(function.apply(series.dropNull().getStrings().readValues()));
   }
 
   /**
@@ -718,7 +916,7 @@ public final class StringSeries extends TypedSeries<StringSeries> {
    */
   public static BooleanSeries aggregate(StringConditional function, Series series) {
     return BooleanSeries.builder()
-        .addBooleanValues(function.apply(series.dropNull().getStrings().values)).build();
+        .addBooleanValues(function.apply(series.dropNull().getStrings().readValues())).build();
   }
 
   public static boolean isNull(String value) {
@@ -748,13 +946,14 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public StringSeries shift(int offset) {
-    String[] values = new String[this.values.length];
+    String[] source = this.readValues();
+    String[] values = new String[source.length];
     if (offset >= 0) {
       Arrays.fill(values, 0, Math.min(offset, values.length), NULL);
-      System.arraycopy(this.values, 0, values, Math.min(offset, values.length),
+      System.arraycopy(source, 0, values, Math.min(offset, values.length),
           Math.max(values.length - offset, 0));
     } else {
-      System.arraycopy(this.values, Math.min(-offset, values.length), values, 0,
+      System.arraycopy(source, Math.min(-offset, values.length), values, 0,
           Math.max(values.length + offset, 0));
       Arrays.fill(values, Math.max(values.length + offset, 0), values.length, NULL);
     }
@@ -763,6 +962,9 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   public StringSeries sorted() {
+    if (this.isDictionaryEncoded()) {
+      return this.project(this.sortedIndex());
+    }
     String[] values = Arrays.copyOf(this.values, this.values.length);
     Arrays.sort(values, new Comparator<String>() {
       @Override
@@ -775,6 +977,10 @@ public final class StringSeries extends TypedSeries<StringSeries> {
 
   @Override
   int[] sortedIndex() {
+    final Encoding encoding = this.encoding;
+    if (encoding != null) {
+      return sortedIndexEncoded(encoding);
+    }
     List<StringSortTuple> tuples = new ArrayList<>();
     for (int i = 0; i < this.values.length; i++) {
       tuples.add(new StringSortTuple(this.values[i], i));
@@ -794,6 +1000,42 @@ public final class StringSeries extends TypedSeries<StringSeries> {
     return fromIndex;
   }
 
+  /**
+   * Sorts the dictionary, then sorts the rows by the rank of their code with a counting sort.
+   * Stable, like the comparison sort.
+   */
+  private static int[] sortedIndexEncoded(Encoding encoding) {
+    final int[] codes = encoding.codes;
+    final String[] dictionary = encoding.dictionary;
+    Integer[] codesByValue = new Integer[dictionary.length];
+    for (int code = 0; code < codesByValue.length; code++) {
+      codesByValue[code] = code;
+    }
+    Arrays.sort(codesByValue, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return nullSafeStringComparator(dictionary[a], dictionary[b]);
+      }
+    });
+    int[] rankOffsets = new int[dictionary.length + 1];
+    int[] ranks = new int[dictionary.length];
+    for (int rank = 0; rank < codesByValue.length; rank++) {
+      ranks[codesByValue[rank]] = rank;
+    }
+    for (int code : codes) {
+      rankOffsets[ranks[code] + 1]++;
+    }
+    for (int rank = 1; rank < rankOffsets.length; rank++) {
+      rankOffsets[rank] += rankOffsets[rank - 1];
+    }
+
+    int[] fromIndex = new int[codes.length];
+    for (int i = 0; i < codes.length; i++) {
+      fromIndex[rankOffsets[ranks[codes[i]]]++] = i;
+    }
+    return fromIndex;
+  }
+
   static final class StringSortTuple {
 
     final String value;
@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -944,6 +945,45 @@ public class DataFrameTest {
     assertEquals(grouping.apply(7).getLongs(), 1, 5, LNULL);
   }
 
+  @Test
+  public void testGroupByMovingWindowAggregationsMatchPerWindowAggregations() {
+    final Random random = new Random(42);
+    final long[] longs = new long[200];
+    final double[] doubles = new double[200];
+    for (int i = 0; i < longs.length; i++) {
+      longs[i] = random.nextInt(8) == 0 ? LNULL : random.nextInt(100);
+      doubles[i] = random.nextInt(8) == 0 ? DNULL : 1e6 + random.nextGaussian();
+    }
+    for (final Series series : new Series[]{LongSeries.buildFrom(longs),
+        DoubleSeries.buildFrom(doubles)}) {
+      for (final int windowSize : new int[]{1, 2, 7, 30, 250}) {
+        final Grouping.SeriesGrouping grouping = series.groupByMovingWindow(windowSize);
+        final Series.Builder min = series.getBuilder();
+        final Series.Builder max = series.getBuilder();
+        final Series.Builder mean = DoubleSeries.builder();
+        final Series.Builder median = DoubleSeries.builder();
+        final Series.Builder std = DoubleSeries.builder();
+        for (int i = 0; i < grouping.size(); i++) {
+          final Series window = grouping.apply(i);
+          min.addSeries(window.min());
+          max.addSeries(window.max());
+          mean.addSeries(window.mean());
+          median.addSeries(window.median());
+          std.addSeries(window.std());
+        }
+
+        assertEquals(grouping.min().getValues(), min.build());
+        assertEquals(grouping.max().getValues(), max.build());
+        assertEquals(grouping.mean().getValues().getDoubles(),
+            mean.build().getDoubles().values());
+        assertEquals(grouping.median().getValues().getDoubles(),
+            median.build().getDoubles().values());
+        assertEquals(grouping.std().getValues().getDoubles(),
+            std.build().getDoubles().values());
+      }
+    }
+  }
+
   @Test
   public void testLongGroupByMovingWindowTooLarge() {
     LongSeries in = DataFrame.toSeries(3, 4, 5, 5, 3, 1, 5, LNULL);
@@ -1988,6 +2028,57 @@ public class DataFrameTest {
     Assert.assertEquals(pairs.get(7), 0x0000000300000002L);
   }
 
+  @Test
+  public void testSpecializedJoinsMatchGenericJoin() {
+    final Random random = new Random(42);
+    final int size = 200;
+    final long[] sortedLeft = new long[size];
+    final long[] sortedRight = new long[size];
+    final long[] unsortedLeft = new long[size];
+    final long[] unsortedRight = new long[size];
+    final String[] stringLeft = new String[size];
+    final String[] stringRight = new String[size];
+    final String[] stringLeft2 = new String[size];
+    final String[] stringRight2 = new String[size];
+    for (int i = 0; i < size; i++) {
+      sortedLeft[i] = i / 2;
+      sortedRight[i] = i / 3 + 10;
+      unsortedLeft[i] = random.nextInt(50);
+      unsortedRight[i] = random.nextInt(10) == 0 ? LNULL : random.nextInt(60);
+      stringLeft[i] = random.nextInt(10) == 0 ? SNULL : String.valueOf(random.nextInt(50));
+      stringRight[i] = random.nextInt(10) == 0 ? SNULL : String.valueOf(random.nextInt(60));
+      stringLeft2[i] = String.valueOf(random.nextInt(3));
+      stringRight2[i] = String.valueOf(random.nextInt(3));
+    }
+
+    assertSameJoinPairs(new Series[]{LongSeries.buildFrom(sortedLeft)},
+        new Series[]{LongSeries.buildFrom(sortedRight)});
+    assertSameJoinPairs(new Series[]{LongSeries.buildFrom(unsortedLeft)},
+        new Series[]{LongSeries.buildFrom(unsortedRight)});
+    assertSameJoinPairs(new Series[]{LongSeries.buildFrom(unsortedLeft)},
+        new Series[]{LongSeries.buildFrom(unsortedRight).getDoubles()});
+    assertSameJoinPairs(new Series[]{StringSeries.buildFrom(stringLeft)},
+        new Series[]{StringSeries.buildFrom(stringRight)});
+    assertSameJoinPairs(
+        new Series[]{StringSeries.buildFrom(stringLeft), StringSeries.buildFrom(stringLeft2)},
+        new Series[]{StringSeries.buildFrom(stringRight), StringSeries.buildFrom(stringRight2)});
+    assertSameJoinPairs(new Series[]{StringSeries.buildFrom(stringLeft).compress()},
+        new Series[]{StringSeries.buildFrom(stringRight)});
+    assertSameJoinPairs(
+        new Series[]{StringSeries.buildFrom(stringLeft), StringSeries.buildFrom(stringLeft2)},
+        new Series[]{StringSeries.buildFrom(stringRight).compress(),
+            StringSeries.buildCompressedFrom(stringRight2)});
+    assertSameJoinPairs(new Series[]{LongSeries.empty()},
+        new Series[]{LongSeries.buildFrom(unsortedRight)});
+  }
+
+  private static void assertSameJoinPairs(final Series[] left, final Series[] right) {
+    final Series.JoinPairs expected = Series.hashJoinOuter(left, right);
+    final Series.JoinPairs actual = Joins.joinOuter(left, right);
+    Assert.assertEquals(Arrays.copyOf(actual.pairs, actual.size()),
+        Arrays.copyOf(expected.pairs, expected.size()));
+  }
+
   @Test
   public void testJoinInner() {
     DataFrame left = new DataFrame()
@@ -3399,6 +3490,76 @@ public class DataFrameTest {
     Assert.assertSame(s.getString(1), s.getString(3));
   }
 
+  @Test
+  public void testStringCompressedOnlyEncodesLowCardinality() {
+    Assert.assertTrue(StringSeries.buildCompressedFrom("a", "b", "a", "b").isDictionaryEncoded());
+    Assert.assertFalse(StringSeries.buildCompressedFrom("a", "b", "c", "a").isDictionaryEncoded());
+    Assert.assertFalse(StringSeries.builder().fillValues(3, "a").build().isDictionaryEncoded());
+    Assert.assertEquals(StringSeries.buildCompressedFrom("a", "b", "a", "b"),
+        StringSeries.buildFrom("a", "b", "a", "b"));
+  }
+
+  @Test
+  public void testStringCompressedSamplesCardinality() {
+    final String[] distinctValues = new String[5000];
+    final String[] dimensionValues = new String[5000];
+    for (int i = 0; i < distinctValues.length; i++) {
+      distinctValues[i] = "v" + i;
+      dimensionValues[i] = "v" + (i % 50);
+    }
+    Assert.assertFalse(StringSeries.buildCompressedFrom(distinctValues).isDictionaryEncoded());
+
+    final StringSeries encoded = StringSeries.buildCompressedFrom(dimensionValues);
+    Assert.assertTrue(encoded.isDictionaryEncoded());
+    Assert.assertEquals(encoded.encoding().dictionary().length, 50);
+    Assert.assertEquals(encoded.values(), dimensionValues);
+  }
+
+  @Test
+  public void testStringDictionaryEncodedValuesAreModifiable() {
+    final StringSeries encoded = StringSeries.buildCompressedFrom("a", "b", "a", "b");
+    Assert.assertTrue(encoded.isDictionaryEncoded());
+
+    final String[] values = encoded.values();
+    Assert.assertFalse(encoded.isDictionaryEncoded());
+    // the codes and the dictionary are released
+    Assert.assertNull(encoded.encoding());
+    Assert.assertSame(encoded.values(), values);
+    values[0] = "c";
+    Assert.assertEquals(encoded.get(0), "c");
+    Assert.assertEquals(encoded.sorted(), StringSeries.buildFrom("a", "b", "b", "c"));
+  }
+
+  @Test
+  public void testStringDictionaryEncodedMatchesPlain() {
+    final Random random = new Random(42);
+    final String[] values = new String[300];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextInt(10) == 0 ? SNULL : "v" + random.nextInt(20);
+    }
+    final StringSeries plain = StringSeries.buildFrom(values.clone());
+    final StringSeries encoded = StringSeries.buildCompressedFrom(values.clone());
+    Assert.assertTrue(encoded.isDictionaryEncoded());
+
+    Assert.assertEquals(encoded.sortedIndex(), plain.sortedIndex());
+    Assert.assertEquals(encoded.sorted(), plain.sorted());
+    Assert.assertEquals(encoded.slice(10, 250), plain.slice(10, 250));
+    Assert.assertTrue(encoded.slice(10, 250).isDictionaryEncoded());
+
+    final int[] fromIndex = new int[values.length];
+    for (int i = 0; i < fromIndex.length; i++) {
+      fromIndex[i] = random.nextInt(10) == 0 ? -1 : random.nextInt(values.length);
+    }
+    final StringSeries projected = encoded.project(fromIndex);
+    Assert.assertEquals(projected, plain.project(fromIndex));
+    Assert.assertEquals(projected.sortedIndex(), plain.project(fromIndex).sortedIndex());
+
+    final Grouping.GroupingByValue encodedGrouping = Grouping.GroupingByValue.from(encoded);
+    final Grouping.GroupingByValue plainGrouping = Grouping.GroupingByValue.from(plain);
+    Assert.assertEquals(encodedGrouping.keys(), plainGrouping.keys());
+    Assert.assertEquals(encodedGrouping.count(encoded), plainGrouping.count(plain));
+  }
+
   @Test
   public void testBooleanOperationsSeries() {
     BooleanSeries base = DataFrame.toSeries(BNULL, TRUE, FALSE, TRUE, FALSE);
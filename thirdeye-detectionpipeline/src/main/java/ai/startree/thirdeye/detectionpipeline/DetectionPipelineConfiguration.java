@@ -16,6 +16,12 @@ package ai.startree.thirdeye.detectionpipeline;
 public class DetectionPipelineConfiguration {
 
   private ForkJoinConfiguration forkjoin = new ForkJoinConfiguration();
+  /**
+   * When enabled, independent plan nodes are executed concurrently on the fork-join executor.
+   * When disabled, plan nodes are executed one after the other on the calling thread.
+   */
+  private boolean parallelExecution = false;
+  private TimeSeriesCacheConfiguration timeSeriesCache = new TimeSeriesCacheConfiguration();
 
   public ForkJoinConfiguration getForkjoin() {
     return forkjoin;
@@ -26,4 +32,23 @@ public class DetectionPipelineConfiguration {
     this.forkjoin = forkjoin;
     return this;
   }
+
+  public boolean isParallelExecution() {
+    return parallelExecution;
+  }
+
+  public DetectionPipelineConfiguration setParallelExecution(final boolean parallelExecution) {
+    this.parallelExecution = parallelExecution;
+    return this;
+  }
+
+  public TimeSeriesCacheConfiguration getTimeSeriesCache() {
+    return timeSeriesCache;
+  }
+
+  public DetectionPipelineConfiguration setTimeSeriesCache(
+      final TimeSeriesCacheConfiguration timeSeriesCache) {
+    this.timeSeriesCache = timeSeriesCache;
+    return this;
+  }
 }
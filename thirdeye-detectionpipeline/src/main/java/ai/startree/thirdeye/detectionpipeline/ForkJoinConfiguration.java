@@ -18,6 +18,11 @@ import java.time.Duration;
 public class ForkJoinConfiguration {
 
   private Integer parallelism = 5;
+  /**
+   * Max number of enumeration items of an alert executed concurrently. Prevents an alert with
+   * many enumeration items from using all the threads.
+   */
+  private Integer perAlertParallelism = 3;
   private Duration timeout = Duration.ofHours(1);
 
   public Integer getParallelism() {
@@ -29,6 +34,15 @@ public class ForkJoinConfiguration {
     return this;
   }
 
+  public Integer getPerAlertParallelism() {
+    return perAlertParallelism;
+  }
+
+  public ForkJoinConfiguration setPerAlertParallelism(final Integer perAlertParallelism) {
+    this.perAlertParallelism = perAlertParallelism;
+    return this;
+  }
+
   public Duration getTimeout() {
     return timeout;
   }
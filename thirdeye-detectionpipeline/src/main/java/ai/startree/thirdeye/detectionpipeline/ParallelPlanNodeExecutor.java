@@ -0,0 +1,246 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline;
+
+import static ai.startree.thirdeye.detectionpipeline.PlanExecutor.key;
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Collections.emptyList;
+
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.InputBean;
+import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executes the plan node DAG by topological order. Every node whose inputs are available is
+ * submitted to the executor, so independent branches (eg current and baseline data fetchers)
+ * run concurrently.
+ *
+ * The calling thread only coordinates: it wires inputs, submits ready nodes and collects
+ * outputs. All writes to the result map are performed by the calling thread.
+ * When the calling thread is waiting, it executes submitted nodes that were not picked by the
+ * executor yet. This ensures progress when the executor is saturated, for instance when this
+ * class is used from a thread of the executor itself.
+ */
+class ParallelPlanNodeExecutor {
+
+  private final Map<String, PlanNode> pipelinePlanNodes;
+  private final Map<ContextKey, OperatorResult> resultMap;
+  private final ExecutorService executorService;
+  private final Duration timeout;
+
+  /* node name -> names of the nodes it depends on, not executed yet */
+  private final Map<String, Set<String>> pendingDependencies = new LinkedHashMap<>();
+  /* node name -> names of the nodes that depend on it */
+  private final Map<String, Set<String>> dependents = new HashMap<>();
+
+  private final BlockingQueue<PlanNodeTask> completedTasks = new LinkedBlockingQueue<>();
+  private final List<PlanNodeTask> runningTasks = new ArrayList<>();
+
+  ParallelPlanNodeExecutor(final Map<String, PlanNode> pipelinePlanNodes,
+      final Map<ContextKey, OperatorResult> resultMap,
+      final ExecutorService executorService,
+      final Duration timeout) {
+    this.pipelinePlanNodes = pipelinePlanNodes;
+    this.resultMap = resultMap;
+    this.executorService = executorService;
+    this.timeout = timeout;
+  }
+
+  void execute(final PlanNode rootNode) throws Exception {
+    collectDependencies(rootNode, new HashSet<>());
+
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    try {
+      submitReadyNodes();
+      while (!runningTasks.isEmpty()) {
+        final PlanNodeTask completed = awaitNextCompletedTask(deadline);
+        runningTasks.remove(completed);
+        onCompleted(completed);
+        submitReadyNodes();
+      }
+    } finally {
+      for (final PlanNodeTask task : runningTasks) {
+        task.cancel(true);
+      }
+    }
+    checkArgument(pendingDependencies.isEmpty(),
+        "Could not execute plan nodes %s. Template is invalid.",
+        pendingDependencies.keySet());
+  }
+
+  /**
+   * Walks the DAG from the given node and registers the dependencies of every node that needs to
+   * be executed. Nodes whose outputs are already in the result map are not executed again.
+   */
+  private void collectDependencies(final PlanNode node, final Set<String> visiting) {
+    final String nodeName = node.getName();
+    if (pendingDependencies.containsKey(nodeName)) {
+      return;
+    }
+    checkArgument(visiting.add(nodeName),
+        "Cycle detected in plan node \"%s\". Template is invalid.",
+        nodeName);
+    final Set<String> upstreams = new LinkedHashSet<>();
+    for (final InputBean input : optional(node.getPlanNodeInputs()).orElse(emptyList())) {
+      final ContextKey contextKey = key(input.getSourcePlanNode(), input.getSourceProperty());
+      if (resultMap.containsKey(contextKey)) {
+        continue;
+      }
+      final PlanNode inputPlanNode = pipelinePlanNodes.get(input.getSourcePlanNode());
+      checkArgument(inputPlanNode != null,
+          "sourcePlanNode \"%s\" found in \"%s\" node configuration does not exist. Template is invalid.",
+          input.getSourcePlanNode(),
+          nodeName);
+      collectDependencies(inputPlanNode, visiting);
+      upstreams.add(inputPlanNode.getName());
+      dependents.computeIfAbsent(inputPlanNode.getName(), k -> new HashSet<>()).add(nodeName);
+    }
+    visiting.remove(nodeName);
+    pendingDependencies.put(nodeName, upstreams);
+  }
+
+  private void submitReadyNodes() {
+    final List<String> readyNodes = pendingDependencies.entrySet().stream()
+        .filter(e -> e.getValue().isEmpty())
+        .map(Entry::getKey)
+        .toList();
+    for (final String nodeName : readyNodes) {
+      pendingDependencies.remove(nodeName);
+      final PlanNode node = pipelinePlanNodes.get(nodeName);
+      setInputs(node);
+      final PlanNodeTask task = new PlanNodeTask(node);
+      runningTasks.add(task);
+      executorService.execute(task);
+    }
+  }
+
+  private void setInputs(final PlanNode node) {
+    for (final InputBean input : optional(node.getPlanNodeInputs()).orElse(emptyList())) {
+      final ContextKey contextKey = key(input.getSourcePlanNode(), input.getSourceProperty());
+      if (!resultMap.containsKey(contextKey)) {
+        throw new RuntimeException("Missing resultMap key - " + contextKey);
+      }
+      node.setInput(input.getTargetProperty(), resultMap.get(contextKey));
+    }
+  }
+
+  private PlanNodeTask awaitNextCompletedTask(final long deadline) throws Exception {
+    PlanNodeTask completed = completedTasks.poll();
+    while (completed == null) {
+      if (!runOneUnclaimedTask()) {
+        final long remainingNanos = deadline - System.nanoTime();
+        completed = completedTasks.poll(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+        if (completed == null) {
+          throw new TimeoutException(String.format(
+              "Plan execution did not complete within %s. Timed out nodes: %s",
+              timeout,
+              runningTasks.stream().map(t -> t.node.getName()).toList()));
+        }
+      } else {
+        completed = completedTasks.poll();
+      }
+    }
+    return completed;
+  }
+
+  private boolean runOneUnclaimedTask() {
+    for (final PlanNodeTask task : runningTasks) {
+      if (task.claim()) {
+        task.runClaimed();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void onCompleted(final PlanNodeTask task) throws Exception {
+    final Map<String, OperatorResult> outputs;
+    try {
+      outputs = task.get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+    final String nodeName = task.node.getName();
+    for (final Entry<String, OperatorResult> output : outputs.entrySet()) {
+      resultMap.put(key(nodeName, output.getKey()), output.getValue());
+    }
+    for (final String dependent : dependents.getOrDefault(nodeName, Set.of())) {
+      final Set<String> upstreams = pendingDependencies.get(dependent);
+      if (upstreams != null) {
+        upstreams.remove(nodeName);
+      }
+    }
+  }
+
+  private class PlanNodeTask extends FutureTask<Map<String, OperatorResult>> {
+
+    private final PlanNode node;
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+    private PlanNodeTask(final PlanNode node) {
+      super(() -> {
+        final Operator operator = node.buildOperator();
+        operator.execute();
+        return operator.getOutputs();
+      });
+      this.node = node;
+    }
+
+    private boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+
+    private void runClaimed() {
+      super.run();
+    }
+
+    @Override
+    public void run() {
+      // the task may have been run by the coordinating thread already
+      if (claim()) {
+        super.run();
+      }
+    }
+
+    @Override
+    protected void done() {
+      completedTasks.add(this);
+    }
+  }
+}
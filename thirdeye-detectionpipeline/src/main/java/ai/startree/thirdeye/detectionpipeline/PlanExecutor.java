@@ -21,6 +21,8 @@ import static java.util.Collections.emptyList;
 
 import ai.startree.thirdeye.datalayer.core.EnumerationItemMaintainer;
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
+import ai.startree.thirdeye.detectionpipeline.operator.sql.SqlExecutionEngine;
 import ai.startree.thirdeye.detectionpipeline.persistence.CachedDatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
@@ -34,12 +36,20 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Singleton
 public class PlanExecutor implements AutoCloseable {
@@ -56,6 +66,8 @@ public class PlanExecutor implements AutoCloseable {
   private final DatasetConfigManager datasetConfigManager;
   private final DetectionPipelineConfiguration detectionPipelineConfiguration;
   private final EnumerationItemMaintainer enumerationItemMaintainer;
+  private final TimeSeriesCache timeSeriesCache;
+  private final SqlExecutionEngine sqlExecutionEngine;
 
   private final ExecutorService subTaskExecutor;
 
@@ -67,7 +79,9 @@ public class PlanExecutor implements AutoCloseable {
       final EventManager eventManager,
       final DataSourceManager dataSourceDao, final DatasetConfigManager datasetConfigManager,
       final DetectionPipelineConfiguration detectionPipelineConfiguration,
-      final EnumerationItemMaintainer enumerationItemMaintainer) {
+      final EnumerationItemMaintainer enumerationItemMaintainer,
+      final TimeSeriesCache timeSeriesCache,
+      final SqlExecutionEngine sqlExecutionEngine) {
     this.planNodeFactory = planNodeFactory;
     this.dataSourceCache = dataSourceCache;
     this.detectionRegistry = detectionRegistry;
@@ -77,6 +91,8 @@ public class PlanExecutor implements AutoCloseable {
     this.datasetConfigManager = datasetConfigManager;
     this.detectionPipelineConfiguration = detectionPipelineConfiguration;
     this.enumerationItemMaintainer = enumerationItemMaintainer;
+    this.timeSeriesCache = timeSeriesCache;
+    this.sqlExecutionEngine = sqlExecutionEngine;
 
     final int nThreads = detectionPipelineConfiguration.getForkjoin().getParallelism();
     subTaskExecutor = Executors.newFixedThreadPool(nThreads, threadsNamed("fork-join-%d"));
@@ -141,7 +157,9 @@ public class PlanExecutor implements AutoCloseable {
         new CachedDatasetConfigManager(datasetConfigManager),
         subTaskExecutor,
         detectionPipelineConfiguration,
-        enumerationItemMaintainer);
+        enumerationItemMaintainer,
+        timeSeriesCache,
+        sqlExecutionEngine);
   }
 
   /**
@@ -175,21 +193,138 @@ public class PlanExecutor implements AutoCloseable {
     return getOutput(context, rootNodeName);
   }
 
+  /**
+   * Returns true if the nodes opt in the enumeration execution mode: one of the DataFetcher nodes
+   * declares a groupedQuery and enumerationDimensions.
+   */
+  public static boolean isEnumerationExecutionMode(final List<PlanNodeBean> planNodeBeans) {
+    return SharedDataFetch.declaresSharedFetch(planNodeBeans);
+  }
+
+  /**
+   * Enumeration execution mode. Runs the pipeline of each enumeration item of an alert.
+   *
+   * DataFetcher nodes that define a groupedQuery are fetched once for all the items that read
+   * the same data, then split by item - see {@link SharedDataFetch}. The pipelines of the items
+   * run on the sub task executor, with at most forkjoin.perAlertParallelism items at a time.
+   *
+   * @param pipelines The pipeline and the context of each enumeration item. The context
+   *     contains the enumeration item.
+   * @param rootNodeName The name of the root node in the DAG
+   * @return Outputs from the root node of each item, in the order of the pipelines
+   * @throws Exception All exceptions are to be handled by upstream consumer. The first
+   *     exception stops the execution of the items that are not started yet.
+   */
+  public List<Map<String, OperatorResult>> runEnumerationItems(
+      final List<EnumerationItemPipeline> pipelines, final String rootNodeName)
+      throws Exception {
+    final ForkJoinConfiguration forkJoinConfiguration = detectionPipelineConfiguration.getForkjoin();
+    final long deadline = System.nanoTime() + forkJoinConfiguration.getTimeout().toNanos();
+    final int parallelism = forkJoinConfiguration.getPerAlertParallelism();
+
+    final ApplicationContext applicationContext = createApplicationContext();
+    for (final EnumerationItemPipeline pipeline : pipelines) {
+      pipeline.context().setApplicationContext(applicationContext);
+    }
+    final SharedDataFetch sharedDataFetch = new SharedDataFetch(planNodeFactory, pipelines);
+    runConcurrently(sharedDataFetch.size(), sharedDataFetch::fetch, parallelism, deadline);
+
+    final List<Map<String, OperatorResult>> outputs = new ArrayList<>(
+        Collections.nCopies(pipelines.size(), null));
+    runConcurrently(pipelines.size(), i -> {
+      final EnumerationItemPipeline pipeline = pipelines.get(i);
+      final Map<ContextKey, OperatorResult> resultMap = runPipeline(pipeline.planNodeBeans(),
+          pipeline.context(),
+          rootNodeName,
+          sharedDataFetch.seededResults(i));
+      outputs.set(i, getOutput(resultMap, rootNodeName));
+    }, parallelism, deadline);
+    return outputs;
+  }
+
+  /**
+   * Runs the tasks with at most the given number of tasks at a time. The calling thread runs
+   * tasks too, and the tasks not started by the sub task executor are cancelled once all tasks
+   * are claimed. This ensures progress when the executor is saturated, for instance when this
+   * method is called from a thread of the executor itself.
+   */
+  private void runConcurrently(final int taskCount, final IndexedTask task,
+      final int parallelism, final long deadline) throws Exception {
+    final AtomicInteger nextIndex = new AtomicInteger();
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    final Runnable worker = () -> {
+      int index;
+      while (!stopped.get() && (index = nextIndex.getAndIncrement()) < taskCount) {
+        try {
+          if (System.nanoTime() - deadline > 0) {
+            throw enumerationTimeoutException();
+          }
+          task.run(index);
+        } catch (final Exception e) {
+          failure.compareAndSet(null, e);
+          stopped.set(true);
+        }
+      }
+    };
+    final List<Helper> helpers = new ArrayList<>();
+    for (int i = 1; i < Math.min(parallelism, taskCount); i++) {
+      final Helper helper = new Helper(worker);
+      helpers.add(helper);
+      subTaskExecutor.execute(helper.future());
+    }
+    try {
+      worker.run();
+      for (final Helper helper : helpers) {
+        // a helper that is not started has no task left to run. A started helper is awaited.
+        if (!helper.claim()) {
+          final long remainingNanos = deadline - System.nanoTime();
+          helper.future().get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+        }
+      }
+    } catch (final TimeoutException e) {
+      throw enumerationTimeoutException();
+    } finally {
+      stopped.set(true);
+      for (final Helper helper : helpers) {
+        helper.future().cancel(true);
+      }
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  private TimeoutException enumerationTimeoutException() {
+    return new TimeoutException(String.format(
+        "Enumeration items execution did not complete within %s",
+        detectionPipelineConfiguration.getForkjoin().getTimeout()));
+  }
+
+  private Map<ContextKey, OperatorResult> runPipeline(
+      final List<PlanNodeBean> planNodeBeans,
+      final DetectionPipelineContext context,
+      final String rootNodeName) throws Exception {
+    /* Set Application Context */
+    context.setApplicationContext(createApplicationContext());
+    return runPipeline(planNodeBeans, context, rootNodeName, Map.of());
+  }
+
   /**
    * Main interface for running the pipeline.
    *
    * @param rootNodeName Name of the root node to be executed
    * @param planNodeBeans The pipeline DAG as a list of nodes
+   * @param seededResults Outputs that are already available. The nodes that produce them
+   *     are not executed.
    * @return The result map. All the outputs from all the nodes are emitted here.
    * @throws Exception All exceptions are to be handled by upstream consumer.
    */
   private Map<ContextKey, OperatorResult> runPipeline(
       final List<PlanNodeBean> planNodeBeans,
       final DetectionPipelineContext context,
-      final String rootNodeName) throws Exception {
-
-    /* Set Application Context */
-    context.setApplicationContext(createApplicationContext());
+      final String rootNodeName,
+      final Map<ContextKey, OperatorResult> seededResults) throws Exception {
 
     /* map of all the plan nodes constructed from beans(persisted objects) */
     final Map<String, PlanNode> pipelinePlanNodes = buildPlanNodeMap(
@@ -197,11 +332,18 @@ public class PlanExecutor implements AutoCloseable {
         context);
 
     /* The context stores all the outputs from all the nodes */
-    final Map<ContextKey, OperatorResult> resultMap = new HashMap<>();
+    final Map<ContextKey, OperatorResult> resultMap = new HashMap<>(seededResults);
 
     /* Execute the DAG */
     final PlanNode rootNode = pipelinePlanNodes.get(rootNodeName);
-    executePlanNode(pipelinePlanNodes, rootNode, resultMap);
+    if (detectionPipelineConfiguration.isParallelExecution()) {
+      new ParallelPlanNodeExecutor(pipelinePlanNodes,
+          resultMap,
+          subTaskExecutor,
+          detectionPipelineConfiguration.getForkjoin().getTimeout()).execute(rootNode);
+    } else {
+      executePlanNode(pipelinePlanNodes, rootNode, resultMap);
+    }
 
     return resultMap;
   }
@@ -222,8 +364,54 @@ public class PlanExecutor implements AutoCloseable {
     return pipelinePlanNodes;
   }
 
+  /**
+   * A pipeline of the enumeration execution mode.
+   *
+   * @param planNodeBeans The pipeline DAG of the enumeration item, rendered with the item
+   *     params
+   * @param context The context of the enumeration item
+   */
+  public record EnumerationItemPipeline(List<PlanNodeBean> planNodeBeans,
+                                        DetectionPipelineContext context) {}
+
+  /**
+   * A worker submitted to the sub task executor. It runs only if it is not claimed by the caller
+   * first.
+   */
+  private static final class Helper {
+
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final FutureTask<Void> future;
+
+    private Helper(final Runnable worker) {
+      this.future = new FutureTask<>(() -> {
+        if (claimed.compareAndSet(false, true)) {
+          worker.run();
+        }
+      }, null);
+    }
+
+    private FutureTask<Void> future() {
+      return future;
+    }
+
+    /**
+     * @return true if the helper did not start and will not run
+     */
+    private boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+  }
+
+  @FunctionalInterface
+  private interface IndexedTask {
+
+    void run(int index) throws Exception;
+  }
+
   @Override
   public void close() throws Exception {
     shutdownExecutionService(subTaskExecutor);
+    sqlExecutionEngine.close();
   }
 }
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline;
+
+import static ai.startree.thirdeye.detectionpipeline.operator.DetectionPipelineOperator.getComponentSpec;
+import static com.google.common.base.Preconditions.checkArgument;
+
+import ai.startree.thirdeye.detectionpipeline.PlanExecutor.EnumerationItemPipeline;
+import ai.startree.thirdeye.detectionpipeline.plan.DataFetcherPlanNode;
+import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
+import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
+import ai.startree.thirdeye.spi.detection.AbstractSpec;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Interval;
+
+/**
+ * Shared fetch of the enumeration execution mode.
+ *
+ * The DataFetcher nodes of the enumeration items that read the same data - same node name, same
+ * groupedQuery and same fetch parameters - are executed once, with the groupedQuery. The result
+ * is split in memory by the values of the enumerationDimensions, and the rows of each item are
+ * set as the output of its DataFetcher node in the result map of the item. The DataFetcher node
+ * of the item is then not executed.
+ *
+ * DataFetcher nodes without groupedQuery, with inputs, of items that do not have the enumeration
+ * params, or alone in their group are not changed: they are executed as usual.
+ *
+ * The enumeration params of an item are matched with the typed values of the dimension columns:
+ * a param is converted to the type of the column before the comparison. An item whose params
+ * cannot be converted, or that matches no row, is not seeded: its DataFetcher node runs its own
+ * query.
+ */
+class SharedDataFetch {
+
+  private static final String DATA_FETCHER_TYPE = new DataFetcherPlanNode().getType();
+  private static final String QUERY_KEY = "query";
+
+  private final PlanNodeFactory planNodeFactory;
+  private final List<EnumerationItemPipeline> pipelines;
+  private final List<List<Member>> groups;
+  /* index of the pipeline -> outputs of the shared fetches of the pipeline */
+  private final List<Map<ContextKey, OperatorResult>> seededResults;
+
+  SharedDataFetch(final PlanNodeFactory planNodeFactory,
+      final List<EnumerationItemPipeline> pipelines) {
+    this.planNodeFactory = planNodeFactory;
+    this.pipelines = pipelines;
+    this.groups = group(pipelines);
+    this.seededResults = new ArrayList<>(pipelines.size());
+    for (int i = 0; i < pipelines.size(); i++) {
+      seededResults.add(new ConcurrentHashMap<>());
+    }
+  }
+
+  private static List<List<Member>> group(final List<EnumerationItemPipeline> pipelines) {
+    final Map<FetchKey, List<Member>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < pipelines.size(); i++) {
+      final DetectionPipelineContext context = pipelines.get(i).context();
+      for (final PlanNodeBean planNodeBean : pipelines.get(i).planNodeBeans()) {
+        final DataFetcherSpec spec = sharedFetchSpec(planNodeBean);
+        if (spec == null) {
+          continue;
+        }
+        final Map<String, Object> componentSpec = getComponentSpec(
+            planNodeBean.getParams().valueMap());
+        final List<Object> dimensionValues = dimensionValues(context.getEnumerationItem(),
+            spec.getEnumerationDimensions());
+        if (dimensionValues == null) {
+          continue;
+        }
+        // the query of the item is not executed - it does not need to be the same
+        componentSpec.remove(QUERY_KEY);
+        final FetchKey key = new FetchKey(planNodeBean.getName(),
+            componentSpec,
+            context.getDetectionInterval(),
+            context.getPredicates(),
+            context.getNamespace());
+        groups.computeIfAbsent(key, k -> new ArrayList<>())
+            .add(new Member(i, planNodeBean, spec, dimensionValues));
+      }
+    }
+    return groups.values().stream()
+        .filter(members -> members.size() > 1)
+        .toList();
+  }
+
+  /**
+   * Returns true if one of the nodes is a DataFetcher node that declares a groupedQuery and
+   * enumerationDimensions. This is how a template opts in the enumeration execution mode.
+   */
+  static boolean declaresSharedFetch(final List<PlanNodeBean> planNodeBeans) {
+    return planNodeBeans.stream().anyMatch(bean -> sharedFetchSpec(bean) != null);
+  }
+
+  /**
+   * Returns the spec of a DataFetcher node without inputs that declares a groupedQuery and
+   * enumerationDimensions. Returns null for any other node.
+   */
+  private static @Nullable DataFetcherSpec sharedFetchSpec(final PlanNodeBean planNodeBean) {
+    if (!DATA_FETCHER_TYPE.equals(planNodeBean.getType())
+        || planNodeBean.getParams() == null
+        || (planNodeBean.getInputs() != null && !planNodeBean.getInputs().isEmpty())) {
+      return null;
+    }
+    final DataFetcherSpec spec = AbstractSpec.fromProperties(
+        getComponentSpec(planNodeBean.getParams().valueMap()),
+        DataFetcherSpec.class);
+    if (spec == null || spec.getGroupedQuery() == null
+        || spec.getEnumerationDimensions() == null
+        || spec.getEnumerationDimensions().isEmpty()) {
+      return null;
+    }
+    return spec;
+  }
+
+  /**
+   * Returns the values of the enumeration params for the dimensions. Returns null if one of the
+   * params is not set.
+   */
+  private static @Nullable List<Object> dimensionValues(
+      final @Nullable EnumerationItemDTO enumerationItem, final List<String> dimensions) {
+    if (enumerationItem == null || enumerationItem.getParams() == null) {
+      return null;
+    }
+    final List<Object> values = new ArrayList<>(dimensions.size());
+    for (final String dimension : dimensions) {
+      final Object value = enumerationItem.getParams().get(dimension);
+      if (value == null) {
+        return null;
+      }
+      values.add(value);
+    }
+    return values;
+  }
+
+  /**
+   * @return the number of shared fetches. Each shared fetch replaces the fetch of 2 or more items.
+   */
+  int size() {
+    return groups.size();
+  }
+
+  /**
+   * Executes the shared fetch and seeds the rows of each item of the fetch. Shared fetches can be
+   * executed concurrently.
+   */
+  void fetch(final int fetchIndex) throws Exception {
+    final List<Member> members = groups.get(fetchIndex);
+    final Member first = members.getFirst();
+    final Map<String, Object> sharedParams = new HashMap<>(
+        first.planNodeBean().getParams().valueMap());
+    sharedParams.put("component." + QUERY_KEY, first.spec().getGroupedQuery());
+    final PlanNodeBean sharedPlanNodeBean = new PlanNodeBean()
+        .setName(first.planNodeBean().getName())
+        .setType(DATA_FETCHER_TYPE)
+        .setParams(TemplatableMap.fromValueMap(sharedParams))
+        .setInputs(List.of())
+        .setOutputs(first.planNodeBean().getOutputs());
+    final PlanNode sharedNode = planNodeFactory.build(sharedPlanNodeBean,
+        pipelines.get(first.pipelineIndex()).context(),
+        new HashMap<>());
+    final Map<ContextKey, OperatorResult> sharedResults = new HashMap<>();
+    PlanExecutor.executePlanNode(Map.of(), sharedNode, sharedResults);
+
+    final List<String> dimensions = first.spec().getEnumerationDimensions();
+    final Map<ContextKey, Map<List<Object>, int[]>> rowsByKeys = new HashMap<>();
+    for (final Entry<ContextKey, OperatorResult> e : sharedResults.entrySet()) {
+      rowsByKeys.put(e.getKey(),
+          rowsByKey(((DataTable) e.getValue()).getDataFrame(), dimensions));
+    }
+    final Map<ContextKey, OperatorResult> itemResults = new HashMap<>();
+    for (final Member member : members) {
+      itemResults.clear();
+      for (final Entry<ContextKey, OperatorResult> e : sharedResults.entrySet()) {
+        final DataTable dataTable = (DataTable) e.getValue();
+        final DataFrame dataFrame = dataTable.getDataFrame();
+        final int[] rows = rowsByKeys.get(e.getKey())
+            .get(typedValues(member.dimensionValues(), dataFrame, dimensions));
+        if (rows == null) {
+          // the item is not seeded - its DataFetcher node runs its own query
+          break;
+        }
+        final DataTable itemDataTable = SimpleDataTable.fromDataFrame(
+            dataFrame.project(rows).dropSeries(dimensions));
+        itemDataTable.addProperties(dataTable.getProperties());
+        itemResults.put(e.getKey(), itemDataTable);
+      }
+      if (itemResults.size() == sharedResults.size()) {
+        seededResults.get(member.pipelineIndex()).putAll(itemResults);
+      }
+    }
+  }
+
+  /**
+   * @return the outputs of the shared fetches of the item. To set in the result map of the item
+   *     before its execution.
+   */
+  Map<ContextKey, OperatorResult> seededResults(final int pipelineIndex) {
+    return seededResults.get(pipelineIndex);
+  }
+
+  /**
+   * Converts the enumeration params to the types of the dimension columns. Returns null if a
+   * param cannot be converted.
+   */
+  private static @Nullable List<Object> typedValues(final List<Object> values,
+      final DataFrame dataFrame, final List<String> dimensions) {
+    final List<Object> typedValues = new ArrayList<>(values.size());
+    for (int i = 0; i < values.size(); i++) {
+      final Object typedValue = typedValue(values.get(i), dataFrame.get(dimensions.get(i)).type());
+      if (typedValue == null) {
+        return null;
+      }
+      typedValues.add(typedValue);
+    }
+    return typedValues;
+  }
+
+  @VisibleForTesting
+  static @Nullable Object typedValue(final Object value, final SeriesType type) {
+    return switch (type) {
+      case LONG -> longValue(value);
+      case DOUBLE -> doubleValue(value);
+      case BOOLEAN -> booleanValue(value);
+      case STRING -> value.toString();
+      case OBJECT -> value;
+    };
+  }
+
+  private static @Nullable Long longValue(final Object value) {
+    if (value instanceof Long || value instanceof Integer || value instanceof Short
+        || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    final Double doubleValue = doubleValue(value);
+    if (doubleValue == null || doubleValue != Math.rint(doubleValue)
+        || Math.abs(doubleValue) >= 0x1p63) {
+      // not an integral value
+      return null;
+    }
+    if (value instanceof String s) {
+      try {
+        return Long.parseLong(s.trim());
+      } catch (final NumberFormatException e) {
+        // integral value written as a decimal, eg 1.0
+      }
+    }
+    return doubleValue.longValue();
+  }
+
+  private static @Nullable Double doubleValue(final Object value) {
+    if (value instanceof Number n) {
+      return n.doubleValue();
+    }
+    if (value instanceof String s) {
+      try {
+        return Double.parseDouble(s.trim());
+      } catch (final NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private static @Nullable Boolean booleanValue(final Object value) {
+    if (value instanceof Boolean b) {
+      return b;
+    }
+    if (value instanceof String s) {
+      if ("true".equalsIgnoreCase(s.trim())) {
+        return true;
+      }
+      if ("false".equalsIgnoreCase(s.trim())) {
+        return false;
+      }
+    }
+    return null;
+  }
+
+  private static Map<List<Object>, int[]> rowsByKey(final DataFrame dataFrame,
+      final List<String> dimensions) {
+    final List<Series> series = new ArrayList<>(dimensions.size());
+    for (final String dimension : dimensions) {
+      checkArgument(dataFrame.contains(dimension),
+          "Enumeration dimension %s is not a column of the groupedQuery result. Columns: %s",
+          dimension,
+          dataFrame.getSeriesNames());
+      series.add(dataFrame.get(dimension));
+    }
+    final Map<List<Object>, List<Integer>> rows = new HashMap<>();
+    for (int i = 0; i < dataFrame.size(); i++) {
+      final List<Object> key = new ArrayList<>(series.size());
+      for (final Series s : series) {
+        key.add(s.isNull(i) ? null : s.getObject(i));
+      }
+      rows.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+    }
+    final Map<List<Object>, int[]> rowsByKey = new HashMap<>(rows.size());
+    rows.forEach((key, indices) -> rowsByKey.put(key,
+        indices.stream().mapToInt(Integer::intValue).toArray()));
+    return rowsByKey;
+  }
+
+  /**
+   * Fetches with equal keys return the same data.
+   */
+  private record FetchKey(String nodeName, Map<String, Object> componentSpec,
+                          Interval detectionInterval, @Nullable List<Predicate> predicates,
+                          @Nullable String namespace) {}
+
+  private record Member(int pipelineIndex, PlanNodeBean planNodeBean, DataFetcherSpec spec,
+                        List<Object> dimensionValues) {}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline;
+
+import java.time.Duration;
+
+public class TimeSeriesCacheConfiguration {
+
+  /**
+   * Max estimated size of the cached time series, in bytes. 0 disables the cache.
+   */
+  private long maxSizeInBytes = 128L * 1024 * 1024;
+  private Duration expiry = Duration.ofDays(1);
+
+  public long getMaxSizeInBytes() {
+    return maxSizeInBytes;
+  }
+
+  public TimeSeriesCacheConfiguration setMaxSizeInBytes(final long maxSizeInBytes) {
+    this.maxSizeInBytes = maxSizeInBytes;
+    return this;
+  }
+
+  public Duration getExpiry() {
+    return expiry;
+  }
+
+  public TimeSeriesCacheConfiguration setExpiry(final Duration expiry) {
+    this.expiry = expiry;
+    return this;
+  }
+}
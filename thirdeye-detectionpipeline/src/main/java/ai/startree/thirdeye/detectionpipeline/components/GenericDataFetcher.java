@@ -22,6 +22,7 @@ import ai.startree.thirdeye.datasource.query.QueryPredicate;
 import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
 import ai.startree.thirdeye.detectionpipeline.sql.filter.FilterEngine;
 import ai.startree.thirdeye.detectionpipeline.sql.macro.MacroEngine;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
@@ -30,18 +31,23 @@ import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
-import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.DataFetcher;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
 import ai.startree.thirdeye.spi.metric.DimensionType;
+import ai.startree.thirdeye.spi.util.TimeUtils;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.DateTime;
 import org.joda.time.Interval;
+import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +66,13 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
   private ThirdEyeDataSource thirdEyeDataSource;
   private DatasetConfigDTO datasetConfigDTO;
   private List<QueryPredicate> timeseriesFilters = List.of();
+  private Long dataSourceId;
+  private @Nullable TimeSeriesCache timeSeriesCache;
+  private String timeColumn;
+  /**
+   * Periods after which the data of the dataset does not change anymore.
+   */
+  private List<Period> finalizationPeriods = List.of();
 
   public String getQuery() {
     return query;
@@ -102,6 +115,7 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
         .orElse(dataFetcherSpec.getNamespace());
     final DataSourceDTO dataSourceDto = dataSourceDao.findByNameAndNamespaceOrUnsetNamespace(dataSource, datasourceNamespace);
     requireNonNull(dataSourceDto);
+    this.dataSourceId = dataSourceDto.getId();
     final DataSourceCache dataSourceCache = requireNonNull(dataFetcherSpec.getDataSourceCache());
     this.thirdEyeDataSource = requireNonNull(dataSourceCache
         .getDataSource(dataSourceDto), "data source is unavailable");
@@ -114,17 +128,71 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
           .map(this::toQueryPredicate)
           .collect(Collectors.toList());
     }
+
+    if (dataFetcherSpec.isIncrementalFetch()) {
+      this.timeColumn = requireNonNull(dataFetcherSpec.getTimestamp(),
+          "timestamp is required for incrementalFetch");
+      this.finalizationPeriods = finalizationPeriods(datasetConfigDTO);
+      if (finalizationPeriods.isEmpty()) {
+        LOG.warn("incrementalFetch is ignored: dataset {} has no mutabilityPeriod nor completenessDelay.",
+            tableName);
+      } else {
+        this.timeSeriesCache = dataFetcherSpec.getTimeSeriesCache();
+      }
+    }
   }
 
   @Override
   public DataTable getDataTable(Interval detectionInterval) throws Exception {
     String queryWithFilters = injectFilters(query);
     DataSourceRequest preparedRequest = applyMacros(detectionInterval, queryWithFilters);
+    if (timeSeriesCache != null && macrosSupported()) {
+      return getDataTableIncrementally(detectionInterval, queryWithFilters, preparedRequest);
+    }
     DataTable result = thirdEyeDataSource.fetchDataTable(preparedRequest);
     result.addProperties(preparedRequest.getProperties());
     return result;
   }
 
+  /**
+   * Fetches only the interval that is not in the time series cache. The macros are applied on
+   * the fetched interval. The properties are the ones of the full detection interval.
+   */
+  private DataTable getDataTableIncrementally(final Interval detectionInterval,
+      final String queryWithFilters, final DataSourceRequest preparedRequest) throws Exception {
+    final TimeSeriesCache.Key key = new TimeSeriesCache.Key(dataSourceId,
+        tableName,
+        queryWithFilters,
+        detectionInterval.getChronology().getZone().getID());
+    final DateTime now = DateTime.now(detectionInterval.getChronology().getZone());
+    long finalizedBeforeMillis = now.getMillis();
+    for (final Period period : finalizationPeriods) {
+      finalizedBeforeMillis = Math.min(finalizedBeforeMillis, now.minus(period).getMillis());
+    }
+    final DataFrame dataFrame = timeSeriesCache.getTimeSeries(key, detectionInterval, timeColumn,
+        finalizedBeforeMillis,
+        interval -> thirdEyeDataSource.fetchDataTable(applyMacros(interval, queryWithFilters))
+            .getDataFrame());
+    final DataTable result = SimpleDataTable.fromDataFrame(dataFrame);
+    result.addProperties(preparedRequest.getProperties());
+    return result;
+  }
+
+  private static List<Period> finalizationPeriods(final @Nullable DatasetConfigDTO dataset) {
+    if (dataset == null) {
+      return List.of();
+    }
+    return Stream.of(dataset.getMutabilityPeriod(), dataset.getCompletenessDelay())
+        .filter(Objects::nonNull)
+        .map(TimeUtils::isoPeriod)
+        .toList();
+  }
+
+  private boolean macrosSupported() {
+    return thirdEyeDataSource.getSqlLanguage() != null
+        && thirdEyeDataSource.getSqlExpressionBuilder() != null;
+  }
+
   private String injectFilters(final String query) {
     if (timeseriesFilters.isEmpty()) {
       return query;
@@ -138,12 +206,9 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
 
   private DataSourceRequest applyMacros(final Interval detectionInterval,
       final String queryWithFilters) {
-    SqlLanguage sqlLanguage = thirdEyeDataSource.getSqlLanguage();
-    SqlExpressionBuilder sqlExpressionBuilder = thirdEyeDataSource.getSqlExpressionBuilder();
-    boolean macrosSupported = sqlLanguage != null && sqlExpressionBuilder != null;
-    if (macrosSupported) {
-      return new MacroEngine(sqlLanguage,
-          sqlExpressionBuilder,
+    if (macrosSupported()) {
+      return new MacroEngine(thirdEyeDataSource.getSqlLanguage(),
+          thirdEyeDataSource.getSqlExpressionBuilder(),
           detectionInterval,
           datasetConfigDTO,
           queryWithFilters).prepareRequest();
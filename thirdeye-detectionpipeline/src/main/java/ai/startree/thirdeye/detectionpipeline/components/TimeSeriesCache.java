@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.components;
+
+import ai.startree.thirdeye.detectionpipeline.DetectionPipelineConfiguration;
+import ai.startree.thirdeye.detectionpipeline.TimeSeriesCacheConfiguration;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the time series fetched by the data fetchers, used to re-run a detection without
+ * refetching the whole lookback window.
+ *
+ * For a given query, the rows of the finalized time buckets are kept in memory. A bucket is
+ * finalized when it starts before the finalization time given by the caller - typically now minus
+ * the mutability period of the dataset - and is not the last bucket starting before it: the last
+ * bucket may overlap the finalization time. On the next run, only the interval between the end of
+ * the finalized buckets and the end of the detection interval is fetched, and the fetched rows are
+ * appended to the cached rows.
+ *
+ * The cache is bounded by the estimated size in bytes of the cached rows.
+ *
+ * This is only correct for queries that return one row per time bucket (and per dimension),
+ * where the value of a bucket does not depend on the rest of the interval. Data fetchers opt in
+ * with the incrementalFetch spec parameter.
+ */
+@Singleton
+public class TimeSeriesCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TimeSeriesCache.class);
+  private static final long REFERENCE_BYTES = 8;
+  private static final long STRING_BYTES = 40;
+  private static final long OBJECT_BYTES = 16;
+  private static final Counter ROWS_FROM_CACHE_COUNTER = Metrics.counter(
+      "thirdeye_cache_timeseries_rows_from_cache");
+
+  private final Cache<Key, CachedTimeSeries> cache;
+
+  @Inject
+  public TimeSeriesCache(final DetectionPipelineConfiguration configuration) {
+    final TimeSeriesCacheConfiguration cacheConfiguration = configuration.getTimeSeriesCache();
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(cacheConfiguration.getMaxSizeInBytes())
+        .weigher(TimeSeriesCache::weigh)
+        .expireAfterWrite(cacheConfiguration.getExpiry())
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(Metrics.globalRegistry, cache, "thirdeye_cache_timeseries");
+  }
+
+  /**
+   * Returns the rows of the time series in the interval. Rows of finalized buckets are read from
+   * the cache, the other rows are fetched with the fetcher.
+   *
+   * @param key identifies the time series. Must change if the query changes.
+   * @param timeColumn the name of the time column, in epoch milliseconds. The time of a row
+   *     is the start of its bucket.
+   * @param finalizedBeforeMillis the data of the buckets ending before this time does not
+   *     change anymore
+   */
+  public DataFrame getTimeSeries(final Key key, final Interval interval,
+      final String timeColumn, final long finalizedBeforeMillis, final IntervalFetcher fetcher)
+      throws Exception {
+    final CachedTimeSeries cached = cache.getIfPresent(key);
+    final DataFrame data;
+    if (cached != null && cached.canServe(interval, finalizedBeforeMillis)) {
+      final DataFrame head = cached.rows.slice(
+          firstIndexAtOrAfter(cached.rows.getLongs(timeColumn).values(), interval.getStartMillis()),
+          cached.rows.size());
+      final DataFrame tail = fetcher.fetch(new Interval(cached.finalizedEndMillis,
+          interval.getEndMillis(),
+          interval.getChronology()));
+      data = tail.size() == 0 ? head : DataFrame.concatenate(head, tail);
+      ROWS_FROM_CACHE_COUNTER.increment(head.size());
+    } else {
+      data = fetcher.fetch(interval);
+    }
+    update(key, interval, timeColumn, finalizedBeforeMillis, data);
+    return data;
+  }
+
+  private void update(final Key key, final Interval interval, final String timeColumn,
+      final long finalizedBeforeMillis, final DataFrame data) {
+    final Series timeSeries = data.contains(timeColumn) ? data.get(timeColumn) : null;
+    if (timeSeries == null || timeSeries.type() != SeriesType.LONG || timeSeries.hasNull()
+        || data.size() == 0) {
+      LOG.debug("Time series of {} cannot be cached: invalid or empty time column {}",
+          key, timeColumn);
+      cache.invalidate(key);
+      return;
+    }
+    final DataFrame sorted = data.sortedBy(timeColumn);
+    final long[] timestamps = sorted.getLongs(timeColumn).values();
+    final int mutableIndex = firstIndexAtOrAfter(timestamps, finalizedBeforeMillis);
+    if (mutableIndex == 0) {
+      cache.invalidate(key);
+      return;
+    }
+    // the last bucket starting before the finalization time may end after it - it is not finalized
+    final long finalizedEndMillis = timestamps[mutableIndex - 1];
+    if (finalizedEndMillis <= interval.getStartMillis()) {
+      cache.invalidate(key);
+      return;
+    }
+    final DataFrame finalizedRows = sorted.slice(0,
+        firstIndexAtOrAfter(timestamps, finalizedEndMillis));
+    cache.put(key, new CachedTimeSeries(finalizedRows,
+        interval.getStartMillis(),
+        finalizedEndMillis));
+  }
+
+  /**
+   * Estimation of the heap used by the rows. Strings are counted with their object overhead.
+   */
+  private static int weigh(final Key key, final CachedTimeSeries value) {
+    long bytes = 2L * key.query().length();
+    for (final Series series : value.rows().getSeries().values()) {
+      bytes += switch (series.type()) {
+        case LONG, DOUBLE -> 8L * series.size();
+        case BOOLEAN -> series.size();
+        case STRING -> {
+          long stringBytes = 0;
+          // get() does not decode a dictionary encoded series
+          final StringSeries strings = series.getStrings();
+          for (int i = 0; i < strings.size(); i++) {
+            final String string = strings.get(i);
+            stringBytes += REFERENCE_BYTES + (string == null ? 0 : STRING_BYTES + string.length());
+          }
+          yield stringBytes;
+        }
+        case OBJECT -> (REFERENCE_BYTES + OBJECT_BYTES) * (long) series.size();
+      };
+    }
+    return (int) Math.min(bytes, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return the index of the first value greater than or equal to the given value in the sorted
+   *     array. Returns the length of the array if there is no such value.
+   */
+  private static int firstIndexAtOrAfter(final long[] sortedValues, final long value) {
+    int low = 0;
+    int high = sortedValues.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (sortedValues[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @FunctionalInterface
+  public interface IntervalFetcher {
+
+    DataFrame fetch(Interval interval) throws Exception;
+  }
+
+  /**
+   * The query should be the query after filter injection and before macro application.
+   * The timezone impacts the alignment of the time buckets.
+   */
+  public record Key(@Nullable Long dataSourceId, @Nullable String tableName, String query,
+                    String timezone) {}
+
+  private record CachedTimeSeries(DataFrame rows, long startMillis, long finalizedEndMillis) {
+
+    /**
+     * Cached rows that are not finalized anymore - eg the mutability period was increased - are
+     * not served.
+     */
+    private boolean canServe(final Interval interval, final long finalizedBeforeMillis) {
+      return startMillis <= interval.getStartMillis()
+          && interval.getStartMillis() < finalizedEndMillis
+          && finalizedEndMillis <= interval.getEndMillis()
+          && finalizedEndMillis < finalizedBeforeMillis;
+    }
+  }
+}
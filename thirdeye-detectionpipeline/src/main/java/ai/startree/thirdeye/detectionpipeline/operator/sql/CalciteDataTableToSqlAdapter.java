@@ -22,8 +22,10 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.schema.SchemaPlus;
 
 /**
@@ -34,10 +36,14 @@ import org.apache.calcite.schema.SchemaPlus;
  * By default, add bigquery functions: to have TIMESTAMP_MILLIS(integer) and UNIX_MILLIS(timestamp)
  * available.
  * Window and analytical functions are supported.
+ *
+ * Each adapter loads its tables in a dedicated schema of the root schema, so that a connection
+ * can be reused by other adapters once the schema is removed in tearDown.
  */
 public class CalciteDataTableToSqlAdapter implements DataTableToSqlAdapter {
 
-  private static final String DATAFRAME_DATABASE = "calcite_dataframes";
+  private static final String DATAFRAME_DATABASE_PREFIX = "calcite_dataframes_";
+  private static final AtomicLong DATABASE_COUNTER = new AtomicLong();
   private static final Properties DEFAULT_JDBC_PROPERTIES = new Properties();
 
   static {
@@ -47,6 +53,8 @@ public class CalciteDataTableToSqlAdapter implements DataTableToSqlAdapter {
   }
 
   private final Properties properties = new Properties(DEFAULT_JDBC_PROPERTIES);
+  private final String databaseName =
+      DATAFRAME_DATABASE_PREFIX + DATABASE_COUNTER.incrementAndGet();
 
   @Override
   public String jdbcConnection() {
@@ -71,13 +79,15 @@ public class CalciteDataTableToSqlAdapter implements DataTableToSqlAdapter {
     DataFrameSchema schema = new DataFrameSchema(dataframes);
     CalciteConnection calciteConnection = connection.unwrap(CalciteConnection.class);
     SchemaPlus rootSchema = calciteConnection.getRootSchema();
-    rootSchema.add(DATAFRAME_DATABASE, schema);
-    // equivalent to "use [DATAFRAME_DATABASE]";
-    calciteConnection.setSchema(DATAFRAME_DATABASE);
+    rootSchema.add(databaseName, schema);
+    // equivalent to "use [databaseName]";
+    calciteConnection.setSchema(databaseName);
   }
 
   @Override
-  public void tearDown(final Connection connection) {
-    // nothing to do - GC should be enough
+  public void tearDown(final Connection connection) throws SQLException {
+    // release the dataframes - the connection may be reused
+    final CalciteConnection calciteConnection = connection.unwrap(CalciteConnection.class);
+    CalciteSchema.from(calciteConnection.getRootSchema()).removeSubSchema(databaseName);
   }
 }
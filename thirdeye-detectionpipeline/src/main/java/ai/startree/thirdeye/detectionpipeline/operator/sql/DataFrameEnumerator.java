@@ -15,32 +15,34 @@ package ai.startree.thirdeye.detectionpipeline.operator.sql;
 
 import static org.apache.calcite.linq4j.Nullness.castNonNull;
 
-import ai.startree.thirdeye.spi.dataframe.DataFrame;
-import java.util.List;
+import ai.startree.thirdeye.spi.dataframe.Series;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.calcite.linq4j.Enumerator;
-import org.apache.calcite.util.ImmutableNullableList;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
- * Enumerator that reads from a DataFrame.
+ * Enumerator that reads from a DataFrame. Only the given columns of the given rows are read.
  */
 public class DataFrameEnumerator implements Enumerator<Object[]> {
 
-  private final DataFrame dataFrame;
-  private final @Nullable List<@Nullable Object> filterValues;
+  private final Series[] columns;
+  private final int @Nullable [] rows;
+  private final int size;
   private final AtomicBoolean cancelFlag;
   private @Nullable Object[] current;
   private int currentIndex = -1;
-  List<String> columnNames;
 
-  public DataFrameEnumerator(DataFrame dataFrame, AtomicBoolean cancelFlag,
-      @Nullable Object @Nullable [] filterValues) {
+  /**
+   * @param columns the columns of the returned rows
+   * @param rows the indexes of the rows to read. If null, all rows are read.
+   * @param size the number of rows of the DataFrame
+   */
+  public DataFrameEnumerator(final Series[] columns, final int @Nullable [] rows,
+      final int size, final AtomicBoolean cancelFlag) {
+    this.columns = columns;
+    this.rows = rows;
+    this.size = rows == null ? size : rows.length;
     this.cancelFlag = cancelFlag;
-    this.filterValues = filterValues == null ? null
-        : ImmutableNullableList.copyOf(filterValues);
-    this.dataFrame = dataFrame;
-    this.columnNames = dataFrame.getSeriesNames();
   }
 
   @Override
@@ -50,33 +52,20 @@ public class DataFrameEnumerator implements Enumerator<Object[]> {
 
   @Override
   public boolean moveNext() {
-    outer:
-    for (; ; ) {
-      if (cancelFlag.get()) {
-        return false;
-      }
-      currentIndex++;
-      if (currentIndex == dataFrame.size()) {
-        return false;
-      }
-      Object[] values = columnNames.stream()
-          .map(name -> dataFrame.getObject(name, currentIndex))
-          .toArray(Object[]::new);
-
-      // works with string - long - boolean - double
-      if (filterValues != null) {
-        for (int i = 0; i < values.length; i++) {
-          Object filterValue = filterValues.get(i);
-          if (filterValue != null) {
-            if (!filterValue.equals(values[i])) {
-              continue outer;
-            }
-          }
-        }
-      }
-      current = values;
-      return true;
+    if (cancelFlag.get()) {
+      return false;
+    }
+    currentIndex++;
+    if (currentIndex >= size) {
+      return false;
+    }
+    final int row = rows == null ? currentIndex : rows[currentIndex];
+    final Object[] values = new Object[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      values[i] = columns[i].getObject(row);
     }
+    current = values;
+    return true;
   }
 
   @Override
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.operator.sql;
+
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.function.LongPredicate;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeFamily;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Row filter on a DataFrame, built from the filters Calcite pushes down to the table scan.
+ *
+ * Supported filters are comparisons between a column and a literal, and IS [NOT] NULL.
+ * Filters are evaluated column by column, directly on the primitive arrays of the series.
+ * Strings and booleans only support equality.
+ */
+class DataFrameFilter {
+
+  private final List<Series> columns;
+  private final int size;
+  private final List<ColumnPredicate> predicates = new ArrayList<>();
+
+  DataFrameFilter(final DataFrame dataFrame) {
+    this.columns = new ArrayList<>(dataFrame.getSeries().values());
+    this.size = dataFrame.size();
+  }
+
+  /**
+   * Adds the filter if it is supported.
+   *
+   * @return true if the filter is fully evaluated by this DataFrameFilter. Calcite does not need
+   *     to evaluate it again.
+   */
+  boolean add(final RexNode filter) {
+    if (filter.isA(SqlKind.AND)) {
+      // We cannot refine(remove) the operands of AND,
+      // it will cause o.a.c.i.TableScanNode.createFilterable filters check failed.
+      ((RexCall) filter).getOperands().forEach(this::add);
+      return false;
+    }
+    final @Nullable ColumnPredicate predicate = toPredicate(filter);
+    if (predicate == null) {
+      return false;
+    }
+    predicates.add(predicate);
+    return true;
+  }
+
+  /**
+   * @return the indexes of the rows that match all the filters, in increasing order. Null if
+   *     there is no filter: all rows match.
+   */
+  int @Nullable [] selectRows() {
+    if (predicates.isEmpty()) {
+      return null;
+    }
+    final boolean[] selected = new boolean[size];
+    Arrays.fill(selected, true);
+    for (final ColumnPredicate predicate : predicates) {
+      predicate.apply(selected);
+    }
+    int count = 0;
+    for (final boolean isSelected : selected) {
+      if (isSelected) {
+        count++;
+      }
+    }
+    final int[] rows = new int[count];
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      if (selected[i]) {
+        rows[j++] = i;
+      }
+    }
+    return rows;
+  }
+
+  private @Nullable ColumnPredicate toPredicate(final RexNode filter) {
+    if (filter.isA(SqlKind.IS_NULL) || filter.isA(SqlKind.IS_NOT_NULL)) {
+      final RexNode operand = ((RexCall) filter).getOperands().get(0);
+      if (!(operand instanceof RexInputRef)) {
+        return null;
+      }
+      return nullPredicate(columns.get(((RexInputRef) operand).getIndex()),
+          filter.isA(SqlKind.IS_NULL));
+    }
+    if (!filter.isA(SqlKind.BINARY_COMPARISON)) {
+      return null;
+    }
+    SqlKind kind = filter.getKind();
+    RexNode left = ((RexCall) filter).getOperands().get(0);
+    RexNode right = ((RexCall) filter).getOperands().get(1);
+    if (left instanceof RexLiteral) {
+      final RexNode tmp = left;
+      left = right;
+      right = tmp;
+      kind = kind.reverse();
+    }
+    if (kind == SqlKind.EQUALS && left.isA(SqlKind.CAST)) {
+      left = ((RexCall) left).getOperands().get(0);
+    }
+    if (!(left instanceof RexInputRef && right instanceof RexLiteral)) {
+      return null;
+    }
+    final RexLiteral literal = (RexLiteral) right;
+    if (literal.isNull()) {
+      return null;
+    }
+    final Series series = columns.get(((RexInputRef) left).getIndex());
+    switch (series.type()) {
+      case LONG:
+        return longPredicate(series.getLongs().values(), kind, literal);
+      case DOUBLE:
+        return doublePredicate(series.getDoubles().values(), kind, literal);
+      case STRING:
+        return stringPredicate(series.getStrings(), kind, literal);
+      case BOOLEAN:
+        return booleanPredicate(series.getBooleans().values(), kind, literal);
+      default:
+        return null;
+    }
+  }
+
+  private static @Nullable ColumnPredicate longPredicate(final long[] values, final SqlKind kind,
+      final RexLiteral literal) {
+    if (!literal.getTypeName().getFamily().equals(SqlTypeFamily.NUMERIC)) {
+      return null;
+    }
+    final BigDecimal decimal = literal.getValueAs(BigDecimal.class);
+    final long value;
+    try {
+      value = decimal.longValueExact();
+    } catch (final ArithmeticException e) {
+      // fractional or out of range - let Calcite evaluate the filter
+      return null;
+    }
+    final @Nullable LongPredicate test = switch (kind) {
+      case EQUALS -> v -> v == value;
+      case NOT_EQUALS -> v -> v != value;
+      case LESS_THAN -> v -> v < value;
+      case LESS_THAN_OR_EQUAL -> v -> v <= value;
+      case GREATER_THAN -> v -> v > value;
+      case GREATER_THAN_OR_EQUAL -> v -> v >= value;
+      default -> null;
+    };
+    if (test == null) {
+      return null;
+    }
+    return selected -> {
+      for (int i = 0; i < values.length; i++) {
+        if (selected[i] && (LongSeries.isNull(values[i]) || !test.test(values[i]))) {
+          selected[i] = false;
+        }
+      }
+    };
+  }
+
+  private static @Nullable ColumnPredicate doublePredicate(final double[] values,
+      final SqlKind kind, final RexLiteral literal) {
+    if (!literal.getTypeName().getFamily().equals(SqlTypeFamily.NUMERIC)) {
+      return null;
+    }
+    final double value = literal.getValueAs(Double.class);
+    final @Nullable DoublePredicate test = switch (kind) {
+      case EQUALS -> v -> v == value;
+      case NOT_EQUALS -> v -> v != value;
+      case LESS_THAN -> v -> v < value;
+      case LESS_THAN_OR_EQUAL -> v -> v <= value;
+      case GREATER_THAN -> v -> v > value;
+      case GREATER_THAN_OR_EQUAL -> v -> v >= value;
+      default -> null;
+    };
+    if (test == null) {
+      return null;
+    }
+    return selected -> {
+      for (int i = 0; i < values.length; i++) {
+        if (selected[i] && (DoubleSeries.isNull(values[i]) || !test.test(values[i]))) {
+          selected[i] = false;
+        }
+      }
+    };
+  }
+
+  private static @Nullable ColumnPredicate stringPredicate(final StringSeries values,
+      final SqlKind kind, final RexLiteral literal) {
+    if (!literal.getTypeName().getFamily().equals(SqlTypeFamily.CHARACTER)
+        || (kind != SqlKind.EQUALS && kind != SqlKind.NOT_EQUALS)) {
+      return null;
+    }
+    final String value = literal.getValueAs(String.class);
+    final boolean equals = kind == SqlKind.EQUALS;
+    return selected -> {
+      // get() does not decode a dictionary encoded series
+      for (int i = 0; i < values.size(); i++) {
+        final String v = values.get(i);
+        if (selected[i] && (v == null || value.equals(v) != equals)) {
+          selected[i] = false;
+        }
+      }
+    };
+  }
+
+  private static @Nullable ColumnPredicate booleanPredicate(final byte[] values,
+      final SqlKind kind, final RexLiteral literal) {
+    if (!literal.getTypeName().getFamily().equals(SqlTypeFamily.BOOLEAN)
+        || (kind != SqlKind.EQUALS && kind != SqlKind.NOT_EQUALS)) {
+      return null;
+    }
+    final boolean value = literal.getValueAs(Boolean.class) == (kind == SqlKind.EQUALS);
+    return selected -> {
+      for (int i = 0; i < values.length; i++) {
+        if (selected[i] && (BooleanSeries.isNull(values[i])
+            || BooleanSeries.isTrue(values[i]) != value)) {
+          selected[i] = false;
+        }
+      }
+    };
+  }
+
+  private static ColumnPredicate nullPredicate(final Series series, final boolean isNull) {
+    return selected -> {
+      for (int i = 0; i < selected.length; i++) {
+        if (selected[i] && series.isNull(i) != isNull) {
+          selected[i] = false;
+        }
+      }
+    };
+  }
+
+  @FunctionalInterface
+  private interface ColumnPredicate {
+
+    /**
+     * Unselects the rows that do not match the predicate.
+     */
+    void apply(boolean[] selected);
+  }
+}
@@ -14,33 +14,30 @@
 package ai.startree.thirdeye.detectionpipeline.operator.sql;
 
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.calcite.DataContext;
-import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.rel.type.RelProtoDataType;
-import org.apache.calcite.rex.RexCall;
-import org.apache.calcite.rex.RexInputRef;
-import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
-import org.apache.calcite.schema.FilterableTable;
-import org.apache.calcite.sql.SqlKind;
-import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.schema.ProjectableFilterableTable;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
- * Table based on a DataFrame. Implements simple equal filtering.
+ * Table based on a DataFrame. Implements projection and simple filter pushdown.
  *
- * <p>It implements the {@link FilterableTable} interface, so Calcite gets
- * data by calling the {@link #scan(DataContext, List)} method.
+ * <p>It implements the {@link ProjectableFilterableTable} interface, so Calcite gets
+ * data by calling the {@link #scan(DataContext, List, int[])} method. Only the projected columns
+ * of the rows matching the pushed down filters are materialized. See {@link DataFrameFilter} for
+ * the supported filters.
  *
  * Resource: https://github.com/apache/calcite/blob/4bc916619fd286b2c0cc4d5c653c96a68801d74e/example/csv/src/main/java/org/apache/calcite/adapter/csv/CsvFilterableTable.java
  */
 public class DataFrameFilterableTable extends DataFrameTable
-    implements FilterableTable {
+    implements ProjectableFilterableTable {
 
   public DataFrameFilterableTable(DataFrame dataFrame, RelProtoDataType protoRowType) {
     super(dataFrame, protoRowType);
@@ -52,59 +49,32 @@ public class DataFrameFilterableTable extends DataFrameTable
   }
 
   @Override
-  public Enumerable<@Nullable Object[]> scan(DataContext root, List<RexNode> filters) {
-    JavaTypeFactory typeFactory = root.getTypeFactory();
-    final List<DataFrameFieldType> fieldTypes = getFieldTypes(typeFactory);
-    final @Nullable Object[] filterValues = new Object[fieldTypes.size()];
-    filters.removeIf(filter -> addFilter(filter, filterValues));
+  public Enumerable<@Nullable Object[]> scan(DataContext root, List<RexNode> filters,
+      int @Nullable [] projects) {
+    final DataFrameFilter dataFrameFilter = new DataFrameFilter(dataFrame);
+    filters.removeIf(dataFrameFilter::add);
+    final Series[] columns = projectedColumns(projects);
     final AtomicBoolean cancelFlag = DataContext.Variable.CANCEL_FLAG.get(root);
     return new AbstractEnumerable<@Nullable Object[]>() {
       @Override
       public Enumerator<@Nullable Object[]> enumerator() {
-        return new DataFrameEnumerator(dataFrame, cancelFlag, filterValues);
+        return new DataFrameEnumerator(columns,
+            dataFrameFilter.selectRows(),
+            dataFrame.size(),
+            cancelFlag);
       }
     };
   }
 
-  /**
-   * Push down equal filter for STRING, LONG and DOUBLE.
-   */
-  private static boolean addFilter(RexNode filter, @Nullable Object[] filterValues) {
-
-    if (filter.isA(SqlKind.AND)) {
-      // We cannot refine(remove) the operands of AND,
-      // it will cause o.a.c.i.TableScanNode.createFilterable filters check failed.
-      ((RexCall) filter).getOperands().forEach(subFilter -> addFilter(subFilter, filterValues));
-    } else if (filter.isA(SqlKind.EQUALS)) {
-      final RexCall call = (RexCall) filter;
-      RexNode left = call.getOperands().get(0);
-      if (left.isA(SqlKind.CAST)) {
-        left = ((RexCall) left).operands.get(0);
-      }
-      final RexNode right = call.getOperands().get(1);
-      if (left instanceof RexInputRef
-          && right instanceof RexLiteral) {
-        final int index = ((RexInputRef) left).getIndex();
-        if (filterValues[index] == null) {
-          filterValues[index] = customGetValue((RexLiteral) right);
-          return true;
-        }
-      }
+  private Series[] projectedColumns(final int @Nullable [] projects) {
+    final Series[] allColumns = dataFrame.getSeries().values().toArray(new Series[0]);
+    if (projects == null) {
+      return allColumns;
     }
-    return false;
-  }
-
-  private static Object customGetValue(RexLiteral literal) {
-    // only tested with SeriesType DOUBLE, BOOLEAN, STRING, LONG
-    SqlTypeName preciseSqlType = literal.getType().getSqlTypeName();
-    switch (preciseSqlType) {
-      case DOUBLE:
-        return literal.getValueAs(Double.class);
-      case BOOLEAN:
-        return literal.getValueAs(Boolean.class);
-      default:
-        // sensible defaults: STRING and LONG managed correctly
-        return literal.getValue2();
+    final Series[] columns = new Series[projects.length];
+    for (int i = 0; i < projects.length; i++) {
+      columns[i] = allColumns[projects[i]];
     }
+    return columns;
   }
 }
@@ -13,31 +13,46 @@
  */
 package ai.startree.thirdeye.detectionpipeline.operator.sql;
 
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series;
 import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.detection.v2.DataTableToSqlAdapter;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Perform SQL on a DataFrame with an in-memory HyperSQL database.
+ *
+ * Each adapter creates its tables in a dedicated schema, so that connections to the database can
+ * be shared. The schema is dropped in tearDown.
+ */
 public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
 
-  private final Logger LOG = LoggerFactory.getLogger(getClass());
+  private static final int INSERT_BATCH_SIZE = 1000;
+  private static final String SCHEMA_PREFIX = "SQL_EXECUTION_";
+  private static final AtomicLong SCHEMA_COUNTER = new AtomicLong();
 
-  private final List<String> insertedTable = new ArrayList<>();
+  private final Logger LOG = LoggerFactory.getLogger(getClass());
 
   private final Properties properties = new Properties();
+  private final String schemaName = SCHEMA_PREFIX + SCHEMA_COUNTER.incrementAndGet();
 
   @Override
   public String jdbcConnection() {
-    return "jdbc:hsqldb:mem";
+    return "jdbc:hsqldb:mem:thirdeye_sql_execution";
   }
 
   @Override
@@ -53,55 +68,53 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
   @Override
   public void loadTables(final Connection connection, final Map<String, DataTable> dataTables)
       throws SQLException {
+    execute(connection, "CREATE SCHEMA " + schemaName);
+    execute(connection, "SET SCHEMA " + schemaName);
     for (final Entry<String, DataTable> entry : dataTables.entrySet()) {
       insertInput(connection, entry.getKey(), entry.getValue());
-      insertedTable.add(entry.getKey());
     }
   }
 
   @Override
   public void tearDown(final Connection connection) throws SQLException {
     // Destroy database
-    LOG.debug("trying to drop all the tables to clean up the environment.");
-    for (final String tableName : insertedTable) {
-      destroyTable(connection, tableName);
-    }
+    LOG.debug("trying to drop schema {} to clean up the environment.", schemaName);
+    execute(connection, "SET SCHEMA PUBLIC");
+    execute(connection, "DROP SCHEMA " + schemaName + " IF EXISTS CASCADE");
   }
 
-  private void destroyTable(final Connection c, final String tableName) throws SQLException {
-    final String dropTableStatement = "DROP TABLE " + tableName + " IF EXISTS";
-    try {
-      c.prepareCall(dropTableStatement).execute();
+  private void execute(final Connection c, final String sql) throws SQLException {
+    try (final Statement statement = c.createStatement()) {
+      statement.execute(sql);
     } catch (final SQLException e) {
-      LOG.error("Failed to drop table: {} with sql: {}",
-          tableName,
-          dropTableStatement,
-          e);
+      LOG.error("Failed to execute sql: {}", sql, e);
       throw e;
     }
   }
 
   private void insertInput(final Connection c, final String tableName,
       final DataTable dataTable) throws SQLException {
-    // Drop the table in case.
-    destroyTable(c, tableName);
-
     final DataFrame df = dataTable.getDataFrame();
     // Create the table.
     createTable(c, tableName, df);
 
     // Insert all rows into the table
-    for (int rowIdx = 0; rowIdx < df.size(); rowIdx++) {
-      final String insertionStatement = getRowInsertionStatement(tableName, rowIdx, df);
-      try {
-        c.prepareCall(insertionStatement).execute();
-      } catch (final SQLException e) {
-        LOG.error("Failed to insert row idx: {}, insertion sql: {}",
-            rowIdx,
-            insertionStatement,
-            e);
-        throw e;
+    final String insertionStatement = getInsertionStatement(tableName, df.getSeriesNames().size());
+    try (final PreparedStatement statement = c.prepareStatement(insertionStatement)) {
+      for (int rowIdx = 0; rowIdx < df.size(); rowIdx++) {
+        setRowParameters(statement, df, rowIdx);
+        statement.addBatch();
+        if ((rowIdx + 1) % INSERT_BATCH_SIZE == 0) {
+          statement.executeBatch();
+        }
       }
+      statement.executeBatch();
+    } catch (final SQLException e) {
+      LOG.error("Failed to insert rows in table: {}, insertion sql: {}",
+          tableName,
+          insertionStatement,
+          e);
+      throw e;
     }
   }
 
@@ -110,9 +123,9 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
     final String tableCreationStatement = getTableCreationStatement(tableName,
         dataFrame.getSeriesNames(),
         dataFrame.getSeriesTypes());
-    try {
-      c.prepareCall(tableCreationStatement).execute();
+    try (final Statement statement = c.createStatement()) {
       LOG.debug("Trying to create table with sql: {}", tableCreationStatement);
+      statement.execute(tableCreationStatement);
     } catch (final SQLException e) {
       LOG.error("Failed to create table: {} with sql: {}",
           tableName,
@@ -122,28 +135,42 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
     }
   }
 
-  private String getRowInsertionStatement(final String tableName,
-      final int rowIdx,
-      final DataFrame dataFrame) {
-    final StringBuilder sb = new StringBuilder(
-        "INSERT INTO " + tableName + " VALUES (");
+  private String getInsertionStatement(final String tableName, final int columnCount) {
+    return "INSERT INTO " + tableName + " VALUES ("
+        + String.join(", ", Collections.nCopies(columnCount, "?"))
+        + ")";
+  }
+
+  private void setRowParameters(final PreparedStatement statement, final DataFrame dataFrame,
+      final int rowIdx) throws SQLException {
     final List<String> seriesNames = dataFrame.getSeriesNames();
     for (int colIdx = 0; colIdx < seriesNames.size(); colIdx++) {
-      final Object value = dataFrame.getObject(seriesNames.get(colIdx), rowIdx);
-
-      // If string, then wrap with quotes
-      final String quoteWith = value instanceof String ? "'" : "";
-      sb
-          .append(quoteWith)
-          .append(value)
-          .append(quoteWith);
-
-      if (colIdx < seriesNames.size() - 1) {
-        sb.append(", ");
+      final Series series = dataFrame.get(seriesNames.get(colIdx));
+      final int parameterIndex = colIdx + 1;
+      if (series.isNull(rowIdx)) {
+        statement.setNull(parameterIndex, getSqlType(series.type()));
+        continue;
+      }
+      switch (series.type()) {
+        case LONG:
+          statement.setLong(parameterIndex, series.getLong(rowIdx));
+          break;
+        case DOUBLE:
+          statement.setDouble(parameterIndex, series.getDouble(rowIdx));
+          break;
+        case STRING:
+          statement.setString(parameterIndex, series.getString(rowIdx));
+          break;
+        case BOOLEAN:
+          statement.setBoolean(parameterIndex, BooleanSeries.isTrue(series.getBoolean(rowIdx)));
+          break;
+        case OBJECT:
+          statement.setObject(parameterIndex, series.getObject(rowIdx));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown type " + series.type().name());
       }
     }
-    sb.append(")");
-    return sb.toString();
   }
 
   private String getTableCreationStatement(final String tableName, final List<String> columns,
@@ -178,4 +205,21 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
         throw new IllegalArgumentException("Unknown type " + seriesType.name());
     }
   }
+
+  private int getSqlType(final SeriesType seriesType) {
+    switch (seriesType) {
+      case LONG:
+        return Types.BIGINT;
+      case DOUBLE:
+        return Types.DOUBLE;
+      case STRING:
+        return Types.VARCHAR;
+      case BOOLEAN:
+        return Types.BOOLEAN;
+      case OBJECT:
+        return Types.VARBINARY;
+      default:
+        throw new IllegalArgumentException("Unknown type " + seriesType.name());
+    }
+  }
 }
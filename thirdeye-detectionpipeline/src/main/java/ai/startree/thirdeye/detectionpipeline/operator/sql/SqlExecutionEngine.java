@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.operator.sql;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.DataTableToSqlAdapter;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs SQL queries on DataTables for the SqlExecution operator.
+ *
+ * Connections are pooled per SQL engine and reused across executions. Each execution loads its
+ * tables in an isolated namespace - see the {@link DataTableToSqlAdapter} implementations - which
+ * is dropped at the end of the execution. When custom jdbc parameters are passed, a dedicated
+ * connection is opened and closed instead.
+ */
+@Singleton
+public class SqlExecutionEngine implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SqlExecutionEngine.class);
+  private static final int MAX_ACTIVE_CONNECTIONS_PER_ENGINE = 32;
+  private static final int MAX_IDLE_CONNECTIONS_PER_ENGINE = 8;
+
+  private final Map<Class<? extends DataTableToSqlAdapter>, DataSource> pools =
+      new ConcurrentHashMap<>();
+
+  @Inject
+  public SqlExecutionEngine() {
+  }
+
+  /**
+   * @param sqlEngine see {@link DataTableToSqlAdapterFactory}
+   * @param jdbcParameters custom parameters of the jdbc connection. If not empty, the connection
+   *     is not pooled.
+   * @return the result of each query, in the order of the queries
+   */
+  public List<DataTable> runQueries(final String sqlEngine,
+      final Map<String, String> jdbcParameters, final Map<String, DataTable> dataTables,
+      final List<String> queries) throws Exception {
+    final DataTableToSqlAdapter adapter = DataTableToSqlAdapterFactory.create(sqlEngine);
+    try (final Connection connection = getConnection(adapter, jdbcParameters)) {
+      try {
+        loadTables(adapter, connection, dataTables);
+        final List<DataTable> results = new ArrayList<>(queries.size());
+        for (final String query : queries) {
+          results.add(runQuery(query, connection));
+        }
+        return results;
+      } finally {
+        adapter.tearDown(connection);
+      }
+    }
+  }
+
+  private static void loadTables(final DataTableToSqlAdapter adapter,
+      final Connection connection, final Map<String, DataTable> dataTables) throws SQLException {
+    try {
+      adapter.loadTables(connection, dataTables);
+    } catch (final SQLException e) {
+      LOG.error("Failed to load tables", e);
+      throw e;
+    }
+  }
+
+  private Connection getConnection(final DataTableToSqlAdapter adapter,
+      final Map<String, String> jdbcParameters) throws Exception {
+    if (jdbcParameters.isEmpty()) {
+      return pools.computeIfAbsent(adapter.getClass(), k -> createPool(adapter)).getConnection();
+    }
+    try {
+      Class.forName(adapter.jdbcDriverClassName());
+    } catch (final Exception e) {
+      LOG.error("ERROR: failed to load JDBC driver class {}.", adapter.jdbcDriverClassName(), e);
+      throw e;
+    }
+    adapter.jdbcProperties().putAll(jdbcParameters);
+    final Connection connection = DriverManager.getConnection(adapter.jdbcConnection(),
+        adapter.jdbcProperties());
+    LOG.debug("Successfully connected to JDBC connection: {} with driver class: {} ",
+        adapter.jdbcConnection(),
+        adapter.jdbcDriverClassName());
+    return connection;
+  }
+
+  private static DataSource createPool(final DataTableToSqlAdapter adapter) {
+    final PoolProperties poolProperties = new PoolProperties();
+    poolProperties.setUrl(adapter.jdbcConnection());
+    poolProperties.setDriverClassName(adapter.jdbcDriverClassName());
+    // the pool copies the properties without their defaults - flatten them
+    final Properties dbProperties = new Properties();
+    for (final String name : adapter.jdbcProperties().stringPropertyNames()) {
+      dbProperties.setProperty(name, adapter.jdbcProperties().getProperty(name));
+    }
+    poolProperties.setDbProperties(dbProperties);
+    poolProperties.setInitialSize(0);
+    poolProperties.setMinIdle(0);
+    poolProperties.setMaxIdle(MAX_IDLE_CONNECTIONS_PER_ENGINE);
+    poolProperties.setMaxActive(MAX_ACTIVE_CONNECTIONS_PER_ENGINE);
+    poolProperties.setJmxEnabled(false);
+    LOG.info("Creating SQL execution connection pool for {}", adapter.jdbcConnection());
+    return new DataSource(poolProperties);
+  }
+
+  private static DataTable runQuery(final String query, final Connection connection)
+      throws SQLException {
+    try (final PreparedStatement statement = connection.prepareStatement(query);
+        final ResultSet resultSet = statement.executeQuery()) {
+      return SimpleDataTable.fromDataFrame(DataFrame.fromResultSet(resultSet));
+    } catch (final SQLException e) {
+      LOG.error("Got exceptions when executing SQL query: {}", query, e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    pools.values().forEach(DataSource::close);
+    pools.clear();
+  }
+}
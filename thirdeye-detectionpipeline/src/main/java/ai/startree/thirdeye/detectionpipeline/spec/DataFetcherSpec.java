@@ -14,6 +14,7 @@
 package ai.startree.thirdeye.detectionpipeline.spec;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
@@ -45,6 +46,33 @@ public class DataFetcherSpec extends AbstractSpec {
    * that are used for EnumeratorQuery.
    * */
   private boolean enableFilterInjection = true; 
+
+  /**
+   * When enabled, the rows of finalized time buckets are cached and only the missing tail of the
+   * detection interval is fetched on the next runs. The time column is given by the timestamp
+   * parameter. A bucket is finalized once the mutabilityPeriod and completenessDelay of the
+   * dataset have passed. Ignored if the dataset defines neither.
+   *
+   * Only enable for queries that return one row per time bucket (and per dimension), grouped with
+   * the __timeGroup macro.
+   */
+  private boolean incrementalFetch = false;
+
+  /**
+   * Query returning the rows of all the enumeration items, grouped by the enumerationDimensions.
+   *
+   * Optional - only used in the enumeration execution mode of the PlanExecutor: the enumeration
+   * items of an alert with the same groupedQuery are fetched with a single query, and each item
+   * reads its own rows. The query of the item is not executed.
+   */
+  private String groupedQuery;
+
+  /**
+   * Columns of the groupedQuery that identify an enumeration item. For each column, the rows of
+   * an item are the ones equal to the enumeration item param of the same name. The columns are
+   * removed from the rows of the item.
+   */
+  private List<String> enumerationDimensions;
   
   /**
    * Expected to be set during DataFetcherOperator init
@@ -70,6 +98,11 @@ public class DataFetcherSpec extends AbstractSpec {
    */
   private String namespace;
 
+  /**
+   * Expected to be set during DataFetcherOperator init.
+   */
+  private TimeSeriesCache timeSeriesCache;
+
   public String getDataSource() {
     return dataSource;
   }
@@ -151,4 +184,40 @@ public class DataFetcherSpec extends AbstractSpec {
     this.enableFilterInjection = enableFilterInjection;
     return this;
   }
+
+  public boolean isIncrementalFetch() {
+    return incrementalFetch;
+  }
+
+  public DataFetcherSpec setIncrementalFetch(final boolean incrementalFetch) {
+    this.incrementalFetch = incrementalFetch;
+    return this;
+  }
+
+  public String getGroupedQuery() {
+    return groupedQuery;
+  }
+
+  public DataFetcherSpec setGroupedQuery(final String groupedQuery) {
+    this.groupedQuery = groupedQuery;
+    return this;
+  }
+
+  public List<String> getEnumerationDimensions() {
+    return enumerationDimensions;
+  }
+
+  public DataFetcherSpec setEnumerationDimensions(final List<String> enumerationDimensions) {
+    this.enumerationDimensions = enumerationDimensions;
+    return this;
+  }
+
+  public TimeSeriesCache getTimeSeriesCache() {
+    return timeSeriesCache;
+  }
+
+  public DataFetcherSpec setTimeSeriesCache(final TimeSeriesCache timeSeriesCache) {
+    this.timeSeriesCache = timeSeriesCache;
+    return this;
+  }
 }
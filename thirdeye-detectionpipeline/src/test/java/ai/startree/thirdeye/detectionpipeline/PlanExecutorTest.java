@@ -15,25 +15,50 @@ package ai.startree.thirdeye.detectionpipeline;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import ai.startree.thirdeye.datalayer.core.EnumerationItemMaintainer;
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.PlanExecutor.EnumerationItemPipeline;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
 import ai.startree.thirdeye.detectionpipeline.operator.EchoOperator;
 import ai.startree.thirdeye.detectionpipeline.operator.EchoOperator.EchoResult;
+import ai.startree.thirdeye.detectionpipeline.operator.sql.SqlExecutionEngine;
 import ai.startree.thirdeye.detectionpipeline.plan.EchoPlanNode;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
 import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EventManager;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.InputBean;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.OutputBean;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.detection.Enumerator;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
 import org.testng.annotations.BeforeMethod;
@@ -43,34 +68,55 @@ public class PlanExecutorTest {
 
   private PlanExecutor planExecutor;
   private Enumerator enumerator;
+  private ThirdEyeDataSource thirdEyeDataSource;
+  private PlanNodeFactory planNodeFactory;
+  private DataSourceCache dataSourceCache;
+  private DetectionRegistry detectionRegistry;
+  private PostProcessorRegistry postProcessorRegistry;
+  private EventManager eventManager;
+  private DataSourceManager dataSourceDao;
+  private DatasetConfigManager datasetConfigManager;
 
   @BeforeMethod
   public void setUp() {
-    final DetectionRegistry detectionRegistry = mock(DetectionRegistry.class);
-    final DataSourceCache dataSourceCache = mock(DataSourceCache.class);
-    final PostProcessorRegistry postProcessorRegistry = mock(PostProcessorRegistry.class);
-    final EventManager eventManager = mock(EventManager.class);
-    final DatasetConfigManager datasetConfigManager = mock(DatasetConfigManager.class);
-    final DataSourceManager dataSourceDao = mock(DataSourceManager.class);
-    final PlanNodeFactory planNodeFactory = new PlanNodeFactory(
+    detectionRegistry = mock(DetectionRegistry.class);
+    dataSourceCache = mock(DataSourceCache.class);
+    postProcessorRegistry = mock(PostProcessorRegistry.class);
+    eventManager = mock(EventManager.class);
+    datasetConfigManager = mock(DatasetConfigManager.class);
+    dataSourceDao = mock(DataSourceManager.class);
+    final DataSourceDTO dataSourceDTO = new DataSourceDTO().setName("pinot");
+    dataSourceDTO.setId(1L);
+    when(dataSourceDao.findByNameAndNamespaceOrUnsetNamespace(anyString(),
+        nullable(String.class))).thenReturn(dataSourceDTO);
+    thirdEyeDataSource = mock(ThirdEyeDataSource.class);
+    when(dataSourceCache.getDataSource(dataSourceDTO)).thenReturn(thirdEyeDataSource);
+    planNodeFactory = new PlanNodeFactory(
     );
     final EnumerationItemManager enumerationItemManager = mock(EnumerationItemManager.class);
     when(enumerationItemManager.save(any())).thenAnswer(e -> {
       ((EnumerationItemDTO) e.getArguments()[0]).setId(1L);
       return 1L;
     });
-    planExecutor = new PlanExecutor(planNodeFactory,
+    planExecutor = newPlanExecutor(new DetectionPipelineConfiguration());
+    enumerator = mock(Enumerator.class);
+
+    when(detectionRegistry.buildEnumerator("default")).thenReturn(enumerator);
+  }
+
+  private PlanExecutor newPlanExecutor(
+      final DetectionPipelineConfiguration detectionPipelineConfiguration) {
+    return new PlanExecutor(planNodeFactory,
         dataSourceCache,
         detectionRegistry,
         postProcessorRegistry,
         eventManager,
         dataSourceDao, 
         datasetConfigManager,
-        new DetectionPipelineConfiguration(),
-        mock(EnumerationItemMaintainer.class));
-    enumerator = mock(Enumerator.class);
-
-    when(detectionRegistry.buildEnumerator("default")).thenReturn(enumerator);
+        detectionPipelineConfiguration,
+        mock(EnumerationItemMaintainer.class),
+        mock(TimeSeriesCache.class),
+        mock(SqlExecutionEngine.class));
   }
 
   @Test
@@ -103,4 +149,224 @@ public class PlanExecutorTest {
     final EchoResult echoResult = (EchoResult) result;
     assertThat(echoResult.text()).isEqualTo(echoInput);
   }
+
+  @Test
+  public void testExecutePlanNodeParallel() throws Exception {
+    final Map<String, PlanNode> pipelinePlanNodes = new HashMap<>();
+    pipelinePlanNodes.put("current", echoNode("current", "current_input", List.of()));
+    pipelinePlanNodes.put("baseline", echoNode("baseline", "baseline_input", List.of()));
+    final EchoPlanNode root = echoNode("root", "root_input", List.of(
+        new InputBean().setTargetProperty("current").setSourcePlanNode("current")
+            .setSourceProperty(EchoOperator.DEFAULT_OUTPUT_KEY),
+        new InputBean().setTargetProperty("baseline").setSourcePlanNode("baseline")
+            .setSourceProperty(EchoOperator.DEFAULT_OUTPUT_KEY)));
+    pipelinePlanNodes.put("root", root);
+
+    final HashMap<ContextKey, OperatorResult> resultMap = new HashMap<>();
+    // a single thread executor ensures the calling thread helps when the executor is saturated
+    final ExecutorService executorService = Executors.newFixedThreadPool(1);
+    try {
+      new ParallelPlanNodeExecutor(pipelinePlanNodes, resultMap, executorService,
+          Duration.ofMinutes(1)).execute(root);
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertThat(resultMap.size()).isEqualTo(3);
+    final EchoResult current = (EchoResult) resultMap.get(
+        PlanExecutor.key("current", EchoOperator.DEFAULT_OUTPUT_KEY));
+    assertThat(current.text()).isEqualTo("current_input");
+    final EchoResult rootResult = (EchoResult) resultMap.get(
+        PlanExecutor.key("root", EchoOperator.DEFAULT_OUTPUT_KEY));
+    assertThat(rootResult.text()).isEqualTo("root_input");
+  }
+
+  private static EchoPlanNode echoNode(final String name, final String echoInput,
+      final List<InputBean> inputs) {
+    final EchoPlanNode node = new EchoPlanNode();
+    node.init(new PlanNodeContext()
+        .setName(name)
+        .setDetectionPipelineContext(new DetectionPipelineContext()
+            .setDetectionInterval(new Interval(0L, 0L, DateTimeZone.UTC)))
+        .setPlanNodeBean(new PlanNodeBean()
+            .setName(name)
+            .setInputs(inputs)
+            .setParams(TemplatableMap.ofValue(EchoOperator.DEFAULT_INPUT_KEY, echoInput))
+        )
+    );
+    return node;
+  }
+
+  @Test
+  public void testRunEnumerationItemsSharesTheDataFetch() throws Exception {
+    final DataFrame groupedData = new DataFrame()
+        .addSeries("ts", 1L, 2L, 1L)
+        .addSeries("country", "US", "US", "FR")
+        .addSeries("met", 10L, 11L, 20L);
+    final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+    when(thirdEyeDataSource.fetchDataTable(any())).thenAnswer(invocation -> {
+      queries.add(((DataSourceRequest) invocation.getArgument(0)).getQuery());
+      return SimpleDataTable.fromDataFrame(groupedData.copy());
+    });
+
+    final List<EnumerationItemPipeline> pipelines = new ArrayList<>();
+    for (final String country : List.of("US", "FR", "DE")) {
+      pipelines.add(enumerationItemPipeline(country));
+    }
+    final List<Map<String, OperatorResult>> outputs = planExecutor.runEnumerationItems(pipelines,
+        "root");
+
+    // DE has no row in the grouped result: it runs its own query
+    assertThat(queries).isEqualTo(List.of("SELECT ts, country, met FROM t GROUP BY ts, country",
+        "SELECT ts, met FROM t WHERE country = 'DE'"));
+    assertThat(outputs.size()).isEqualTo(3);
+    for (int i = 0; i < 3; i++) {
+      final EchoResult echoResult = (EchoResult) outputs.get(i).get(EchoOperator.DEFAULT_OUTPUT_KEY);
+      assertThat(echoResult.text()).isEqualTo(pipelines.get(i).context().getEnumerationItem()
+          .getName());
+    }
+  }
+
+  @Test
+  public void testSharedDataFetchSplitsRowsByItem() throws Exception {
+    when(thirdEyeDataSource.fetchDataTable(any())).thenReturn(SimpleDataTable.fromDataFrame(
+        new DataFrame()
+            .addSeries("ts", 1L, 2L, 1L)
+            .addSeries("country", "US", "US", "FR")
+            .addSeries("met", 10L, 11L, 20L)));
+    final List<EnumerationItemPipeline> pipelines = List.of(enumerationItemPipeline("US"),
+        enumerationItemPipeline("FR"),
+        enumerationItemPipeline("DE"));
+    final ApplicationContext applicationContext = planExecutor.createApplicationContext();
+    pipelines.forEach(p -> p.context().setApplicationContext(applicationContext));
+
+    final SharedDataFetch sharedDataFetch = new SharedDataFetch(new PlanNodeFactory(), pipelines);
+    assertThat(sharedDataFetch.size()).isEqualTo(1);
+    sharedDataFetch.fetch(0);
+
+    final ContextKey key = PlanExecutor.key("fetcher", "currentData");
+    final DataFrame us = ((DataTable) sharedDataFetch.seededResults(0).get(key)).getDataFrame();
+    assertThat(us).isEqualTo(new DataFrame().addSeries("ts", 1L, 2L).addSeries("met", 10L, 11L));
+    final DataFrame fr = ((DataTable) sharedDataFetch.seededResults(1).get(key)).getDataFrame();
+    assertThat(fr).isEqualTo(new DataFrame().addSeries("ts", 1L).addSeries("met", 20L));
+    // no row matches DE: it is not seeded
+    assertThat(sharedDataFetch.seededResults(2)).isEmpty();
+  }
+
+  @Test
+  public void testSharedDataFetchMatchesTypedValues() throws Exception {
+    when(thirdEyeDataSource.fetchDataTable(any())).thenReturn(SimpleDataTable.fromDataFrame(
+        new DataFrame()
+            .addSeries("ts", 1L, 1L, 1L)
+            .addSeries("country", 1L, 2L, 3L)
+            .addSeries("met", 10L, 20L, 30L)));
+    // params deserialized from json can be ints, doubles or strings
+    final List<EnumerationItemPipeline> pipelines = List.of(enumerationItemPipeline("a", 1, true),
+        enumerationItemPipeline("b", 2.0, true),
+        enumerationItemPipeline("c", "3", true),
+        enumerationItemPipeline("d", "not a number", true));
+    final ApplicationContext applicationContext = planExecutor.createApplicationContext();
+    pipelines.forEach(p -> p.context().setApplicationContext(applicationContext));
+
+    final SharedDataFetch sharedDataFetch = new SharedDataFetch(new PlanNodeFactory(), pipelines);
+    sharedDataFetch.fetch(0);
+
+    final ContextKey key = PlanExecutor.key("fetcher", "currentData");
+    for (int i = 0; i < 3; i++) {
+      final DataFrame df = ((DataTable) sharedDataFetch.seededResults(i).get(key)).getDataFrame();
+      assertThat(df).isEqualTo(new DataFrame().addSeries("ts", 1L).addSeries("met", 10L * (i + 1)));
+    }
+    // a param that cannot be converted to the column type is not seeded
+    assertThat(sharedDataFetch.seededResults(3)).isEmpty();
+  }
+
+  @Test
+  public void testSharedDataFetchTypedValue() {
+    assertThat(SharedDataFetch.typedValue(1, SeriesType.LONG)).isEqualTo(1L);
+    assertThat(SharedDataFetch.typedValue(1.0, SeriesType.LONG)).isEqualTo(1L);
+    assertThat(SharedDataFetch.typedValue("1", SeriesType.LONG)).isEqualTo(1L);
+    assertThat(SharedDataFetch.typedValue("1.0", SeriesType.LONG)).isEqualTo(1L);
+    assertThat(SharedDataFetch.typedValue(1.5, SeriesType.LONG)).isNull();
+    assertThat(SharedDataFetch.typedValue(1, SeriesType.DOUBLE)).isEqualTo(1.0);
+    assertThat(SharedDataFetch.typedValue("1.5", SeriesType.DOUBLE)).isEqualTo(1.5);
+    assertThat(SharedDataFetch.typedValue("TRUE", SeriesType.BOOLEAN)).isEqualTo(true);
+    assertThat(SharedDataFetch.typedValue("yes", SeriesType.BOOLEAN)).isNull();
+    assertThat(SharedDataFetch.typedValue(1, SeriesType.STRING)).isEqualTo("1");
+  }
+
+  @Test
+  public void testRunEnumerationItemsIsCappedByPerAlertParallelism() throws Exception {
+    final DetectionPipelineConfiguration configuration = new DetectionPipelineConfiguration();
+    configuration.getForkjoin().setPerAlertParallelism(2);
+    final PlanExecutor cappedPlanExecutor = newPlanExecutor(configuration);
+    // each fetch waits for a concurrent fetch: the items only complete if 2 of them run at a time
+    final CyclicBarrier barrier = new CyclicBarrier(2);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    when(thirdEyeDataSource.fetchDataTable(any())).thenAnswer(invocation -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      threadNames.add(Thread.currentThread().getName());
+      barrier.await(1, TimeUnit.MINUTES);
+      running.decrementAndGet();
+      return SimpleDataTable.fromDataFrame(new DataFrame().addSeries("ts", 1L)
+          .addSeries("met", 10L));
+    });
+
+    final List<EnumerationItemPipeline> pipelines = new ArrayList<>();
+    for (final String country : List.of("US", "FR", "DE", "IT")) {
+      pipelines.add(enumerationItemPipeline(country, false));
+    }
+    try {
+      final List<Map<String, OperatorResult>> outputs = cappedPlanExecutor.runEnumerationItems(
+          pipelines, "root");
+      assertThat(outputs.size()).isEqualTo(4);
+    } finally {
+      cappedPlanExecutor.close();
+    }
+
+    assertThat(maxRunning.get()).isEqualTo(2);
+    assertThat(threadNames.stream().anyMatch(name -> name.startsWith("fork-join"))).isTrue();
+  }
+
+  private static EnumerationItemPipeline enumerationItemPipeline(final String country) {
+    return enumerationItemPipeline(country, true);
+  }
+
+  private static EnumerationItemPipeline enumerationItemPipeline(final String country,
+      final boolean sharedFetch) {
+    return enumerationItemPipeline(country, country, sharedFetch);
+  }
+
+  private static EnumerationItemPipeline enumerationItemPipeline(final String country,
+      final Object countryParam, final boolean sharedFetch) {
+    final Map<String, Object> fetcherParams = new HashMap<>(Map.of(
+        "component.dataSource", "pinot",
+        "component.query", "SELECT ts, met FROM t WHERE country = '" + country + "'"));
+    if (sharedFetch) {
+      fetcherParams.put("component.groupedQuery",
+          "SELECT ts, country, met FROM t GROUP BY ts, country");
+      fetcherParams.put("component.enumerationDimensions", List.of("country"));
+    }
+    final PlanNodeBean fetcher = new PlanNodeBean()
+        .setName("fetcher")
+        .setType("DataFetcher")
+        .setParams(TemplatableMap.fromValueMap(fetcherParams))
+        .setInputs(List.of())
+        .setOutputs(List.of(new OutputBean().setOutputKey("currentData")
+            .setOutputName("currentData")));
+    final PlanNodeBean root = new PlanNodeBean()
+        .setName("root")
+        .setType("Echo")
+        .setParams(TemplatableMap.ofValue(EchoOperator.DEFAULT_INPUT_KEY, country))
+        .setInputs(List.of(new InputBean().setTargetProperty("current")
+            .setSourcePlanNode("fetcher")
+            .setSourceProperty("currentData")))
+        .setOutputs(List.of());
+    final DetectionPipelineContext context = new DetectionPipelineContext()
+        .setDetectionInterval(new Interval(0L, 10L, DateTimeZone.UTC))
+        .setEnumerationItem(new EnumerationItemDTO().setName(country)
+            .setParams(Map.of("country", countryParam)));
+    return new EnumerationItemPipeline(List.of(fetcher, root), context);
+  }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.detectionpipeline.DetectionPipelineConfiguration;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache.IntervalFetcher;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TimeSeriesCacheTest {
+
+  private static final String TIME_COLUMN = "ts";
+  private static final long HOUR = 3_600_000L;
+  private static final TimeSeriesCache.Key KEY = new TimeSeriesCache.Key(1L, "table",
+      "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'PT1H') AS ts, SUM(v) AS v FROM table", "UTC");
+
+  private TimeSeriesCache cache;
+  private List<Interval> fetchedIntervals;
+
+  @BeforeMethod
+  public void setUp() {
+    cache = new TimeSeriesCache(new DetectionPipelineConfiguration());
+    fetchedIntervals = new ArrayList<>();
+  }
+
+  /**
+   * Values that arrived late, by hour. Other hours have the bucket index as value.
+   */
+  private final Map<Long, Long> lateValues = new HashMap<>();
+
+  /**
+   * Returns one row per hour in the interval. The value is the bucket index, so that rows read
+   * from the cache can be compared with fetched rows.
+   */
+  private final IntervalFetcher hourlyFetcher = interval -> {
+    fetchedIntervals.add(interval);
+    final int size = (int) ((interval.getEndMillis() - interval.getStartMillis()) / HOUR);
+    final long[] timestamps = new long[size];
+    final long[] values = new long[size];
+    for (int i = 0; i < size; i++) {
+      timestamps[i] = interval.getStartMillis() + i * HOUR;
+      values[i] = lateValues.getOrDefault(timestamps[i] / HOUR, timestamps[i] / HOUR);
+    }
+    return new DataFrame().addSeries(TIME_COLUMN, timestamps).addSeries("v", values);
+  };
+
+  private static Interval hours(final long startHour, final long endHour) {
+    return new Interval(startHour * HOUR, endHour * HOUR, DateTimeZone.UTC);
+  }
+
+  @Test
+  public void testNextRunOnlyFetchesTheMissingTail() throws Exception {
+    final DataFrame firstRun = cache.getTimeSeries(KEY, hours(0, 24), TIME_COLUMN, 22 * HOUR,
+        hourlyFetcher);
+    final DataFrame secondRun = cache.getTimeSeries(KEY, hours(1, 25), TIME_COLUMN, 23 * HOUR,
+        hourlyFetcher);
+
+    assertThat(firstRun.size()).isEqualTo(24);
+    // the bucket of hour 21 may overlap the finalization time - it is fetched again
+    assertThat(fetchedIntervals).containsExactly(hours(0, 24), hours(21, 25));
+    assertThat(secondRun).isEqualTo(hourlyFetcher.fetch(hours(1, 25)));
+  }
+
+  @Test
+  public void testLateDataInTheMutablePeriodIsFetchedAgain() throws Exception {
+    cache.getTimeSeries(KEY, hours(0, 24), TIME_COLUMN, 21 * HOUR, hourlyFetcher);
+    // late data for buckets after the finalization time of the first run
+    lateValues.put(20L, 1000L);
+    lateValues.put(22L, 2000L);
+    final DataFrame secondRun = cache.getTimeSeries(KEY, hours(1, 25), TIME_COLUMN, 22 * HOUR,
+        hourlyFetcher);
+
+    assertThat(fetchedIntervals).containsExactly(hours(0, 24), hours(20, 25));
+    assertThat(secondRun.getLongs("v").toList()).contains(1000L, 2000L);
+    assertThat(secondRun).isEqualTo(hourlyFetcher.fetch(hours(1, 25)));
+  }
+
+  @Test
+  public void testCachedRowsThatAreNotFinalizedAnymoreAreNotServed() throws Exception {
+    cache.getTimeSeries(KEY, hours(0, 24), TIME_COLUMN, 21 * HOUR, hourlyFetcher);
+    // eg the mutability period of the dataset was increased
+    cache.getTimeSeries(KEY, hours(1, 25), TIME_COLUMN, 10 * HOUR, hourlyFetcher);
+
+    assertThat(fetchedIntervals).containsExactly(hours(0, 24), hours(1, 25));
+  }
+
+  @Test
+  public void testNothingIsCachedWhenNoBucketIsFinalized() throws Exception {
+    cache.getTimeSeries(KEY, hours(0, 24), TIME_COLUMN, 0, hourlyFetcher);
+    cache.getTimeSeries(KEY, hours(1, 25), TIME_COLUMN, 0, hourlyFetcher);
+
+    assertThat(fetchedIntervals).containsExactly(hours(0, 24), hours(1, 25));
+  }
+
+  @Test
+  public void testZeroSizeDisablesTheCache() throws Exception {
+    final DetectionPipelineConfiguration configuration = new DetectionPipelineConfiguration();
+    configuration.getTimeSeriesCache().setMaxSizeInBytes(0);
+    cache = new TimeSeriesCache(configuration);
+
+    cache.getTimeSeries(KEY, hours(0, 24), TIME_COLUMN, 22 * HOUR, hourlyFetcher);
+    cache.getTimeSeries(KEY, hours(1, 25), TIME_COLUMN, 23 * HOUR, hourlyFetcher);
+
+    assertThat(fetchedIntervals).containsExactly(hours(0, 24), hours(1, 25));
+  }
+
+  @Test
+  public void testIntervalStartingBeforeTheCachedRowsIsFullyFetched() throws Exception {
+    cache.getTimeSeries(KEY, hours(10, 24), TIME_COLUMN, 24 * HOUR, hourlyFetcher);
+    cache.getTimeSeries(KEY, hours(0, 25), TIME_COLUMN, 25 * HOUR, hourlyFetcher);
+
+    assertThat(fetchedIntervals).containsExactly(hours(10, 24), hours(0, 25));
+  }
+
+  @Test
+  public void testDataWithoutTimeColumnIsNotCached() throws Exception {
+    final IntervalFetcher fetcher = interval -> {
+      fetchedIntervals.add(interval);
+      return new DataFrame().addSeries("v", 1L, 2L);
+    };
+    cache.getTimeSeries(KEY, hours(0, 24), TIME_COLUMN, 24 * HOUR, fetcher);
+    cache.getTimeSeries(KEY, hours(1, 25), TIME_COLUMN, 25 * HOUR, fetcher);
+
+    assertThat(fetchedIntervals).containsExactly(hours(0, 24), hours(1, 25));
+  }
+}
@@ -29,6 +29,8 @@ import ai.startree.thirdeye.detectionpipeline.OperatorContext;
 import ai.startree.thirdeye.detectionpipeline.PlanNodeContext;
 import ai.startree.thirdeye.detectionpipeline.PostProcessorRegistry;
 import ai.startree.thirdeye.detectionpipeline.components.GenericDataFetcher;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
+import ai.startree.thirdeye.detectionpipeline.operator.sql.SqlExecutionEngine;
 import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
 import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
@@ -82,7 +84,9 @@ public class DataFetcherOperatorTest {
                 datasetDao,
                 mock(ExecutorService.class),
                 new DetectionPipelineConfiguration(),
-                mock(EnumerationItemMaintainer.class))
+                mock(EnumerationItemMaintainer.class),
+                mock(TimeSeriesCache.class),
+                mock(SqlExecutionEngine.class))
     ));
   }
 
@@ -14,12 +14,28 @@
 package ai.startree.thirdeye.detectionpipeline.operator;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
+import ai.startree.thirdeye.datalayer.core.EnumerationItemMaintainer;
+import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.ApplicationContext;
+import ai.startree.thirdeye.detectionpipeline.DetectionPipelineConfiguration;
+import ai.startree.thirdeye.detectionpipeline.DetectionPipelineContext;
+import ai.startree.thirdeye.detectionpipeline.DetectionRegistry;
 import ai.startree.thirdeye.detectionpipeline.OperatorContext;
+import ai.startree.thirdeye.detectionpipeline.PlanNodeContext;
+import ai.startree.thirdeye.detectionpipeline.PostProcessorRegistry;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
+import ai.startree.thirdeye.detectionpipeline.operator.sql.HyperSqlDataTableToSqlAdapter;
+import ai.startree.thirdeye.detectionpipeline.operator.sql.SqlExecutionEngine;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
 import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
+import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
+import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
+import ai.startree.thirdeye.spi.datalayer.bao.EventManager;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.InputBean;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.OutputBean;
@@ -29,12 +45,51 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 public class SqlExecutionOperatorTest {
 
+  private SqlExecutionEngine sqlExecutionEngine;
+  private PlanNodeContext planNodeContext;
+
+  @BeforeClass
+  public void setUp() {
+    sqlExecutionEngine = new SqlExecutionEngine();
+    planNodeContext = new PlanNodeContext().setDetectionPipelineContext(
+        new DetectionPipelineContext().setApplicationContext(
+            new ApplicationContext(
+                mock(DataSourceCache.class),
+                mock(DetectionRegistry.class),
+                mock(PostProcessorRegistry.class),
+                mock(EventManager.class),
+                mock(DataSourceManager.class),
+                mock(DatasetConfigManager.class),
+                mock(ExecutorService.class),
+                new DetectionPipelineConfiguration(),
+                mock(EnumerationItemMaintainer.class),
+                mock(TimeSeriesCache.class),
+                sqlExecutionEngine)));
+  }
+
+  @AfterClass
+  public void tearDown() {
+    sqlExecutionEngine.close();
+  }
+
+  @Test
+  public void testSqlExecutionTablesAreIsolatedBetweenExecutions() throws Exception {
+    // the second execution reuses the pooled connection of the first one
+    testSqlExecution(ImmutableMap.of("sql.engine", "HyperSql"));
+    testSqlExecution(ImmutableMap.of("sql.engine", "HyperSql"));
+    testSqlExecution(ImmutableMap.of("sql.engine", "Calcite"));
+    testSqlExecution(ImmutableMap.of("sql.engine", "Calcite"));
+  }
+
   @Test
   public void testSqlExecutionDefaultAdapter() throws Exception {
     testSqlExecution(new HashMap<>());
@@ -50,6 +105,46 @@ public class SqlExecutionOperatorTest {
     testSqlExecution(ImmutableMap.of("sql.engine", "Calcite"));
   }
 
+  @Test
+  public void testHyperSqlAdapterUsesAnInMemoryDatabase() {
+    // jdbc:hsqldb:mem without a database name is a file database named "mem" - it writes files
+    assertThat(new HyperSqlDataTableToSqlAdapter().jdbcConnection()).startsWith(
+        "jdbc:hsqldb:mem:");
+  }
+
+  @Test
+  public void testSqlExecutionHyperSQLAdapterWithNullsAndQuotes() throws Exception {
+    final DetectionPipelineOperator sqlExecutionOperator = new SqlExecutionOperator();
+    final PlanNodeBean planNodeBean = new PlanNodeBean().setName("root")
+        .setType("SqlExecution")
+        .setParams(TemplatableMap.fromValueMap(ImmutableMap.of(
+            "sql.engine", "HyperSql",
+            "sql.queries", ImmutableList.of("SELECT ts, met, dim FROM data ORDER BY ts"))))
+        .setInputs(ImmutableList.of(new InputBean().setTargetProperty("data")
+            .setSourceProperty("output")
+            .setSourcePlanNode("dataFetcher")))
+        .setOutputs(ImmutableList.of());
+    final OperatorContext context = new OperatorContext()
+        .setPlanNodeContext(planNodeContext)
+        .setDetectionInterval(new Interval(0L, 1000L, DateTimeZone.UTC))
+        .setPlanNode(planNodeBean)
+        .setInputsMap(ImmutableMap.of("data", SimpleDataTable.fromDataFrame(new DataFrame()
+            .addSeries("ts", LongSeries.buildFrom(1L, 2L, 3L))
+            .addSeries("met", DoubleSeries.buildFrom(0.1, DoubleSeries.NULL, 0.3))
+            .addSeries("dim", StringSeries.buildFrom("l'Oréal", "fr", null)))))
+        .setProperties(ImmutableMap.of());
+    sqlExecutionOperator.init(context);
+    sqlExecutionOperator.execute();
+
+    final DataFrame dataFrame = ((DataTable) sqlExecutionOperator.getOutputs()
+        .get("0")).getDataFrame();
+    assertThat(dataFrame.size()).isEqualTo(3);
+    assertThat(dataFrame.getString("dim", 0)).isEqualTo("l'Oréal");
+    assertThat(dataFrame.isNull("met", 1)).isTrue();
+    assertThat(dataFrame.isNull("dim", 2)).isTrue();
+    assertThat(dataFrame.getDouble("met", 2)).isEqualTo(0.3);
+  }
+
   private void testSqlExecution(Map<String, Object> customParams) throws Exception {
     Map<String, Object> params = new HashMap<>();
     params.put("sql.queries",
@@ -75,7 +170,9 @@ public class SqlExecutionOperatorTest {
     final long startTime = System.currentTimeMillis();
     final long endTime = startTime + 1000L;
     final Interval detectionInterval = new Interval(startTime, endTime, DateTimeZone.UTC);
-    final OperatorContext context = new OperatorContext().setDetectionInterval(detectionInterval)
+    final OperatorContext context = new OperatorContext()
+        .setPlanNodeContext(planNodeContext)
+        .setDetectionInterval(detectionInterval)
         .setPlanNode(planNodeBean)
         .setInputsMap(ImmutableMap.of("baseline_data",
             SimpleDataTable.fromDataFrame(new DataFrame()
@@ -14,6 +14,8 @@
 package ai.startree.thirdeye.detectionpipeline.operator.sql;
 
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
 import com.google.common.collect.ImmutableMap;
@@ -84,6 +86,54 @@ public class DataFrameSchemaTest {
     Assert.assertEquals(outputDf, expectedDf);
   }
 
+  @Test
+  public void testRangePredicateAndProjectionPushdown() throws Exception {
+    final Map<String, DataFrame> dataframes = ImmutableMap.of(
+        "types_table", dataFrame
+    );
+    final Connection connection = getConnection(new DataFrameSchema(dataframes), properties);
+    final Statement statement = connection.createStatement();
+
+    final ResultSet resultSet = statement.executeQuery(
+        "select long_column, double_column "
+            + "from types_table "
+            + "where long_column >= 1568549798000 "
+            + "AND double_column < 1.4 "
+            + "AND str_column <> 'IN_PROGRESS' "
+            + "AND boolean_column = true");
+    final DataFrame outputDf = DataFrame.fromResultSet(resultSet);
+
+    final DataFrame expectedDf = new DataFrame();
+    expectedDf.addSeries("long_column", 1568549798000L);
+    expectedDf.addSeries("double_column", 1.3D);
+
+    Assert.assertEquals(outputDf, expectedDf);
+  }
+
+  @Test
+  public void testNullPredicatePushdown() throws Exception {
+    final DataFrame dataFrameWithNulls = new DataFrame();
+    dataFrameWithNulls.addSeries("str_column", StringSeries.buildFrom("a", null, "c"));
+    dataFrameWithNulls.addSeries("long_column",
+        LongSeries.buildFrom(1L, 2L, LongSeries.NULL));
+    final Map<String, DataFrame> dataframes = ImmutableMap.of(
+        "nulls_table", dataFrameWithNulls
+    );
+    final Connection connection = getConnection(new DataFrameSchema(dataframes), properties);
+    final Statement statement = connection.createStatement();
+
+    final ResultSet resultSet = statement.executeQuery(
+        "select long_column, count(*) as cnt "
+            + "from nulls_table "
+            + "where str_column is not null "
+            + "AND long_column <> 1 "
+            + "group by long_column");
+    final DataFrame outputDf = DataFrame.fromResultSet(resultSet);
+
+    // null long_column does not match long_column <> 1
+    Assert.assertEquals(outputDf.size(), 0);
+  }
+
   @Test
   public void testMultipleTables() throws Exception {
     // test importing multiple dataframe as SQL tables
@@ -16,19 +16,28 @@ package ai.startree.thirdeye.notification;
 import static ai.startree.thirdeye.datalayer.DatalayerTestUtils.collectIds;
 import static ai.startree.thirdeye.spi.Constants.NOTIFICATION_ANOMALY_MAX_LOOKBACK_MS;
 import static ai.startree.thirdeye.spi.util.SpiUtils.alertRef;
+import static ai.startree.thirdeye.spi.util.SpiUtils.enumerationItemRef;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 import ai.startree.thirdeye.datalayer.MySqlTestDatabase;
+import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertTemplateManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
+import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
 import ai.startree.thirdeye.spi.datalayer.bao.SubscriptionGroupManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertAssociationDto;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
 import com.google.inject.Injector;
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
@@ -43,6 +52,8 @@ public class NotificationTaskFilterIntegrationTest {
   private NotificationTaskPostProcessor watermarkManager;
   private NotificationTaskFilter instance;
   private AlertManager alertManager;
+  private AlertTemplateManager alertTemplateManager;
+  private EnumerationItemManager enumerationItemManager;
 
   private static AnomalyDTO anomalyWithCreateTime(final long createTime) {
     return new AnomalyDTO()
@@ -54,6 +65,15 @@ public class NotificationTaskFilterIntegrationTest {
     return POINT_IN_TIME - nMinutes * 60 * 1000;
   }
 
+  private static List<PlanNodeBean> mergerNodes(final String mergeMaxGap) {
+    return List.of(new PlanNodeBean()
+        .setName("anomalyMerger")
+        .setType(AlertUtils.NODE_TYPE_POST_PROCESSOR)
+        .setParams(TemplatableMap.fromValueMap(Map.of(
+            "type", AlertUtils.NODE_SUB_TYPE_ANOMALY_MERGER,
+            "component.mergeMaxGap", mergeMaxGap))));
+  }
+
   private static AlertAssociationDto aaRef(final Long id) {
     return new AlertAssociationDto().setAlert(alertRef(id));
   }
@@ -78,6 +98,12 @@ public class NotificationTaskFilterIntegrationTest {
     return anomaly;
   }
 
+  private EnumerationItemDTO persist(final EnumerationItemDTO enumerationItem) {
+    final long id = enumerationItemManager.save(enumerationItem);
+    assertThat(id).isNotNull();
+    return enumerationItem;
+  }
+
   private AlertDTO persist(final AlertDTO alert) {
     final long id = alertManager.save(alert);
     assertThat(id).isNotNull();
@@ -91,6 +117,8 @@ public class NotificationTaskFilterIntegrationTest {
     subscriptionGroupManager = injector.getInstance(SubscriptionGroupManager.class);
     watermarkManager = injector.getInstance(NotificationTaskPostProcessor.class);
     alertManager = injector.getInstance(AlertManager.class);
+    alertTemplateManager = injector.getInstance(AlertTemplateManager.class);
+    enumerationItemManager = injector.getInstance(EnumerationItemManager.class);
 
     instance = injector.getInstance(NotificationTaskFilter.class);
   }
@@ -98,6 +126,8 @@ public class NotificationTaskFilterIntegrationTest {
   @AfterMethod(alwaysRun = true)
   void afterMethod() {
     alertManager.findAll().forEach(alertManager::delete);
+    alertTemplateManager.findAll().forEach(alertTemplateManager::delete);
+    enumerationItemManager.findAll().forEach(enumerationItemManager::delete);
     subscriptionGroupManager.findAll().forEach(subscriptionGroupManager::delete);
     anomalyManager.findAll().forEach(anomalyManager::delete);
   }
@@ -327,4 +357,123 @@ public class NotificationTaskFilterIntegrationTest {
     watermarkManager.updateWatermarks(sg, List.of(anomaly1));
     assertThat(sg.getVectorClocks().get(alert.getId())).isEqualTo(anomaly1.getCreateTime().getTime());
   }
+
+  @Test
+  public void testFilterWithMultipleAlertsAndWatermarks() {
+    final AlertDTO alert1 = persist(new AlertDTO().setName("alert1").setActive(true));
+    final AlertDTO alert2 = persist(new AlertDTO().setName("alert2").setActive(true));
+    final AlertDTO inactiveAlert = persist(new AlertDTO().setName("alert3").setActive(false));
+
+    final SubscriptionGroupDTO sg = persist(new SubscriptionGroupDTO()
+        .setName("name1")
+        .setCronExpression(CRON)
+        .setNotifyHistoricalAnomalies(true)
+        .setAlertAssociations(List.of(aaRef(alert1.getId()),
+            aaRef(alert2.getId()),
+            aaRef(inactiveAlert.getId())))
+        .setVectorClocks(Map.of(alert1.getId(), minutesAgo(10))));
+
+    // created before the watermark of alert1
+    persist(anomalyWithCreateTime(minutesAgo(20))
+        .setDetectionConfigId(alert1.getId())
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+    final AnomalyDTO anomaly1 = persist(anomalyWithCreateTime(minutesAgo(5))
+        .setDetectionConfigId(alert1.getId())
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+    // alert2 has no watermark
+    final AnomalyDTO anomaly2 = persist(anomalyWithCreateTime(minutesAgo(20))
+        .setDetectionConfigId(alert2.getId())
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+    persist(anomalyWithCreateTime(minutesAgo(5))
+        .setDetectionConfigId(inactiveAlert.getId())
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+
+    assertThat(collectIds(instance.filterAnomalies(sg, POINT_IN_TIME)))
+        .isEqualTo(collectIds(Set.of(anomaly1, anomaly2)));
+  }
+
+  @Test
+  public void testFilterWithEnumerationItemAssociations() {
+    final AlertDTO alert = persist(new AlertDTO().setName("alert1").setActive(true));
+    final EnumerationItemDTO item1 = persist(new EnumerationItemDTO().setName("item1")
+        .setAlert(alertRef(alert.getId())));
+    final EnumerationItemDTO item2 = persist(new EnumerationItemDTO().setName("item2")
+        .setAlert(alertRef(alert.getId())));
+    final EnumerationItemDTO item3 = persist(new EnumerationItemDTO().setName("item3")
+        .setAlert(alertRef(alert.getId())));
+
+    final SubscriptionGroupDTO sg = persist(new SubscriptionGroupDTO()
+        .setName("name1")
+        .setCronExpression(CRON)
+        .setNotifyHistoricalAnomalies(true)
+        .setAlertAssociations(List.of(
+            aaRef(alert.getId()).setEnumerationItem(enumerationItemRef(item1.getId())),
+            aaRef(alert.getId()).setEnumerationItem(enumerationItemRef(item2.getId()))))
+        .setVectorClocks(Map.of(alert.getId(), minutesAgo(10))));
+
+    final AnomalyDTO anomaly1 = persist(anomalyWithCreateTime(minutesAgo(5))
+        .setDetectionConfigId(alert.getId())
+        .setEnumerationItem(enumerationItemRef(item1.getId()))
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+    final AnomalyDTO anomaly2 = persist(anomalyWithCreateTime(minutesAgo(5))
+        .setDetectionConfigId(alert.getId())
+        .setEnumerationItem(enumerationItemRef(item2.getId()))
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+    // created before the watermark
+    persist(anomalyWithCreateTime(minutesAgo(20))
+        .setDetectionConfigId(alert.getId())
+        .setEnumerationItem(enumerationItemRef(item2.getId()))
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+    // enumeration item not in the subscription group
+    persist(anomalyWithCreateTime(minutesAgo(5))
+        .setDetectionConfigId(alert.getId())
+        .setEnumerationItem(enumerationItemRef(item3.getId()))
+        .setStartTime(minutesAgo(100))
+        .setEndTime(minutesAgo(80)));
+
+    assertThat(collectIds(instance.filterAnomalies(sg, POINT_IN_TIME)))
+        .isEqualTo(collectIds(Set.of(anomaly1, anomaly2)));
+  }
+
+  @Test
+  public void testFilterCompletedAnomaliesUsesTheMergeMaxGapOfTheUpdatedTemplate() {
+    final AlertTemplateDTO template = new AlertTemplateDTO()
+        .setName("template1")
+        .setNodes(mergerNodes("PT1H"));
+    assertThat(alertTemplateManager.save(template)).isNotNull();
+    final AlertTemplateDTO templateRef = new AlertTemplateDTO();
+    templateRef.setId(template.getId());
+    final AlertDTO alert = persist(new AlertDTO()
+        .setName("alert1")
+        .setActive(true)
+        .setTemplate(templateRef)
+        .setLastTimestamp(POINT_IN_TIME));
+
+    final SubscriptionGroupDTO sg = persist(new SubscriptionGroupDTO()
+        .setName("name1")
+        .setCronExpression(CRON)
+        .setAlertAssociations(List.of(aaRef(alert.getId())
+            .setAnomalyCompletionWatermark(new Date(minutesAgo(100))))));
+    final AnomalyDTO anomaly = persist(anomalyWithCreateTime(minutesAgo(50))
+        .setDetectionConfigId(alert.getId())
+        .setStartTime(minutesAgo(60))
+        .setEndTime(minutesAgo(30)));
+
+    // the anomaly ended 30 minutes ago: it can still be merged within the 1 hour gap
+    assertThat(instance.filterCompletedAnomalies(sg).isEmpty()).isTrue();
+
+    // editing the template does not change the alert
+    template.setNodes(mergerNodes("PT10M"));
+    alertTemplateManager.update(template);
+
+    assertThat(collectIds(instance.filterCompletedAnomalies(sg)))
+        .isEqualTo(collectIds(Set.of(anomaly)));
+  }
 }
@@ -16,12 +16,15 @@ package ai.startree.thirdeye.notification;
 import static ai.startree.thirdeye.spi.util.SpiUtils.bool;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static ai.startree.thirdeye.spi.util.TimeUtils.isoPeriod;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 
 import ai.startree.thirdeye.alert.AlertTemplateRenderer;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.datalayer.AnomalyFilter;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertTemplateManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertAssociationDto;
@@ -31,18 +34,22 @@ import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
 import ai.startree.thirdeye.spi.detection.AnomalyResultSource;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Collection;
+import java.sql.Timestamp;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Interval;
 import org.joda.time.Period;
 import org.slf4j.Logger;
@@ -61,18 +68,28 @@ public class NotificationTaskFilter {
       AnomalyResultSource.DEFAULT_ANOMALY_DETECTION,
       AnomalyResultSource.ANOMALY_REPLAY
   );
+  // max number of anomaly filters combined in a single anomaly query
+  private static final int FILTERS_PER_QUERY = 100;
+  private static final int MERGE_MAX_GAP_CACHE_MAX_SIZE = 2000;
 
   private final AnomalyManager anomalyManager;
   private final AlertManager alertManager;
+  private final AlertTemplateManager alertTemplateManager;
   private final AlertTemplateRenderer alertTemplateRenderer;
+  private final Cache<AlertVersion, Period> mergeMaxGapCache;
 
   @Inject
   public NotificationTaskFilter(final AnomalyManager anomalyManager,
       final AlertManager alertManager,
+      final AlertTemplateManager alertTemplateManager,
       final AlertTemplateRenderer alertTemplateRenderer) {
     this.anomalyManager = anomalyManager;
     this.alertManager = alertManager;
+    this.alertTemplateManager = alertTemplateManager;
     this.alertTemplateRenderer = alertTemplateRenderer;
+    this.mergeMaxGapCache = CacheBuilder.newBuilder()
+        .maximumSize(MERGE_MAX_GAP_CACHE_MAX_SIZE)
+        .build();
   }
 
   /**
@@ -98,12 +115,6 @@ public class NotificationTaskFilter {
     return alert;
   }
 
-  private static String toFormattedDate(final long ts) {
-    return DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
-        .withZone(ZoneId.systemDefault())
-        .format(Instant.ofEpochMilli(ts));
-  }
-
   /**
    * Generate List of Alert Association objects from existing subscription group
    *
@@ -132,7 +143,8 @@ public class NotificationTaskFilter {
    *     subscription group, anomalies, completed anomalies and other metadata
    */
   public NotificationTaskFilterResult filter(final SubscriptionGroupDTO sg, final long endTime) {
-    final Set<AnomalyDTO> anomalies = filterAnomalies(sg, endTime);
+    final Map<Long, AlertDTO> activeAlerts = findActiveAlerts(alertAssociations(sg));
+    final Set<AnomalyDTO> anomalies = filterAnomalies(sg, endTime, activeAlerts);
 
     final var ids = anomalies.stream()
         .map(AnomalyDTO::getId)
@@ -141,7 +153,7 @@ public class NotificationTaskFilter {
     // remove anomalies that are already being notified - 
     // TODO - we only need the completed anomalies if they are used by notification plugins downstream 
     //    if at this point this was known, we could avoid this second call see notifyResolvedAnomalies in enterprise repo
-    final Set<AnomalyDTO> completedAnomalies = filterCompletedAnomalies(sg);
+    final Set<AnomalyDTO> completedAnomalies = filterCompletedAnomalies(sg, activeAlerts);
     completedAnomalies.removeIf(a -> ids.contains(a.getId()));
 
     return new NotificationTaskFilterResult()
@@ -159,40 +171,115 @@ public class NotificationTaskFilter {
    */
   @VisibleForTesting
   Set<AnomalyDTO> filterAnomalies(final SubscriptionGroupDTO sg, final long endTime) {
-    final List<AlertAssociationDto> alertAssociations = optional(sg.getAlertAssociations())
-        .orElseGet(() -> migrateOlderSchema(sg));
+    return filterAnomalies(sg, endTime, findActiveAlerts(alertAssociations(sg)));
+  }
 
+  private Set<AnomalyDTO> filterAnomalies(final SubscriptionGroupDTO sg, final long endTime,
+      final Map<Long, AlertDTO> activeAlerts) {
     // Fetch all the anomalies to be notified to the recipients
-    return alertAssociations.stream()
-        .filter(aa -> isAlertActive(aa.getAlert().getId()))
-        .map(aa -> buildAnomalyFilter(aa, sg, endTime))
-        .map(f -> filterAnomalies(f, sg, "anomalies"))
-        .flatMap(Collection::stream)
-        .collect(toSet());
+    final List<AnomalyFilter> filters = alertAssociations(sg).stream()
+        .filter(aa -> activeAlerts.containsKey(aa.getAlert().getId()))
+        .map(aa -> buildAnomalyFilter(aa, sg, endTime, activeAlerts.get(aa.getAlert().getId())))
+        .toList();
+    return filterAnomalies(filters, sg, "anomalies");
   }
 
   @VisibleForTesting
   Set<AnomalyDTO> filterCompletedAnomalies(final SubscriptionGroupDTO sg) {
-    final List<AlertAssociationDto> alertAssociations = optional(sg.getAlertAssociations())
-        .orElseGet(() -> migrateOlderSchema(sg));
+    return filterCompletedAnomalies(sg, findActiveAlerts(alertAssociations(sg)));
+  }
 
-    return alertAssociations.stream()
-        .filter(aa -> isAlertActive(aa.getAlert().getId()))
+  private Set<AnomalyDTO> filterCompletedAnomalies(final SubscriptionGroupDTO sg,
+      final Map<Long, AlertDTO> activeAlerts) {
+    final List<AlertAssociationDto> associations = alertAssociations(sg).stream()
+        .filter(aa -> activeAlerts.containsKey(aa.getAlert().getId()))
         .filter(aa -> aa.getAnomalyCompletionWatermark() != null)
-        .map(this::buildAnomalyFilterCompletedAnomalies)
-        .map(f -> filterAnomalies(f, sg, "completed anomalies"))
-        .flatMap(Collection::stream)
-        .collect(toSet());
+        .toList();
+    final Map<Long, AlertTemplateDTO> templates = findTemplates(associations.stream()
+        .map(aa -> activeAlerts.get(aa.getAlert().getId()))
+        .distinct()
+        .toList());
+    final List<AnomalyFilter> filters = associations.stream()
+        .map(aa -> {
+          final AlertDTO alert = activeAlerts.get(aa.getAlert().getId());
+          return buildAnomalyFilterCompletedAnomalies(aa, alert, templates.get(alert.getId()));
+        })
+        .toList();
+    return filterAnomalies(filters, sg, "completed anomalies");
+  }
+
+  private static List<AlertAssociationDto> alertAssociations(final SubscriptionGroupDTO sg) {
+    return optional(sg.getAlertAssociations()).orElseGet(() -> migrateOlderSchema(sg));
+  }
+
+  /**
+   * Loads the alerts of the alert associations with a single query.
+   *
+   * @return the active alerts, by id
+   */
+  private Map<Long, AlertDTO> findActiveAlerts(final List<AlertAssociationDto> alertAssociations) {
+    final List<Long> alertIds = alertAssociations.stream()
+        .map(aa -> aa.getAlert().getId())
+        .distinct()
+        .toList();
+    if (alertIds.isEmpty()) {
+      return Map.of();
+    }
+    return alertManager.findByIds(alertIds).stream()
+        .filter(AlertDTO::isActive)
+        .collect(toMap(AbstractDTO::getId, identity()));
+  }
+
+  /**
+   * Loads the templates of the alerts. The templates referenced by id are loaded with a single
+   * query. A template referenced by name is loaded once. An inline template is not loaded.
+   *
+   * @return the templates, by alert id. Null for an alert whose template is not found.
+   */
+  private Map<Long, AlertTemplateDTO> findTemplates(final List<AlertDTO> alerts) {
+    final List<Long> templateIds = alerts.stream()
+        .map(AlertDTO::getTemplate)
+        .filter(Objects::nonNull)
+        .map(AlertTemplateDTO::getId)
+        .filter(Objects::nonNull)
+        .distinct()
+        .toList();
+    final Map<Long, AlertTemplateDTO> templatesById = templateIds.isEmpty()
+        ? Map.of()
+        : alertTemplateManager.findByIds(templateIds).stream()
+            .collect(toMap(AbstractDTO::getId, identity()));
+
+    final Map<Long, AlertTemplateDTO> templates = new HashMap<>();
+    final Map<TemplateName, AlertTemplateDTO> templatesByName = new HashMap<>();
+    for (final AlertDTO alert : alerts) {
+      final AlertTemplateDTO templateRef = alert.getTemplate();
+      if (templateRef == null) {
+        continue;
+      }
+      final AlertTemplateDTO template = templatesById.get(templateRef.getId());
+      if (template != null && (alert.namespace() == null
+          || Objects.equals(template.namespace(), alert.namespace()))) {
+        templates.put(alert.getId(), template);
+      } else if (templateRef.getId() == null && templateRef.getName() != null) {
+        templates.put(alert.getId(), templatesByName.computeIfAbsent(
+            new TemplateName(templateRef.getName(), alert.namespace()),
+            k -> alertTemplateManager.findMatchInNamespaceOrUnsetNamespace(templateRef,
+                alert.namespace())));
+      } else {
+        // inline, or not found in the namespace of the alert - resolved as by the renderer
+        templates.put(alert.getId(), alertTemplateManager.findMatchInNamespaceOrUnsetNamespace(
+            templateRef, alert.namespace()));
+      }
+    }
+    return templates;
   }
 
-  private AnomalyFilter buildAnomalyFilterCompletedAnomalies(final AlertAssociationDto aa) {
+  private AnomalyFilter buildAnomalyFilterCompletedAnomalies(final AlertAssociationDto aa,
+      final AlertDTO alert, final @Nullable AlertTemplateDTO template) {
     final Date watermark = optional(aa.getAnomalyCompletionWatermark())
         .orElseThrow(() -> new IllegalStateException("Invalid code path. Watermark is null"));
 
-    final long alertId = aa.getAlert().getId();
-    final AlertDTO alert = alertManager.findById(alertId);
-    final AlertTemplateDTO renderedTemplate = alertTemplateRenderer.renderAlert(alert);
-    final Period mergeMaxGap = AlertUtils.getMergeMaxGap(renderedTemplate);
+    final Period mergeMaxGap = getMergeMaxGap(alert, template);
     // note: a ThirdEye anomaly could also be completed if its mergeMaxDuration is reached, 
     // but in this case a new ThirdEye anomaly would be created for the same data anomaly just after
     // we don't call out these anomalies as completed
@@ -200,22 +287,40 @@ public class NotificationTaskFilter {
 
     return new AnomalyFilter()
         .setIsChild(false)
-        .setAlertId(alertId)
+        .setAlertId(alert.getId())
         .setIsIgnored(false)
         .setEndTimeIsGte(watermark.getTime())
         .setEndTimeIsLt(endTimeIsLt);
   }
 
-  private boolean isAlertActive(final long alertId) {
-    final AlertDTO alert = alertManager.findById(alertId);
-    return alert != null && alert.isActive();
+  /**
+   * The merge max gap is read from the rendered template. It is cached by alert version and
+   * template version: editing the template does not change the alert version.
+   *
+   * @param template the template of the alert, loaded by {@link #findTemplates(List)}
+   */
+  private Period getMergeMaxGap(final AlertDTO alert, final @Nullable AlertTemplateDTO template) {
+    final AlertVersion key = AlertVersion.of(alert, template);
+    final Period cached = key == null ? null : mergeMaxGapCache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    final AlertTemplateDTO renderedTemplate = template == null
+        // fails with a template not found error
+        ? alertTemplateRenderer.renderAlert(alert)
+        : alertTemplateRenderer.renderWithAlertProperties(alert, template);
+    final Period mergeMaxGap = AlertUtils.getMergeMaxGap(renderedTemplate);
+    if (key != null) {
+      mergeMaxGapCache.put(key, mergeMaxGap);
+    }
+    return mergeMaxGap;
   }
 
   private AnomalyFilter buildAnomalyFilter(final AlertAssociationDto aa,
       final SubscriptionGroupDTO sg,
-      final long createTimeEnd) {
-    final long alertId = aa.getAlert().getId();
-    final AlertDTO alert = alertManager.findById(alertId);
+      final long createTimeEnd,
+      final AlertDTO alert) {
+    final long alertId = alert.getId();
     final long startTime = optional(sg.getVectorClocks())
         .map(v -> v.get(alertId))
         .orElse(0L);
@@ -251,11 +356,24 @@ public class NotificationTaskFilter {
     return f;
   }
 
+  /**
+   * Fetches the anomalies matching any of the filters. Anomalies are fetched with one query per
+   * {@link #FILTERS_PER_QUERY} filters. Each filter keeps its own bounds in the query.
+   */
+  private Set<AnomalyDTO> filterAnomalies(final List<AnomalyFilter> filters,
+      final SubscriptionGroupDTO subscriptionGroup, final String logContext) {
+    final Set<AnomalyDTO> anomalies = new HashSet<>();
+    for (final List<AnomalyFilter> batch : Lists.partition(filters, FILTERS_PER_QUERY)) {
+      anomalies.addAll(filterAnomalyBatch(batch, subscriptionGroup, logContext));
+    }
+    return anomalies;
+  }
+
   @VisibleForTesting
-  protected Set<AnomalyDTO> filterAnomalies(final AnomalyFilter f,
+  protected Set<AnomalyDTO> filterAnomalyBatch(final List<AnomalyFilter> filters,
       final SubscriptionGroupDTO subscriptionGroup,
       final String logContext) {
-    final List<AnomalyDTO> candidates = anomalyManager.filter(f);
+    final List<AnomalyDTO> candidates = anomalyManager.filterAny(filters);
     
     final long minimumAnomalyLengthMillis = isoPeriod(subscriptionGroup.getMinimumAnomalyLength(), Period.ZERO).toStandardDuration().getMillis();
     final Set<AnomalyDTO> anomaliesToBeNotified = candidates.stream()
@@ -268,24 +386,35 @@ public class NotificationTaskFilter {
         .filter(a -> a.getEndTime() - a.getStartTime() >= minimumAnomalyLengthMillis)
         .collect(toSet());
 
-    String createdMsg = "";
-    if (f.getCreateTimeWindow() != null) {
-      createdMsg = String.format("Created between %s and %s (%s and %s System Time)",
-          f.getCreateTimeWindow().getStartMillis(),
-          f.getCreateTimeWindow().getEndMillis(),
-          toFormattedDate(f.getCreateTimeWindow().getStartMillis()),
-          toFormattedDate(f.getCreateTimeWindow().getEndMillis()));
-    }
-
-    LOG.debug("Subscription Group: {} Alert: {} context: {}. {}/{} filtered. {}",
+    LOG.debug("Subscription Group: {} context: {}. {}/{} filtered for {} alert associations.",
         subscriptionGroup.getId(),
-        f.getAlertId(),
         logContext,
         anomaliesToBeNotified.size(),
         candidates.size(),
-        createdMsg);
-
+        filters.size());
 
     return anomaliesToBeNotified;
   }
+
+  private record TemplateName(String name, @Nullable String namespace) {}
+
+  /**
+   * An alert version, with the version of its template. An inline template has no id - it is
+   * versioned with the alert.
+   */
+  private record AlertVersion(long alertId, Timestamp updateTime, @Nullable Long templateId,
+                              @Nullable Timestamp templateUpdateTime) {
+
+    private static @Nullable AlertVersion of(final AlertDTO alert,
+        final @Nullable AlertTemplateDTO template) {
+      if (alert.getUpdateTime() == null || template == null) {
+        return null;
+      }
+      if (template.getId() != null && template.getUpdateTime() == null) {
+        return null;
+      }
+      return new AlertVersion(alert.getId(), alert.getUpdateTime(), template.getId(),
+          template.getUpdateTime());
+    }
+  }
 }
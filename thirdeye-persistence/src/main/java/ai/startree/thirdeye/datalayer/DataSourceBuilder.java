@@ -71,6 +71,10 @@ public class DataSourceBuilder {
     dataSource.setPassword(dbConfig.getPassword());
     dataSource.setUrl(dbConfig.getUrl());
     dataSource.setDriverClassName(dbConfig.getDriver());
+    if (dbConfig.getDriver() != null && dbConfig.getDriver().contains("mysql")) {
+      // send JDBC batches as multi-row inserts - see DatabaseOrm.saveAll
+      dataSource.setConnectionProperties("rewriteBatchedStatements=true");
+    }
 
     dataSource.setValidationQuery("select 1");
     dataSource.setTestWhileIdle(true);
@@ -13,6 +13,8 @@
  */
 package ai.startree.thirdeye.datalayer;
 
+import static com.google.common.base.Preconditions.checkState;
+
 import ai.startree.thirdeye.datalayer.entity.AbstractEntity;
 import ai.startree.thirdeye.datalayer.entity.AbstractIndexEntity;
 import ai.startree.thirdeye.datalayer.util.GenericResultSetMapper;
@@ -25,6 +27,7 @@ import io.micrometer.core.instrument.Timer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -95,6 +98,31 @@ public class DatabaseOrm {
     }
   }
 
+  /**
+   * Same as findAll, but only the given columns are read. The other fields of the returned
+   * entities are not set.
+   */
+  public <E extends AbstractEntity> List<E> findAllColumns(final List<String> columns,
+      final Predicate predicate, final Class<E> clazz, final Connection connection)
+      throws Exception {
+    final Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+    try {
+      try (final PreparedStatement selectStatement = sqlQueryBuilder
+          .createFindByParamsStatementWithLimit(connection,
+              clazz,
+              columns,
+              predicate,
+              null,
+              null)) {
+        try (final ResultSet resultSet = selectStatement.executeQuery()) {
+          return genericResultSetMapper.mapAll(resultSet, clazz);
+        }
+      }
+    } finally {
+      sample.stop(dbCrudTimerOfRead);
+    }
+  }
+
   public <E extends AbstractEntity> Long save(final E entity, final Connection connection)
       throws Exception {
     final Timer.Sample sample = Timer.start(Metrics.globalRegistry);
@@ -118,6 +146,43 @@ public class DatabaseOrm {
     }
   }
 
+  /**
+   * Inserts the entities with a single JDBC batch. All entities must be of the same class.
+   *
+   * @return the generated ids, in the order of the entities. If the table does not generate keys,
+   *     the ids of the entities.
+   */
+  public <E extends AbstractEntity> List<Long> saveAll(final List<E> entities,
+      final Connection connection) throws Exception {
+    if (entities.isEmpty()) {
+      return List.of();
+    }
+    final Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+    try {
+      try (final PreparedStatement batchInsertStmt = sqlQueryBuilder
+          .createBatchInsertStatement(connection, entities)) {
+        batchInsertStmt.executeBatch();
+        final List<Long> generatedIds = new ArrayList<>(entities.size());
+        try (final ResultSet generatedKeys = batchInsertStmt.getGeneratedKeys()) {
+          while (generatedKeys.next()) {
+            generatedIds.add(generatedKeys.getLong(1));
+          }
+        }
+        if (generatedIds.isEmpty()) {
+          // no generated key - eg index tables: same behavior as save()
+          return entities.stream().map(AbstractEntity::getId).toList();
+        }
+        checkState(generatedIds.size() == entities.size(),
+            "Batch insert returned %s generated keys for %s entities",
+            generatedIds.size(),
+            entities.size());
+        return generatedIds;
+      }
+    } finally {
+      sample.stop(dbCrudTimerOfCreate);
+    }
+  }
+
   public <E extends AbstractEntity> Integer update(final E entity, final Predicate predicate,
       final Connection connection)
       throws Exception {
@@ -211,7 +276,15 @@ public class DatabaseOrm {
 
   public <E extends AbstractEntity> String generateMatchingIdsQuery(
       final Predicate predicate, final Long limit, final Long offset, final Class<E> clazz) {
+    return generateMatchingIdsQuery(predicate, false, limit, offset, clazz);
+  }
+
+  /**
+   * @param orderById if true, the ids are sorted, before the limit and the offset are applied.
+   */
+  public <E extends AbstractEntity> String generateMatchingIdsQuery(final Predicate predicate,
+      final boolean orderById, final Long limit, final Long offset, final Class<E> clazz) {
     return sqlQueryBuilder.createFindColumnByParamsStatementWithLimitQuery(
-        clazz, getIdColumnName(clazz), predicate, limit, offset);
+        clazz, getIdColumnName(clazz), predicate, orderById, limit, offset);
   }
 }
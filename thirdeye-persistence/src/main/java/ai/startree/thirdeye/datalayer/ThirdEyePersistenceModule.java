@@ -43,6 +43,7 @@ import ai.startree.thirdeye.datalayer.entity.MetricConfigIndex;
 import ai.startree.thirdeye.datalayer.entity.NamespaceConfigurationEntity;
 import ai.startree.thirdeye.datalayer.entity.RcaInvestigationIndex;
 import ai.startree.thirdeye.datalayer.entity.TaskEntity;
+import ai.startree.thirdeye.datalayer.util.EntityCacheConfiguration;
 import ai.startree.thirdeye.datalayer.util.EntityMappingHolder;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertTemplateManager;
@@ -88,9 +89,16 @@ public class ThirdEyePersistenceModule extends AbstractModule {
   );
 
   private final DataSource dataSource;
+  private final EntityCacheConfiguration entityCacheConfiguration;
 
   public ThirdEyePersistenceModule(DataSource dataSource) {
+    this(dataSource, new EntityCacheConfiguration());
+  }
+
+  public ThirdEyePersistenceModule(final DataSource dataSource,
+      final EntityCacheConfiguration entityCacheConfiguration) {
     this.dataSource = dataSource;
+    this.entityCacheConfiguration = entityCacheConfiguration;
   }
 
   public static String camelCaseToUnderscore(String str) {
@@ -101,6 +109,7 @@ public class ThirdEyePersistenceModule extends AbstractModule {
   protected void configure() {
     bind(javax.sql.DataSource.class).toInstance(dataSource);
     bind(DataSource.class).toInstance(dataSource);
+    bind(EntityCacheConfiguration.class).toInstance(entityCacheConfiguration);
 
     bind(AnomalyManager.class).to(AnomalyManagerImpl.class).in(
         Scopes.SINGLETON);
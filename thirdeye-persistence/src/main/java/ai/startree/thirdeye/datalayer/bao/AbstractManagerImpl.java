@@ -22,6 +22,7 @@ import com.google.inject.persist.Transactional;
 import java.sql.Timestamp;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.DateTime;
@@ -150,6 +151,11 @@ public abstract class AbstractManagerImpl<E extends AbstractDTO> implements Abst
     return genericPojoDao.getV2(daoFilter.setBeanClass(dtoClass));
   }
 
+  @Override
+  public Stream<E> stream(final DaoFilter daoFilter) {
+    return genericPojoDao.stream(daoFilter.setBeanClass(dtoClass));
+  }
+
   @Override
   public long count() {
     return genericPojoDao.count(dtoClass);
@@ -18,6 +18,7 @@ import static ai.startree.thirdeye.spi.util.MetricsUtils.scheduledRefreshSupplie
 import ai.startree.thirdeye.datalayer.DatabaseClient;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import com.google.inject.Inject;
@@ -143,4 +144,9 @@ public class AlertManagerImpl extends AbstractManagerImpl<AlertDTO> implements
   public Long countActive() {
     return count(Predicate.EQ("active", true));
   }
+
+  @Override
+  public List<ScheduleView> findAllScheduleViews() {
+    return genericPojoDao.getScheduleViews(AlertDTO.class, "cron");
+  }
 }
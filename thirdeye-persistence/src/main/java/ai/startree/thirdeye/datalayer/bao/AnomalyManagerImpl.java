@@ -17,6 +17,7 @@ import static ai.startree.thirdeye.spi.Constants.METRICS_CACHE_TIMEOUT;
 import static ai.startree.thirdeye.spi.util.MetricsUtils.scheduledRefreshSupplier;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
 
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.datalayer.AnomalyFilter;
@@ -27,6 +28,8 @@ import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AnomalyFeedbackDTO;
 import ai.startree.thirdeye.spi.detection.AnomalyFeedback;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Streams;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -36,6 +39,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -49,6 +53,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.collections4.CollectionUtils;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -61,6 +66,7 @@ public class AnomalyManagerImpl extends AbstractManagerImpl<AnomalyDTO>
     implements AnomalyManager {
 
   private static final Logger LOG = LoggerFactory.getLogger(AnomalyManagerImpl.class);
+  private static final int FEEDBACK_DECORATION_BATCH_SIZE = 1000;
 
   private static final AnomalyFilter NOT_CHILD_NOT_IGNORED_FILTER = new AnomalyFilter()
       .setIsChild(false).setIsIgnored(false);
@@ -87,6 +93,87 @@ public class AnomalyManagerImpl extends AbstractManagerImpl<AnomalyDTO>
     return saveAnomaly(anomalyDTO, new HashSet<>());
   }
 
+  @Override
+  public void saveAll(final List<AnomalyDTO> anomalies) {
+    // new anomalies, grouped by height in the anomaly tree: leaves are at height 0
+    final List<List<AnomalyDTO>> levels = new ArrayList<>();
+    final Map<AnomalyDTO, Integer> heights = new IdentityHashMap<>();
+    for (final AnomalyDTO anomaly : anomalies) {
+      requireNonNull(anomaly);
+      if (anomaly.getId() != null) {
+        update(anomaly);
+      } else {
+        computeHeight(anomaly, heights, levels, Collections.newSetFromMap(new IdentityHashMap<>()));
+      }
+    }
+
+    for (final List<AnomalyDTO> level : levels) {
+      final List<AnomalyDTO> beans = new ArrayList<>(level.size());
+      for (final AnomalyDTO anomaly : level) {
+        final AnomalyDTO mergeAnomalyBean = convertMergeAnomalyDTO2Bean(anomaly);
+        mergeAnomalyBean.setChildIds(childIds(anomaly, heights.keySet()));
+        beans.add(mergeAnomalyBean);
+      }
+      genericPojoDao.create(beans);
+      for (int i = 0; i < level.size(); i++) {
+        final AnomalyDTO anomaly = level.get(i);
+        anomaly.setId(beans.get(i).getId());
+        if (anomaly.getId() == null) {
+          LOG.error("Failed to store anomaly: {}", anomaly);
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the height of a new anomaly and adds the anomaly to the list of its level.
+   * Children that already exist are not part of the levels: they are updated when their parent
+   * is saved.
+   */
+  private int computeHeight(final AnomalyDTO anomaly, final Map<AnomalyDTO, Integer> heights,
+      final List<List<AnomalyDTO>> levels, final Set<AnomalyDTO> ancestors) {
+    final Integer knownHeight = heights.get(anomaly);
+    if (knownHeight != null) {
+      return knownHeight;
+    }
+    ancestors.add(anomaly);
+    int height = 0;
+    for (final AnomalyDTO child : optional(anomaly.getChildren()).orElse(Set.of())) {
+      child.setAuth(anomaly.getAuth());
+      child.setChild(true);
+      if (child.getId() == null) {
+        checkArgument(!ancestors.contains(child),
+            "Loop detected! Child anomaly referencing ancestor");
+        height = Math.max(height, computeHeight(child, heights, levels, ancestors) + 1);
+      }
+    }
+    ancestors.remove(anomaly);
+
+    heights.put(anomaly, height);
+    while (levels.size() <= height) {
+      levels.add(new ArrayList<>());
+    }
+    levels.get(height).add(anomaly);
+    return height;
+  }
+
+  /**
+   * New children are created in a previous level. Children that already existed are updated.
+   */
+  private Set<Long> childIds(final AnomalyDTO parentAnomaly,
+      final Set<AnomalyDTO> newAnomalies) {
+    final Set<Long> childIds = new HashSet<>();
+    for (final AnomalyDTO child : optional(parentAnomaly.getChildren()).orElse(Set.of())) {
+      final Long childId = newAnomalies.contains(child)
+          ? child.getId()
+          : saveAnomaly(child, new HashSet<>(List.of(parentAnomaly)));
+      if (childId != null) {
+        childIds.add(childId);
+      }
+    }
+    return childIds;
+  }
+
   @Override
   public int update(final AnomalyDTO anomalyDTO) {
     if (anomalyDTO.getId() == null) {
@@ -199,6 +286,14 @@ public class AnomalyManagerImpl extends AbstractManagerImpl<AnomalyDTO>
     return decorateWithFeedback(anomalies);
   }
 
+  @Override
+  public Stream<AnomalyDTO> stream(final DaoFilter daoFilter) {
+    // decorate by batches to fetch the feedbacks with one query per batch
+    return Streams.stream(Iterators.partition(super.stream(daoFilter).iterator(),
+            FEEDBACK_DECORATION_BATCH_SIZE))
+        .flatMap(anomalies -> decorateWithFeedback(anomalies).stream());
+  }
+
   @Override
   public void registerDatabaseMetrics() {
     Gauge.builder("thirdeye_anomalies",
@@ -355,6 +450,35 @@ public class AnomalyManagerImpl extends AbstractManagerImpl<AnomalyDTO>
     return decorate(list);
   }
 
+  @Override
+  public List<AnomalyDTO> filterAny(final @NonNull List<AnomalyFilter> anomalyFilters) {
+    if (anomalyFilters.isEmpty()) {
+      return new ArrayList<>();
+    }
+    final List<Predicate> predicates = new ArrayList<>();
+    // redundant with the predicates of the filters - lets the database use the indexes
+    if (anomalyFilters.stream().allMatch(f -> f.getAlertId() != null)) {
+      predicates.add(Predicate.IN("detectionConfigId",
+          anomalyFilters.stream().map(AnomalyFilter::getAlertId).distinct().toArray()));
+    }
+    if (anomalyFilters.stream().allMatch(f -> f.getEnumerationItemId() != null)) {
+      predicates.add(Predicate.IN("enumerationItemId",
+          anomalyFilters.stream().map(AnomalyFilter::getEnumerationItemId).distinct().toArray()));
+    }
+    predicates.add(Predicate.OR(anomalyFilters.stream()
+        .map(this::toPredicate)
+        .toArray(Predicate[]::new)));
+    final List<AnomalyDTO> list = filter(new DaoFilter().setPredicate(
+        Predicate.AND(predicates.toArray(new Predicate[]{}))));
+    return decorate(list);
+  }
+
+  @Override
+  public List<AnomalyDTO> filterWithoutChildren(final @NonNull AnomalyFilter af) {
+    // filter(DaoFilter) only decorates with feedback
+    return filter(new DaoFilter().setPredicate(toPredicate(af)));
+  }
+
   @Override
   public List<AnomalyDTO> filterWithNamespace(final @NonNull AnomalyFilter anomalyFilter,
       final @Nullable String namespace) {
@@ -23,6 +23,7 @@ import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,4 +46,20 @@ public class EnumerationItemManagerImpl extends AbstractManagerImpl<EnumerationI
 
     return filter(new DaoFilter().setPredicate(Predicate.EQ("alertId", filter.getAlertId())));
   }
+
+  @Override
+  public void saveAll(final List<EnumerationItemDTO> enumerationItems) {
+    final List<EnumerationItemDTO> created = new ArrayList<>();
+    final List<EnumerationItemDTO> updated = new ArrayList<>();
+    for (final EnumerationItemDTO enumerationItem : enumerationItems) {
+      requireNonNull(enumerationItem);
+      if (enumerationItem.getId() == null) {
+        created.add(enumerationItem);
+      } else {
+        updated.add(enumerationItem);
+      }
+    }
+    genericPojoDao.create(created);
+    genericPojoDao.update(updated);
+  }
 }
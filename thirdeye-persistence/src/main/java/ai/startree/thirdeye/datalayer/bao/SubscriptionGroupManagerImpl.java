@@ -18,6 +18,7 @@ import static ai.startree.thirdeye.spi.util.MetricsUtils.scheduledRefreshSupplie
 import static com.google.common.base.Suppliers.memoizeWithExpiration;
 
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
 import ai.startree.thirdeye.spi.datalayer.bao.SubscriptionGroupManager;
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
 import com.google.common.base.Supplier;
@@ -25,6 +26,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Metrics;
+import java.util.List;
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,4 +57,9 @@ public class SubscriptionGroupManagerImpl extends
 
     LOG.info("Registered subscription group database metrics.");
   }
+
+  @Override
+  public List<ScheduleView> findAllScheduleViews() {
+    return genericPojoDao.getScheduleViews(SubscriptionGroupDTO.class, "cronExpression");
+  }
 }
@@ -46,6 +46,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -62,6 +63,7 @@ public class TaskManagerImpl implements TaskManager {
   private static final Logger LOG = LoggerFactory.getLogger(TaskManagerImpl.class);
 
   private final AtomicInteger orphanTasksGauge;
+  private final List<Runnable> taskCreatedListeners = new CopyOnWriteArrayList<>();
 
   @Inject
   public TaskManagerImpl(final TaskDao dao) {
@@ -122,15 +124,44 @@ public class TaskManagerImpl implements TaskManager {
     // fixme asap cyril should throw if the put returns null, because the entity was not saved
     final Long id = dao.put(entity);
     entity.setId(id);
+    if (id != null) {
+      notifyTaskCreated();
+    }
     return id;
   }
 
+  @Override
+  public void addTaskCreatedListener(final Runnable listener) {
+    taskCreatedListeners.add(listener);
+  }
+
+  @Override
+  public void removeTaskCreatedListener(final Runnable listener) {
+    taskCreatedListeners.remove(listener);
+  }
+
+  private void notifyTaskCreated() {
+    for (final Runnable listener : taskCreatedListeners) {
+      try {
+        listener.run();
+      } catch (final Exception e) {
+        LOG.error("Failed to notify task creation listener", e);
+      }
+    }
+  }
+
   // TODO CYRIL NOTE - RETRY IS NOT IMPLEMENTED BUT IT SHOULD BE EASY BY ACCEPTING STATUS = FAILED IN THE 2 METHODS BELOW AND PUTTING A LIMIT ON THE VALUE OF VERSION
   @Override
   public TaskDTO acquireNextTaskToRun(final long workerId) throws Exception {
     return dao.acquireNextTaskToRun(workerId);
   }
 
+  @Override
+  public List<TaskDTO> acquireNextTasksToRun(final long workerId, final int maxTasks)
+      throws Exception {
+    return dao.acquireNextTasksToRun(workerId, maxTasks);
+  }
+
   @Deprecated
   @Override
   public TaskDTO findNextTaskToRun() {
@@ -18,20 +18,21 @@ import static ai.startree.thirdeye.spi.util.SpiUtils.enumerationItemRef;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 
 import ai.startree.thirdeye.spi.Constants;
-import ai.startree.thirdeye.spi.datalayer.AnomalyFilter;
 import ai.startree.thirdeye.spi.datalayer.EnumerationItemFilter;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
 import ai.startree.thirdeye.spi.datalayer.bao.SubscriptionGroupManager;
-import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AuthorizationConfigurationDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.ArrayList;
@@ -50,6 +51,7 @@ import org.slf4j.LoggerFactory;
 public class EnumerationItemMaintainer {
 
   private static final Logger LOG = LoggerFactory.getLogger(EnumerationItemMaintainer.class);
+  private static final int IDS_PER_STATEMENT = 1000;
 
   private final EnumerationItemManager enumerationItemManager;
   private final AnomalyManager anomalyManager;
@@ -73,52 +75,78 @@ public class EnumerationItemMaintainer {
     // namespace filter is not necessary here because we search by alert id - so only enumeration items of the alert id namespace will be returned
     final List<EnumerationItemDTO> existingItems = enumerationItemManager.filter(
         new EnumerationItemFilter().setAlertId(alertId));
+    final Map<Object, List<EnumerationItemDTO>> existingItemsByKey = existingItems.stream()
+        .collect(groupingBy(e -> matchKey(e, idKeys)));
 
-    // update enumerationItems
+    // match enumerationItems - new and updated items are saved in bulk
+    final List<EnumerationItemDTO> toSave = new ArrayList<>();
     final List<EnumerationItemDTO> syncedItems = enumerationItems.stream()
         .map(source -> source.setAlert(alertRef(alertId)))
         .map(source -> (EnumerationItemDTO) source.setAuth(new AuthorizationConfigurationDTO().setNamespace(namespace)))
-        .map(source -> findExistingOrCreate(source, idKeys, existingItems))
+        .map(source -> findExistingOrCreate(source, idKeys, existingItemsByKey, toSave))
         .collect(toList());
+    enumerationItemManager.saveAll(toSave);
+    for (final EnumerationItemDTO syncedItem : syncedItems) {
+      requireNonNull(syncedItem.getId(), "expecting a generated ID");
+    }
 
     // delete existing enumerationItems that are not used anymore
     final Set<Long> syncedItemsIds = syncedItems.stream()
         .map(EnumerationItemDTO::getId)
         .collect(toSet());
-    existingItems.stream()
+    delete(existingItems.stream()
         .filter(ei -> !syncedItemsIds.contains(ei.getId()))
-        .forEach(this::delete);
-    
+        .toList());
+
     return syncedItems;
   }
 
-
   public void delete(final EnumerationItemDTO dto) {
-    requireNonNull(dto.getId(), "EnumerationItemDTO.id cannot be null for deletion");
-    String eiString;
-    try {
-      eiString = Constants.TEMPLATABLE_OBJECT_MAPPER
-          .writeValueAsString(dto);
-    } catch (final Exception e) {
-      eiString = dto.toString();
+    delete(List.of(dto));
+  }
+
+  /**
+   * Deletes the enumeration items, their anomalies and their subscription group associations.
+   * Each step is performed with a few bulk statements, whatever the number of items.
+   */
+  public void delete(final List<EnumerationItemDTO> dtos) {
+    if (dtos.isEmpty()) {
+      return;
+    }
+    final List<Long> ids = new ArrayList<>(dtos.size());
+    for (final EnumerationItemDTO dto : dtos) {
+      requireNonNull(dto.getId(), "EnumerationItemDTO.id cannot be null for deletion");
+      LOG.warn("Deleting enumeration item {} json: {}", dto.getId(), toJsonString(dto));
+      ids.add(dto.getId());
     }
-    LOG.warn("Deleting enumeration item {} json: {}",
-        dto.getId(),
-        eiString);
 
-    disassociateFromSubscriptionGroups(dto.getId());
-    deleteAssociatedAnomalies(dto.getId());
+    disassociateFromSubscriptionGroups(Set.copyOf(ids));
+    deleteAssociatedAnomalies(ids);
 
-    int success = enumerationItemManager.delete(dto);
-    if (success == 0) {
-      LOG.error("Failed to delete enumeration item {} json: {}", dto.getId(),
-          eiString);
+    for (final List<Long> chunk : Lists.partition(ids, IDS_PER_STATEMENT)) {
+      final int success = enumerationItemManager.deleteByIds(chunk);
+      if (success != chunk.size()) {
+        LOG.error("Failed to delete enumeration items. Deleted {} out of {}. ids: {}", success,
+            chunk.size(), chunk);
+      }
+    }
+  }
+
+  private static String toJsonString(final EnumerationItemDTO dto) {
+    try {
+      return Constants.TEMPLATABLE_OBJECT_MAPPER.writeValueAsString(dto);
+    } catch (final Exception e) {
+      return dto.toString();
     }
   }
 
+  /**
+   * New items and updated existing items are added to toSave. They are saved by the caller.
+   */
   private EnumerationItemDTO findExistingOrCreate(final EnumerationItemDTO source,
       final List<String> idKeys,
-      final List<EnumerationItemDTO> existingEnumerationItems) {
+      final Map<Object, List<EnumerationItemDTO>> existingItemsByKey,
+      final List<EnumerationItemDTO> toSave) {
     requireNonNull(source.getName(), "enumeration item name does not exist!");
     requireNonNull(source.getAlert(), "enumeration item needs a source alert!");
     checkState(source.getAuth() != null, "enumeration item auth should be set a this stage. Even if namespace is null.");
@@ -126,33 +154,43 @@ public class EnumerationItemMaintainer {
     final Long sourceAlertId = source.getAlert().getId();
     requireNonNull(sourceAlertId, "enumeration item needs a source alert with a valid id!");
 
+    final Object sourceKey = matchKey(source, idKeys);
+    final List<EnumerationItemDTO> matching = existingItemsByKey.getOrDefault(sourceKey,
+        List.of());
     /*
      * If idKeys are provided, try to find an existing EnumerationItem with the same idKeys or
      * create. Either way, skip the rest of the logic including migration
      */
     if (idKeys != null && !idKeys.isEmpty()) {
-      final EnumerationItemDTO existing = findUsingIdKeys(source, idKeys, existingEnumerationItems);
-      if (existing != null) {
-        updateExistingIfReqd(existing, source);
-        return existing;
-      } else {
+      if (matching.isEmpty()) {
         /* Create new */
-        enumerationItemManager.save(source);
-        requireNonNull(source.getId(), "expecting a generated ID");
-        return source; 
+        toSave.add(source);
+        return source;
+      }
+      final EnumerationItemDTO existing;
+      if (matching.size() > 1) {
+        // cyril: putting this log to error to see in our observability tool if this is can still happen - todo cyril check if this can be reproduced easily by just setting 2 enumeration item with the same values in the alert config
+        LOG.error("Found more than one EnumerationItem for: {} ids: {}. Attempting to fix..",
+            source,
+            matching.stream().map(EnumerationItemDTO::getId).collect(toList()));
+        existing = handleConflicts(source, matching);
+        // the other items are not synced anymore - they are deleted at the end of the sync
+        existingItemsByKey.put(sourceKey, List.of(existing));
+      } else {
+        existing = matching.getFirst();
+      }
+      if (updateExistingIfReqd(existing, source)) {
+        toSave.add(existing);
       }
+      return existing;
     }
 
     /*
      * look for an existing EnumerationItem with the same name and the same param 
      */
-    final List<EnumerationItemDTO> matching = existingEnumerationItems.stream()
-        .filter(e -> matches(source, e))
-        .toList();
     if (matching.size() == 0) {
       /* Create new */
-      enumerationItemManager.save(source);
-      requireNonNull(source.getId(), "expecting a generated ID");
+      toSave.add(source);
       return source;
     } else if (matching.size() == 1) {
       // already exists
@@ -170,7 +208,10 @@ public class EnumerationItemMaintainer {
     }
   }
 
-  private void updateExistingIfReqd(final EnumerationItemDTO existing,
+  /**
+   * @return true if the existing item was updated and needs to be saved
+   */
+  private static boolean updateExistingIfReqd(final EnumerationItemDTO existing,
       final EnumerationItemDTO source) {
     if (!existing.getParams().equals(source.getParams()) ||
         !existing.getName().equals(source.getName()) ||
@@ -184,32 +225,15 @@ public class EnumerationItemMaintainer {
           .setParams(source.getParams())
           .setName(source.getName());
       updated.setAuth(source.getAuth());
-      
-      enumerationItemManager.save(updated);
+      return true;
     }
-  }
-
-  private EnumerationItemDTO findUsingIdKeys(final EnumerationItemDTO source,
-      final List<String> idKeys,
-      final List<EnumerationItemDTO> existingEnumerationItems) {
-    final Map<String, Object> sourceKey = key(source, idKeys);
-    final List<EnumerationItemDTO> filtered = existingEnumerationItems.stream()
-        .filter(e -> sourceKey.equals(key(e, idKeys)))
-        .toList();
-
-    if (filtered.size() > 1) {
-      // cyril: putting this log to error to see in our observability tool if this is can still happen - todo cyril check if this can be reproduced easily by just setting 2 enumeration item with the same values in the alert config
-      LOG.error("Found more than one EnumerationItem for: {} ids: {}. Attempting to fix..",
-          source,
-          filtered.stream().map(EnumerationItemDTO::getId).collect(toList()));
-      return handleConflicts(source, filtered);
-    }
-    return filtered.stream().findFirst().orElse(null);
+    return false;
   }
 
   /**
    * These are enumeration items that have the same idKeys. In this case, we find the best candidate
-   * to keep and delete the rest. If a match isn't found, we keep the first one and delete the rest.
+   * to keep and migrate the subscription groups of the rest to it. If a match isn't found, we keep
+   * the first one. The rest is deleted at the end of the sync.
    *
    * @param source enumeration item to match with
    * @param eiList list of conflicting enumeration items that have the same idKeys
@@ -227,11 +251,6 @@ public class EnumerationItemMaintainer {
             matching.getId(),
             source.getAlert().getId()));
 
-    // remove the rest
-    eiList.stream()
-        .filter(e -> !e.getId().equals(matching.getId()))
-        .forEach(this::delete);
-
     return matching;
   }
 
@@ -255,15 +274,15 @@ public class EnumerationItemMaintainer {
         });
   }
 
-  private void deleteAssociatedAnomalies(final Long enumerationItemId) {
+  private void deleteAssociatedAnomalies(final List<Long> enumerationItemIds) {
     // todo cyril authz filter 
-    final List<AnomalyDTO> anomalies = anomalyManager.filter(
-        new AnomalyFilter().setEnumerationItemId(enumerationItemId));
-    anomalies.forEach(anomalyManager::delete);
+    for (final List<Long> chunk : Lists.partition(enumerationItemIds, IDS_PER_STATEMENT)) {
+      anomalyManager.deleteByPredicate(Predicate.IN("enumerationItemId", chunk.toArray()));
+    }
   }
 
   // todo cyril authz filter
-  private void disassociateFromSubscriptionGroups(final Long enumerationItemId) {
+  private void disassociateFromSubscriptionGroups(final Set<Long> enumerationItemIds) {
     final List<SubscriptionGroupDTO> allSubscriptionGroups = subscriptionGroupManager.findAll();
 
     final List<SubscriptionGroupDTO> updated = new ArrayList<>();
@@ -271,7 +290,7 @@ public class EnumerationItemMaintainer {
       optional(sg.getAlertAssociations())
           .map(aas -> aas.removeIf(aa ->
               aa.getEnumerationItem() != null &&
-                  enumerationItemId.equals(aa.getEnumerationItem().getId())))
+                  enumerationItemIds.contains(aa.getEnumerationItem().getId())))
           .filter(b -> b)
           .ifPresent(b -> updated.add(sg));
     }
@@ -283,6 +302,18 @@ public class EnumerationItemMaintainer {
         && Objects.equals(o1.getParams(), o2.getParams());
   }
 
+  /**
+   * Items with equal match keys are considered the same item. If idKeys are provided, the key is
+   * the values of the idKeys. Else the key is the name and the params.
+   */
+  private static Object matchKey(final EnumerationItemDTO source,
+      final @Nullable List<String> idKeys) {
+    if (idKeys != null && !idKeys.isEmpty()) {
+      return key(source, idKeys);
+    }
+    return new NameAndParams(source.getName(), source.getParams());
+  }
+
   private static Map<String, Object> key(final EnumerationItemDTO source,
       final List<String> idKeys) {
     final Map<String, Object> p = source.getParams();
@@ -309,4 +340,6 @@ public class EnumerationItemMaintainer {
     // Just return the first one
     return candidate.orElse(eiList.get(0));
   }
+
+  private record NameAndParams(String name, Map<String, Object> params) {}
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.dao;
+
+import static ai.startree.thirdeye.datalayer.mapper.GenericJsonEntityDtoMapper.toDto;
+
+import ai.startree.thirdeye.datalayer.entity.GenericJsonEntity;
+import ai.startree.thirdeye.datalayer.util.EntityCacheConfiguration;
+import ai.startree.thirdeye.spi.Constants;
+import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Read-through cache of the configuration entities, used by {@link GenericPojoDao}.
+ *
+ * The json value is kept parsed in memory. Each read builds a new dto from it, so callers can
+ * mutate the returned dto. Before an entry is used, the (version, updateTime) of the entity is
+ * read from the database: if another node updated the entity, the entry is reloaded.
+ *
+ * update_time has a precision of one second, and is set with the clock of the node that updates
+ * the entity. An entity read less than MIN_AGE_MILLIS after its last update could be updated
+ * again with the same update_time, so it is not cached.
+ */
+@Singleton
+public class EntityCache {
+
+  private static final long MIN_AGE_MILLIS = 10_000;
+  private static final Set<Class<? extends AbstractDTO>> CACHED_CLASSES = Set.of(
+      AlertDTO.class,
+      DatasetConfigDTO.class,
+      MetricConfigDTO.class,
+      DataSourceDTO.class,
+      SubscriptionGroupDTO.class);
+
+  private final boolean enabled;
+  private final Cache<Key, CachedEntity> cache;
+
+  @Inject
+  public EntityCache(final EntityCacheConfiguration configuration) {
+    this.enabled = configuration.isEnabled();
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(configuration.getMaxEntries())
+        .expireAfterWrite(configuration.getExpiry())
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(Metrics.globalRegistry, cache, "thirdeye_cache_entity");
+  }
+
+  public boolean isCached(final Class<? extends AbstractDTO> beanClass) {
+    return enabled && CACHED_CLASSES.contains(beanClass);
+  }
+
+  /**
+   * @param probe the id, version and updateTime of the entity in the database
+   * @return the cached entity, or null if it is not cached or if it changed in the database
+   */
+  public <E extends AbstractDTO> @Nullable E get(final GenericJsonEntity probe,
+      final Class<E> beanClass) throws JsonProcessingException {
+    final Key key = new Key(beanClass, probe.getId());
+    final CachedEntity cached = cache.getIfPresent(key);
+    if (cached == null) {
+      return null;
+    }
+    if (cached.entity.getVersion() != probe.getVersion()
+        || !Objects.equals(cached.entity.getUpdateTime(), probe.getUpdateTime())) {
+      cache.invalidate(key);
+      return null;
+    }
+    return toDto(cached.jsonVal, cached.entity, beanClass);
+  }
+
+  /**
+   * Builds the dto of an entity read from the database, and caches the entity.
+   */
+  public <E extends AbstractDTO> E load(final GenericJsonEntity entity, final Class<E> beanClass)
+      throws JsonProcessingException {
+    final JsonNode jsonVal = Constants.TEMPLATABLE_OBJECT_MAPPER.readTree(entity.getJsonVal());
+    final GenericJsonEntity metadata = new GenericJsonEntity().setType(entity.getType());
+    metadata
+        .setId(entity.getId())
+        .setVersion(entity.getVersion())
+        .setCreateTime(entity.getCreateTime())
+        .setUpdateTime(entity.getUpdateTime());
+    final Timestamp lastModified = entity.getUpdateTime() != null
+        ? entity.getUpdateTime()
+        : entity.getCreateTime();
+    if (lastModified != null
+        && lastModified.getTime() < System.currentTimeMillis() - MIN_AGE_MILLIS) {
+      cache.put(new Key(beanClass, entity.getId()), new CachedEntity(metadata, jsonVal));
+    }
+    return toDto(jsonVal, metadata, beanClass);
+  }
+
+  public void invalidate(final Class<? extends AbstractDTO> beanClass,
+      final Collection<Long> ids) {
+    for (final Long id : ids) {
+      cache.invalidate(new Key(beanClass, id));
+    }
+  }
+
+  private record Key(Class<? extends AbstractDTO> beanClass, Long id) {}
+
+  private record CachedEntity(GenericJsonEntity entity, JsonNode jsonVal) {}
+}
@@ -31,21 +31,34 @@ import ai.startree.thirdeye.datalayer.DatabaseClient;
 import ai.startree.thirdeye.datalayer.DatabaseOrm;
 import ai.startree.thirdeye.datalayer.entity.AbstractIndexEntity;
 import ai.startree.thirdeye.datalayer.entity.GenericJsonEntity;
+import ai.startree.thirdeye.datalayer.entity.HasSchedule;
 import ai.startree.thirdeye.datalayer.entity.SubEntityType;
 import ai.startree.thirdeye.spi.ThirdEyeException;
 import ai.startree.thirdeye.spi.ThirdEyeStatus;
 import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Streams;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.lang.reflect.Field;
+import java.sql.Connection;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 import org.apache.commons.collections4.CollectionUtils;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.reflections.ReflectionUtils;
@@ -58,15 +71,21 @@ import org.slf4j.LoggerFactory;
 public class GenericPojoDao {
 
   private static final Logger LOG = LoggerFactory.getLogger(GenericPojoDao.class);
+  private static final int MAX_BATCH_SIZE = 1000;
+  private static final long STREAM_PAGE_SIZE = 1000;
+  private static final List<String> VERSION_COLUMNS = List.of("id", "version", "updateTime");
 
   private final DatabaseOrm databaseOrm;
   private final DatabaseClient databaseClient;
+  private final EntityCache entityCache;
 
   @Inject
   public GenericPojoDao(final DatabaseOrm databaseOrm,
-      final DatabaseClient databaseClient) {
+      final DatabaseClient databaseClient,
+      final EntityCache entityCache) {
     this.databaseOrm = databaseOrm;
     this.databaseClient = databaseClient;
+    this.entityCache = entityCache;
 
     checkState(BEAN_INDEX_MAP.size() == SubEntities.BEAN_TYPE_MAP.size(),
         "Entity Metadata is inconsistent!");
@@ -131,6 +150,85 @@ public class GenericPojoDao {
     }
   }
 
+  /**
+   * Creates the entities with JDBC batches. Entities are written by chunks of MAX_BATCH_SIZE:
+   * each chunk is written in one transaction, with one batch insert for the json entities and one
+   * batch insert per index table.
+   * If a chunk fails, its entities are created one by one (i.e., in separated transactions), so
+   * that a single invalid entity does not prevent the others from being created.
+   *
+   * The ids of the created entities are set in the pojos. The id of an entity that could not be
+   * created is null.
+   */
+  public <E extends AbstractDTO> void create(final List<E> pojos) {
+    for (final E pojo : pojos) {
+      requireNonNull(pojo, "entity is null");
+      checkArgument(pojo.getId() == null, "id must be null for create flow.");
+    }
+    for (final List<E> chunk : Lists.partition(pojos, MAX_BATCH_SIZE)) {
+      try {
+        createBatch(chunk);
+      } catch (final Exception e) {
+        LOG.error("Could not create {} entities in batch. Creating entities one by one.",
+            chunk.size(), e);
+        for (final E pojo : chunk) {
+          pojo.setId(null);
+          pojo.setId(create(pojo));
+        }
+      }
+    }
+  }
+
+  private <E extends AbstractDTO> void createBatch(final List<E> pojos) throws Exception {
+    /* Populate createTime before DB insert if not present already */
+    final Timestamp createTime = new Timestamp(System.currentTimeMillis());
+    for (final E pojo : pojos) {
+      if (pojo.getCreateTime() == null) {
+        pojo.setCreateTime(createTime);
+      }
+    }
+    try {
+      databaseClient.executeTransaction((connection) -> {
+        final List<GenericJsonEntity> jsonEntities = new ArrayList<>(pojos.size());
+        for (final E pojo : pojos) {
+          jsonEntities.add(toGenericJsonEntity(pojo));
+        }
+        final List<Long> generatedKeys = databaseOrm.saveAll(jsonEntities, connection);
+        for (int i = 0; i < pojos.size(); i++) {
+          pojos.get(i).setId(generatedKeys.get(i));
+        }
+
+        final Map<Class<? extends AbstractIndexEntity>, List<AbstractIndexEntity>> indexEntities =
+            new LinkedHashMap<>();
+        for (int i = 0; i < pojos.size(); i++) {
+          final E pojo = pojos.get(i);
+          final Class<? extends AbstractIndexEntity> indexClass = BEAN_INDEX_MAP.get(
+              pojo.getClass());
+          if (indexClass != null) {
+            final AbstractIndexEntity abstractIndexEntity = toAbstractIndexEntity(
+                pojo,
+                indexClass,
+                jsonEntities.get(i).getJsonVal());
+            abstractIndexEntity.setVersion(1);
+            abstractIndexEntity.setCreateTime(pojo.getCreateTime());
+            indexEntities.computeIfAbsent(indexClass, k -> new ArrayList<>())
+                .add(abstractIndexEntity);
+          }
+        }
+        for (final List<AbstractIndexEntity> entities : indexEntities.values()) {
+          databaseOrm.saveAll(entities, connection);
+        }
+        return null;
+      });
+    } catch (final Exception e) {
+      // the transaction was rolled back
+      for (final E pojo : pojos) {
+        pojo.setId(null);
+      }
+      throw e;
+    }
+  }
+
   public <E extends AbstractDTO> int update(final E pojo) {
     return update(List.of(pojo));
   }
@@ -151,6 +249,23 @@ public class GenericPojoDao {
     if (CollectionUtils.isEmpty(pojos)) {
       return 0;
     }
+    if (pojos.size() == 1) {
+      return updateOneByOne(pojos);
+    }
+    int updateCounter = 0;
+    for (final List<E> chunk : Lists.partition(pojos, MAX_BATCH_SIZE)) {
+      try {
+        updateCounter += updateBatch(chunk);
+      } catch (final Exception e) {
+        LOG.error("Could not update {} entities in batch. Updating entities one by one.",
+            chunk.size(), e);
+        updateCounter += updateOneByOne(chunk);
+      }
+    }
+    return updateCounter;
+  }
+
+  private <E extends AbstractDTO> int updateOneByOne(final List<E> pojos) {
     int updateCounter = 0;
     for (final E pojo : pojos) {
       try {
@@ -162,6 +277,51 @@ public class GenericPojoDao {
     return updateCounter;
   }
 
+  private <E extends AbstractDTO> int updateBatch(final List<E> pojos) throws Exception {
+    for (final E pojo : pojos) {
+      checkNotNull(pojo.getId(), "An id is required to update the entity: %s", pojo);
+    }
+    /* Update updateTime before DB update. Restore if the transaction fails */
+    final List<Timestamp> lastUpdateTimes = new ArrayList<>(pojos.size());
+    final Timestamp updateTime = new Timestamp(System.currentTimeMillis());
+    for (final E pojo : pojos) {
+      lastUpdateTimes.add(pojo.getUpdateTime());
+      pojo.setUpdateTime(updateTime);
+    }
+    try {
+      return databaseClient.executeTransaction((connection) -> {
+        int updateCounter = 0;
+        for (final E pojo : pojos) {
+          final GenericJsonEntity genericJsonEntity = toGenericJsonEntity(pojo);
+          final Class<? extends AbstractIndexEntity> indexClass = BEAN_INDEX_MAP.get(
+              pojo.getClass());
+          int ret = databaseOrm.update(genericJsonEntity, null, connection);
+          if (ret == 1 && indexClass != null) {
+            final AbstractIndexEntity abstractIndexEntity = toAbstractIndexEntity(pojo,
+                indexClass,
+                genericJsonEntity.getJsonVal());
+            ret = databaseOrm.update(abstractIndexEntity, null, connection);
+          }
+          if (ret > 1) {
+            throw new ThirdEyeException(ThirdEyeStatus.ERR_UNKNOWN, "Too many rows updated");
+          }
+          updateCounter += ret;
+        }
+        return updateCounter;
+      });
+    } catch (final Exception e) {
+      // the transaction was rolled back
+      for (int i = 0; i < pojos.size(); i++) {
+        pojos.get(i).setUpdateTime(lastUpdateTimes.get(i));
+      }
+      throw e;
+    } finally {
+      for (final E pojo : pojos) {
+        entityCache.invalidate(pojo.getClass(), List.of(pojo.getId()));
+      }
+    }
+  }
+
   // return 1 if the update is successful. else return 0.
   public <E extends AbstractDTO> int update(final E pojo, final Predicate predicate) {
     checkNotNull(pojo.getId(), "An id is required to update the entity: %s", pojo);
@@ -194,6 +354,8 @@ public class GenericPojoDao {
       pojo.setUpdateTime(lastUpdateTime);
       LOG.error("Could not update entity : {}", pojo, e);
       return 0;
+    } finally {
+      entityCache.invalidate(pojo.getClass(), List.of(pojo.getId()));
     }
   }
 
@@ -241,6 +403,17 @@ public class GenericPojoDao {
 
   // return the entity with a given id. If the entity is not found, is not of the input pojoClass type, or the operation fails, return null 
   public <E extends AbstractDTO> E get(final Long id, final Class<E> pojoClass) {
+    if (entityCache.isCached(pojoClass)) {
+      try {
+        final List<E> entities = fetchCachedEntities(pojoClass, Predicate.AND(
+            Predicate.EQ("id", id),
+            Predicate.EQ("type", SubEntities.getType(pojoClass))));
+        return entities.isEmpty() ? null : entities.getFirst();
+      } catch (final Exception e) {
+        LOG.error(e.getMessage(), e);
+        return null;
+      }
+    }
     try {
       final GenericJsonEntity genericJsonEntity = databaseClient.executeTransaction(
           (connection) -> databaseOrm.find(id, GenericJsonEntity.class, connection));
@@ -281,7 +454,11 @@ public class GenericPojoDao {
 
   public <E extends AbstractDTO> List<E> get(final List<Long> idList, final Class<E> pojoClass) {
     try {
-      return fetchEntities(pojoClass, Predicate.IN("id", idList.toArray()));
+      final Predicate predicate = Predicate.IN("id", idList.toArray());
+      if (entityCache.isCached(pojoClass)) {
+        return fetchCachedEntities(pojoClass, predicate);
+      }
+      return fetchEntities(pojoClass, predicate);
     } catch (final Exception e) {
       LOG.error(e.getMessage(), e);
       // TODO CYRIL design - surface exception ?
@@ -291,7 +468,11 @@ public class GenericPojoDao {
 
   public <E extends AbstractDTO> List<E> getAll(final Class<E> pojoClass) {
     try {
-      return fetchEntities(pojoClass, Predicate.EQ("type", SubEntities.getType(pojoClass)));
+      final Predicate predicate = Predicate.EQ("type", SubEntities.getType(pojoClass));
+      if (entityCache.isCached(pojoClass)) {
+        return fetchCachedEntities(pojoClass, predicate);
+      }
+      return fetchEntities(pojoClass, predicate);
     } catch (final Exception e) {
       LOG.error(e.getMessage(), e);
       // TODO CYRIL design - surface exception ?
@@ -300,22 +481,59 @@ public class GenericPojoDao {
   }
 
   /**
-   * Use this method when you want to fetchEntities out a subset of the entities based on predicates,
+   * Returns the schedule of all the entities of the class. Only the index table is read, not the
+   * json of the entities.
+   * Runs at the READ UNCOMMITTED isolation level: the index rows are not locked, so the read does
+   * not block task and entity updates. Dirty reads are fine for the cron schedulers, which poll
+   * the schedules every minute.
+   *
+   * @param cronColumn the name of the cron field in the index entity
+   * @throws RuntimeException if the read fails. An empty list would unschedule all the entities.
+   */
+  public <E extends AbstractDTO> List<ScheduleView> getScheduleViews(final Class<E> beanClass,
+      final String cronColumn) {
+    final Class<? extends AbstractIndexEntity> indexClass = BEAN_INDEX_MAP.get(beanClass);
+    checkArgument(indexClass != null && HasSchedule.class.isAssignableFrom(indexClass),
+        "%s does not have a schedule in its index", beanClass.getSimpleName());
+    try {
+      final List<? extends AbstractIndexEntity> indexEntities = databaseClient.executeTransaction(
+          (connection) -> {
+            final int isolationLevel = connection.getTransactionIsolation();
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
+            try {
+              return databaseOrm.findAllColumns(
+                  List.of("baseId", cronColumn, "active", "namespace", "updateTime"),
+                  null,
+                  indexClass,
+                  connection);
+            } finally {
+              // connections are pooled
+              connection.setTransactionIsolation(isolationLevel);
+            }
+          });
+      return indexEntities.stream()
+          .map(e -> new ScheduleView(e.getBaseId(),
+              ((HasSchedule) e).getCron(),
+              ((HasSchedule) e).isActive(),
+              e.getNamespace(),
+              e.getUpdateTime()))
+          .toList();
+    } catch (final Exception e) {
+      throw new RuntimeException(
+          "Failed to read the schedules of %s".formatted(beanClass.getSimpleName()), e);
+    }
+  }
+
+  /**
+   * Use this method when you want to fetch a subset of the entities based on predicates,
    * limits, offsets, etc.
-   * If you wish to get all the entities then please use {@link #getAll} as the fetchEntities method does a
-   * two-step operation to get the entities whereas {@link #getAll} gets the entities in a single
-   * operation.
+   * The entities are fetched with a single query. See {@link #getV2}.
+   * To iterate over a large number of entities, prefer {@link #stream}.
    *
-   * @param daoFilter required filters to fetchEntities the result.
+   * @param daoFilter required filters to fetch the result.
    */
-  @SuppressWarnings("unchecked")
   public <E extends AbstractDTO> List<E> get(final DaoFilter daoFilter) {
-    final List<Long> ids = fetchIds(daoFilter);
-    if (ids.isEmpty()) {
-      return emptyList();
-    }
-    final Class<? extends AbstractDTO> beanClass = daoFilter.getBeanClass();
-    return (List<E>) get(ids, beanClass);
+    return getV2(daoFilter);
   }
 
   private <E extends AbstractDTO> List<E> fetchEntities(final Class<E> pojoClass,
@@ -337,6 +555,51 @@ public class GenericPojoDao {
     return results;
   }
 
+  /**
+   * Same as fetchEntities, but only the version columns of the entities are read. The json of an
+   * entity is only read if the entity is not in the cache or changed since it was cached.
+   */
+  private <E extends AbstractDTO> List<E> fetchCachedEntities(final Class<E> pojoClass,
+      final Predicate predicate) throws Exception {
+    return databaseClient.executeTransaction((connection) -> {
+      final List<GenericJsonEntity> probes = databaseOrm.findAllColumns(VERSION_COLUMNS,
+          predicate,
+          GenericJsonEntity.class,
+          connection);
+      final List<E> results = new ArrayList<>(probes.size());
+      final List<Long> missingIds = new ArrayList<>();
+      for (final GenericJsonEntity probe : probes) {
+        final E cached = entityCache.get(probe, pojoClass);
+        if (cached == null) {
+          missingIds.add(probe.getId());
+        }
+        results.add(cached);
+      }
+      if (missingIds.isEmpty()) {
+        return results;
+      }
+
+      final List<GenericJsonEntity> entities = databaseOrm.findAll(
+          Predicate.IN("id", missingIds.toArray()),
+          null,
+          null,
+          GenericJsonEntity.class,
+          connection);
+      final Map<Long, E> loaded = new HashMap<>();
+      for (final GenericJsonEntity entity : entities) {
+        loaded.put(entity.getId(), entityCache.load(entity, pojoClass));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        if (results.get(i) == null) {
+          results.set(i, loaded.get(probes.get(i).getId()));
+        }
+      }
+      // entities deleted between the 2 reads
+      results.removeIf(Objects::isNull);
+      return results;
+    });
+  }
+
   private List<Long> fetchIds(final DaoFilter daoFilter) {
     //apply the predicates and fetch the primary key ids
     final Class<? extends AbstractIndexEntity> indexClass = BEAN_INDEX_MAP.get(
@@ -373,6 +636,7 @@ public class GenericPojoDao {
   public <E extends AbstractDTO> int delete(final List<Long> idsToDelete,
       final Class<E> pojoClass) {
     final Class<? extends AbstractIndexEntity> indexEntityClass = BEAN_INDEX_MAP.get(pojoClass);
+    entityCache.invalidate(pojoClass, idsToDelete);
     try {
       return databaseClient.executeTransaction((connection) -> {
         // delete entry from base table
@@ -405,7 +669,7 @@ public class GenericPojoDao {
    * Use this method when you want to fetch entities out a subset of the entities based on predicates,
    * limits, offsets, etc.
    *
-   * This method is an optimized version of get(final DaoFilter daoFilter)
+   * This method is an optimized version of the previous implementation of get(DaoFilter)
    * where we make a single combined query of the form
    *
    * select generic_json_entity.* from generic_json_entity
@@ -419,27 +683,13 @@ public class GenericPojoDao {
         daoFilter.getBeanClass());
     validate(daoFilter);
 
-    final String matchingIdsQuery = databaseOrm.generateMatchingIdsQuery(
-        daoFilter.getPredicate(),
-        daoFilter.getLimit(),
-        daoFilter.getOffset(),
-        indexClass);
-    final String parameterizedSQL = String.format("""
-            JOIN (
-                %s
-            ) subquery ON generic_json_entity.%s = subquery.%s
-            """,
-        matchingIdsQuery,
-        databaseOrm.getIdColumnSQLName(GenericJsonEntity.class),
-        databaseOrm.getIdColumnSQLName(indexClass));
-
     try {
-      final List<GenericJsonEntity> entities = databaseClient.executeTransaction(
-          (connection) -> databaseOrm.runSQL(
-              parameterizedSQL,
-              Collections.emptyMap(),
-              GenericJsonEntity.class,
-              connection));
+      final List<GenericJsonEntity> entities = fetchJoined(indexClass,
+          daoFilter.getPredicate(),
+          false,
+          daoFilter.getLimit(),
+          daoFilter.getOffset(),
+          daoFilter.getTransactionIsolationLevel());
       final List<E> results = new ArrayList<>(entities.size());
       if (CollectionUtils.isNotEmpty(entities)) {
         final Class<E> beanClass = (Class<E>) daoFilter.getBeanClass();
@@ -455,4 +705,149 @@ public class GenericPojoDao {
       return Collections.emptyList();
     }
   }
+
+  /**
+   * Streams the entities matching the filter, in the order of their ids.
+   *
+   * Entities are fetched by pages of STREAM_PAGE_SIZE rows with the same single query as
+   * {@link #getV2}. Pages are paginated with the id of the last entity of the previous page
+   * (keyset pagination), not with an offset, so a page costs the same whatever its position.
+   * Each page is fetched in its own transaction when the stream reaches it, and entities are
+   * deserialized one at a time: the memory used does not depend on the number of entities.
+   *
+   * The transactionIsolationLevel of the filter applies to each page. orderByKey and isDesc are
+   * not supported.
+   *
+   * Unlike the other read methods, a failure is surfaced as an exception when the stream is
+   * consumed.
+   */
+  public <E extends AbstractDTO> Stream<E> stream(final DaoFilter daoFilter) {
+    validate(daoFilter);
+    // pages are paginated by id - another order cannot be supported
+    checkArgument(daoFilter.getOrderByKey() == null && !daoFilter.isDesc(),
+        "orderByKey and isDesc are not supported when streaming entities. "
+            + "Entities are streamed in the order of their ids.");
+    return Streams.stream(new PageIterator<>(daoFilter));
+  }
+
+  private List<GenericJsonEntity> fetchJoined(
+      final Class<? extends AbstractIndexEntity> indexClass, final @Nullable Predicate predicate,
+      final boolean orderById, final @Nullable Long limit, final @Nullable Long offset,
+      final @Nullable Integer transactionIsolationLevel) throws Exception {
+    final String matchingIdsQuery = databaseOrm.generateMatchingIdsQuery(
+        predicate,
+        orderById,
+        limit,
+        offset,
+        indexClass);
+    final String idColumn = databaseOrm.getIdColumnSQLName(GenericJsonEntity.class);
+    final String parameterizedSQL = String.format("""
+            JOIN (
+                %s
+            ) subquery ON generic_json_entity.%s = subquery.%s
+            """,
+        matchingIdsQuery,
+        idColumn,
+        databaseOrm.getIdColumnSQLName(indexClass))
+        + (orderById ? " ORDER BY generic_json_entity." + idColumn : "");
+
+    return databaseClient.executeTransaction(
+        (connection) -> {
+          if (transactionIsolationLevel == null) {
+            return databaseOrm.runSQL(
+                parameterizedSQL,
+                Collections.emptyMap(),
+                GenericJsonEntity.class,
+                connection);
+          }
+          final int isolationLevel = connection.getTransactionIsolation();
+          connection.setTransactionIsolation(transactionIsolationLevel);
+          try {
+            return databaseOrm.runSQL(
+                parameterizedSQL,
+                Collections.emptyMap(),
+                GenericJsonEntity.class,
+                connection);
+          } finally {
+            // connections are pooled
+            connection.setTransactionIsolation(isolationLevel);
+          }
+        });
+  }
+
+  private class PageIterator<E extends AbstractDTO> extends AbstractIterator<E> {
+
+    private final Class<E> beanClass;
+    private final Class<? extends AbstractIndexEntity> indexClass;
+    private final @Nullable Predicate predicate;
+    private final @Nullable Long offset;
+    private final @Nullable Integer transactionIsolationLevel;
+    private @Nullable Long remaining;
+    private @Nullable Long lastId = null;
+    private boolean lastPage = false;
+    private Iterator<GenericJsonEntity> page = Collections.emptyIterator();
+
+    @SuppressWarnings("unchecked")
+    private PageIterator(final DaoFilter daoFilter) {
+      this.beanClass = (Class<E>) daoFilter.getBeanClass();
+      this.indexClass = BEAN_INDEX_MAP.get(beanClass);
+      this.predicate = daoFilter.getPredicate();
+      this.offset = daoFilter.getOffset();
+      this.transactionIsolationLevel = daoFilter.getTransactionIsolationLevel();
+      this.remaining = daoFilter.getLimit();
+    }
+
+    @Override
+    protected E computeNext() {
+      while (!page.hasNext()) {
+        if (lastPage) {
+          return endOfData();
+        }
+        fetchNextPage();
+      }
+      try {
+        return toDto(page.next(), beanClass);
+      } catch (final JsonProcessingException e) {
+        throw new ThirdEyeException(e, ThirdEyeStatus.ERR_UNKNOWN, e.getMessage());
+      }
+    }
+
+    private void fetchNextPage() {
+      final long pageSize = remaining == null
+          ? STREAM_PAGE_SIZE
+          : Math.min(STREAM_PAGE_SIZE, remaining);
+      if (pageSize == 0) {
+        lastPage = true;
+        return;
+      }
+      final Predicate pagePredicate;
+      if (lastId == null) {
+        pagePredicate = predicate;
+      } else if (predicate == null) {
+        pagePredicate = Predicate.GT("baseId", lastId);
+      } else {
+        pagePredicate = Predicate.AND(predicate, Predicate.GT("baseId", lastId));
+      }
+      final List<GenericJsonEntity> entities;
+      try {
+        entities = fetchJoined(indexClass,
+            pagePredicate,
+            true,
+            pageSize,
+            // the offset only applies to the first page
+            lastId == null ? offset : null,
+            transactionIsolationLevel);
+      } catch (final Exception e) {
+        throw new ThirdEyeException(e, ThirdEyeStatus.ERR_UNKNOWN, e.getMessage());
+      }
+      lastPage = entities.size() < pageSize;
+      if (!entities.isEmpty()) {
+        lastId = entities.getLast().getId();
+      }
+      if (remaining != null) {
+        remaining -= entities.size();
+      }
+      page = entities.iterator();
+    }
+  }
 }
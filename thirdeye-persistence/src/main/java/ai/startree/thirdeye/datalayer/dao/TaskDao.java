@@ -35,8 +35,10 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
@@ -56,15 +58,16 @@ public class TaskDao {
   // note: ORDER BY create_time would not work and would lock all rows matching the WHERE clause
   // it is important to enforce in-order execution for tasks referencing the same entity - this condition may be relaxed later on
   // for the moment this means we need AND ref_id not in (select ref_id from task_entity where status = 'RUNNING') + ORDER BY id ASC
-  private static final String SELECT_AND_LOCK_NEXT_TASK_QUERY = """
+  private static final String SELECT_AND_LOCK_NEXT_TASKS_QUERY_TEMPLATE = """
       SELECT *
       FROM task_entity FORCE INDEX (task_status_idx)
       WHERE status = 'WAITING'
       AND ref_id not in (select ref_id from task_entity where status = 'RUNNING')
       ORDER BY id ASC
-      LIMIT 1
+      LIMIT %d
       FOR UPDATE SKIP LOCKED
       """.replace("\n", " ");
+  private static final String SELECT_AND_LOCK_NEXT_TASK_QUERY = SELECT_AND_LOCK_NEXT_TASKS_QUERY_TEMPLATE.formatted(1);
   private static final Logger LOG = LoggerFactory.getLogger(TaskDao.class);
 
   private final DatabaseOrm databaseOrm;
@@ -305,18 +308,7 @@ public class TaskDao {
             final List<TaskEntity> res = genericResultSetMapper.mapAll(rs, TaskEntity.class);
             if (res.size() == 1) {
               final List<TaskDTO> dtos = toDto(res);
-              final TaskDTO toUpdate = dtos.get(0);
-              toUpdate.setStatus(TaskStatus.RUNNING);
-              toUpdate.setWorkerId(workerId);
-              toUpdate.setStartTime(System.currentTimeMillis());
-              toUpdate.setVersion(toUpdate.getVersion() + 1);
-              toUpdate.setLastActive(new Timestamp(System.currentTimeMillis()));
-              final int success = databaseOrm.update(toEntity(toUpdate), null, connection);
-              if (success == 1) {
-                return toUpdate;
-              } else {
-                throw new RuntimeException("Failed to acquire task. Failed to update the task, even though it is locked by this SQL transaction. Please reach out to StarTree support. Task id: " + toUpdate.getId());
-              }
+              return markAsRunning(dtos.get(0), workerId, connection);
             } else if (res.isEmpty()) {
               // no task to run
               return null;
@@ -328,6 +320,53 @@ public class TaskDao {
         });
   }
 
+  /**
+   * Acquires up to maxTasks WAITING tasks in a single transaction.
+   * To enforce in-order execution for tasks referencing the same entity, at most one task is
+   * acquired per ref_id. Rows locked but not acquired are released at the end of the transaction.
+   *
+   * @return the acquired tasks, ordered by id. Empty if no task is available.
+   */
+  public List<TaskDTO> acquireNextTasksToRun(final long workerId, final int maxTasks)
+      throws Exception {
+    Preconditions.checkArgument(maxTasks > 0, "maxTasks must be strictly positive");
+    return databaseClient.executeTransaction(
+        connection -> {
+          connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+          try (final Statement s = connection.createStatement();
+              final ResultSet rs = s.executeQuery(
+                  SELECT_AND_LOCK_NEXT_TASKS_QUERY_TEMPLATE.formatted(maxTasks))
+          ) {
+            final List<TaskEntity> res = genericResultSetMapper.mapAll(rs, TaskEntity.class);
+            final Set<Long> acquiredRefIds = new HashSet<>();
+            final List<TaskDTO> acquired = new ArrayList<>();
+            for (final TaskDTO dto : toDto(res)) {
+              if (dto.getRefId() != null && !acquiredRefIds.add(dto.getRefId())) {
+                // a previous task for the same entity is acquired in this batch
+                continue;
+              }
+              acquired.add(markAsRunning(dto, workerId, connection));
+            }
+            return acquired;
+          }
+        });
+  }
+
+  private TaskDTO markAsRunning(final TaskDTO toUpdate, final long workerId,
+      final Connection connection) throws Exception {
+    toUpdate.setStatus(TaskStatus.RUNNING);
+    toUpdate.setWorkerId(workerId);
+    toUpdate.setStartTime(System.currentTimeMillis());
+    toUpdate.setVersion(toUpdate.getVersion() + 1);
+    toUpdate.setLastActive(new Timestamp(System.currentTimeMillis()));
+    final int success = databaseOrm.update(toEntity(toUpdate), null, connection);
+    if (success == 1) {
+      return toUpdate;
+    } else {
+      throw new RuntimeException("Failed to acquire task. Failed to update the task, even though it is locked by this SQL transaction. Please reach out to StarTree support. Task id: " + toUpdate.getId());
+    }
+  }
+
   public int delete(final Long id) {
     return delete(List.of(id));
   }
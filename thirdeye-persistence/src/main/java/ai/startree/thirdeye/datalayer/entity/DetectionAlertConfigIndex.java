@@ -13,9 +13,12 @@
  */
 package ai.startree.thirdeye.datalayer.entity;
 
-public class DetectionAlertConfigIndex extends AbstractIndexEntity {
+public class DetectionAlertConfigIndex extends AbstractIndexEntity implements HasSchedule {
 
   String name;
+  boolean active;
+  // same name as in SubscriptionGroupDTO, for the mapping to the index
+  String cronExpression;
 
   public String getName() {
     return name;
@@ -24,6 +27,26 @@ public class DetectionAlertConfigIndex extends AbstractIndexEntity {
   public void setName(String name) {
     this.name = name;
   }
-}
 
+  @Override
+  public boolean isActive() {
+    return active;
+  }
+
+  public void setActive(boolean active) {
+    this.active = active;
+  }
+
+  public String getCronExpression() {
+    return cronExpression;
+  }
+
+  public void setCronExpression(String cronExpression) {
+    this.cronExpression = cronExpression;
+  }
 
+  @Override
+  public String getCron() {
+    return cronExpression;
+  }
+}
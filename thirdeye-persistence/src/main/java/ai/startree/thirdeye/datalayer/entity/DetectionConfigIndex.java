@@ -13,11 +13,12 @@
  */
 package ai.startree.thirdeye.datalayer.entity;
 
-public class DetectionConfigIndex extends AbstractIndexEntity {
+public class DetectionConfigIndex extends AbstractIndexEntity implements HasSchedule {
 
   String name;
   boolean active;
   String createdBy;
+  String cron;
 
   public String getName() {
     return name;
@@ -27,6 +28,7 @@ public class DetectionConfigIndex extends AbstractIndexEntity {
     this.name = name;
   }
 
+  @Override
   public boolean isActive() {
     return active;
   }
@@ -42,4 +44,13 @@ public class DetectionConfigIndex extends AbstractIndexEntity {
   public void setCreatedBy(String createdBy) {
     this.createdBy = createdBy;
   }
+
+  @Override
+  public String getCron() {
+    return cron;
+  }
+
+  public void setCron(String cron) {
+    this.cron = cron;
+  }
 }
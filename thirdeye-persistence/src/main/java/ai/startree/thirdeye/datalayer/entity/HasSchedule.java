@@ -0,0 +1,25 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.entity;
+
+/**
+ * Index of an entity that runs on a cron schedule. The schedule is copied from the json to the
+ * index table, so that it can be read without reading the json.
+ */
+public interface HasSchedule {
+
+  String getCron();
+
+  boolean isActive();
+}
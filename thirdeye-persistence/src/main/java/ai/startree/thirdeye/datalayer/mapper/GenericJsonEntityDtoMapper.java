@@ -18,6 +18,7 @@ import ai.startree.thirdeye.datalayer.entity.GenericJsonEntity;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 public class GenericJsonEntityDtoMapper {
 
@@ -42,7 +43,23 @@ public class GenericJsonEntityDtoMapper {
   public static <DtoT extends AbstractDTO> DtoT toDto(final GenericJsonEntity entity,
       final Class<DtoT> beanClass)
       throws JsonProcessingException {
-    DtoT dto = Constants.TEMPLATABLE_OBJECT_MAPPER.readValue(entity.getJsonVal(), beanClass);
+    final DtoT dto = Constants.TEMPLATABLE_OBJECT_MAPPER.readValue(entity.getJsonVal(), beanClass);
+    return withMetadata(dto, entity);
+  }
+
+  /**
+   * Same as toDto(GenericJsonEntity, Class), with the json value already parsed. The json value of
+   * the entity is not used.
+   */
+  public static <DtoT extends AbstractDTO> DtoT toDto(final JsonNode jsonVal,
+      final GenericJsonEntity entity, final Class<DtoT> beanClass)
+      throws JsonProcessingException {
+    final DtoT dto = Constants.TEMPLATABLE_OBJECT_MAPPER.treeToValue(jsonVal, beanClass);
+    return withMetadata(dto, entity);
+  }
+
+  private static <DtoT extends AbstractDTO> DtoT withMetadata(final DtoT dto,
+      final GenericJsonEntity entity) {
     dto
         .setId(entity.getId())
         .setVersion(entity.getVersion())
@@ -25,6 +25,7 @@ public class DatabaseConfiguration {
   private String url;
   private String driver;
   private Map<String, String> properties = Maps.newLinkedHashMap();
+  private EntityCacheConfiguration entityCache = new EntityCacheConfiguration();
 
   public String getUser() {
     return user;
@@ -71,4 +72,13 @@ public class DatabaseConfiguration {
     this.properties = properties;
     return this;
   }
+
+  public EntityCacheConfiguration getEntityCache() {
+    return entityCache;
+  }
+
+  public DatabaseConfiguration setEntityCache(final EntityCacheConfiguration entityCache) {
+    this.entityCache = entityCache;
+    return this;
+  }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.util;
+
+import java.time.Duration;
+
+public class EntityCacheConfiguration {
+
+  private boolean enabled = false;
+  private long maxEntries = 10_000;
+  private Duration expiry = Duration.ofHours(1);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public EntityCacheConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public long getMaxEntries() {
+    return maxEntries;
+  }
+
+  public EntityCacheConfiguration setMaxEntries(final long maxEntries) {
+    this.maxEntries = maxEntries;
+    return this;
+  }
+
+  public Duration getExpiry() {
+    return expiry;
+  }
+
+  public EntityCacheConfiguration setExpiry(final Duration expiry) {
+    this.expiry = expiry;
+    return this;
+  }
+}
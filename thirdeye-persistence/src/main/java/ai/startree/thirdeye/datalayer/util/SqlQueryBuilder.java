@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.requireNonNull;
 
@@ -100,15 +101,44 @@ public class SqlQueryBuilder {
 
   public PreparedStatement createInsertStatement(final Connection conn, final String tableName,
       final AbstractEntity entity) throws Exception {
+    final PreparedStatement preparedStatement =
+        conn.prepareStatement(insertSql(tableName), Statement.RETURN_GENERATED_KEYS);
+    setInsertParameters(conn, preparedStatement, tableName, entity);
+    return preparedStatement;
+  }
+
+  /**
+   * Creates an insert statement with one batch entry per entity. All entities must be of the same
+   * class.
+   */
+  public PreparedStatement createBatchInsertStatement(final Connection conn,
+      final List<? extends AbstractEntity> entities) throws Exception {
+    final Class<? extends AbstractEntity> entityClass = entities.get(0).getClass();
+    final String tableName = requireNonNull(
+        entityMappingHolder.tableToEntityNameMap.inverse().get(entityClass.getSimpleName()));
+    final PreparedStatement preparedStatement =
+        conn.prepareStatement(insertSql(tableName), Statement.RETURN_GENERATED_KEYS);
+    for (final AbstractEntity entity : entities) {
+      checkArgument(entity.getClass() == entityClass,
+          "All entities of a batch insert must be of the same class");
+      setInsertParameters(conn, preparedStatement, tableName, entity);
+      preparedStatement.addBatch();
+    }
+    return preparedStatement;
+  }
+
+  private String insertSql(final String tableName) {
     if (!insertSqlMap.containsKey(tableName)) {
       final String insertSql = generateInsertSql(tableName,
           entityMappingHolder.columnInfoPerTable.get(tableName.toLowerCase()));
       insertSqlMap.put(tableName, insertSql);
     }
+    return insertSqlMap.get(tableName);
+  }
 
-    final String sql = insertSqlMap.get(tableName);
-    final PreparedStatement preparedStatement =
-        conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+  private void setInsertParameters(final Connection conn,
+      final PreparedStatement preparedStatement, final String tableName,
+      final AbstractEntity entity) throws Exception {
     final LinkedHashMap<String, ColumnInfo> columnInfoMap =
         entityMappingHolder.columnInfoPerTable.get(tableName);
     int parameterIndex = 1;
@@ -131,7 +161,6 @@ public class SqlQueryBuilder {
         }
       }
     }
-    return preparedStatement;
   }
 
   public PreparedStatement createUpdateStatement(final Connection connection, final AbstractEntity entity,
@@ -207,13 +236,38 @@ public class SqlQueryBuilder {
   public PreparedStatement createFindByParamsStatementWithLimit(final Connection connection,
       final Class<? extends AbstractEntity> entityClass, final Predicate predicate, final Long limit, final Long offset)
       throws Exception {
+    return createFindByParamsStatementWithLimit(connection, entityClass, null, predicate, limit,
+        offset);
+  }
+
+  /**
+   * @param columns the entity fields to select. If null, all the columns are selected.
+   */
+  public PreparedStatement createFindByParamsStatementWithLimit(final Connection connection,
+      final Class<? extends AbstractEntity> entityClass, final @Nullable List<String> columns,
+      final Predicate predicate, final Long limit, final Long offset)
+      throws Exception {
     final String tableName = entityMappingHolder.tableToEntityNameMap.inverse()
         .get(entityClass.getSimpleName());
-    final StringBuilder sqlBuilder = new StringBuilder("SELECT * FROM " + tableName);
+    final BiMap<String, String> entityNameToDBNameMapping =
+        entityMappingHolder.columnMappingPerTable.get(tableName).inverse();
+    final String selectClause;
+    if (columns == null) {
+      selectClause = "*";
+    } else {
+      final List<String> columnNames = new ArrayList<>(columns.size());
+      for (final String column : columns) {
+        final String columnName = entityNameToDBNameMapping.get(column);
+        checkNotNull(columnName, "Found field '%s' but expected %s", column,
+            entityNameToDBNameMapping.keySet());
+        columnNames.add(columnName);
+      }
+      selectClause = String.join(", ", columnNames);
+    }
+    final StringBuilder sqlBuilder = new StringBuilder(
+        "SELECT " + selectClause + " FROM " + tableName);
     final List<Pair<String, Object>> parametersList = new ArrayList<>();
     if(predicate != null) {
-      final BiMap<String, String> entityNameToDBNameMapping =
-          entityMappingHolder.columnMappingPerTable.get(tableName).inverse();
       final StringBuilder whereClause = new StringBuilder(" WHERE ");
       generateWhereClause(entityNameToDBNameMapping, predicate, parametersList, whereClause);
       sqlBuilder.append(whereClause);
@@ -264,6 +318,18 @@ public class SqlQueryBuilder {
   public String createFindColumnByParamsStatementWithLimitQuery(
       final Class<? extends AbstractEntity> entityClass, final String column,
       final Predicate predicate, final Long limit, final Long offset) {
+    return createFindColumnByParamsStatementWithLimitQuery(entityClass, column, predicate, false,
+        limit, offset);
+  }
+
+  /**
+   * @param orderByColumn if true, the rows are sorted by the selected column, before the limit
+   *     and the offset are applied.
+   */
+  public String createFindColumnByParamsStatementWithLimitQuery(
+      final Class<? extends AbstractEntity> entityClass, final String column,
+      final Predicate predicate, final boolean orderByColumn, final Long limit,
+      final Long offset) {
     final String tableName = entityMappingHolder.tableToEntityNameMap.inverse()
         .get(entityClass.getSimpleName());
     final BiMap<String, String> entityNameToDBNameMapping =
@@ -282,6 +348,9 @@ public class SqlQueryBuilder {
       createWhereClause(entityNameToDBNameMapping, predicate, whereClause);
       sqlBuilder.append(whereClause);
     }
+    if (orderByColumn) {
+      sqlBuilder.append(" ORDER BY ").append(columnName);
+    }
     if (limit != null) {
       sqlBuilder.append(" LIMIT ").append(limit);
     }
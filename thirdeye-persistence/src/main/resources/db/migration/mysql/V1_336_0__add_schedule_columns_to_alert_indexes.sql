@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+-- the schedule of alerts and subscription groups is duplicated in the index tables,
+-- so that the cron schedulers do not read the json of the entities
+ALTER TABLE detection_config_index ADD COLUMN cron varchar(255) DEFAULT NULL;
+
+ALTER TABLE detection_alert_config_index ADD COLUMN cron_expression varchar(255) DEFAULT NULL;
+ALTER TABLE detection_alert_config_index ADD COLUMN active BOOLEAN DEFAULT FALSE;
+CREATE INDEX detection_alert_config_active_idx ON detection_alert_config_index (active);
+
+UPDATE detection_config_index i
+  JOIN generic_json_entity e ON e.id = i.base_id
+SET i.cron = JSON_UNQUOTE(JSON_EXTRACT(e.json_val, '$.cron'))
+WHERE JSON_TYPE(JSON_EXTRACT(e.json_val, '$.cron')) = 'STRING';
+
+UPDATE detection_alert_config_index i
+  JOIN generic_json_entity e ON e.id = i.base_id
+SET i.cron_expression = IF(JSON_TYPE(JSON_EXTRACT(e.json_val, '$.cronExpression')) = 'STRING',
+                           JSON_UNQUOTE(JSON_EXTRACT(e.json_val, '$.cronExpression')), NULL),
+    i.active          = IFNULL(JSON_EXTRACT(e.json_val, '$.active') = CAST('true' AS JSON), FALSE);
+
+-- the cron schedulers read the namespace of the quotas from the index tables. The namespace
+-- column was added in V1_302_0 without a backfill: entities indexed before have a NULL namespace
+UPDATE detection_config_index i
+  JOIN generic_json_entity e ON e.id = i.base_id
+SET i.namespace = JSON_UNQUOTE(JSON_EXTRACT(e.json_val, '$.auth.namespace'))
+WHERE i.namespace IS NULL
+  AND JSON_TYPE(JSON_EXTRACT(e.json_val, '$.auth.namespace')) = 'STRING';
+
+UPDATE detection_alert_config_index i
+  JOIN generic_json_entity e ON e.id = i.base_id
+SET i.namespace = JSON_UNQUOTE(JSON_EXTRACT(e.json_val, '$.auth.namespace'))
+WHERE i.namespace IS NULL
+  AND JSON_TYPE(JSON_EXTRACT(e.json_val, '$.auth.namespace')) = 'STRING';
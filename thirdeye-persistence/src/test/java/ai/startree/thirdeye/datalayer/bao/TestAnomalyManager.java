@@ -409,6 +409,34 @@ public class TestAnomalyManager {
     Assert.assertEquals(readChildren.get(1).getChildren().iterator().next().getEndTime(), 1800);
   }
 
+  @Test
+  public void testSaveAllHierarchicalAnomalies() {
+    final AnomalyDTO parent = anomaly(1000, 2000);
+    final AnomalyDTO child1 = anomaly(1000, 1500);
+    final AnomalyDTO child2 = anomaly(1500, 2000);
+    final AnomalyDTO child3 = anomaly(1600, 1800);
+    child2.setChildren(new HashSet<>(Arrays.asList(child3)));
+    parent.setChildren(new HashSet<>(Arrays.asList(child1, child2)));
+    final AnomalyDTO other = anomaly(3000, 4000);
+
+    anomalyManager.saveAll(List.of(parent, other));
+
+    Assert.assertNotNull(parent.getId());
+    Assert.assertNotNull(child3.getId());
+    Assert.assertNotNull(other.getId());
+    final AnomalyDTO read = anomalyManager.findById(parent.getId());
+    Assert.assertFalse(read.isChild());
+    final List<AnomalyDTO> readChildren = new ArrayList<>(read.getChildren());
+    readChildren.sort(Comparator.comparingLong(AnomalyDTO::getStartTime));
+    Assert.assertEquals(readChildren.size(), 2);
+    Assert.assertTrue(readChildren.get(0).isChild());
+    Assert.assertEquals(readChildren.get(0).getId(), child1.getId());
+    Assert.assertEquals(readChildren.get(1).getId(), child2.getId());
+    Assert.assertEquals(readChildren.get(1).getChildren().iterator().next().getId(),
+        child3.getId());
+    Assert.assertEquals(anomalyManager.findById(other.getId()).getStartTime(), 3000);
+  }
+
   @Test
   public void testUpdateToAnomalyHierarchy() {
     final AnomalyDTO parent = new AnomalyDTO();
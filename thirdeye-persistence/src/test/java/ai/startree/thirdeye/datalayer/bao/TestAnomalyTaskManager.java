@@ -138,6 +138,24 @@ public class TestAnomalyTaskManager {
     Assert.assertEquals(anomalyTask.getMessage(), "testMessage");
   }
 
+  @Test(dependsOnMethods = {"testUpdateStatusAndTaskEndTime"})
+  public void testAcquireNextTasksToRunAcquiresOneTaskPerRefId() throws Exception {
+    final Long firstTaskOfRef10 = taskDAO.save(getTestTaskSpec(10));
+    final Long secondTaskOfRef10 = taskDAO.save(getTestTaskSpec(10));
+    final Long taskOfRef11 = taskDAO.save(getTestTaskSpec(11));
+    final long workerId = 2L;
+
+    final List<Long> acquiredIds = taskDAO.acquireNextTasksToRun(workerId, 10).stream()
+        .peek(t -> assertThat(t.getStatus()).isEqualTo(TaskStatus.RUNNING))
+        .peek(t -> assertThat(t.getWorkerId()).isEqualTo(workerId))
+        .map(TaskDTO::getId)
+        .toList();
+
+    assertThat(acquiredIds).contains(firstTaskOfRef10, taskOfRef11);
+    assertThat(acquiredIds).doesNotContain(secondTaskOfRef10);
+    assertThat(taskDAO.findById(secondTaskOfRef10).getStatus()).isEqualTo(TaskStatus.WAITING);
+  }
+
   @Test(dependsOnMethods = {"testCreate"})
   public void testUpdateTaskStartTime() {
     CLOCK.tick(50);
@@ -16,12 +16,15 @@ package ai.startree.thirdeye.datalayer.core;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 import ai.startree.thirdeye.datalayer.MySqlTestDatabase;
+import ai.startree.thirdeye.spi.datalayer.EnumerationItemFilter;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
 import ai.startree.thirdeye.spi.datalayer.bao.SubscriptionGroupManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AuthorizationConfigurationDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import com.google.inject.Injector;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.testng.annotations.AfterMethod;
@@ -83,4 +86,41 @@ public class EnumerationItemMaintainerTest {
     assertThat(synced.get(0).getParams()).isEqualTo(items.get(0).getParams());
     assertThat(synced.get(0).namespace()).isEqualTo("THE_NAMESPACE");
   }
+
+  @Test
+  public void testSyncCreatesUpdatesAndDeletesItems() {
+    final List<String> idKeys = List.of("key");
+    final List<EnumerationItemDTO> firstItems = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      firstItems.add(new EnumerationItemDTO().setName("ei" + i).setParams(Map.of("key", i)));
+    }
+    final List<EnumerationItemDTO> firstSync = enumerationItemMaintainer.sync(firstItems, idKeys,
+        ALERT_ID, null);
+    final AnomalyDTO anomalyOfDeletedItem = new AnomalyDTO().setStartTime(1L).setEndTime(2L)
+        .setEnumerationItem(firstSync.get(49));
+    anomalyManager.save(anomalyOfDeletedItem);
+
+    // item 0 is updated, items 1 to 48 are unchanged, item 49 is deleted, item 50 is created
+    final List<EnumerationItemDTO> secondItems = new ArrayList<>();
+    secondItems.add(new EnumerationItemDTO().setName("ei0")
+        .setParams(Map.of("key", 0, "other", "value")));
+    for (int i = 1; i < 49; i++) {
+      secondItems.add(new EnumerationItemDTO().setName("ei" + i).setParams(Map.of("key", i)));
+    }
+    secondItems.add(new EnumerationItemDTO().setName("ei50").setParams(Map.of("key", 50)));
+    final List<EnumerationItemDTO> secondSync = enumerationItemMaintainer.sync(secondItems,
+        idKeys, ALERT_ID, null);
+
+    assertThat(secondSync.size()).isEqualTo(50);
+    for (int i = 0; i < 49; i++) {
+      assertThat(secondSync.get(i).getId()).isEqualTo(firstSync.get(i).getId());
+    }
+    assertThat(secondSync.get(49).getId()).isNotNull();
+    assertThat(enumerationItemManager.findById(firstSync.get(0).getId()).getParams())
+        .isEqualTo(Map.of("key", 0, "other", "value"));
+    assertThat(enumerationItemManager.findById(firstSync.get(49).getId())).isNull();
+    assertThat(anomalyManager.findById(anomalyOfDeletedItem.getId())).isNull();
+    assertThat(enumerationItemManager.filter(new EnumerationItemFilter().setAlertId(ALERT_ID))
+        .size()).isEqualTo(50);
+  }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.datalayer.entity.GenericJsonEntity;
+import ai.startree.thirdeye.datalayer.util.EntityCacheConfiguration;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
+import java.sql.Timestamp;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class EntityCacheTest {
+
+  private static final long HOUR = 3_600_000L;
+
+  private static GenericJsonEntity entity(final long id, final int version,
+      final long updateTime) {
+    final GenericJsonEntity entity = new GenericJsonEntity()
+        .setType("ALERT")
+        .setJsonVal("{\"name\":\"alert" + id + "\"}");
+    entity.setId(id)
+        .setVersion(version)
+        .setUpdateTime(new Timestamp(updateTime));
+    return entity;
+  }
+
+  private static GenericJsonEntity probe(final GenericJsonEntity entity) {
+    final GenericJsonEntity probe = new GenericJsonEntity();
+    probe.setId(entity.getId())
+        .setVersion(entity.getVersion())
+        .setUpdateTime(entity.getUpdateTime());
+    return probe;
+  }
+
+  private static EntityCache enabledCache() {
+    return new EntityCache(new EntityCacheConfiguration().setEnabled(true));
+  }
+
+  @Test
+  public void testHitReturnsANewDto() throws Exception {
+    final EntityCache cache = enabledCache();
+    final GenericJsonEntity entity = entity(1L, 1, System.currentTimeMillis() - HOUR);
+
+    final AlertDTO loaded = cache.load(entity, AlertDTO.class);
+    final AlertDTO first = cache.get(probe(entity), AlertDTO.class);
+    first.setName("mutated");
+    final AlertDTO second = cache.get(probe(entity), AlertDTO.class);
+
+    assertThat(loaded.getName()).isEqualTo("alert1");
+    assertThat(first).isNotSameAs(second);
+    assertThat(second.getName()).isEqualTo("alert1");
+    assertThat(second.getId()).isEqualTo(1L);
+    assertThat(second.getUpdateTime()).isEqualTo(entity.getUpdateTime());
+  }
+
+  @Test
+  public void testEntityChangedInDatabaseIsNotReturned() throws Exception {
+    final EntityCache cache = enabledCache();
+    final GenericJsonEntity entity = entity(1L, 1, System.currentTimeMillis() - HOUR);
+    cache.load(entity, AlertDTO.class);
+
+    final GenericJsonEntity updated = probe(entity);
+    updated.setUpdateTime(new Timestamp(System.currentTimeMillis()));
+
+    assertThat(cache.get(updated, AlertDTO.class)).isNull();
+    // the stale entry is evicted
+    assertThat(cache.get(probe(entity), AlertDTO.class)).isNull();
+  }
+
+  @Test
+  public void testRecentlyUpdatedEntityIsNotCached() throws Exception {
+    final EntityCache cache = enabledCache();
+    final GenericJsonEntity entity = entity(1L, 1, System.currentTimeMillis());
+
+    assertThat(cache.load(entity, AlertDTO.class).getName()).isEqualTo("alert1");
+    assertThat(cache.get(probe(entity), AlertDTO.class)).isNull();
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    final EntityCache cache = enabledCache();
+    final GenericJsonEntity entity = entity(1L, 1, System.currentTimeMillis() - HOUR);
+    cache.load(entity, AlertDTO.class);
+
+    cache.invalidate(AlertDTO.class, List.of(1L));
+
+    assertThat(cache.get(probe(entity), AlertDTO.class)).isNull();
+  }
+
+  @Test
+  public void testIsCached() {
+    assertThat(enabledCache().isCached(AlertDTO.class)).isTrue();
+    assertThat(enabledCache().isCached(AnomalyDTO.class)).isFalse();
+    assertThat(new EntityCache(new EntityCacheConfiguration()).isCached(AlertDTO.class))
+        .isFalse();
+  }
+}
@@ -22,10 +22,17 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import ai.startree.thirdeye.datalayer.MySqlTestDatabase;
 import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
+import org.apache.tomcat.jdbc.pool.DataSource;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -226,4 +233,142 @@ public class TestGenericPojoDao {
     }
     assertThat(entryCount).isEqualTo(TOTAL_ANOMALIES);
   }
+
+  @Test
+  public void streamTest() {
+    final List<AnomalyDTO> anomalies = dao.get(new DaoFilter().setBeanClass(AnomalyDTO.class));
+    final List<AnomalyDTO> streamed = dao.<AnomalyDTO>stream(
+        new DaoFilter().setBeanClass(AnomalyDTO.class)).toList();
+    assertThat(streamed.size()).isEqualTo(TOTAL_ANOMALIES);
+    assertThat(streamed).containsExactlyInAnyOrderElementsOf(anomalies);
+    assertThat(streamed).isSortedAccordingTo(Comparator.comparing(AnomalyDTO::getId));
+  }
+
+  @Test
+  public void streamWithLimitAndOffsetTest() {
+    final long limit = TOTAL_ANOMALIES / 3;
+    final long offset = TOTAL_ANOMALIES / 2;
+    final List<AnomalyDTO> all = dao.<AnomalyDTO>stream(
+        new DaoFilter().setBeanClass(AnomalyDTO.class)).toList();
+    final List<AnomalyDTO> streamed = dao.<AnomalyDTO>stream(new DaoFilter()
+        .setBeanClass(AnomalyDTO.class)
+        .setLimit(limit)
+        .setOffset(offset)).toList();
+    assertThat(streamed).isEqualTo(all.subList((int) offset, (int) (offset + limit)));
+  }
+
+  @Test
+  public void streamWithTransactionIsolationLevelTest() {
+    final List<AnomalyDTO> streamed = dao.<AnomalyDTO>stream(new DaoFilter()
+        .setBeanClass(AnomalyDTO.class)
+        .setTransactionIsolationLevel(Connection.TRANSACTION_READ_UNCOMMITTED)).toList();
+    assertThat(streamed.size()).isEqualTo(TOTAL_ANOMALIES);
+  }
+
+  @Test
+  public void streamWithTransactionIsolationLevelRestoresPooledConnectionsTest()
+      throws Exception {
+    final DataSource dataSource = MySqlTestDatabase.sharedInjector()
+        .getInstance(DataSource.class);
+    final int defaultIsolationLevel;
+    try (final Connection connection = dataSource.getConnection()) {
+      defaultIsolationLevel = connection.getTransactionIsolation();
+    }
+    assertThat(defaultIsolationLevel).isNotEqualTo(Connection.TRANSACTION_READ_UNCOMMITTED);
+
+    dao.<AnomalyDTO>stream(new DaoFilter()
+        .setBeanClass(AnomalyDTO.class)
+        .setTransactionIsolationLevel(Connection.TRANSACTION_READ_UNCOMMITTED)).toList();
+
+    // borrow every pooled connection at once - the connection used by the stream is one of them
+    final List<Connection> connections = new ArrayList<>();
+    try {
+      for (int i = 0; i < dataSource.getSize(); i++) {
+        connections.add(dataSource.getConnection());
+      }
+      for (final Connection connection : connections) {
+        assertThat(connection.getTransactionIsolation()).isEqualTo(defaultIsolationLevel);
+      }
+    } finally {
+      for (final Connection connection : connections) {
+        connection.close();
+      }
+    }
+  }
+
+  @Test
+  public void streamWithOrderByKeyIsRejectedTest() {
+    assertThatThrownBy(() -> dao.stream(new DaoFilter()
+        .setBeanClass(AnomalyDTO.class)
+        .setOrderByKey("startTime")))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> dao.stream(new DaoFilter()
+        .setBeanClass(AnomalyDTO.class)
+        .setDesc(true)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void getScheduleViewsOfAlertsTest() {
+    final AlertDTO alert = new AlertDTO()
+        .setName("scheduleViewAlert")
+        .setCron("0 0 * * * ? *")
+        .setActive(true);
+    final Long id = dao.create(alert);
+    try {
+      assertThat(scheduleView(dao.getScheduleViews(AlertDTO.class, "cron"), id))
+          .satisfies(view -> {
+            assertThat(view.cron()).isEqualTo("0 0 * * * ? *");
+            assertThat(view.active()).isTrue();
+            assertThat(view.updateTime()).isNotNull();
+          });
+
+      alert.setCron("0 0 0 * * ? *").setActive(false);
+      dao.update(alert);
+      assertThat(scheduleView(dao.getScheduleViews(AlertDTO.class, "cron"), id))
+          .satisfies(view -> {
+            assertThat(view.cron()).isEqualTo("0 0 0 * * ? *");
+            assertThat(view.active()).isFalse();
+          });
+    } finally {
+      dao.delete(id, AlertDTO.class);
+    }
+  }
+
+  @Test
+  public void getScheduleViewsOfSubscriptionGroupsTest() {
+    final SubscriptionGroupDTO subscriptionGroup = new SubscriptionGroupDTO()
+        .setName("scheduleViewSubscriptionGroup")
+        .setCronExpression("0 0 * * * ? *")
+        .setActive(true);
+    final Long id = dao.create(subscriptionGroup);
+    try {
+      assertThat(scheduleView(
+          dao.getScheduleViews(SubscriptionGroupDTO.class, "cronExpression"), id))
+          .satisfies(view -> {
+            assertThat(view.cron()).isEqualTo("0 0 * * * ? *");
+            assertThat(view.active()).isTrue();
+          });
+
+      subscriptionGroup.setCronExpression("0 0 0 * * ? *").setActive(false);
+      dao.update(subscriptionGroup);
+      assertThat(scheduleView(
+          dao.getScheduleViews(SubscriptionGroupDTO.class, "cronExpression"), id))
+          .satisfies(view -> {
+            assertThat(view.cron()).isEqualTo("0 0 0 * * ? *");
+            assertThat(view.active()).isFalse();
+          });
+    } finally {
+      dao.delete(id, SubscriptionGroupDTO.class);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void getScheduleViewsOfEntityWithoutScheduleTest() {
+    dao.getScheduleViews(AnomalyDTO.class, "cron");
+  }
+
+  private static ScheduleView scheduleView(final List<ScheduleView> views, final long id) {
+    return views.stream().filter(v -> v.id() == id).findFirst().orElseThrow();
+  }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.Cost.BAlANCED_SIMPLE;
+
+import ai.startree.thirdeye.plugins.rca.contributors.simple.Cost;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CubeConfiguration {
+
+  private Cost costFunction = BAlANCED_SIMPLE;
+  /**
+   * Max number of dimensions combined in a contributor. The depth of the search request is
+   * capped to this value.
+   */
+  private int maxDepth = 3;
+  /**
+   * Max number of dimensions explored in combinations. The dimensions with the highest single
+   * dimension cost are explored first.
+   */
+  private int maxDimensions = 6;
+  /**
+   * Max number of rows fetched per query.
+   */
+  private int maxRowsPerQuery = 1000;
+  /**
+   * Max number of dimension combinations queried, all depths included.
+   */
+  private int maxCombinations = 40;
+  /**
+   * Time budget of the search. When it is exceeded, the best contributors found so far are
+   * returned.
+   */
+  private long timeoutMillis = 30_000;
+
+  public Cost getCostFunction() {
+    return costFunction;
+  }
+
+  public CubeConfiguration setCostFunction(final Cost costFunction) {
+    this.costFunction = costFunction;
+    return this;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public CubeConfiguration setMaxDepth(final int maxDepth) {
+    this.maxDepth = maxDepth;
+    return this;
+  }
+
+  public int getMaxDimensions() {
+    return maxDimensions;
+  }
+
+  public CubeConfiguration setMaxDimensions(final int maxDimensions) {
+    this.maxDimensions = maxDimensions;
+    return this;
+  }
+
+  public int getMaxRowsPerQuery() {
+    return maxRowsPerQuery;
+  }
+
+  public CubeConfiguration setMaxRowsPerQuery(final int maxRowsPerQuery) {
+    this.maxRowsPerQuery = maxRowsPerQuery;
+    return this;
+  }
+
+  public int getMaxCombinations() {
+    return maxCombinations;
+  }
+
+  public CubeConfiguration setMaxCombinations(final int maxCombinations) {
+    this.maxCombinations = maxCombinations;
+    return this;
+  }
+
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public CubeConfiguration setTimeoutMillis(final long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+    return this;
+  }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_NAME;
+import static ai.startree.thirdeye.spi.rca.Stats.computeContributionChangePercentage;
+import static ai.startree.thirdeye.spi.rca.Stats.computeContributionToOverallChangePercentage;
+import static ai.startree.thirdeye.spi.rca.Stats.computeValueChangePercentage;
+
+import ai.startree.thirdeye.plugins.rca.contributors.simple.Cost;
+import ai.startree.thirdeye.spi.api.AnalysisRunInfo;
+import ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
+import ai.startree.thirdeye.spi.metric.MetricSlice;
+import ai.startree.thirdeye.spi.rca.ContributorsFinder;
+import ai.startree.thirdeye.spi.rca.ContributorsFinderResult;
+import ai.startree.thirdeye.spi.rca.ContributorsSearchConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Searches the contributors among combinations of dimensions, eg country x platform.
+ *
+ * The search is level by level. Level 1 is the breakdown by each dimension, same as the simple
+ * algorithm. Level k groups by k dimensions, among the dimensions that have a value with a
+ * positive cost at level 1. The search is pruned hierarchically:
+ * - a combination of k dimensions is only queried if each of its combinations of k-1 dimensions
+ * has a cell with a positive cost
+ * - a cell of k dimensions is only a candidate if all its parent cells of k-1 dimensions have a
+ * positive cost
+ *
+ * The queries of a level are submitted together and run concurrently by the aggregation loader.
+ * The best contributors of all levels are kept in a top-K heap. The search stops when the depth,
+ * the number of combinations or the time budget is exhausted.
+ */
+public class CubeContributorsFinder implements ContributorsFinder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CubeContributorsFinder.class);
+
+  private final AggregationLoader aggregationLoader;
+  private final CubeConfiguration configuration;
+
+  public CubeContributorsFinder(final AggregationLoader aggregationLoader,
+      final CubeConfiguration configuration) {
+    this.aggregationLoader = aggregationLoader;
+    this.configuration = configuration;
+  }
+
+  @Override
+  public ContributorsFinderResult search(final ContributorsSearchConfiguration searchConfiguration)
+      throws Exception {
+    final long deadline = System.currentTimeMillis() + configuration.getTimeoutMillis();
+    final MetricSlice baselineSlice = MetricSlice.from(searchConfiguration.getMetricConfigDTO(),
+        searchConfiguration.getBaselineInterval(),
+        searchConfiguration.getFilters(),
+        searchConfiguration.getDatasetConfigDTO(),
+        searchConfiguration.getDataSourceDTO());
+    final MetricSlice currentSlice = MetricSlice.from(searchConfiguration.getMetricConfigDTO(),
+        searchConfiguration.getCurrentInterval(),
+        searchConfiguration.getFilters(),
+        searchConfiguration.getDatasetConfigDTO(),
+        searchConfiguration.getDataSourceDTO());
+
+    final List<DataFrame> breakdowns = aggregationLoader.loadBreakdowns(
+        List.of(baselineSlice, currentSlice), configuration.getMaxRowsPerQuery());
+    final DataFrame baseline = breakdowns.get(0);
+    if (baseline.size() <= 0) {
+      return cannotComputeResult(
+          "No data in the baseline timeframe. Cannot compute top contributors. You may try with a different baseline offset.");
+    }
+    final DataFrame current = breakdowns.get(1);
+    if (current.size() <= 0) {
+      return cannotComputeResult(
+          "No data in the current timeframe. Cannot compute top contributors. Data collect is stopped or broken for this metric.");
+    }
+
+    final double baselineTotal = getTotalFromBreakdown(baseline);
+    final double currentTotal = getTotalFromBreakdown(current);
+    final Search search = new Search(configuration.getCostFunction(),
+        baselineTotal,
+        currentTotal,
+        searchConfiguration.isDoOneSideError(),
+        searchConfiguration.getSummarySize());
+
+    final List<Cuboid> singleDimensionCuboids = Cuboid.fromBreakdowns(baseline, current);
+    final List<String> dimensions = new ArrayList<>();
+    for (final Cuboid cuboid : singleDimensionCuboids) {
+      dimensions.add(cuboid.dimensions().get(0));
+      search.evaluate(cuboid);
+    }
+
+    final int maxDepth = Math.min(searchConfiguration.getDepth(), configuration.getMaxDepth());
+    final List<String> dimensionsOfInterest = search.dimensionsOfInterest(
+        configuration.getMaxDimensions());
+    int remainingCombinations = configuration.getMaxCombinations();
+    for (int depth = 2; depth <= maxDepth && remainingCombinations > 0; depth++) {
+      final List<List<String>> combinations = search.nextCombinations(dimensionsOfInterest,
+          depth,
+          remainingCombinations);
+      if (combinations.isEmpty()) {
+        break;
+      }
+      remainingCombinations -= combinations.size();
+      final boolean completed = searchLevel(search, combinations, baselineSlice, currentSlice,
+          deadline);
+      if (!completed) {
+        LOG.warn("Time budget of {} ms exceeded at depth {}. Returning the best contributors found.",
+            configuration.getTimeoutMillis(), depth);
+        break;
+      }
+    }
+
+    return new CubeContributorsFinderResult(search.topContributors(),
+        dimensions,
+        baselineTotal,
+        currentTotal,
+        searchConfiguration.getMetricConfigDTO().getName(),
+        searchConfiguration.getDatasetConfigDTO().getDataset());
+  }
+
+  /**
+   * @return false if the time budget was exceeded before all the combinations were evaluated
+   */
+  private boolean searchLevel(final Search search, final List<List<String>> combinations,
+      final MetricSlice baselineSlice, final MetricSlice currentSlice, final long deadline)
+      throws Exception {
+    final int limit = configuration.getMaxRowsPerQuery();
+    final List<Future<DataFrame>> futures = new ArrayList<>(combinations.size() * 2);
+    for (final List<String> combination : combinations) {
+      futures.add(aggregationLoader.loadAggregateAsync(baselineSlice, combination, limit));
+      futures.add(aggregationLoader.loadAggregateAsync(currentSlice, combination, limit));
+    }
+    try {
+      for (int i = 0; i < combinations.size(); i++) {
+        final DataFrame baseline = getBeforeDeadline(futures.get(2 * i), deadline);
+        final DataFrame current = getBeforeDeadline(futures.get(2 * i + 1), deadline);
+        if (baseline == null || current == null) {
+          return false;
+        }
+        search.evaluate(Cuboid.fromAggregates(combinations.get(i), baseline, current));
+      }
+      return true;
+    } finally {
+      futures.forEach(f -> f.cancel(true));
+    }
+  }
+
+  private static @Nullable DataFrame getBeforeDeadline(final Future<DataFrame> future,
+      final long deadline) throws Exception {
+    try {
+      return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    } catch (final TimeoutException e) {
+      return null;
+    }
+  }
+
+  private ContributorsFinderResult cannotComputeResult(final @NonNull String message) {
+    return () -> new DimensionAnalysisResultApi()
+        .setAnalysisRunInfo(AnalysisRunInfo.failure(message));
+  }
+
+  /**
+   * The breakdown contains all the rows for each dimension: the total is the sum of the values of
+   * any dimension.
+   */
+  private static double getTotalFromBreakdown(final DataFrame breakdown) {
+    final String[] dimensionNames = breakdown.getStrings(COL_DIMENSION_NAME).values();
+    final double[] values = breakdown.getDoubles(COL_VALUE).values();
+    double total = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (dimensionNames[i].equals(dimensionNames[0]) && !Double.isNaN(values[i])) {
+        total += values[i];
+      }
+    }
+    return total;
+  }
+
+  /**
+   * State of the search: the cells with a positive cost and the top-K contributors.
+   */
+  @VisibleForTesting
+  static class Search {
+
+    private static final Comparator<Contributor> BY_COST = Comparator.comparingDouble(
+        Contributor::cost);
+
+    private final Cost costFunction;
+    private final double baselineTotal;
+    private final double currentTotal;
+    private final boolean doOneSideError;
+    private final int summarySize;
+    /**
+     * Min-heap: the head is the worst of the top contributors.
+     */
+    private final PriorityQueue<Contributor> topContributors;
+    /**
+     * Cells with a positive cost, as [dim1, value1, dim2, value2, ...].
+     */
+    private final Set<List<String>> positiveCells = new HashSet<>();
+    /**
+     * Combinations of dimensions that have at least one cell with a positive cost.
+     */
+    private final Set<List<String>> positiveCombinations = new LinkedHashSet<>();
+    private final Map<String, Double> bestSingleDimensionCosts = new LinkedHashMap<>();
+
+    Search(final Cost costFunction, final double baselineTotal, final double currentTotal,
+        final boolean doOneSideError, final int summarySize) {
+      this.costFunction = costFunction;
+      this.baselineTotal = baselineTotal;
+      this.currentTotal = currentTotal;
+      this.doOneSideError = doOneSideError;
+      this.summarySize = summarySize;
+      this.topContributors = new PriorityQueue<>(Math.max(1, summarySize), BY_COST);
+    }
+
+    void evaluate(final Cuboid cuboid) {
+      final List<String> dimensions = cuboid.dimensions();
+      final boolean totalIncreased = currentTotal >= baselineTotal;
+      for (int i = 0; i < cuboid.size(); i++) {
+        final double baseline = cuboid.baseline(i);
+        final double current = cuboid.current(i);
+        if (doOneSideError && (current - baseline >= 0) != totalIncreased) {
+          continue;
+        }
+        final List<String> cellKey = cellKey(dimensions, cuboid.cellValues(i));
+        if (dimensions.size() > 1 && !parentsArePositive(cellKey)) {
+          continue;
+        }
+        final double valueChangePercentage = computeValueChangePercentage(baseline, current);
+        final double contributionChangePercentage = computeContributionChangePercentage(baseline,
+            current,
+            baselineTotal,
+            currentTotal);
+        final double contributionToOverallChangePercentage =
+            computeContributionToOverallChangePercentage(baseline,
+                current,
+                baselineTotal,
+                currentTotal);
+        final double cost = costFunction.compute(valueChangePercentage,
+            contributionChangePercentage,
+            contributionToOverallChangePercentage);
+        if (!(cost > 0)) {
+          continue;
+        }
+        positiveCells.add(cellKey);
+        positiveCombinations.add(dimensions);
+        if (dimensions.size() == 1) {
+          bestSingleDimensionCosts.merge(dimensions.get(0), cost, Math::max);
+        }
+        if (topContributors.size() < summarySize) {
+          topContributors.add(new Contributor(dimensions, Arrays.asList(cuboid.cellValues(i)),
+              baseline, current, valueChangePercentage, contributionChangePercentage,
+              contributionToOverallChangePercentage, cost));
+        } else if (summarySize > 0 && cost > topContributors.peek().cost()) {
+          topContributors.poll();
+          topContributors.add(new Contributor(dimensions, Arrays.asList(cuboid.cellValues(i)),
+              baseline, current, valueChangePercentage, contributionChangePercentage,
+              contributionToOverallChangePercentage, cost));
+        }
+      }
+    }
+
+    /**
+     * @return the dimensions with a positive cost, ordered by best cost descending.
+     */
+    List<String> dimensionsOfInterest(final int maxDimensions) {
+      return bestSingleDimensionCosts.entrySet().stream()
+          .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+          .limit(maxDimensions)
+          .map(Map.Entry::getKey)
+          .toList();
+    }
+
+    /**
+     * Extends the positive combinations of depth - 1 dimensions with one dimension of interest. The
+     * dimensions of a combination keep the order of the dimensions of interest, so that each
+     * combination is generated once. A combination is only returned if all its sub-combinations
+     * of one dimension less are positive.
+     */
+    List<List<String>> nextCombinations(final List<String> dimensionsOfInterest,
+        final int depth, final int maxCombinations) {
+      final int lastDepth = depth - 1;
+      final List<List<String>> next = new ArrayList<>();
+      for (final List<String> combination : positiveCombinations) {
+        if (combination.size() != lastDepth) {
+          continue;
+        }
+        final int lastIndex = dimensionsOfInterest.indexOf(combination.get(lastDepth - 1));
+        if (lastIndex < 0) {
+          continue;
+        }
+        for (int d = lastIndex + 1; d < dimensionsOfInterest.size(); d++) {
+          final List<String> candidate = new ArrayList<>(combination);
+          candidate.add(dimensionsOfInterest.get(d));
+          if (subCombinationsArePositive(candidate)) {
+            next.add(List.copyOf(candidate));
+            if (next.size() == maxCombinations) {
+              return next;
+            }
+          }
+        }
+      }
+      return next;
+    }
+
+    /**
+     * @return the contributors, by cost descending
+     */
+    List<Contributor> topContributors() {
+      final List<Contributor> contributors = new ArrayList<>(topContributors);
+      contributors.sort(BY_COST.reversed());
+      return contributors;
+    }
+
+    private boolean subCombinationsArePositive(final List<String> combination) {
+      for (int skip = 0; skip < combination.size(); skip++) {
+        final List<String> subCombination = new ArrayList<>(combination);
+        subCombination.remove(skip);
+        if (!positiveCombinations.contains(subCombination)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean parentsArePositive(final List<String> cellKey) {
+      for (int skip = 0; skip < cellKey.size(); skip += 2) {
+        final List<String> parentKey = new ArrayList<>(cellKey.size() - 2);
+        parentKey.addAll(cellKey.subList(0, skip));
+        parentKey.addAll(cellKey.subList(skip + 2, cellKey.size()));
+        if (!positiveCells.contains(parentKey)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static List<String> cellKey(final List<String> dimensions,
+        final String[] cellValues) {
+      final List<String> key = new ArrayList<>(2 * dimensions.size());
+      for (int d = 0; d < dimensions.size(); d++) {
+        key.add(dimensions.get(d));
+        key.add(cellValues[d]);
+      }
+      return key;
+    }
+  }
+
+  record Contributor(List<String> dimensions, List<String> values, double baselineValue,
+                     double currentValue, double valueChangePercentage,
+                     double contributionChangePercentage,
+                     double contributionToOverallChangePercentage, double cost) {}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi.ALL;
+
+import ai.startree.thirdeye.plugins.rca.contributors.cube.CubeContributorsFinder.Contributor;
+import ai.startree.thirdeye.spi.api.DatasetApi;
+import ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi;
+import ai.startree.thirdeye.spi.api.MetricApi;
+import ai.startree.thirdeye.spi.api.cube.SummaryResponseRow;
+import ai.startree.thirdeye.spi.rca.ContributorsFinderResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CubeContributorsFinderResult implements ContributorsFinderResult {
+
+  private final List<Contributor> contributors;
+  private final List<String> dimensions;
+  private final double baselineTotal;
+  private final double currentTotal;
+  private final String metricName;
+  private final String datasetName;
+
+  /**
+   * @param contributors contributors, in the order of the response rows
+   * @param dimensions all the dimensions of the search, in display order
+   */
+  CubeContributorsFinderResult(final List<Contributor> contributors,
+      final List<String> dimensions, final double baselineTotal, final double currentTotal,
+      final String metricName, final String datasetName) {
+    this.contributors = contributors;
+    this.dimensions = dimensions;
+    this.baselineTotal = baselineTotal;
+    this.currentTotal = currentTotal;
+    this.metricName = metricName;
+    this.datasetName = datasetName;
+  }
+
+  @Override
+  public DimensionAnalysisResultApi getDimensionAnalysisResult() {
+    // only keep the dimensions that appear in a contributor
+    final List<String> usedDimensions = dimensions.stream()
+        .filter(d -> contributors.stream().anyMatch(c -> c.dimensions().contains(d)))
+        .toList();
+
+    final List<SummaryResponseRow> responseRows = new ArrayList<>(contributors.size());
+    for (final Contributor contributor : contributors) {
+      final List<String> names = new ArrayList<>(Collections.nCopies(usedDimensions.size(), ALL));
+      for (int d = 0; d < contributor.dimensions().size(); d++) {
+        names.set(usedDimensions.indexOf(contributor.dimensions().get(d)),
+            contributor.values().get(d));
+      }
+      final SummaryResponseRow row = new SummaryResponseRow();
+      row.setNames(names)
+          .setCost(contributor.cost())
+          .setBaselineValue(contributor.baselineValue())
+          .setCurrentValue(contributor.currentValue())
+          .setChangePercentage(contributor.valueChangePercentage())
+          .setContributionChangePercentage(contributor.contributionChangePercentage())
+          .setContributionToOverallChangePercentage(
+              contributor.contributionToOverallChangePercentage());
+      responseRows.add(row);
+    }
+
+    return new DimensionAnalysisResultApi()
+        .setDimensions(usedDimensions)
+        .setResponseRows(responseRows)
+        .setBaselineTotal(baselineTotal)
+        .setCurrentTotal(currentTotal)
+        .setMetric(new MetricApi().setDataset(new DatasetApi().setName(datasetName))
+            .setName(metricName));
+  }
+}
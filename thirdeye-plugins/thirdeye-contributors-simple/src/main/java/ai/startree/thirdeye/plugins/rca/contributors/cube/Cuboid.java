@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_NAME;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_VALUE;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The baseline and current values of the cells of a combination of dimensions. A cell is a
+ * combination of dimension values.
+ */
+class Cuboid {
+
+  private final List<String> dimensions;
+  private final List<String[]> cellValues;
+  private final double[] baseline;
+  private final double[] current;
+
+  private Cuboid(final List<String> dimensions, final List<String[]> cellValues,
+      final double[] baseline, final double[] current) {
+    this.dimensions = dimensions;
+    this.cellValues = cellValues;
+    this.baseline = baseline;
+    this.current = current;
+  }
+
+  /**
+   * Builds a cuboid from the results of a group by query on the dimensions. Cells missing in one
+   * of the windows have a value of 0 in this window.
+   */
+  static Cuboid fromAggregates(final List<String> dimensions, final DataFrame baseline,
+      final DataFrame current) {
+    final Builder builder = new Builder(dimensions);
+    builder.addAll(baseline, 0);
+    builder.addAll(current, 1);
+    return builder.build();
+  }
+
+  /**
+   * Builds one cuboid per dimension from breakdown data frames.
+   *
+   * @see ai.startree.thirdeye.spi.datasource.loader.AggregationLoader#loadBreakdown
+   */
+  static List<Cuboid> fromBreakdowns(final DataFrame baseline, final DataFrame current) {
+    final Map<String, Builder> builders = new LinkedHashMap<>();
+    addBreakdown(builders, baseline, 0);
+    addBreakdown(builders, current, 1);
+    return builders.values().stream().map(Builder::build).toList();
+  }
+
+  private static void addBreakdown(final Map<String, Builder> builders,
+      final DataFrame breakdown, final int window) {
+    final String[] dimensionNames = breakdown.getStrings(COL_DIMENSION_NAME).values();
+    final String[] dimensionValues = breakdown.getStrings(COL_DIMENSION_VALUE).values();
+    final double[] values = breakdown.getDoubles(COL_VALUE).values();
+    for (int i = 0; i < values.length; i++) {
+      builders.computeIfAbsent(dimensionNames[i], d -> new Builder(List.of(d)))
+          .add(new String[]{dimensionValues[i]}, window, values[i]);
+    }
+  }
+
+  List<String> dimensions() {
+    return dimensions;
+  }
+
+  int size() {
+    return baseline.length;
+  }
+
+  String[] cellValues(final int cell) {
+    return cellValues.get(cell);
+  }
+
+  double baseline(final int cell) {
+    return baseline[cell];
+  }
+
+  double current(final int cell) {
+    return current[cell];
+  }
+
+  private static class Builder {
+
+    private final List<String> dimensions;
+    /**
+     * Cell values to [baseline, current]
+     */
+    private final Map<List<String>, double[]> cells = new LinkedHashMap<>();
+
+    private Builder(final List<String> dimensions) {
+      this.dimensions = dimensions;
+    }
+
+    private void addAll(final DataFrame aggregates, final int window) {
+      final String[][] columns = new String[dimensions.size()][];
+      for (int d = 0; d < columns.length; d++) {
+        columns[d] = aggregates.getStrings(dimensions.get(d)).values();
+      }
+      final double[] values = aggregates.getDoubles(COL_VALUE).values();
+      for (int i = 0; i < values.length; i++) {
+        final String[] cellValues = new String[columns.length];
+        for (int d = 0; d < columns.length; d++) {
+          cellValues[d] = columns[d][i];
+        }
+        add(cellValues, window, values[i]);
+      }
+    }
+
+    private void add(final String[] cellValues, final int window, final double value) {
+      if (Double.isNaN(value)) {
+        // null aggregate - same as an absent cell
+        return;
+      }
+      // Arrays.asList accepts null dimension values
+      cells.computeIfAbsent(Arrays.asList(cellValues), k -> new double[2])[window] += value;
+    }
+
+    private Cuboid build() {
+      final List<String[]> cellValues = new ArrayList<>(cells.size());
+      final double[] baseline = new double[cells.size()];
+      final double[] current = new double[cells.size()];
+      int i = 0;
+      for (final Map.Entry<List<String>, double[]> cell : cells.entrySet()) {
+        cellValues.add(cell.getKey().toArray(new String[0]));
+        baseline[i] = cell.getValue()[0];
+        current[i] = cell.getValue()[1];
+        i++;
+      }
+      return new Cuboid(dimensions, cellValues, baseline, current);
+    }
+  }
+}
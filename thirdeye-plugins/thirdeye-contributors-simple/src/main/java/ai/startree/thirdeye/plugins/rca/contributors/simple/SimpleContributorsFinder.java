@@ -32,6 +32,7 @@ import ai.startree.thirdeye.spi.rca.ContributorsFinder;
 import ai.startree.thirdeye.spi.rca.ContributorsFinderResult;
 import ai.startree.thirdeye.spi.rca.ContributorsSearchConfiguration;
 import com.google.common.annotations.VisibleForTesting;
+import java.util.List;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,7 +77,10 @@ public class SimpleContributorsFinder implements ContributorsFinder {
         searchConfiguration.getDatasetConfigDTO(),
         searchConfiguration.getDataSourceDTO());
 
-    final DataFrame baseline = aggregationLoader.loadBreakdown(baselineSlice, LIMIT_DEFAULT);
+    // both windows are fetched concurrently
+    final List<DataFrame> breakdowns = aggregationLoader.loadBreakdowns(
+        List.of(baselineSlice, currentSlice), LIMIT_DEFAULT);
+    final DataFrame baseline = breakdowns.get(0);
     if (baseline.size() <= 0) {
       return cannotComputeResult(
           "No data in the baseline timeframe. Cannot compute top contributors. You may try with a different baseline offset.");
@@ -84,7 +88,7 @@ public class SimpleContributorsFinder implements ContributorsFinder {
     baseline.dropSeries(COL_TIME);
     final double baselineTotal = getTotalFromBreakdown(baseline);
 
-    final DataFrame current = aggregationLoader.loadBreakdown(currentSlice, LIMIT_DEFAULT);
+    final DataFrame current = breakdowns.get(1);
     if (current.size() <= 0) {
       return cannotComputeResult(
           "No data in the current timeframe. Cannot compute top contributors. Data collect is stopped or broken for this metric.");
@@ -153,20 +157,19 @@ public class SimpleContributorsFinder implements ContributorsFinder {
 
   private DoubleSeries computeCost(final DataFrame stats) {
     final Cost costFunction = simpleConfiguration.getCostFunction();
-    DoubleSeries.Builder builder = DoubleSeries.builder();
-    for (int i = 0; i < stats.size(); i++) {
-      final double valueChangePercentage = stats.getDouble(COL_VALUE_CHANGE_PERCENTAGE, i);
-      final double contributionChangePercentage = stats.getDouble(
-          COL_CONTRIBUTION_CHANGE_PERCENTAGE,
-          i);
-      final double contributionToOverallChangePercentage = stats.getDouble(
-          COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE,
-          i);
-      builder.addValues(costFunction.compute(valueChangePercentage,
-          contributionChangePercentage,
-          contributionToOverallChangePercentage));
+    final double[] valueChangePercentages = stats.getDoubles(COL_VALUE_CHANGE_PERCENTAGE)
+        .values();
+    final double[] contributionChangePercentages = stats.getDoubles(
+        COL_CONTRIBUTION_CHANGE_PERCENTAGE).values();
+    final double[] contributionToOverallChangePercentages = stats.getDoubles(
+        COL_CONTRIBUTION_TO_OVERALL_CHANGE_PERCENTAGE).values();
+    final double[] costs = new double[stats.size()];
+    for (int i = 0; i < costs.length; i++) {
+      costs[i] = costFunction.compute(valueChangePercentages[i],
+          contributionChangePercentages[i],
+          contributionToOverallChangePercentages[i]);
     }
-    return builder.build();
+    return DoubleSeries.buildFrom(costs);
   }
 
   @VisibleForTesting
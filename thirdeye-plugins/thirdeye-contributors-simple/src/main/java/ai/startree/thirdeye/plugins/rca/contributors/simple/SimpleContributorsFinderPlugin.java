@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.plugins.rca.contributors.simple;
 
+import ai.startree.thirdeye.plugins.rca.contributors.cube.CubeContributorsFinderPluginFactory;
 import ai.startree.thirdeye.spi.Plugin;
 import ai.startree.thirdeye.spi.rca.ContributorsFinderFactory;
 import com.google.auto.service.AutoService;
@@ -24,7 +25,8 @@ public class SimpleContributorsFinderPlugin implements Plugin {
   @Override
   public Iterable<ContributorsFinderFactory> getContributorsFinderFactories() {
     return List.of(
-        new SimpleContributorsFinderPluginFactory()
+        new SimpleContributorsFinderPluginFactory(),
+        new CubeContributorsFinderPluginFactory()
     );
   }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+import static ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi.ALL;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_NAME;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_VALUE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi;
+import ai.startree.thirdeye.spi.api.cube.SummaryResponseRow;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
+import ai.startree.thirdeye.spi.metric.MetricSlice;
+import ai.startree.thirdeye.spi.rca.ContributorsSearchConfiguration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.testng.annotations.Test;
+
+public class CubeContributorsFinderTest {
+
+  private static final Interval BASELINE_INTERVAL = new Interval(
+      new DateTime(2022, 1, 1, 0, 0, 0, DateTimeZone.UTC),
+      new DateTime(2022, 1, 2, 0, 0, 0, DateTimeZone.UTC));
+  private static final Interval CURRENT_INTERVAL = new Interval(
+      new DateTime(2022, 1, 8, 0, 0, 0, DateTimeZone.UTC),
+      new DateTime(2022, 1, 9, 0, 0, 0, DateTimeZone.UTC));
+
+  private static final MetricConfigDTO METRIC_CONFIG_DTO = new MetricConfigDTO();
+  private static final DatasetConfigDTO DATASET_CONFIG_DTO = new DatasetConfigDTO();
+  private static final DataSourceDTO DATASOURCE_DTO = new DataSourceDTO();
+  private static final List<Predicate> FILTERS = List.of();
+
+  private static final MetricSlice BASELINE_SLICE = MetricSlice.from(METRIC_CONFIG_DTO,
+      BASELINE_INTERVAL, FILTERS, DATASET_CONFIG_DTO, DATASOURCE_DTO);
+  private static final MetricSlice CURRENT_SLICE = MetricSlice.from(METRIC_CONFIG_DTO,
+      CURRENT_INTERVAL, FILTERS, DATASET_CONFIG_DTO, DATASOURCE_DTO);
+
+  private static final String[] COUNTRIES = {"US", "US", "FR", "FR"};
+  private static final String[] PLATFORMS = {"ios", "android", "ios", "android"};
+  // the drop is only in US x ios
+  private static final double[] BASELINE_VALUES = {100, 100, 100, 100};
+  private static final double[] CURRENT_VALUES = {20, 100, 100, 100};
+
+  private static DataFrame aggregates(final double[] values) {
+    return new DataFrame()
+        .addSeries("country", COUNTRIES)
+        .addSeries("platform", PLATFORMS)
+        .addSeries(COL_VALUE, values);
+  }
+
+  private static DataFrame breakdown(final double[] values) {
+    return new DataFrame()
+        .addSeries(COL_DIMENSION_NAME, "country", "country", "platform", "platform")
+        .addSeries(COL_DIMENSION_VALUE, "US", "FR", "ios", "android")
+        .addSeries(COL_VALUE,
+            values[0] + values[1],
+            values[2] + values[3],
+            values[0] + values[2],
+            values[1] + values[3]);
+  }
+
+  private static ContributorsSearchConfiguration searchConfiguration(final int summarySize) {
+    return new ContributorsSearchConfiguration(METRIC_CONFIG_DTO,
+        DATASET_CONFIG_DTO,
+        DATASOURCE_DTO,
+        CURRENT_INTERVAL,
+        BASELINE_INTERVAL,
+        summarySize,
+        3,
+        true,
+        FILTERS,
+        null);
+  }
+
+  private static AggregationLoader aggregationLoader() throws Exception {
+    final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
+    when(aggregationLoader.loadBreakdowns(eq(List.of(BASELINE_SLICE, CURRENT_SLICE)), anyInt()))
+        .thenReturn(List.of(breakdown(BASELINE_VALUES), breakdown(CURRENT_VALUES)));
+    return aggregationLoader;
+  }
+
+  @Test
+  public void testSearchFindsCompoundContributor() throws Exception {
+    final AggregationLoader aggregationLoader = aggregationLoader();
+    when(aggregationLoader.loadAggregateAsync(eq(BASELINE_SLICE), anyList(), anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(aggregates(BASELINE_VALUES)));
+    when(aggregationLoader.loadAggregateAsync(eq(CURRENT_SLICE), anyList(), anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(aggregates(CURRENT_VALUES)));
+
+    final DimensionAnalysisResultApi res = new CubeContributorsFinder(aggregationLoader,
+        new CubeConfiguration()).search(searchConfiguration(2)).getDimensionAnalysisResult();
+
+    assertThat(res.getDimensions()).containsExactly("country", "platform");
+    final List<SummaryResponseRow> rows = res.getResponseRows();
+    assertThat(rows).hasSize(2);
+    assertThat(rows.get(0).getNames()).containsExactly("US", "ios");
+    assertThat(rows.get(0).getBaselineValue()).isEqualTo(100);
+    assertThat(rows.get(0).getCurrentValue()).isEqualTo(20);
+    assertThat(rows.get(0).getCost()).isGreaterThan(rows.get(1).getCost());
+  }
+
+  @Test
+  public void testSearchReturnsSingleDimensionContributorsWhenTimeBudgetIsExceeded()
+      throws Exception {
+    final AggregationLoader aggregationLoader = aggregationLoader();
+    when(aggregationLoader.loadAggregateAsync(eq(BASELINE_SLICE), anyList(), anyInt()))
+        .thenReturn(new CompletableFuture<>());
+    when(aggregationLoader.loadAggregateAsync(eq(CURRENT_SLICE), anyList(), anyInt()))
+        .thenReturn(new CompletableFuture<>());
+
+    final DimensionAnalysisResultApi res = new CubeContributorsFinder(aggregationLoader,
+        new CubeConfiguration().setTimeoutMillis(100))
+        .search(searchConfiguration(5))
+        .getDimensionAnalysisResult();
+
+    assertThat(res.getAnalysisRunInfo().isSuccess()).isTrue();
+    // FR and android did not change: their cost is 0
+    assertThat(res.getResponseRows()).extracting(SummaryResponseRow::getNames)
+        .containsExactlyInAnyOrder(List.of("US", ALL), List.of(ALL, "ios"));
+  }
+}
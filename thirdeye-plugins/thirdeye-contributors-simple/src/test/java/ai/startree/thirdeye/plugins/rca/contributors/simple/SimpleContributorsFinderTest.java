@@ -103,10 +103,8 @@ public class SimpleContributorsFinderTest {
   public void testSearchNominalCase() throws Exception {
     final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
 
-    when(aggregationLoader.loadBreakdown(ArgumentMatchers.eq(BASELINE_SLICE), anyInt())).thenReturn(
-        BASELINE_DATAFRAME.get());
-    when(aggregationLoader.loadBreakdown(ArgumentMatchers.eq(CURRENT_SLICE), anyInt())).thenReturn(
-        CURRENT_DATAFRAME.get());
+    when(aggregationLoader.loadBreakdowns(ArgumentMatchers.eq(List.of(BASELINE_SLICE,
+        CURRENT_SLICE)), anyInt())).thenReturn(List.of(BASELINE_DATAFRAME.get(), CURRENT_DATAFRAME.get()));
 
     final SimpleContributorsFinder contributorsFinder = new SimpleContributorsFinder(
         aggregationLoader,
@@ -142,8 +140,8 @@ public class SimpleContributorsFinderTest {
   public void testSearchThrowsErrorIfEmptyDataForBaselineTimeframe() throws Exception {
     final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
 
-    when(aggregationLoader.loadBreakdown(ArgumentMatchers.eq(BASELINE_SLICE), anyInt())).thenReturn(
-        EMPTY_DATA_FRAME);
+    when(aggregationLoader.loadBreakdowns(ArgumentMatchers.eq(List.of(BASELINE_SLICE,
+        CURRENT_SLICE)), anyInt())).thenReturn(List.of(EMPTY_DATA_FRAME, CURRENT_DATAFRAME.get()));
     final SimpleContributorsFinder contributorsFinder = new SimpleContributorsFinder(
         aggregationLoader,
         new SimpleConfiguration());
@@ -166,10 +164,8 @@ public class SimpleContributorsFinderTest {
   @Test
   public void testSearchThrowsErrorIfEmptyDataForCurrentTimeFrame() throws Exception {
     final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
-    when(aggregationLoader.loadBreakdown(ArgumentMatchers.eq(BASELINE_SLICE), anyInt())).thenReturn(
-        BASELINE_DATAFRAME.get());
-    when(aggregationLoader.loadBreakdown(ArgumentMatchers.eq(CURRENT_SLICE), anyInt())).thenReturn(
-        EMPTY_DATA_FRAME);
+    when(aggregationLoader.loadBreakdowns(ArgumentMatchers.eq(List.of(BASELINE_SLICE,
+        CURRENT_SLICE)), anyInt())).thenReturn(List.of(BASELINE_DATAFRAME.get(), EMPTY_DATA_FRAME));
     final SimpleContributorsFinder contributorsFinder = new SimpleContributorsFinder(
         aggregationLoader,
         new SimpleConfiguration());
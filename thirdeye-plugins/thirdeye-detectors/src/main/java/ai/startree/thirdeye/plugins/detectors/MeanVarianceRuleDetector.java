@@ -39,10 +39,12 @@ import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.util.TimeUtils;
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import org.joda.time.Chronology;
-import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeField;
 import org.joda.time.Interval;
 import org.joda.time.Period;
 import org.joda.time.ReadableInterval;
@@ -201,25 +203,37 @@ public class MeanVarianceRuleDetector implements AnomalyDetector<MeanVarianceRul
           detectionInterval.getStartMillis(), inputTimes.sliceFrom(Math.max(0,inputTimes.size()-10)).toString());
     }
 
-    // todo cyril compute mean and std in a single pass
-    // https://nestedsoftware.com/2018/03/20/calculating-a-moving-average-on-streaming-data-5a7k.22879.html
-    // https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Welford's_online_algorithm
-    final boolean applyMask = inputDF.contains(COL_MASK);
+    // single pass: the lookback window slides with the detection point, and the mean and std of
+    // each seasonality phase are maintained incrementally
+    final long[] times = inputTimes.values();
+    final double[] values = inputDF.getDoubles(COL_VALUE).values();
+    final byte[] mask = inputDF.contains(COL_MASK) ? inputDF.getBooleans(COL_MASK).values() : null;
+    final Chronology chronology = detectionInterval.getChronology();
+    final int firstLookbackIndex = Math.max(0, firstDetectionIndex - lookback);
+    final int[] phases = new int[size];
+    final int numPhases = computePhases(times, firstLookbackIndex, chronology, phases);
+    final RollingMeanVariance stats = new RollingMeanVariance(numPhases);
+    int windowStart = firstLookbackIndex;
+    int windowEnd = firstLookbackIndex;
     for (int k = firstDetectionIndex; k < size; k++) {
-      if (applyMask && BooleanSeries.isTrue(inputDF.getBoolean(COL_MASK, k))) {
+      // lookback window of k is [k - lookback, k)
+      for (; windowEnd < k; windowEnd++) {
+        if (isTrainingValue(values, mask, windowEnd)) {
+          stats.add(phases[windowEnd], values[windowEnd]);
+        }
+      }
+      for (; windowStart < k - lookback; windowStart++) {
+        if (isTrainingValue(values, mask, windowStart)) {
+          stats.remove(phases[windowStart], values[windowStart]);
+        }
+      }
+      if (mask != null && BooleanSeries.isTrue(mask[k])) {
         // this point is masked - skip it
         continue;
       }
-      final long forecastTime = inputTimes.getLong(k);
-      final DataFrame lookbackDf = getLookbackDf(inputDF, forecastTime, detectionInterval.getChronology());
-      final DoubleSeries periodMask = buildPeriodMask(lookbackDf, forecastTime, detectionInterval.getChronology());
-      DoubleSeries maskedValues = lookbackDf.getDoubles(COL_VALUE).multiply(periodMask);
-      if (applyMask) {
-        // todo cyril perf - COL_MASK.fillNull().not() can be computed once outside of the loop
-        maskedValues = maskedValues.filter(lookbackDf.getBooleans(COL_MASK).fillNull().not());
-      }
-      double mean = maskedValues.mean().value();
-      double std = maskedValues.std().value();
+      checkLookbackSize(k, times[k], chronology);
+      double mean = stats.mean(phases[k]);
+      double std = stats.std(phases[k]);
       if (Double.isNaN(mean)) {
         // mean and std can be null if all values are masked or null
         mean = 0.0;
@@ -245,42 +259,45 @@ public class MeanVarianceRuleDetector implements AnomalyDetector<MeanVarianceRul
     return resultDF;
   }
 
-  private DoubleSeries buildPeriodMask(final DataFrame lookbackDf, final long forecastTime,
-      final Chronology chronology) {
-    if (seasonality.equals(Period.ZERO)) {
-      // no seasonality --> no mask
-      return DoubleSeries.fillValues(lookbackDf.size(), 1);
-    }
-    final DateTime forecastDateTime = new DateTime(forecastTime, chronology);
-    final DoubleSeries.Builder mask = DoubleSeries.builder();
-    final LongSeries lookbackEpochs = lookbackDf.get(COL_TIME).getLongs();
-    for (int idx = 0; idx < lookbackEpochs.size(); idx++) {
-      final DateTime lookbackDateTime = new DateTime(lookbackEpochs.get(idx), chronology);
-      mask.addValues(isSeasonalityMatch(forecastDateTime, lookbackDateTime) ? 1. : null);
-    }
-    return mask.build();
+  private static boolean isTrainingValue(final double[] values, final byte[] mask,
+      final int index) {
+    return !DoubleSeries.isNull(values[index]) && (mask == null || !BooleanSeries.isTrue(
+        mask[index]));
   }
 
-  private boolean isSeasonalityMatch(final DateTime dt1, final DateTime dt2) {
-    final boolean isSameTimeInDay =
-        dt1.getHourOfDay() == dt2.getHourOfDay() && dt1.getMinuteOfHour() == dt2.getMinuteOfHour()
-            && dt1.getSecondOfMinute() == dt2.getSecondOfMinute()
-            && dt1.getMillisOfSecond() == dt2.getMillisOfSecond();
-    if (seasonality.equals(Period.days(7))) {
-      return isSameTimeInDay && dt1.getDayOfWeek() == dt2.getDayOfWeek();
-    } else if (seasonality.equals(Period.days(1))) {
-      return isSameTimeInDay;
-    } else {
+  /**
+   * Assigns a seasonality phase to each time, starting from the given index. Two times have the
+   * same phase if they have the same time of day - and the same day of week for a weekly
+   * seasonality - in the given chronology. Without seasonality, all the times have the same
+   * phase.
+   *
+   * @return the number of phases
+   */
+  private int computePhases(final long[] times, final int fromIndex, final Chronology chronology,
+      final int[] phases) {
+    if (seasonality.equals(Period.ZERO)) {
+      // no seasonality --> a single phase
+      return 1;
+    }
+    final boolean weekly = seasonality.equals(Period.days(7));
+    if (!weekly && !seasonality.equals(Period.days(1))) {
       throw new UnsupportedOperationException();
     }
+    final DateTimeField millisOfDay = chronology.millisOfDay();
+    final DateTimeField dayOfWeek = chronology.dayOfWeek();
+    final Map<Long, Integer> phaseIds = new HashMap<>();
+    for (int i = fromIndex; i < times.length; i++) {
+      long phaseKey = millisOfDay.get(times[i]);
+      if (weekly) {
+        phaseKey += (long) dayOfWeek.get(times[i]) * DateTimeConstants.MILLIS_PER_DAY;
+      }
+      phases[i] = phaseIds.computeIfAbsent(phaseKey, k -> phaseIds.size());
+    }
+    return Math.max(1, phaseIds.size());
   }
 
-  private DataFrame getLookbackDf(final DataFrame inputDF, final long endTimeMillis,
-      final Chronology chronology) {
-    final int indexEnd = inputDF.getLongs(COL_TIME).find(endTimeMillis);
-    checkArgument(indexEnd != -1,
-        "Could not find index of endTime %s. endTime should exist in inputDf. This should not happen.", endTimeMillis);
-    int indexStart = indexEnd - lookback;
+  private void checkLookbackSize(final int index, final long time, final Chronology chronology) {
+    final int indexStart = index - lookback;
     if (indexStart < 0) {
       if (TimeUtils.timezonesAreEquivalent(chronology.getZone().toString(), UTC_TIMEZONE)) {
         throw new IllegalArgumentException(String.format("Invalid index. Insufficient data to compute mean/variance on lookback. index: "
@@ -288,14 +305,11 @@ public class MeanVarianceRuleDetector implements AnomalyDetector<MeanVarianceRul
       } else {
         LOG.warn("Unexpected low number of points in the training data when computing mean-variance. This can happen around a DST change. Timezone: {}. Time: {}. Number of missing points: {}.",
             chronology.getZone(),
-            endTimeMillis,
-            indexStart 
+            time,
+            indexStart
             );
-        indexStart = 0;
       }
     }
-    
-    return inputDF.slice(indexStart, indexEnd);
   }
 
   private double bounded(final double val) {
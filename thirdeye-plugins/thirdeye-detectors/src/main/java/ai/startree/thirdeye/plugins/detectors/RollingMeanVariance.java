@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.detectors;
+
+/**
+ * Mean and sample standard deviation of the values in a sliding window, maintained per bucket
+ * in O(1) per added or removed value.
+ *
+ * The variance is computed from sums shifted by the first value added to the bucket, which
+ * avoids the cancellation of the naive sum of squares when the values are far from 0.
+ */
+final class RollingMeanVariance {
+
+  private final int[] counts;
+  private final double[] sums;
+  private final boolean[] hasShift;
+  private final double[] shifts;
+  private final double[] shiftedSums;
+  private final double[] shiftedSquareSums;
+
+  RollingMeanVariance(final int numBuckets) {
+    counts = new int[numBuckets];
+    sums = new double[numBuckets];
+    hasShift = new boolean[numBuckets];
+    shifts = new double[numBuckets];
+    shiftedSums = new double[numBuckets];
+    shiftedSquareSums = new double[numBuckets];
+  }
+
+  void add(final int bucket, final double value) {
+    if (!hasShift[bucket]) {
+      shifts[bucket] = value;
+      hasShift[bucket] = true;
+    }
+    final double shifted = value - shifts[bucket];
+    counts[bucket]++;
+    sums[bucket] += value;
+    shiftedSums[bucket] += shifted;
+    shiftedSquareSums[bucket] += shifted * shifted;
+  }
+
+  void remove(final int bucket, final double value) {
+    final double shifted = value - shifts[bucket];
+    counts[bucket]--;
+    if (counts[bucket] == 0) {
+      // reset to avoid accumulating rounding errors
+      sums[bucket] = 0;
+      shiftedSums[bucket] = 0;
+      shiftedSquareSums[bucket] = 0;
+      hasShift[bucket] = false;
+      return;
+    }
+    sums[bucket] -= value;
+    shiftedSums[bucket] -= shifted;
+    shiftedSquareSums[bucket] -= shifted * shifted;
+  }
+
+  int count(final int bucket) {
+    return counts[bucket];
+  }
+
+  /**
+   * @return the mean, or NaN if the bucket is empty
+   */
+  double mean(final int bucket) {
+    return counts[bucket] == 0 ? Double.NaN : sums[bucket] / counts[bucket];
+  }
+
+  /**
+   * @return the sample standard deviation, or NaN if the bucket has less than 2 values
+   */
+  double std(final int bucket) {
+    final int count = counts[bucket];
+    if (count <= 1) {
+      return Double.NaN;
+    }
+    final double squaredDeviations = shiftedSquareSums[bucket]
+        - shiftedSums[bucket] * shiftedSums[bucket] / count;
+    return Math.sqrt(Math.max(0, squaredDeviations) / (count - 1));
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.detectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import java.util.Arrays;
+import java.util.Random;
+import org.assertj.core.data.Offset;
+import org.testng.annotations.Test;
+
+public class RollingMeanVarianceTest {
+
+  @Test
+  public void testSlidingWindowMatchesTwoPassComputation() {
+    final Random random = new Random(42);
+    final double[] values = new double[500];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 1e6 + random.nextGaussian() * 10;
+    }
+    final int window = 30;
+    final RollingMeanVariance stats = new RollingMeanVariance(1);
+    for (int i = 0; i < values.length; i++) {
+      stats.add(0, values[i]);
+      if (i >= window) {
+        stats.remove(0, values[i - window]);
+      }
+      final DoubleSeries expected = DoubleSeries.buildFrom(
+          Arrays.copyOfRange(values, Math.max(0, i - window + 1), i + 1));
+      assertThat(stats.count(0)).isEqualTo(expected.size());
+      assertThat(stats.mean(0)).isCloseTo(expected.mean().value(), Offset.offset(1e-6));
+      if (expected.size() > 1) {
+        assertThat(stats.std(0)).isCloseTo(expected.std().value(), Offset.offset(1e-6));
+      }
+    }
+  }
+
+  @Test
+  public void testBucketsAreIndependent() {
+    final RollingMeanVariance stats = new RollingMeanVariance(2);
+    stats.add(0, 1);
+    stats.add(0, 3);
+    stats.add(1, 10);
+
+    assertThat(stats.mean(0)).isEqualTo(2);
+    assertThat(stats.std(0)).isEqualTo(Math.sqrt(2));
+    assertThat(stats.mean(1)).isEqualTo(10);
+    assertThat(stats.std(1)).isNaN();
+
+    stats.remove(1, 10);
+    assertThat(stats.count(1)).isEqualTo(0);
+    assertThat(stats.mean(1)).isNaN();
+  }
+}
@@ -21,12 +21,19 @@ import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSet
 import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetGroup;
 import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetMetaData;
 import ai.startree.thirdeye.spi.ThirdEyeException;
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import ai.startree.thirdeye.spi.detection.v2.ColumnType;
 import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
 import ai.startree.thirdeye.spi.util.Pair;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheLoader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import java.util.ArrayList;
@@ -38,6 +45,7 @@ import org.apache.pinot.client.Connection;
 import org.apache.pinot.client.PinotClientException;
 import org.apache.pinot.client.ResultSet;
 import org.apache.pinot.client.ResultSetGroup;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +54,9 @@ public class PinotQueryExecutor extends CacheLoader<PinotQuery, ThirdEyeResultSe
 
   private static final Logger LOG = LoggerFactory.getLogger(PinotQueryExecutor.class);
   private static final String QUOTA_EXCEEDED_ERR = "QuotaExceededError";
+  private static final String NULL_STRING = "null";
+  // this counter should always be zero - if it's not, then the parsing in this class is not implemented correctly or some behaviour changed in Pinot
+  private static final Counter PARSING_ERROR_COUNTER = Metrics.counter("thirdeye_pinot_value_parsing_error_total");
 
   private final PinotConnectionProvider pinotConnectionProvider;
 
@@ -105,7 +116,8 @@ public class PinotQueryExecutor extends CacheLoader<PinotQuery, ThirdEyeResultSe
    * @param resultSet A result set from Pinot.
    * @return an unified {@link ThirdEyeDataFrameResultSet}.
    */
-  private static ThirdEyeDataFrameResultSet fromPinotResultSet(final ResultSet resultSet) {
+  @VisibleForTesting
+  static ThirdEyeDataFrameResultSet fromPinotResultSet(final ResultSet resultSet) {
     // Build the meta data of this result set
     final List<String> groupKeyColumnNames = new ArrayList<>();
     final List<ColumnType> groupKeyColumnTypes = new ArrayList<>();
@@ -143,48 +155,114 @@ public class PinotQueryExecutor extends CacheLoader<PinotQuery, ThirdEyeResultSe
             groupKeyColumnTypes,
             metricColumnTypes);
 
-    // Build the DataFrame - FIXME CYRIL - this is not necessary to build a DataFrame at this point
-    final List<String> columnNameWithDataType = new ArrayList<>();
-    //   Always cast dimension values to STRING type
-    for (final String groupColumnName : thirdEyeResultSetMetaData.getGroupKeyColumnNames()) {
-      columnNameWithDataType.add(groupColumnName + ":STRING");
-    }
-    columnNameWithDataType.addAll(thirdEyeResultSetMetaData.getMetricColumnNames());
-    final DataFrame.Builder dfBuilder = DataFrame.builder(columnNameWithDataType);
+    // Build the DataFrame column by column - values are parsed once into typed primitive arrays
+    final DataFrame dataFrame = new DataFrame();
     final int rowCount = resultSet.getRowCount();
-    final int metricColumnCount = resultSet.getColumnCount();
-    final int totalColumnCount = groupByColumnCount + metricColumnCount;
-    // Dump the values in ResultSet to the DataFrame
-    for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
-      final String[] columnsOfTheRow = new String[totalColumnCount];
-      // GroupBy column value(i.e., dimension values)
-      for (int groupByColumnIdx = 0; groupByColumnIdx < groupByColumnCount; groupByColumnIdx++) {
-        String valueString = null;
-        try {
-          valueString = resultSet.getGroupKeyString(rowIdx, groupByColumnIdx);
-        } catch (final Exception e) {
-          // Do nothing and subsequently insert a null value to the current series.
-        }
-        columnsOfTheRow[groupByColumnIdx] = valueString;
-      }
-      // Metric column's value
-      for (int metricColumnIdx = 0; metricColumnIdx < metricColumnCount; metricColumnIdx++) {
-        String valueString = null;
+    //   Always cast dimension values to STRING type
+    for (int groupByColumnIdx = 0; groupByColumnIdx < groupByColumnCount; groupByColumnIdx++) {
+      final String[] values = new String[rowCount];
+      for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
         try {
-          valueString = resultSet.getString(rowIdx, metricColumnIdx);
+          values[rowIdx] = resultSet.getGroupKeyString(rowIdx, groupByColumnIdx);
         } catch (final Exception e) {
-          LOG.error("Failed to get value as String from result set. Replacing with a null value. This may generate errors downstream. Please reach out to support.", e);
           // Do nothing and subsequently insert a null value to the current series.
         }
-        columnsOfTheRow[metricColumnIdx + groupByColumnCount] = valueString;
       }
-      dfBuilder.append(columnsOfTheRow);
+      // dimension columns usually have few distinct values: dictionary encode them
+      dataFrame.addSeries(groupKeyColumnNames.get(groupByColumnIdx),
+          StringSeries.buildCompressedFrom(values));
+    }
+    for (int metricColumnIdx = 0; metricColumnIdx < metricColumnNames.size(); metricColumnIdx++) {
+      dataFrame.addSeries(metricColumnNames.get(metricColumnIdx),
+          toSeries(resultSet, metricColumnIdx, metricColumnNames.get(metricColumnIdx),
+              metricColumnTypes.get(metricColumnIdx)));
     }
-    final DataFrame dataFrame = dfBuilder.build();
     // Build ThirdEye's result set
     return new ThirdEyeDataFrameResultSet(thirdEyeResultSetMetaData, dataFrame);
   }
 
+  private static Series toSeries(final ResultSet resultSet, final int columnIdx,
+      final String columnName, final ColumnType columnType) {
+    final int rowCount = resultSet.getRowCount();
+    switch (columnType.getType()) {
+      case BOOLEAN: {
+        final byte[] values = new byte[rowCount];
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+          final String value = stringOrNull(resultSet, rowIdx, columnIdx);
+          values[rowIdx] = value == null || NULL_STRING.equals(value)
+              ? BooleanSeries.NULL
+              : BooleanSeries.valueOf(Boolean.parseBoolean(value));
+        }
+        return BooleanSeries.buildFrom(values);
+      }
+      case INT:
+      case LONG: {
+        final long[] values = new long[rowCount];
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+          values[rowIdx] = parseLong(stringOrNull(resultSet, rowIdx, columnIdx), columnName);
+        }
+        return LongSeries.buildFrom(values);
+      }
+      case FLOAT:
+      case DOUBLE: {
+        final double[] values = new double[rowCount];
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+          values[rowIdx] = parseDouble(stringOrNull(resultSet, rowIdx, columnIdx), columnName);
+        }
+        return DoubleSeries.buildFrom(values);
+      }
+      default: {
+        // STRING, and OBJECT that is handled downstream
+        final String[] values = new String[rowCount];
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+          values[rowIdx] = stringOrNull(resultSet, rowIdx, columnIdx);
+        }
+        return StringSeries.buildFrom(values);
+      }
+    }
+  }
+
+  private static @Nullable String stringOrNull(final ResultSet resultSet, final int rowIdx,
+      final int columnIdx) {
+    try {
+      return resultSet.getString(rowIdx, columnIdx);
+    } catch (final Exception e) {
+      LOG.error("Failed to get value as String from result set. Replacing with a null value. This may generate errors downstream. Please reach out to support.", e);
+      return null;
+    }
+  }
+
+  private static long parseLong(final @Nullable String value, final String columnName) {
+    if (value == null || NULL_STRING.equals(value)) {
+      return LongSeries.NULL;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (final NumberFormatException e) {
+      throw parsingError(value, "long", columnName, e);
+    }
+  }
+
+  private static double parseDouble(final @Nullable String value, final String columnName) {
+    if (value == null || NULL_STRING.equals(value)) {
+      return DoubleSeries.NULL;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (final NumberFormatException e) {
+      throw parsingError(value, "double", columnName, e);
+    }
+  }
+
+  private static IllegalStateException parsingError(final String value, final String type,
+      final String columnName, final NumberFormatException cause) {
+    LOG.warn("Could not parse value {} of column {} as a {}.", value, columnName, type);
+    PARSING_ERROR_COUNTER.increment();
+    return new IllegalStateException(
+        String.format("Could not parse value %s of column %s as a %s.", value, columnName, type),
+        cause);
+  }
+
   private static List<Pair<Integer, Integer>> rowColCounts(final ResultSetGroup resultSetGroup) {
     final int resultSetCount = resultSetGroup.getResultSetCount();
     final List<Pair<Integer, Integer>> rowColCounts = new ArrayList<>(resultSetCount);
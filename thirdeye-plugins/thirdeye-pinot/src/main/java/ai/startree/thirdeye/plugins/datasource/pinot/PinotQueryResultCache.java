@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.SerializedResultSetGroup;
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetGroup;
+import ai.startree.thirdeye.spi.datasource.DataSourceResultCache;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Query result cache of a Pinot datasource.
+ *
+ * Results are stored in the {@link DataSourceResultCache} given by the datasource context: its
+ * byte budget is shared by all the datasources, and its entries are off-heap. Results are
+ * serialized as columnar blocks by {@link SerializedResultSetGroup}, and read back as typed
+ * series on a hit. If the context has no result cache, results are not cached.
+ */
+class PinotQueryResultCache {
+
+  private final @Nullable DataSourceResultCache resultCache;
+  /* loads in progress - concurrent identical queries wait for the same load */
+  private final Map<PinotQuery, CompletableFuture<ThirdEyeResultSetGroup>> loads =
+      new ConcurrentHashMap<>();
+
+  PinotQueryResultCache(final @Nullable DataSourceResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  /**
+   * Returns the cached result of the query, or loads, caches and returns it. Concurrent misses
+   * of the same query wait for a single load.
+   */
+  ThirdEyeResultSetGroup get(final PinotQuery query,
+      final Callable<ThirdEyeResultSetGroup> loader) throws Exception {
+    if (resultCache == null) {
+      return loader.call();
+    }
+    final ThirdEyeResultSetGroup cached = resultCache.get(query, SerializedResultSetGroup::read);
+    if (cached != null) {
+      return cached;
+    }
+    final CompletableFuture<ThirdEyeResultSetGroup> load = new CompletableFuture<>();
+    final CompletableFuture<ThirdEyeResultSetGroup> existingLoad = loads.putIfAbsent(query, load);
+    if (existingLoad != null) {
+      return awaitLoad(existingLoad);
+    }
+    try {
+      final ThirdEyeResultSetGroup loaded = loader.call();
+      final long size = SerializedResultSetGroup.serializedSize(loaded);
+      // a larger result could not be cached anyway
+      if (size <= Integer.MAX_VALUE) {
+        resultCache.put(query, (int) size,
+            buffer -> SerializedResultSetGroup.write(loaded, buffer));
+      }
+      load.complete(loaded);
+      return loaded;
+    } catch (final Throwable e) {
+      // waiting loads must not hang on an Error either
+      load.completeExceptionally(e);
+      throw e;
+    } finally {
+      loads.remove(query, load);
+    }
+  }
+
+  private static ThirdEyeResultSetGroup awaitLoad(
+      final CompletableFuture<ThirdEyeResultSetGroup> load) throws Exception {
+    try {
+      return load.get();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  void invalidate(final PinotQuery query) {
+    if (resultCache != null) {
+      resultCache.invalidate(query);
+    }
+  }
+}
@@ -19,37 +19,24 @@ import static com.google.common.base.Preconditions.checkArgument;
 import ai.startree.thirdeye.plugins.datasource.pinot.DemoConfigs.DemoDatasetConfig;
 import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSet;
 import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetGroup;
-import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.ThirdEyeException;
 import ai.startree.thirdeye.spi.ThirdEyeStatus;
 import ai.startree.thirdeye.spi.api.DemoDatasetApi;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
-import ai.startree.thirdeye.spi.datasource.RelationalQuery;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
 import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
-import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.UncheckedExecutionException;
-import io.micrometer.core.instrument.Metrics;
-import io.micrometer.core.instrument.Tag;
-import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import java.io.IOException;
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import org.apache.commons.io.FileUtils;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
@@ -67,13 +54,11 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
   private final SqlExpressionBuilder sqlExpressionBuilder;
   private final SqlLanguage sqlLanguage;
   private final PinotDatasetReader datasetReader;
-  private final LoadingCache<PinotQuery, ThirdEyeResultSetGroup> queryCache;
+  private final PinotQueryResultCache queryCache;
+  private final CacheLoader<PinotQuery, ThirdEyeResultSetGroup> queryLoader;
   private final PinotThirdEyeDataSourceConfig config;
   private final Runnable queryExecutorCloser;
 
-  /* Use case: Log Query Cache stats few min */
-  private long queryCacheTs = 0;
-
   @Inject
   public PinotThirdEyeDataSource(
       final ThirdEyeDataSourceContext context,
@@ -87,65 +72,15 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
     this.dataSourceDTO = context.getDataSourceDTO();
     this.name = context.getDataSourceDTO().getName();
 
-    /* Uses LoadingCache to cache queries */
-    this.queryCache = buildQueryCache(queryExecutor);
-    GuavaCacheMetrics.monitor(Metrics.globalRegistry, queryCache, "thirdeye_cache_pinot_query",
-        List.of(Tag.of("datasource_name", name),
-            Tag.of("namespace", optional(dataSourceDTO.namespace()).orElse("null"))));
-    
+    /* Query results are cached in the result cache shared by all datasources */
+    this.queryCache = new PinotQueryResultCache(context.getResultCache());
+    this.queryLoader = queryExecutor;
+
     // keep reference to the queryExecutor to close it at the end
     this.queryExecutorCloser = queryExecutor::close;
     this.config = config;
   }
 
-  private static LoadingCache<PinotQuery, ThirdEyeResultSetGroup> buildQueryCache(
-      final CacheLoader<PinotQuery, ThirdEyeResultSetGroup> cacheLoader) {
-    Preconditions.checkNotNull(cacheLoader, "A cache loader is required.");
-
-    // ResultSetGroup Cache. The size of this cache is limited by the total number of buckets in all ResultSetGroup.
-    // We estimate that 1 bucket (including overhead) consumes 1KB and this cache is allowed to use up to 50% of max
-    // heap space.
-    final long maxBucketNumber = getApproximateMaxBucketNumber(
-        Constants.DEFAULT_HEAP_PERCENTAGE_FOR_RESULTSETGROUP_CACHE);
-    LOG.debug("Max bucket number for {}'s cache is set to {}", cacheLoader,
-        maxBucketNumber);
-
-    return CacheBuilder.newBuilder()
-        .expireAfterWrite(15, TimeUnit.MINUTES)
-        .maximumWeight(maxBucketNumber)
-        .weigher(PinotThirdEyeDataSource::cacheWeigher)
-        .recordStats()
-        .build(cacheLoader);
-  }
-
-  private static int cacheWeigher(final RelationalQuery relationalQuery,
-      final ThirdEyeResultSetGroup resultSetGroup) {
-    final int resultSetCount = resultSetGroup.size();
-    int weight = 0;
-    for (int idx = 0; idx < resultSetCount; ++idx) {
-      final ThirdEyeResultSet resultSet = resultSetGroup.get(idx);
-      weight += ((resultSet.getColumnCount() + resultSet.getGroupKeyLength()) * resultSet
-          .getRowCount());
-    }
-    return weight;
-  }
-
-  private static long getApproximateMaxBucketNumber(final int percentage) {
-    long jvmMaxMemoryInBytes = Runtime.getRuntime().maxMemory();
-    if (jvmMaxMemoryInBytes == Long.MAX_VALUE) { // Check upper bound
-      jvmMaxMemoryInBytes = Constants.DEFAULT_UPPER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB
-          * FileUtils.ONE_MB; // MB to Bytes
-    } else { // Check lower bound
-      final long lowerBoundInBytes =
-          Constants.DEFAULT_LOWER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB
-              * FileUtils.ONE_MB; // MB to Bytes
-      if (jvmMaxMemoryInBytes < lowerBoundInBytes) {
-        jvmMaxMemoryInBytes = lowerBoundInBytes;
-      }
-    }
-    return (jvmMaxMemoryInBytes / 102400) * percentage;
-  }
-
   @Override
   public void init(final ThirdEyeDataSourceContext context) {
     /* everything is now done in the constructor */
@@ -166,22 +101,12 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
    */
   private ThirdEyeResultSetGroup executeSQL(final PinotQuery pinotQuery) throws ThirdEyeException {
     try {
-      final ThirdEyeResultSetGroup thirdEyeResultSetGroup = queryCache.get(pinotQuery);
-      final long current = System.currentTimeMillis();
-
-      /* Log query stats with min interval of x minutes */
-      if (current - queryCacheTs > Duration.ofMinutes(5).toMillis()) {
-        LOG.info("queryCache.stats: {}", queryCache.stats());
-        queryCacheTs = current;
-      }
-      return thirdEyeResultSetGroup;
-    } catch (ExecutionException | UncheckedExecutionException e) {
+      return queryCache.get(pinotQuery, () -> queryLoader.load(pinotQuery));
+    } catch (final Exception e) {
       LOG.error("Failed to execute SQL: {} with options {}", pinotQuery.getQuery(),
           pinotQuery.getOptions(), e);
-      LOG.error("queryCache.stats: {}", queryCache.stats());
-      Throwable cause = e.getCause();
-      if (cause instanceof ThirdEyeException) {
-        throw (ThirdEyeException) cause;
+      if (e instanceof ThirdEyeException) {
+        throw (ThirdEyeException) e;
       } else {
         throw new ThirdEyeException(e, ThirdEyeStatus.ERR_PINOT_QUERY_EXECUTION, e.getMessage(), pinotQuery.getQuery());  
       }
@@ -232,7 +157,7 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
     final PinotQuery pinotQuery = new PinotQuery(query, null, dataSourceDTO.getDefaultQueryOptions());
 
     /* Disable caching for validate queries */
-    queryCache.refresh(pinotQuery);
+    queryCache.invalidate(pinotQuery);
     final ThirdEyeResultSetGroup result = executeSQL(pinotQuery);
     return result.size() > 0 && result.get(0).getRowCount() > 0;
   }
@@ -13,16 +13,20 @@
  */
 package ai.startree.thirdeye.plugins.datasource.pinot;
 
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeDataFrameResultSet;
 import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSet;
 import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
 import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
 import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import ai.startree.thirdeye.spi.detection.v2.AbstractDataTableImpl;
 import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,15 +57,31 @@ public class ThirdEyeResultSetDataTable extends AbstractDataTableImpl {
     // TODO CYRIL check if groupKey is still used
     for (int colIdx = 0; colIdx < thirdEyeResultSet.getGroupKeyLength(); colIdx++) {
       final String columnName = thirdEyeResultSet.getGroupKeyColumnName(colIdx);
+      if (thirdEyeResultSet instanceof ThirdEyeDataFrameResultSet dataFrameResultSet) {
+        // the group key series is already built, and dictionary encoded if it has few values
+        final Series series = dataFrameResultSet.groupKeySeries(colIdx);
+        if (series.type() == SeriesType.STRING) {
+          df.addSeries(columnName, series);
+          continue;
+        }
+      }
       final String[] vals = new String[rowCount];
       for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
         vals[rowIdx] = thirdEyeResultSet.getGroupKeyColumnValue(rowIdx, colIdx);
       }
-      df.addSeries(columnName, StringSeries.buildFrom(vals));
+      df.addSeries(columnName, StringSeries.buildCompressedFrom(vals));
     }
     for (int colIdx = 0; colIdx < thirdEyeResultSet.getColumnCount(); colIdx++) {
       final String columnName = thirdEyeResultSet.getColumnName(colIdx);
       final ColumnDataType type = thirdEyeResultSet.getColumnType(colIdx).getType();
+      if (thirdEyeResultSet instanceof ThirdEyeDataFrameResultSet dataFrameResultSet) {
+        // the values are already parsed in a typed series - reuse it without copy
+        final Series series = dataFrameResultSet.metricSeries(colIdx);
+        if (series.type() == expectedSeriesType(type)) {
+          df.addSeries(columnName, series);
+          continue;
+        }
+      }
       switch (type) {
         case BOOLEAN:
           final byte[] bVals = new byte[rowCount];
@@ -123,6 +143,16 @@ public class ThirdEyeResultSetDataTable extends AbstractDataTableImpl {
     return df;
   }
 
+  private static @Nullable SeriesType expectedSeriesType(final ColumnDataType type) {
+    return switch (type) {
+      case BOOLEAN -> SeriesType.BOOLEAN;
+      case INT, LONG -> SeriesType.LONG;
+      case FLOAT, DOUBLE -> SeriesType.DOUBLE;
+      case STRING -> SeriesType.STRING;
+      default -> null;
+    };
+  }
+
   private byte boolOrNull(final ThirdEyeResultSet thirdEyeResultSet, final int rowIdx,
       final int colIdx) {
     final Boolean aBoolean = thirdEyeResultSet.getBoolean(rowIdx, colIdx);
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot.resultset;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes a {@link ThirdEyeResultSetGroup} as compact columnar blocks, to be stored off-heap.
+ *
+ * For each result set, the metadata is written first, then the columns one after the other. Each
+ * column starts with its type and a flag byte, then its values: LONG and DOUBLE columns as raw
+ * 8 bytes values, BOOLEAN columns as raw bytes, STRING columns as length-prefixed UTF-8 bytes. Null
+ * values are encoded with the null values of the Series implementations, so a round trip does not
+ * change the data. A dictionary-encoded STRING column is encoded again when it is read.
+ */
+public final class SerializedResultSetGroup {
+
+  private static final int NULL_STRING_LENGTH = -1;
+  private static final byte DICTIONARY_ENCODED = 1;
+
+  private SerializedResultSetGroup() {
+    // left blank
+  }
+
+  /**
+   * @return the number of bytes written by {@link #write(ThirdEyeResultSetGroup, ByteBuffer)}.
+   */
+  public static long serializedSize(final ThirdEyeResultSetGroup resultSetGroup) {
+    long size = 4;
+    for (final ThirdEyeDataFrameResultSet resultSet : dataFrameResultSets(resultSetGroup)) {
+      final ThirdEyeResultSetMetaData metaData = resultSet.getMetaData();
+      // row count, group key column count and metric column count
+      size += 12;
+      for (final String columnName : metaData.getAllColumnNames()) {
+        size += serializedSize(columnName) + 1;
+        // type and flags
+        size += 2 + serializedSize(resultSet.getDataFrame().get(columnName));
+      }
+    }
+    return size;
+  }
+
+  public static void write(final ThirdEyeResultSetGroup resultSetGroup, final ByteBuffer buffer) {
+    final List<ThirdEyeDataFrameResultSet> resultSets = dataFrameResultSets(resultSetGroup);
+    buffer.putInt(resultSets.size());
+    for (final ThirdEyeDataFrameResultSet resultSet : resultSets) {
+      final ThirdEyeResultSetMetaData metaData = resultSet.getMetaData();
+      buffer.putInt(resultSet.getDataFrame().size());
+      buffer.putInt(metaData.getGroupKeyColumnNames().size());
+      buffer.putInt(metaData.getMetricColumnNames().size());
+      for (int i = 0; i < metaData.getAllColumnNames().size(); i++) {
+        writeString(buffer, metaData.getAllColumnNames().get(i));
+        buffer.put((byte) metaData.getAllColumnTypes().get(i).getType().ordinal());
+      }
+      for (final String columnName : metaData.getAllColumnNames()) {
+        write(buffer, resultSet.getDataFrame().get(columnName));
+      }
+    }
+  }
+
+  public static ThirdEyeResultSetGroup read(final ByteBuffer buffer) {
+    final int resultSetCount = buffer.getInt();
+    final List<ThirdEyeResultSet> resultSets = new ArrayList<>(resultSetCount);
+    for (int r = 0; r < resultSetCount; r++) {
+      final int rowCount = buffer.getInt();
+      final int groupKeyColumnCount = buffer.getInt();
+      final int columnCount = groupKeyColumnCount + buffer.getInt();
+      final List<String> columnNames = new ArrayList<>(columnCount);
+      final List<ColumnType> columnTypes = new ArrayList<>(columnCount);
+      for (int i = 0; i < columnCount; i++) {
+        columnNames.add(readString(buffer));
+        columnTypes.add(new ColumnType(ColumnDataType.values()[buffer.get()]));
+      }
+      final DataFrame dataFrame = new DataFrame();
+      for (final String columnName : columnNames) {
+        dataFrame.addSeries(columnName, read(buffer, rowCount));
+      }
+      final ThirdEyeResultSetMetaData metaData = new ThirdEyeResultSetMetaData(
+          columnNames.subList(0, groupKeyColumnCount),
+          columnNames.subList(groupKeyColumnCount, columnCount),
+          columnTypes.subList(0, groupKeyColumnCount),
+          columnTypes.subList(groupKeyColumnCount, columnCount));
+      resultSets.add(new ThirdEyeDataFrameResultSet(metaData, dataFrame));
+    }
+    return new ThirdEyeResultSetGroup(resultSets);
+  }
+
+  private static List<ThirdEyeDataFrameResultSet> dataFrameResultSets(
+      final ThirdEyeResultSetGroup resultSetGroup) {
+    final List<ThirdEyeDataFrameResultSet> resultSets = new ArrayList<>(resultSetGroup.size());
+    for (final ThirdEyeResultSet resultSet : resultSetGroup.getResultSets()) {
+      checkState(resultSet instanceof ThirdEyeDataFrameResultSet,
+          "Unsupported result set implementation: %s", resultSet.getClass().getSimpleName());
+      resultSets.add((ThirdEyeDataFrameResultSet) resultSet);
+    }
+    return resultSets;
+  }
+
+  private static long serializedSize(final Series series) {
+    return switch (series.type()) {
+      case LONG, DOUBLE -> 8L * series.size();
+      case BOOLEAN -> series.size();
+      case STRING -> {
+        long size = 0;
+        for (int i = 0; i < series.size(); i++) {
+          size += serializedSize(((StringSeries) series).get(i));
+        }
+        yield size;
+      }
+      default -> throw new IllegalStateException("Unsupported series type: " + series.type());
+    };
+  }
+
+  private static void write(final ByteBuffer buffer, final Series series) {
+    buffer.put((byte) series.type().ordinal());
+    buffer.put(series instanceof StringSeries strings && strings.isDictionaryEncoded()
+        ? DICTIONARY_ENCODED
+        : 0);
+    switch (series.type()) {
+      case LONG -> {
+        final long[] values = ((LongSeries) series).values();
+        buffer.asLongBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+      }
+      case DOUBLE -> {
+        final double[] values = ((DoubleSeries) series).values();
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+      }
+      case BOOLEAN -> buffer.put(((BooleanSeries) series).values());
+      case STRING -> {
+        final StringSeries strings = (StringSeries) series;
+        // get() does not decode the whole series
+        for (int i = 0; i < strings.size(); i++) {
+          writeString(buffer, strings.get(i));
+        }
+      }
+      default -> throw new IllegalStateException("Unsupported series type: " + series.type());
+    }
+  }
+
+  private static Series read(final ByteBuffer buffer, final int rowCount) {
+    final SeriesType type = SeriesType.values()[buffer.get()];
+    final boolean dictionaryEncoded = buffer.get() == DICTIONARY_ENCODED;
+    return switch (type) {
+      case LONG -> {
+        final long[] values = new long[rowCount];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + 8 * rowCount);
+        yield LongSeries.buildFrom(values);
+      }
+      case DOUBLE -> {
+        final double[] values = new double[rowCount];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * rowCount);
+        yield DoubleSeries.buildFrom(values);
+      }
+      case BOOLEAN -> {
+        final byte[] values = new byte[rowCount];
+        buffer.get(values);
+        yield BooleanSeries.buildFrom(values);
+      }
+      case STRING -> {
+        final String[] values = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+          values[i] = readString(buffer);
+        }
+        yield dictionaryEncoded
+            ? StringSeries.buildCompressedFrom(values)
+            : StringSeries.buildFrom(values);
+      }
+      default -> throw new IllegalStateException("Unsupported series type: " + type);
+    };
+  }
+
+  private static long serializedSize(final String value) {
+    if (value == null) {
+      return 4;
+    }
+    long size = 4;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        size += 1;
+      } else if (c < 0x800) {
+        size += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        size += 4;
+        i++;
+      } else {
+        // an unpaired surrogate is encoded as '?'
+        size += Character.isSurrogate(c) ? 1 : 3;
+      }
+    }
+    return size;
+  }
+
+  private static void writeString(final ByteBuffer buffer, final String value) {
+    if (value == null) {
+      buffer.putInt(NULL_STRING_LENGTH);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+    final int length = buffer.getInt();
+    if (length == NULL_STRING_LENGTH) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -13,7 +13,10 @@
  */
 package ai.startree.thirdeye.plugins.datasource.pinot.resultset;
 
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
 import ai.startree.thirdeye.spi.detection.v2.ColumnType;
 import com.google.common.base.Preconditions;
 import java.sql.ResultSet;
@@ -78,6 +81,67 @@ public class ThirdEyeDataFrameResultSet extends AbstractThirdEyeResultSet {
         .getString(rowIdx);
   }
 
+  @Override
+  public Long getLong(final int rowIdx, final int columnIdx) {
+    final Series series = metricSeries(columnIdx);
+    if (series.type() == SeriesType.STRING) {
+      return super.getLong(rowIdx, columnIdx);
+    }
+    return series.isNull(rowIdx) ? null : series.getLong(rowIdx);
+  }
+
+  @Override
+  public Integer getInteger(final int rowIdx, final int columnIdx) {
+    final Series series = metricSeries(columnIdx);
+    if (series.type() == SeriesType.STRING) {
+      return super.getInteger(rowIdx, columnIdx);
+    }
+    return series.isNull(rowIdx) ? null : (int) series.getLong(rowIdx);
+  }
+
+  @Override
+  public Double getDouble(final int rowIdx, final int columnIdx) {
+    final Series series = metricSeries(columnIdx);
+    if (series.type() == SeriesType.STRING) {
+      return super.getDouble(rowIdx, columnIdx);
+    }
+    return series.isNull(rowIdx) ? null : series.getDouble(rowIdx);
+  }
+
+  @Override
+  public Boolean getBoolean(final int rowIdx, final int columnIdx) {
+    final Series series = metricSeries(columnIdx);
+    if (series.type() != SeriesType.BOOLEAN) {
+      return super.getBoolean(rowIdx, columnIdx);
+    }
+    return series.isNull(rowIdx) ? null : BooleanSeries.booleanValueOf(series.getBoolean(rowIdx));
+  }
+
+  /**
+   * Returns the typed series of a metric column. Series are immutable and can be shared.
+   */
+  public Series metricSeries(final int columnIdx) {
+    Preconditions.checkPositionIndexes(0, columnIdx,
+        thirdEyeResultSetMetaData.getMetricColumnNames().size() - 1);
+    return dataFrame.get(thirdEyeResultSetMetaData.getMetricColumnNames().get(columnIdx));
+  }
+
+  /**
+   * Returns the string series of a group key column. Series are immutable and can be shared.
+   */
+  public Series groupKeySeries(final int columnIdx) {
+    Preconditions.checkPositionIndexes(0, columnIdx, getGroupKeyLength() - 1);
+    return dataFrame.get(thirdEyeResultSetMetaData.getGroupKeyColumnNames().get(columnIdx));
+  }
+
+  public ThirdEyeResultSetMetaData getMetaData() {
+    return thirdEyeResultSetMetaData;
+  }
+
+  public DataFrame getDataFrame() {
+    return dataFrame;
+  }
+
   @Override
   public int getGroupKeyLength() {
     return thirdEyeResultSetMetaData.getGroupKeyColumnNames().size();
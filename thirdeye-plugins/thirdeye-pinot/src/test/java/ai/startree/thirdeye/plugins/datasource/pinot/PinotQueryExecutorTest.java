@@ -14,9 +14,15 @@
 package ai.startree.thirdeye.plugins.datasource.pinot;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import org.apache.pinot.client.ResultTableResultSet;
 import org.testng.annotations.Test;
 
 public class PinotQueryExecutorTest {
@@ -56,4 +62,62 @@ public class PinotQueryExecutorTest {
     assertThat(output).isEqualTo(expectedOptionString+BASE_QUERY);
 
   }
+
+  @Test
+  public void testFromPinotResultSetBuildsTypedSeries() throws Exception {
+    final String resultTable = """
+        {
+          "dataSchema": {
+            "columnNames": ["ts", "country", "views", "ratio", "flag"],
+            "columnDataTypes": ["LONG", "STRING", "INT", "DOUBLE", "BOOLEAN"]
+          },
+          "rows": [
+            [1000, "us", 12, 0.5, true],
+            [2000, "fr", null, null, false]
+          ]
+        }
+        """;
+    final ResultTableResultSet resultSet = new ResultTableResultSet(
+        new ObjectMapper().readTree(resultTable));
+
+    final DataFrame df = new ThirdEyeResultSetDataTable(
+        PinotQueryExecutor.fromPinotResultSet(resultSet)).getDataFrame();
+
+    assertThat(df.get("ts").type()).isEqualTo(SeriesType.LONG);
+    assertThat(df.getLongs("ts").values()).containsExactly(1000L, 2000L);
+    assertThat(df.get("country").type()).isEqualTo(SeriesType.STRING);
+    assertThat(df.getStrings("country").values()).containsExactly("us", "fr");
+    assertThat(df.get("views").type()).isEqualTo(SeriesType.LONG);
+    assertThat(df.getLong("views", 0)).isEqualTo(12L);
+    assertThat(df.isNull("views", 1)).isTrue();
+    assertThat(df.get("ratio").type()).isEqualTo(SeriesType.DOUBLE);
+    assertThat(df.getDouble("ratio", 0)).isEqualTo(0.5);
+    assertThat(df.isNull("ratio", 1)).isTrue();
+    assertThat(df.get("flag").type()).isEqualTo(SeriesType.BOOLEAN);
+    assertThat(df.getBoolean("flag", 0)).isEqualTo(BooleanSeries.TRUE);
+    assertThat(df.getBoolean("flag", 1)).isEqualTo(BooleanSeries.FALSE);
+  }
+
+  @Test
+  public void testFromPinotResultSetFailsOnParsingError() throws Exception {
+    final String resultTable = """
+        {
+          "dataSchema": {
+            "columnNames": ["views"],
+            "columnDataTypes": ["LONG"]
+          },
+          "rows": [
+            [12],
+            ["not a number"]
+          ]
+        }
+        """;
+    final ResultTableResultSet resultSet = new ResultTableResultSet(
+        new ObjectMapper().readTree(resultTable));
+
+    assertThatThrownBy(() -> PinotQueryExecutor.fromPinotResultSet(resultSet))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("views")
+        .hasMessageContaining("not a number");
+  }
 }
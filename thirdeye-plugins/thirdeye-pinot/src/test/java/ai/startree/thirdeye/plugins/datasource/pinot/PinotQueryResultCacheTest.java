@@ -0,0 +1,180 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.SerializedResultSetGroup;
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeDataFrameResultSet;
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetGroup;
+import ai.startree.thirdeye.plugins.datasource.pinot.resultset.ThirdEyeResultSetMetaData;
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import ai.startree.thirdeye.spi.datasource.DataSourceResultCache;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.testng.annotations.Test;
+
+public class PinotQueryResultCacheTest {
+
+  private static ThirdEyeResultSetGroup resultSetGroup() {
+    final ThirdEyeResultSetMetaData metaData = new ThirdEyeResultSetMetaData(
+        List.of("country"),
+        List.of("ts", "value", "flag"),
+        List.of(new ColumnType(ColumnDataType.STRING)),
+        List.of(new ColumnType(ColumnDataType.LONG),
+            new ColumnType(ColumnDataType.DOUBLE),
+            new ColumnType(ColumnDataType.BOOLEAN)));
+    final DataFrame dataFrame = new DataFrame()
+        .addSeries("country", StringSeries.buildFrom("US", null, "Françe 😀"))
+        .addSeries("ts", LongSeries.buildFrom(1L, LongSeries.NULL, 3L))
+        .addSeries("value", DoubleSeries.buildFrom(1.5, 2.5, DoubleSeries.NULL))
+        .addSeries("flag", BooleanSeries.buildFrom(BooleanSeries.TRUE, BooleanSeries.NULL,
+            BooleanSeries.FALSE));
+    return new ThirdEyeResultSetGroup(List.of(new ThirdEyeDataFrameResultSet(metaData,
+        dataFrame)));
+  }
+
+  private static PinotQuery query(final String sql) {
+    return new PinotQuery(sql, "table", Map.of());
+  }
+
+  private static ThirdEyeResultSetGroup roundTrip(final ThirdEyeResultSetGroup resultSetGroup) {
+    final long size = SerializedResultSetGroup.serializedSize(resultSetGroup);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+    SerializedResultSetGroup.write(resultSetGroup, buffer);
+    assertThat(buffer.remaining()).isEqualTo(0);
+    buffer.flip();
+    return SerializedResultSetGroup.read(buffer);
+  }
+
+  @Test
+  public void testSerializationRoundTrip() {
+    final ThirdEyeResultSetGroup expected = resultSetGroup();
+    final ThirdEyeResultSetGroup actual = roundTrip(expected);
+
+    final ThirdEyeDataFrameResultSet expectedResultSet =
+        (ThirdEyeDataFrameResultSet) expected.get(0);
+    final ThirdEyeDataFrameResultSet actualResultSet = (ThirdEyeDataFrameResultSet) actual.get(0);
+    assertThat(actualResultSet.getMetaData()).isEqualTo(expectedResultSet.getMetaData());
+    assertThat(actualResultSet.getDataFrame()).isEqualTo(expectedResultSet.getDataFrame());
+  }
+
+  @Test
+  public void testSerializationKeepsDictionaryEncoding() {
+    final String[] values = new String[100];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i % 2 == 0 ? "US" : "FR";
+    }
+    final StringSeries encoded = StringSeries.buildCompressedFrom(values);
+    assertThat(encoded.isDictionaryEncoded()).isTrue();
+    final ThirdEyeResultSetGroup resultSetGroup = new ThirdEyeResultSetGroup(List.of(
+        new ThirdEyeDataFrameResultSet(new ThirdEyeResultSetMetaData(List.of("country"),
+            List.of(), List.of(new ColumnType(ColumnDataType.STRING)), List.of()),
+            new DataFrame().addSeries("country", encoded))));
+
+    final DataFrame actual = ((ThirdEyeDataFrameResultSet) roundTrip(resultSetGroup).get(0))
+        .getDataFrame();
+
+    assertThat(actual.getStrings("country").isDictionaryEncoded()).isTrue();
+    assertThat(actual.getStrings("country").toList()).isEqualTo(encoded.toList());
+  }
+
+  @Test
+  public void testHitReadsTheSerializedResult() throws Exception {
+    final MapResultCache resultCache = new MapResultCache();
+    final PinotQueryResultCache cache = new PinotQueryResultCache(resultCache);
+    final AtomicInteger loads = new AtomicInteger();
+    final ThirdEyeResultSetGroup expected = resultSetGroup();
+
+    final ThirdEyeResultSetGroup miss = cache.get(query("SELECT 1"), () -> {
+      loads.incrementAndGet();
+      return expected;
+    });
+    final ThirdEyeResultSetGroup hit = cache.get(query("SELECT 1"), () -> {
+      loads.incrementAndGet();
+      return expected;
+    });
+
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(miss).isSameAs(expected);
+    assertThat(((ThirdEyeDataFrameResultSet) hit.get(0)).getDataFrame())
+        .isEqualTo(((ThirdEyeDataFrameResultSet) expected.get(0)).getDataFrame());
+    assertThat(resultCache.values.get(query("SELECT 1")).capacity())
+        .isEqualTo(SerializedResultSetGroup.serializedSize(expected));
+
+    cache.invalidate(query("SELECT 1"));
+    cache.get(query("SELECT 1"), () -> {
+      loads.incrementAndGet();
+      return expected;
+    });
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWithoutResultCacheResultsAreNotCached() throws Exception {
+    final PinotQueryResultCache cache = new PinotQueryResultCache(null);
+    final AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      cache.get(query("SELECT 1"), () -> {
+        loads.incrementAndGet();
+        return resultSetGroup();
+      });
+    }
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  /**
+   * Unbounded heap implementation of the result cache.
+   */
+  private static class MapResultCache implements DataSourceResultCache {
+
+    private final Map<Object, ByteBuffer> values = new HashMap<>();
+
+    @Override
+    public <T> T get(final Object key, final Function<ByteBuffer, T> reader) {
+      final ByteBuffer value = values.get(key);
+      return value == null ? null : reader.apply(value.asReadOnlyBuffer());
+    }
+
+    @Override
+    public void put(final Object key, final int sizeInBytes, final Consumer<ByteBuffer> writer) {
+      final ByteBuffer value = ByteBuffer.allocate(sizeInBytes);
+      writer.accept(value.duplicate());
+      values.put(key, value);
+    }
+
+    @Override
+    public void invalidate(final Object key) {
+      values.remove(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+      values.clear();
+    }
+  }
+}
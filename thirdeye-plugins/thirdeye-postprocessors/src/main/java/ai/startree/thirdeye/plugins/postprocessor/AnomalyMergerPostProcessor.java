@@ -40,7 +40,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -342,10 +344,10 @@ public class AnomalyMergerPostProcessor implements AnomalyPostProcessor {
         persistenceAnomalies,
         detectionInterval);
     if (!anomaliesToUpdate.isEmpty()) {
-      // exclude vanished anomalies from merge operation
-      // need to wrap in the emptiness test, because ArrayList.removeAll does not check if the collection is empty and loops through all elements if the input collection is empty
-      // TODO CYRIL -- all these array/set manipulations could be removed by merging some of the functions - for the moment focus is on readibility
-      persistenceAnomalies.removeAll(anomaliesToUpdate); 
+      // exclude vanished anomalies from merge operation - compare by reference: the hash of an anomaly depends on mutable fields
+      final Set<AnomalyDTO> vanishedAnomalies = Collections.newSetFromMap(new IdentityHashMap<>());
+      vanishedAnomalies.addAll(anomaliesToUpdate);
+      persistenceAnomalies.removeIf(vanishedAnomalies::contains);
     }
     
     final List<AnomalyDTO> mergedAnomalies = doMerge(operatorAnomalies, persistenceAnomalies);
@@ -397,9 +399,7 @@ public class AnomalyMergerPostProcessor implements AnomalyPostProcessor {
       if (existingAnomaly.getChildIds() == null || existingAnomaly.getChildIds().isEmpty()) {
         continue;
       }
-      // we cannot get the children from existingAnomaly.getChildren() - getChildren child anomalies objects are not the same as child anomalies objects from the persistenceAnomalies list
-      // so the mutation done in the previous loop does not affect existingAnomaly.getChildren() - hence we get the ids from the parent and get the anomalies from idToPersistedAnomaly
-      // eventually we may not event want to populate children when fetching existing anomalies for this use case - it's making things slow - we should only rely on childIds - TODO CYRIL
+      // only consider the children in the merge window - children outside of the merge window are not in persistenceAnomalies
       final Set<AnomalyDTO> children = existingAnomaly.getChildIds()
           .stream()
           .map(idToPersistedAnomaly::get)
@@ -460,16 +460,52 @@ public class AnomalyMergerPostProcessor implements AnomalyPostProcessor {
                 + "persistence layer before merging anomalies by enumeration.");
       }
 
-      return anomalyManager.filter(new AnomalyFilter()
-          .setAlertId(alertId)
-          .setEnumerationItemId(enumerationItemId)
-          .setStartEndWindow(new Interval(mergeLowerBound, mergeUpperBound))
-      );
+      final List<AnomalyDTO> anomalies = new ArrayList<>(anomalyManager.filterWithoutChildren(
+          new AnomalyFilter()
+              .setAlertId(alertId)
+              .setEnumerationItemId(enumerationItemId)
+              .setStartEndWindow(new Interval(mergeLowerBound, mergeUpperBound))
+      ));
+      linkChildren(anomalies);
+      return anomalies;
     } else {
       throw new UnsupportedOperationException("Unknown DetectionPipelineUsage: " + usage);
     }
   }
 
+  /**
+   * Sets the children of the parent anomalies, based on their childIds. Children in the merge
+   * window are the anomalies of the list: a mutation of a child is visible from its parent.
+   * Children outside the merge window - a parent can start before the merge window - are fetched
+   * by id, with a single query.
+   */
+  private void linkChildren(final List<AnomalyDTO> anomalies) {
+    final Map<Long, AnomalyDTO> idToAnomaly = new HashMap<>();
+    for (final AnomalyDTO anomaly : anomalies) {
+      idToAnomaly.put(anomaly.getId(), anomaly);
+    }
+    final List<AnomalyDTO> parents = anomalies.stream()
+        .filter(a -> a.getChildIds() != null && !a.getChildIds().isEmpty())
+        .filter(a -> a.getChildren() == null || a.getChildren().isEmpty())
+        .toList();
+    final List<Long> missingChildIds = parents.stream()
+        .flatMap(parent -> parent.getChildIds().stream())
+        .filter(id -> !idToAnomaly.containsKey(id))
+        .toList();
+    if (!missingChildIds.isEmpty()) {
+      for (final AnomalyDTO child : anomalyManager.findByIds(missingChildIds)) {
+        idToAnomaly.put(child.getId(), child);
+      }
+    }
+    for (final AnomalyDTO parent : parents) {
+      final Set<AnomalyDTO> children = new HashSet<>();
+      for (final Long childId : parent.getChildIds()) {
+        optional(idToAnomaly.get(childId)).ifPresent(children::add);
+      }
+      parent.setChildren(children);
+    }
+  }
+
   @VisibleForTesting
   protected List<AnomalyDTO> doMerge(final List<AnomalyDTO> operatorAnomalies,
       final List<AnomalyDTO> persistenceAnomalies) {
@@ -102,7 +102,7 @@ public class AnomalyMergerPostProcessorTest {
     anomalyId = 1000L;
     existingAnomalies = new ArrayList<>();
     anomalyManager = mock(AnomalyManager.class);
-    when(anomalyManager.filter(any(AnomalyFilter.class)))
+    when(anomalyManager.filterWithoutChildren(any(AnomalyFilter.class)))
         .then(i -> {
           final AnomalyFilter filter = (AnomalyFilter) i.getArguments()[0];
           // pseudo database that filters by start time, end time, enumerationItemId
@@ -113,6 +113,13 @@ public class AnomalyMergerPostProcessorTest {
                   .equals(a.getEnumerationItem().getId()))
               .collect(Collectors.toList());
         });
+    when(anomalyManager.findByIds(any()))
+        .then(i -> {
+          final List<Long> ids = (List<Long>) i.getArguments()[0];
+          return existingAnomalies.stream()
+              .filter(a -> ids.contains(a.getId()))
+              .collect(Collectors.toList());
+        });
     detectionSpec = new AnomalyMergerPostProcessorSpec().setAnomalyManager(
         anomalyManager).setAlertId(ALERT_ID).setUsage(DetectionPipelineUsage.DETECTION);
     detectionMerger = new AnomalyMergerPostProcessor(detectionSpec);
@@ -160,6 +167,24 @@ public class AnomalyMergerPostProcessorTest {
     assertThat(output).isEqualTo(Set.of(newAnomaly));
   }
 
+  @Test
+  public void testMergeWithExistingParentLinksChildrenByIds() {
+    final AnomalyDTO e1 = existingAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H).setChild(true);
+    final AnomalyDTO e2 = existingAnomaly(JANUARY_1_2021_02H, JANUARY_1_2021_03H).setChild(true);
+    // as returned by the database: only the child ids are set
+    final AnomalyDTO parent = existingAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_03H);
+    parent.setChildIds(new HashSet<>(Set.of(e1.getId(), e2.getId())));
+    existingAnomalies = listOf(parent, e1, e2);
+    final AnomalyDTO n1 = newAnomaly(JANUARY_1_2021_03H, JANUARY_1_2021_04H);
+    // e1 is not in the merge window - it is fetched by id
+    final Interval detectionInterval = new Interval(JANUARY_1_2021_03H, JANUARY_1_2021_04H, UTC);
+    final Set<AnomalyDTO> output = detectionMerger.merge(List.of(n1), detectionInterval);
+
+    assertThat(output).isEqualTo(Set.of(parent));
+    assertThat(parent.getEndTime()).isEqualTo(JANUARY_1_2021_04H);
+    assertThat(parent.getChildren()).isEqualTo(Set.of(e1, e2, n1));
+  }
+
   @Test
   public void testSingleAnomalyMergeWithExisting() {
     final AnomalyDTO existingAnomaly = existingAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H);
@@ -528,7 +553,7 @@ public class AnomalyMergerPostProcessorTest {
     detectionMerger = new AnomalyMergerPostProcessor(detectionSpec);
     final AnomalyDTO n1 = newAnomaly(JANUARY_1_2021_05H, JANUARY_1_2021_06H);
     // override behaviour to simplify test - interval is not respected when fetching from persistence layer
-    when(anomalyManager.filter(any(AnomalyFilter.class))).thenReturn(existingAnomalies);
+    when(anomalyManager.filterWithoutChildren(any(AnomalyFilter.class))).thenReturn(existingAnomalies);
     // detection only runs where the new anomaly happens - only tests rule 2, does not test rule 4
     final Interval detectionInterval = new Interval(JANUARY_1_2021_04H, JANUARY_1_2021_06H, UTC);
     final Set<AnomalyDTO> output = detectionMerger.merge(listOf(n1), detectionInterval);
@@ -870,7 +895,7 @@ public class AnomalyMergerPostProcessorTest {
         .setScore(0.5)
         .setAnomalyLabels(listOf(label));
     // override behaviour to simplify test - interval is not respected when fetching from persistence layer
-    when(anomalyManager.filter(any(AnomalyFilter.class))).thenReturn(existingAnomalies);
+    when(anomalyManager.filterWithoutChildren(any(AnomalyFilter.class))).thenReturn(existingAnomalies);
     // detection only runs where the new anomaly happens - only tests rule 2, does not test rule 4
     final Interval detectionInterval = new Interval(JANUARY_1_2021_04H, JANUARY_1_2021_05H, UTC);
     final Set<AnomalyDTO> output = detectionMerger.merge(listOf(n1), detectionInterval);
@@ -926,7 +951,7 @@ public class AnomalyMergerPostProcessorTest {
         .setScore(0.5)
         .setAnomalyLabels(listOf(label));
     // override behaviour to simplify test - interval is not respected when fetching from persistence layer
-    when(anomalyManager.filter(any(AnomalyFilter.class))).thenReturn(existingAnomalies);
+    when(anomalyManager.filterWithoutChildren(any(AnomalyFilter.class))).thenReturn(existingAnomalies);
     // detection only runs where the new anomaly happens - only tests rule 2, does not test rule 4
     final Interval detectionInterval = new Interval(JANUARY_1_2021_03H, JANUARY_1_2021_04H, UTC);
     final Set<AnomalyDTO> output = detectionMerger.merge(listOf(n1), detectionInterval);
@@ -63,9 +63,7 @@ public class DetectionCronScheduler {
 
   public void start() throws SchedulerException {
     runnable = new TaskCronSchedulerRunnable<>(
-        alertManager,
-        AlertDTO::getCron,
-        AlertDTO::isActive,
+        alertManager::findAllScheduleViews,
         AlertDTO.class,
         TaskType.DETECTION, 
         DetectionPipelineJob.class,
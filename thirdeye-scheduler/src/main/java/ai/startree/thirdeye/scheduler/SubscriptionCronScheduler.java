@@ -67,9 +67,7 @@ public class SubscriptionCronScheduler {
 
   public void start() throws SchedulerException {
     runnable = new TaskCronSchedulerRunnable<>(
-        subscriptionGroupManager,
-        SubscriptionGroupDTO::getCronExpression,
-        SubscriptionGroupDTO::isActive,
+        subscriptionGroupManager::findAllScheduleViews,
         SubscriptionGroupDTO.class,
         TaskType.NOTIFICATION,
         NotificationPipelineJob.class,
@@ -21,25 +21,26 @@ import static ai.startree.thirdeye.spi.util.TimeUtils.maximumTriggersPerMinute;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import ai.startree.thirdeye.spi.datalayer.Predicate;
-import ai.startree.thirdeye.spi.datalayer.bao.AbstractManager;
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
 import ai.startree.thirdeye.spi.datalayer.bao.NamespaceConfigurationManager;
 import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.NamespaceConfigurationDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.NamespaceQuotasConfigurationDTO;
 import ai.startree.thirdeye.spi.task.TaskType;
+import com.google.common.annotations.VisibleForTesting;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -67,19 +68,21 @@ public class TaskCronSchedulerRunnable<E extends AbstractDTO> implements Runnabl
   private final TaskType taskType;
   private final GroupMatcher<JobKey> groupMatcher;
   private final int cronMaxTriggersPerMinute;
-  private final AbstractManager<E> entityDao;
+  private final Supplier<List<ScheduleView>> scheduleViewsSupplier;
   private final String entityName;
   private final Class<? extends Job> jobClazz;
-  private final CronGetter<E> cronGetter;
-  private final isActiveGetter<E> isActiveGetter;
-  private final TaskManager taskManager;
-  private final NamespaceConfigurationManager namespaceConfigurationManager;
   private final Supplier<Map<String, Boolean>> namespaceToQuotaExceededSupplier;
 
+  // state of the last pass. Null before the first pass.
+  private @Nullable Map<Long, ScheduleView> lastIdToView = null;
+  private Map<String, Boolean> lastNamespaceToQuotaExceeded = Map.of();
+
+  /**
+   * @param scheduleViewsSupplier returns the schedule of all the entities. Must throw if the
+   *     schedules cannot be read: an empty list unschedules all the entities.
+   */
   public TaskCronSchedulerRunnable(
-      final AbstractManager<E> entityDao,
-      final CronGetter<E> cronGetter,
-      final isActiveGetter<E> isActiveGetter,
+      final Supplier<List<ScheduleView>> scheduleViewsSupplier,
       final Class<E> entityClazz,
       final TaskType taskType,
       final Class<? extends Job> jobClazz,
@@ -89,27 +92,50 @@ public class TaskCronSchedulerRunnable<E extends AbstractDTO> implements Runnabl
       final TaskManager taskManager,
       final NamespaceConfigurationManager namespaceConfigurationManager,
       final long namespaceQuotaCacheDurationSeconds) {
-    try {
-      scheduler = StdSchedulerFactory.getDefaultScheduler();
-      scheduler.setJobFactory(guiceJobFactory);
-      scheduler.start();
-    } catch (final SchedulerException e) {
-      throw new RuntimeException("Failed to initialize the %s scheduler".formatted(taskType), e);
-    }
-    this.entityDao = entityDao;
-    this.cronGetter = cronGetter;
-    this.isActiveGetter = isActiveGetter;
+    this(startScheduler(guiceJobFactory, taskType),
+        scheduleViewsSupplier,
+        entityClazz,
+        taskType,
+        jobClazz,
+        cronMaxTriggersPerMinute,
+        loggerClass,
+        scheduledRefreshSupplier(
+            () -> getNamespaceToQuotaExceededMap(taskType, taskManager,
+                namespaceConfigurationManager),
+            Duration.ofSeconds(namespaceQuotaCacheDurationSeconds)));
+  }
+
+  @VisibleForTesting
+  TaskCronSchedulerRunnable(
+      final Scheduler scheduler,
+      final Supplier<List<ScheduleView>> scheduleViewsSupplier,
+      final Class<E> entityClazz,
+      final TaskType taskType,
+      final Class<? extends Job> jobClazz,
+      final int cronMaxTriggersPerMinute,
+      final Class<?> loggerClass,
+      final Supplier<Map<String, Boolean>> namespaceToQuotaExceededSupplier) {
+    this.scheduler = scheduler;
+    this.scheduleViewsSupplier = scheduleViewsSupplier;
     this.entityName = entityClazz.getSimpleName();
     this.taskType = taskType;
     this.jobClazz = jobClazz;
     this.cronMaxTriggersPerMinute = cronMaxTriggersPerMinute;
     this.log = LoggerFactory.getLogger(loggerClass);
     this.groupMatcher = GroupMatcher.jobGroupEquals(taskType.toString());
-    this.taskManager = taskManager;
-    this.namespaceConfigurationManager = namespaceConfigurationManager;
-    this.namespaceToQuotaExceededSupplier = scheduledRefreshSupplier(
-        this::getNamespaceToQuotaExceededMap,
-        Duration.ofSeconds(namespaceQuotaCacheDurationSeconds));
+    this.namespaceToQuotaExceededSupplier = namespaceToQuotaExceededSupplier;
+  }
+
+  private static Scheduler startScheduler(final GuiceJobFactory guiceJobFactory,
+      final TaskType taskType) {
+    try {
+      final Scheduler scheduler = StdSchedulerFactory.getDefaultScheduler();
+      scheduler.setJobFactory(guiceJobFactory);
+      scheduler.start();
+      return scheduler;
+    } catch (final SchedulerException e) {
+      throw new RuntimeException("Failed to initialize the %s scheduler".formatted(taskType), e);
+    }
   }
 
   @Override
@@ -126,67 +152,94 @@ public class TaskCronSchedulerRunnable<E extends AbstractDTO> implements Runnabl
     scheduler.shutdown();
   }
 
+  /**
+   * Only the entities whose schedule view or namespace quota status changed since the last pass
+   * are synced with the scheduler. The first pass syncs all the entities, and stops the jobs of
+   * the entities that do not exist anymore.
+   */
   private void updateSchedules() throws SchedulerException {
-    // TODO CYRIL scale - loading all entities is expensive - only the id and the cron are necessary - requires custom SQL (JOOQ)
-    // FIXME CYRIL SCALE - No need for a strong isolation level here - the default isolation level lock all entities until the query is finished, blocking progress of tasks and potentially some update/delete operations in the UI.
-    //   dirty reads are be fine, this logic runs every minute
-    //   also only fetch only active entities directly and remove is active from Schedulable interface 
-    final List<E> allEntities = entityDao.findAll();
+    final List<ScheduleView> views = scheduleViewsSupplier.get();
+    final Map<String, Boolean> namespaceToQuotaExceeded = namespaceToQuotaExceededSupplier.get();
 
-    final Map<String, Boolean>
-        cachedNamespaceToQuotaExceeded = namespaceToQuotaExceededSupplier.get();
-
-    // schedule active entities
-    allEntities.forEach(e -> schedule(e, cachedNamespaceToQuotaExceeded));
+    final Set<Long> ids = new HashSet<>(views.size());
+    final Map<Long, ScheduleView> idToView = new HashMap<>();
+    int syncCount = 0;
+    for (final ScheduleView view : views) {
+      ids.add(view.id());
+      final ScheduleView lastView = lastIdToView == null ? null : lastIdToView.get(view.id());
+      if (view.equals(lastView) && !quotaStatusChanged(view, namespaceToQuotaExceeded)) {
+        idToView.put(view.id(), view);
+        continue;
+      }
+      syncCount++;
+      if (sync(view, namespaceToQuotaExceeded)) {
+        idToView.put(view.id(), view);
+      }
+      // else not recorded: retried on the next pass
+    }
 
-    // cleanup schedules of deleted and deactivated entities
-    // or entities whose workspace has exceeded quotas
-    final Map<Long, E> idToEntity = allEntities.stream()
-        .collect(Collectors.toMap(AbstractDTO::getId, e -> e));
-    final Set<JobKey> scheduledJobKeys = scheduler.getJobKeys(groupMatcher);
-    for (final JobKey jobKey : scheduledJobKeys) {
-      try {
+    // cleanup schedules of deleted entities
+    if (lastIdToView == null) {
+      for (final JobKey jobKey : scheduler.getJobKeys(groupMatcher)) {
         final Long id = getIdFromJobKey(jobKey);
-        final E entity = idToEntity.get(id);
-        if (entity == null) {
-          log.info("{} with id {} does not exist anymore. Stopping the scheduled {} job.",
-              entityName, id, taskType);
-          stopJob(jobKey);
-        } else if (!isActive(entity)) {
-          log.info("{} with id {} is deactivated. Stopping the scheduled {} job.", entityName, id,
-              taskType);
-          stopJob(jobKey);
-        } else if (cachedNamespaceToQuotaExceeded.getOrDefault(nonNullNamespace(entity.namespace()),
-            false)) {
-          log.info(
-              "workspace {} corresponding to {} with id {} has exceeded monthly quota. Stopping scheduled {} job.",
-              nonNullNamespace(entity.namespace()), entityName, id, taskType);
-          stopJob(jobKey);
+        if (!ids.contains(id)) {
+          stopDeletedEntityJob(id, jobKey);
+        }
+      }
+    } else {
+      for (final Long id : lastIdToView.keySet()) {
+        if (!ids.contains(id)) {
+          stopDeletedEntityJob(id, jobKeyOf(id));
         }
-      } catch (final Exception e) {
-        log.error("Error removing job key {}", jobKey, e);
       }
     }
+    log.debug("Synced {} {} schedules out of {}", syncCount, entityName, views.size());
+
+    lastIdToView = idToView;
+    lastNamespaceToQuotaExceeded = namespaceToQuotaExceeded;
+  }
+
+  private boolean quotaStatusChanged(final ScheduleView view,
+      final Map<String, Boolean> namespaceToQuotaExceeded) {
+    final String namespace = nonNullNamespace(view.namespace());
+    return !lastNamespaceToQuotaExceeded.getOrDefault(namespace, false)
+        .equals(namespaceToQuotaExceeded.getOrDefault(namespace, false));
   }
 
-  private Map<String, Boolean> getNamespaceToQuotaExceededMap() {
+  private void stopDeletedEntityJob(final long id, final JobKey jobKey) {
+    try {
+      if (scheduler.checkExists(jobKey)) {
+        log.info("{} with id {} does not exist anymore. Stopping the scheduled {} job.",
+            entityName, id, taskType);
+        stopJob(jobKey);
+      }
+    } catch (final Exception e) {
+      log.error("Error removing job key {}", jobKey, e);
+    }
+  }
+
+  private static Map<String, Boolean> getNamespaceToQuotaExceededMap(final TaskType taskType,
+      final TaskManager taskManager,
+      final NamespaceConfigurationManager namespaceConfigurationManager) {
     final HashMap<String, Boolean> m = new HashMap<>();
     final List<NamespaceConfigurationDTO> namespaceCfgs = namespaceConfigurationManager.findAll();
 
     for (NamespaceConfigurationDTO namespaceCfg : namespaceCfgs) {
-      final Long monthlyTasksLimit = getMonthlyTasksLimit(namespaceCfg);
+      final Long monthlyTasksLimit = getMonthlyTasksLimit(taskType, namespaceCfg);
       if (monthlyTasksLimit == null || monthlyTasksLimit <= 0) {
         continue;
       }
       final String namespace = namespaceCfg.namespace();
-      final long taskCount = getTasksCountForNamespace(namespaceCfg.namespace());
+      final long taskCount = getTasksCountForNamespace(taskType, taskManager,
+          namespaceCfg.namespace());
       m.put(nonNullNamespace(namespace), taskCount >= monthlyTasksLimit);
     }
 
     return Map.copyOf(m);
   }
 
-  private Long getMonthlyTasksLimit(final @NonNull NamespaceConfigurationDTO config) {
+  private static Long getMonthlyTasksLimit(final TaskType taskType,
+      final @NonNull NamespaceConfigurationDTO config) {
     return Optional.of(config)
         .map(NamespaceConfigurationDTO::getNamespaceQuotasConfiguration)
         .map(NamespaceQuotasConfigurationDTO::getTaskQuotasConfiguration)
@@ -197,7 +250,8 @@ public class TaskCronSchedulerRunnable<E extends AbstractDTO> implements Runnabl
         .orElse(null);
   }
 
-  private long getTasksCountForNamespace(final String namespace) {
+  private static long getTasksCountForNamespace(final TaskType taskType,
+      final TaskManager taskManager, final String namespace) {
     final LocalDateTime startOfMonth = LocalDate.now(ZoneOffset.UTC)
         .withDayOfMonth(1)
         .atStartOfDay();
@@ -209,45 +263,63 @@ public class TaskCronSchedulerRunnable<E extends AbstractDTO> implements Runnabl
     return taskManager.count(predicate);
   }
 
-  private void schedule(final E entity,
+  /**
+   * Starts, restarts or stops the job of the entity.
+   *
+   * @return false if the scheduler could not be updated
+   */
+  private boolean sync(final ScheduleView view,
       final Map<String, Boolean> namespaceToQuotaExceededMap) {
-    if (!isActive(entity)) {
-      log.debug("{}: {} is inactive. Skipping.", entityName, entity.getId());
-      return;
-    }
+    final JobKey jobKey = jobKeyOf(view.id());
+    try {
+      if (!view.active()) {
+        if (scheduler.checkExists(jobKey)) {
+          log.info("{} with id {} is deactivated. Stopping the scheduled {} job.", entityName,
+              view.id(), taskType);
+          stopJob(jobKey);
+        }
+        return true;
+      }
 
-    final String entityNamespace = nonNullNamespace(entity.namespace());
-    if (namespaceToQuotaExceededMap.getOrDefault(entityNamespace, false)) {
-      log.info(
-          "workspace {} corresponding to {} with id {} has exceeded monthly quota. Skipping scheduling {} job.",
-          entityNamespace, entityName, entity.getId(), taskType);
-      return;
-    }
+      final String entityNamespace = nonNullNamespace(view.namespace());
+      if (namespaceToQuotaExceededMap.getOrDefault(entityNamespace, false)) {
+        log.info(
+            "workspace {} corresponding to {} with id {} has exceeded monthly quota. Stopping or skipping scheduling {} job.",
+            entityNamespace, entityName, view.id(), taskType);
+        if (scheduler.checkExists(jobKey)) {
+          stopJob(jobKey);
+        }
+        return true;
+      }
 
-    // schedule job: add or update job
-    try {
-      final String jobName = taskType + "_" + entity.getId();
-      final JobKey jobKey = new JobKey(jobName, taskType.toString());
+      // schedule job: add or update job
       if (scheduler.checkExists(jobKey)) {
         log.debug("{} {} is already scheduled", entityName, jobKey.getName());
         final String currentCron = currentCron(scheduler, jobKey);
-        if (!cronOf(entity).equals(currentCron)) {
+        if (!view.cron().equals(currentCron)) {
           log.info("Cron expression of {} {} has been changed from {} to {}. "
                   + "Restarting schedule",
-              entityName, entity.getId(), currentCron, cronOf(entity));
+              entityName, view.id(), currentCron, view.cron());
           stopJob(jobKey);
-          startJob(entity, jobKey);
+          startJob(view, jobKey);
         }
       } else {
-        startJob(entity, jobKey);
+        startJob(view, jobKey);
       }
+      return true;
     } catch (final Exception e) {
-      log.error("Error creating/updating job key for {} config {}", taskType, entity.getId(), e);
+      log.error("Error creating/updating job key for {} config {}", taskType, view.id(), e);
+      return false;
     }
   }
 
-  public void startJob(final E config, final JobKey jobKey) throws SchedulerException {
-    final Trigger trigger = buildTrigger(config);
+  private JobKey jobKeyOf(final long id) {
+    return new JobKey(taskType + "_" + id, taskType.toString());
+  }
+
+  private void startJob(final ScheduleView view, final JobKey jobKey)
+      throws SchedulerException {
+    final Trigger trigger = buildTrigger(view);
     final JobDetail job = JobBuilder.newJob(jobClazz)
         .withIdentity(jobKey)
         .build();
@@ -265,14 +337,14 @@ public class TaskCronSchedulerRunnable<E extends AbstractDTO> implements Runnabl
     log.info("Stopped {} job {}", taskType, jobKey.getName());
   }
 
-  private Trigger buildTrigger(final E config) {
-    final String cron = cronOf(config);
+  private Trigger buildTrigger(final ScheduleView view) {
+    final String cron = view.cron();
     final int maxTriggersPerMinute = maximumTriggersPerMinute(cron);
     checkArgument(maxTriggersPerMinute <= cronMaxTriggersPerMinute,
         "Attempting to schedule a %s job for %s %s that can trigger up to %s times per minute. The limit is %s. Please update the cron %s",
         taskType,
         entityName,
-        config.getId(),
+        view.id(),
         maxTriggersPerMinute, cronMaxTriggersPerMinute, cron
     );
     final CronScheduleBuilder cronScheduleBuilder = CronScheduleBuilder
@@ -283,25 +355,7 @@ public class TaskCronSchedulerRunnable<E extends AbstractDTO> implements Runnabl
         .build();
   }
 
-  private boolean isActive(final E entity) {
-    return isActiveGetter.isActive(entity);
-  }
-
   private static @NonNull String nonNullNamespace(@Nullable String namespace) {
     return namespace == null ? NULL_NAMESPACE_KEY : namespace;
   }
-
-  private String cronOf(final E entity) {
-    return cronGetter.getCron(entity);
-  }
-
-  public interface CronGetter<E extends AbstractDTO> {
-
-    String getCron(final E entity);
-  }
-
-  public interface isActiveGetter<E extends AbstractDTO> {
-
-    boolean isActive(final E entity);
-  }
 }
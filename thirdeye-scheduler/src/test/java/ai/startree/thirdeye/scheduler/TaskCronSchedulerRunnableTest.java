@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.scheduler.job.DetectionPipelineJob;
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.task.TaskType;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.quartz.CronTrigger;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TaskCronSchedulerRunnableTest {
+
+  private static final String HOURLY_CRON = "0 0 * * * ? *";
+  private static final String DAILY_CRON = "0 0 0 * * ? *";
+  private static final String NAMESPACE = "namespace1";
+
+  private Map<JobKey, Trigger> jobs;
+  private Scheduler scheduler;
+  private List<ScheduleView> views;
+  private Map<String, Boolean> namespaceToQuotaExceeded;
+  private TaskCronSchedulerRunnable<AlertDTO> runnable;
+
+  private static ScheduleView view(final long id, final String cron, final boolean active) {
+    return new ScheduleView(id, cron, active, NAMESPACE, new Timestamp(0));
+  }
+
+  private static JobKey jobKey(final long id) {
+    return new JobKey(TaskType.DETECTION + "_" + id, TaskType.DETECTION.toString());
+  }
+
+  @BeforeMethod
+  public void setUp() throws SchedulerException {
+    // the mocked scheduler keeps its jobs in a map
+    jobs = new HashMap<>();
+    scheduler = mock(Scheduler.class);
+    when(scheduler.checkExists(any(JobKey.class))).thenAnswer(
+        i -> jobs.containsKey(i.<JobKey>getArgument(0)));
+    when(scheduler.scheduleJob(any(JobDetail.class), any(Trigger.class))).thenAnswer(i -> {
+      jobs.put(i.<JobDetail>getArgument(0).getKey(), i.getArgument(1));
+      return new Date();
+    });
+    when(scheduler.deleteJob(any(JobKey.class))).thenAnswer(
+        i -> jobs.remove(i.<JobKey>getArgument(0)) != null);
+    when(scheduler.getTriggersOfJob(any(JobKey.class))).thenAnswer(
+        i -> List.of(jobs.get(i.<JobKey>getArgument(0))));
+    when(scheduler.getJobKeys(any())).thenAnswer(i -> Set.copyOf(jobs.keySet()));
+
+    views = new ArrayList<>();
+    namespaceToQuotaExceeded = new HashMap<>();
+    runnable = new TaskCronSchedulerRunnable<>(scheduler,
+        () -> List.copyOf(views),
+        AlertDTO.class,
+        TaskType.DETECTION,
+        DetectionPipelineJob.class,
+        60,
+        TaskCronSchedulerRunnableTest.class,
+        () -> Map.copyOf(namespaceToQuotaExceeded));
+  }
+
+  private String cronOf(final long id) {
+    return ((CronTrigger) jobs.get(jobKey(id))).getCronExpression();
+  }
+
+  @Test
+  public void testFirstPassSyncsAllEntitiesAndStopsJobsOfDeletedEntities() throws Exception {
+    // job of an entity deleted while the scheduler was not running
+    jobs.put(jobKey(3), mock(Trigger.class));
+    views.add(view(1, HOURLY_CRON, true));
+    views.add(view(2, HOURLY_CRON, false));
+
+    runnable.run();
+
+    assertThat(jobs.keySet()).containsExactly(jobKey(1));
+    assertThat(cronOf(1)).isEqualTo(HOURLY_CRON);
+  }
+
+  @Test
+  public void testUnchangedEntitiesAreNotSyncedAgain() throws Exception {
+    views.add(view(1, HOURLY_CRON, true));
+    runnable.run();
+    clearInvocations(scheduler);
+
+    runnable.run();
+
+    verify(scheduler, never()).checkExists(any(JobKey.class));
+    verify(scheduler, never()).scheduleJob(any(JobDetail.class), any(Trigger.class));
+    verify(scheduler, never()).deleteJob(any(JobKey.class));
+    assertThat(jobs.keySet()).containsExactly(jobKey(1));
+  }
+
+  @Test
+  public void testCronChangeRestartsTheJob() {
+    views.add(view(1, HOURLY_CRON, true));
+    runnable.run();
+
+    views.set(0, view(1, DAILY_CRON, true));
+    runnable.run();
+
+    assertThat(jobs.keySet()).containsExactly(jobKey(1));
+    assertThat(cronOf(1)).isEqualTo(DAILY_CRON);
+  }
+
+  @Test
+  public void testDeactivationStopsTheJob() {
+    views.add(view(1, HOURLY_CRON, true));
+    runnable.run();
+
+    views.set(0, view(1, HOURLY_CRON, false));
+    runnable.run();
+    assertThat(jobs).isEmpty();
+
+    views.set(0, view(1, HOURLY_CRON, true));
+    runnable.run();
+    assertThat(jobs.keySet()).containsExactly(jobKey(1));
+  }
+
+  @Test
+  public void testDeletionStopsTheJob() {
+    views.add(view(1, HOURLY_CRON, true));
+    views.add(view(2, HOURLY_CRON, true));
+    runnable.run();
+
+    views.removeFirst();
+    runnable.run();
+
+    assertThat(jobs.keySet()).containsExactly(jobKey(2));
+  }
+
+  @Test
+  public void testQuotaStatusChangeStopsAndRestartsTheJobs() {
+    views.add(view(1, HOURLY_CRON, true));
+    runnable.run();
+
+    // the views did not change, only the quota status of the namespace
+    namespaceToQuotaExceeded.put(NAMESPACE, true);
+    runnable.run();
+    assertThat(jobs).isEmpty();
+
+    namespaceToQuotaExceeded.put(NAMESPACE, false);
+    runnable.run();
+    assertThat(jobs.keySet()).containsExactly(jobKey(1));
+  }
+
+  @Test
+  public void testFailedSyncIsRetriedOnNextPass() throws Exception {
+    views.add(view(1, HOURLY_CRON, true));
+    when(scheduler.scheduleJob(any(JobDetail.class), any(Trigger.class)))
+        .thenThrow(new SchedulerException("scheduler unavailable"))
+        .thenAnswer(i -> {
+          jobs.put(i.<JobDetail>getArgument(0).getKey(), i.getArgument(1));
+          return new Date();
+        });
+
+    runnable.run();
+    assertThat(jobs).isEmpty();
+
+    runnable.run();
+    assertThat(jobs.keySet()).containsExactly(jobKey(1));
+  }
+
+  @Test
+  public void testFailureToReadTheViewsDoesNotUnscheduleTheJobs() {
+    views.add(view(1, HOURLY_CRON, true));
+    runnable.run();
+
+    final TaskCronSchedulerRunnable<AlertDTO> failingRunnable = new TaskCronSchedulerRunnable<>(
+        scheduler,
+        () -> {
+          throw new RuntimeException("database unavailable");
+        },
+        AlertDTO.class,
+        TaskType.DETECTION,
+        DetectionPipelineJob.class,
+        60,
+        TaskCronSchedulerRunnableTest.class,
+        Map::of);
+    failingRunnable.run();
+
+    assertThat(jobs.keySet()).containsExactly(jobKey(1));
+  }
+}
@@ -13,10 +13,14 @@
  */
 package ai.startree.thirdeye;
 
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+
 import ai.startree.thirdeye.auth.AuthConfiguration;
 import ai.startree.thirdeye.auth.ThirdEyeAuthModule;
 import ai.startree.thirdeye.auth.ThirdEyeAuthorizerProvider;
 import ai.startree.thirdeye.config.ThirdEyeServerConfiguration;
+import ai.startree.thirdeye.datalayer.util.DatabaseConfiguration;
+import ai.startree.thirdeye.datalayer.util.EntityCacheConfiguration;
 import ai.startree.thirdeye.detectionpipeline.ThirdEyeDetectionPipelineModule;
 import ai.startree.thirdeye.notification.ThirdEyeNotificationModule;
 import ai.startree.thirdeye.scheduler.ThirdEyeSchedulerModule;
@@ -52,11 +56,16 @@ public class ThirdEyeServerModule extends AbstractModule {
     install(new ThirdEyeAuthModule(configuration.getAuthConfiguration()));
 
     install(new ThirdEyeCoreModule(dataSource,
+        optional(configuration.getDatabaseConfiguration())
+            .map(DatabaseConfiguration::getEntityCache)
+            .orElse(new EntityCacheConfiguration()),
         configuration.getRcaConfiguration(),
         configuration.getUiConfiguration(),
         configuration.getTimeConfiguration(),
         configuration.getNamespaceConfiguration(),
-        configuration.getQuotasConfiguration()));
+        configuration.getQuotasConfiguration(),
+        configuration.getDataSourceCoalescingConfiguration(),
+        configuration.getDataSourceResultCacheConfiguration()));
     install(new ThirdEyeNotificationModule(configuration.getNotificationConfiguration()));
     install(new ThirdEyeDetectionPipelineModule(configuration.getDetectionPipelineConfiguration()));
     install(new ThirdEyeWorkerModule(configuration.getTaskDriverConfiguration()));
@@ -16,6 +16,8 @@ package ai.startree.thirdeye.config;
 import ai.startree.thirdeye.auth.AccessControlConfiguration;
 import ai.startree.thirdeye.auth.AuthConfiguration;
 import ai.startree.thirdeye.datalayer.util.DatabaseConfiguration;
+import ai.startree.thirdeye.datasource.cache.DataSourceCoalescingConfiguration;
+import ai.startree.thirdeye.datasource.cache.DataSourceResultCacheConfiguration;
 import ai.startree.thirdeye.detectionpipeline.DetectionPipelineConfiguration;
 import ai.startree.thirdeye.notification.NotificationConfiguration;
 import ai.startree.thirdeye.rootcause.configuration.RcaConfiguration;
@@ -84,6 +86,12 @@ public class ThirdEyeServerConfiguration extends Configuration {
   @JsonProperty("quotas")
   private QuotasConfiguration quotasConfiguration = new QuotasConfiguration();
 
+  @JsonProperty("dataSourceCoalescing")
+  private DataSourceCoalescingConfiguration dataSourceCoalescingConfiguration = new DataSourceCoalescingConfiguration();
+
+  @JsonProperty("dataSourceResultCache")
+  private DataSourceResultCacheConfiguration dataSourceResultCacheConfiguration = new DataSourceResultCacheConfiguration();
+
   private String phantomJsPath = "";
   private String failureFromAddress;
   private String failureToAddress;
@@ -293,4 +301,24 @@ public class ThirdEyeServerConfiguration extends Configuration {
     this.quotasConfiguration = quotasConfiguration;
     return this;
   }
+
+  public DataSourceCoalescingConfiguration getDataSourceCoalescingConfiguration() {
+    return dataSourceCoalescingConfiguration;
+  }
+
+  public ThirdEyeServerConfiguration setDataSourceCoalescingConfiguration(
+      final DataSourceCoalescingConfiguration dataSourceCoalescingConfiguration) {
+    this.dataSourceCoalescingConfiguration = dataSourceCoalescingConfiguration;
+    return this;
+  }
+
+  public DataSourceResultCacheConfiguration getDataSourceResultCacheConfiguration() {
+    return dataSourceResultCacheConfiguration;
+  }
+
+  public ThirdEyeServerConfiguration setDataSourceResultCacheConfiguration(
+      final DataSourceResultCacheConfiguration dataSourceResultCacheConfiguration) {
+    this.dataSourceResultCacheConfiguration = dataSourceResultCacheConfiguration;
+    return this;
+  }
 }
@@ -34,6 +34,7 @@ import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
 import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
 import ai.startree.thirdeye.spi.metric.MetricSlice;
 import jakarta.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -93,21 +94,15 @@ public class HeatmapCalculator {
         datasetConfigDTO);
     datasetConfigDTO.setDimensions(Templatable.of(rcaDimensions));
 
-    final Map<String, Map<String, Double>> anomalyBreakdown = computeBreakdown(
+    final List<Map<String, Map<String, Double>>> breakdowns = computeBreakdowns(
         rcaInfo.metric(),
         parseAndCombinePredicates(filters),
-        currentInterval,
-        limit,
-        datasetConfigDTO,
-        rcaInfo.dataSourceDto());
-
-    final Map<String, Map<String, Double>> baselineBreakdown = computeBreakdown(
-        rcaInfo.metric(),
-        parseAndCombinePredicates(filters),
-        baselineInterval,
+        List.of(currentInterval, baselineInterval),
         limit,
         datasetConfigDTO,
         rcaInfo.dataSourceDto());
+    final Map<String, Map<String, Double>> anomalyBreakdown = breakdowns.get(0);
+    final Map<String, Map<String, Double>> baselineBreakdown = breakdowns.get(1);
 
     // if a dimension value is not observed in a breakdown but observed in the other, add it with a count of 0
     fillMissingKeysWithZeroes(baselineBreakdown, anomalyBreakdown);
@@ -143,39 +138,51 @@ public class HeatmapCalculator {
     }
   }
 
-  private Map<String, Map<String, Double>> computeBreakdown(final MetricConfigDTO metricConfigDTO,
+  /**
+   * Returns the breakdown of each interval, in the order of the intervals. The queries of all the
+   * intervals are submitted before any result is collected.
+   */
+  private List<Map<String, Map<String, Double>>> computeBreakdowns(
+      final MetricConfigDTO metricConfigDTO,
       final List<Predicate> predicates,
-      final Interval interval,
+      final List<Interval> intervals,
       final int limit,
       final DatasetConfigDTO datasetConfigDTO, final DataSourceDTO dataSourceDto) throws Exception {
+    final List<MetricSlice> slices = new ArrayList<>(intervals.size());
+    final List<Future<DataFrame>> aggregates = new ArrayList<>(intervals.size());
+    for (final Interval interval : intervals) {
+      final MetricSlice slice = MetricSlice.from(metricConfigDTO,
+          interval,
+          predicates,
+          datasetConfigDTO,
+          dataSourceDto);
+      LOG.info("RCA metric analysis - Slice: {} - {}",
+          DATE_TIME_FORMATTER.print(slice.getInterval().getStartMillis()),
+          DATE_TIME_FORMATTER.print(slice.getInterval().getStartMillis()));
+      slices.add(slice);
+      aggregates.add(aggregationLoader.loadAggregateAsync(slice, Collections.emptyList(), 2));
+    }
 
-    final MetricSlice baseSlice = MetricSlice.from(metricConfigDTO,
-        interval,
-        predicates,
-        datasetConfigDTO, 
-        dataSourceDto);
-
-    LOG.info("RCA metric analysis - Slice: {} - {}",
-        DATE_TIME_FORMATTER.print(baseSlice.getInterval().getStartMillis()),
-        DATE_TIME_FORMATTER.print(baseSlice.getInterval().getStartMillis()));
-
-    final DataFrame dataBreakdown = aggregationLoader.loadBreakdown(baseSlice, limit);
-    final DataFrame dataAggregate = fetchAggregate(baseSlice);
-
-    return DefaultAggregationLoader.makeBreakdownMap(dataBreakdown, dataAggregate);
+    final List<DataFrame> dataBreakdowns = aggregationLoader.loadBreakdowns(slices, limit);
+    final List<Map<String, Map<String, Double>>> breakdowns = new ArrayList<>(slices.size());
+    for (int i = 0; i < slices.size(); i++) {
+      final DataFrame dataAggregate = collectAggregate(slices.get(i), aggregates.get(i));
+      breakdowns.add(DefaultAggregationLoader.makeBreakdownMap(dataBreakdowns.get(i),
+          dataAggregate));
+    }
+    return breakdowns;
   }
 
   /**
-   * Returns aggregates for the given set of metric slices.
+   * Returns the aggregate of the metric slice.
    *
    * @param slice metric slice
-   * @return map of dataframes (keyed by metric slice, columns: [COL_TIME(1), COL_VALUE])
+   * @param future the result of the aggregate query of the slice
+   * @return dataframe with columns: [COL_TIME(1), COL_VALUE]
    * @throws Exception on catch-all execution failure
    */
-  private DataFrame fetchAggregate(final MetricSlice slice) throws Exception {
-    final Future<DataFrame> future = aggregationLoader.loadAggregateAsync(slice,
-        Collections.emptyList(),
-        2);
+  private DataFrame collectAggregate(final MetricSlice slice, final Future<DataFrame> future)
+      throws Exception {
     DataFrame df = future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
     if (df.isEmpty()) {
       df = new DataFrame().addSeries(Constants.COL_VALUE, Double.NaN);
@@ -28,9 +28,11 @@ import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.bao.AbstractManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Streams;
 import jakarta.ws.rs.core.MultivaluedMap;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -89,9 +91,11 @@ public abstract class CrudService<ApiT extends ThirdEyeCrudApi<ApiT>, DtoT exten
     final String namespace = authorizationManager.currentNamespace(principal);
     final DaoFilter daoFilter = DaoFilterUtils.buildFilter(queryParameters, apiToIndexMap,
         namespace);
-    final List<DtoT> results = dtoManager.filter(daoFilter);
-
-    return results.stream()
+    // entities are fetched lazily, while the response is written
+    final Iterator<DtoT> dtos = dtoManager.stream(daoFilter).iterator();
+    // fetch the first page now: a failure is returned as an error status, not as an empty response
+    dtos.hasNext();
+    return Streams.stream(dtos)
         .filter(dto -> authorizationManager.canRead(principal, dto))
         .map(this::toApi);
   }
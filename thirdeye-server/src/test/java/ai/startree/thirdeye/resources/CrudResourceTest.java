@@ -27,6 +27,8 @@ import ai.startree.thirdeye.datalayer.bao.AbstractManagerImpl;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.resources.testutils.SingleResourceAuthorizer;
 import ai.startree.thirdeye.service.CrudService;
+import ai.startree.thirdeye.spi.ThirdEyeException;
+import ai.startree.thirdeye.spi.ThirdEyeStatus;
 import ai.startree.thirdeye.spi.api.AuthorizationConfigurationApi;
 import ai.startree.thirdeye.spi.api.ThirdEyeCrudApi;
 import ai.startree.thirdeye.spi.auth.AuthenticationType;
@@ -151,7 +153,7 @@ public class CrudResourceTest {
     final DummyManager manager = mock(DummyManager.class);
     final UriInfo uriInfo = mock(UriInfo.class);
     when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
-    when(manager.filter(any(DaoFilter.class))).thenReturn(Arrays.asList(
+    when(manager.stream(any(DaoFilter.class))).thenReturn(Stream.of(
         (DummyDto) new DummyDto().setId(1L),
         (DummyDto) new DummyDto().setId(2L),
         (DummyDto) new DummyDto().setId(3L)
@@ -170,6 +172,23 @@ public class CrudResourceTest {
     }
   }
 
+  @Test
+  public void testGetAll_withFailureInFirstPage() {
+    final DummyManager manager = mock(DummyManager.class);
+    final UriInfo uriInfo = mock(UriInfo.class);
+    when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+    // the stream fails when it is consumed, like a lazily fetched stream
+    when(manager.stream(any(DaoFilter.class))).thenReturn(Stream.<DummyDto>generate(() -> {
+      throw new ThirdEyeException(ThirdEyeStatus.ERR_UNKNOWN, "db failure");
+    }));
+
+    final DummyResource resource = new DummyResource(manager, ImmutableMap.of(),
+        new ThirdEyeAuthorizerProvider.AlwaysAllowAuthorizer(Map.of()));
+    // the failure must happen before the response is built, to return an error status
+    assertThatThrownBy(() -> resource.list(nobody(), uriInfo))
+        .isInstanceOf(ThirdEyeException.class);
+  }
+
   @Test(expectedExceptions = ForbiddenException.class)
   public void testGet_withNoAccess() {
     final DummyManager manager = mock(DummyManager.class);
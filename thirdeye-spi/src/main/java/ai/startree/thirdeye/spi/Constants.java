@@ -66,11 +66,6 @@ public interface Constants {
   String OAUTH_ISSUER = "issuer";
   String OAUTH_JWKS_URI = "jwks_uri";
 
-  // Data Source Related Constants
-  int DEFAULT_HEAP_PERCENTAGE_FOR_RESULTSETGROUP_CACHE = 25;
-  int DEFAULT_LOWER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB = 100;
-  int DEFAULT_UPPER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB = 8192;
-
   // System property var to check for plugins. Default is "plugins"
   String SYS_PROP_THIRDEYE_PLUGINS_DIR = "thirdEyePluginsDir";
 
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datalayer;
+
+import java.sql.Timestamp;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The fields of an entity that are necessary to schedule it on a cron. Read from the index
+ * tables, without reading the json of the entity.
+ */
+public record ScheduleView(long id, @Nullable String cron, boolean active,
+                           @Nullable String namespace, @Nullable Timestamp updateTime) {}
@@ -17,6 +17,7 @@ import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
 import java.util.List;
+import java.util.stream.Stream;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -52,6 +53,14 @@ public interface AbstractManager<E extends AbstractDTO> {
 
   List<E> filter(DaoFilter daoFilter);
 
+  /**
+   * Same as filter, but the entities are fetched lazily, while the stream is consumed.
+   * Prefer this method to iterate over a large number of entities.
+   */
+  default Stream<E> stream(final DaoFilter daoFilter) {
+    return filter(daoFilter).stream();
+  }
+
   int update(E entity, Predicate predicate);
 
   /**
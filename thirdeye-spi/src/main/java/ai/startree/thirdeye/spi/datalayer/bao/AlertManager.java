@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.spi.datalayer.bao;
 
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -26,4 +27,7 @@ public interface AlertManager extends AbstractManager<AlertDTO> {
 
   // for internal use only. Introduce countActiveInNamespace if you want to expose to users 
   Long countActive();
+
+  // for internal use only. Reads the index table only, with dirty reads
+  List<ScheduleView> findAllScheduleViews();
 }
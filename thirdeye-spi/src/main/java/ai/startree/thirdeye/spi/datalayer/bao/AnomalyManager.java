@@ -29,6 +29,14 @@ public interface AnomalyManager extends AbstractManager<AnomalyDTO> {
 
   AnomalyDTO findById(Long id);
 
+  /**
+   * Saves the anomalies and their children. New anomalies are created in batches, level by
+   * level: children are created before their parents. Same semantics as calling save on each
+   * anomaly. The ids are set in the anomalies. The id of an anomaly that could not be created
+   * is null.
+   */
+  void saveAll(List<AnomalyDTO> anomalies);
+
   AnomalyDTO findParent(AnomalyDTO entity);
 
   void updateAnomalyFeedback(AnomalyDTO entity);
@@ -43,6 +51,17 @@ public interface AnomalyManager extends AbstractManager<AnomalyDTO> {
   long countWithNamespace(final @NonNull AnomalyFilter filter, final @Nullable String namespace);
 
   List<AnomalyDTO> filter(@NonNull AnomalyFilter anomalyFilter);
+
+  /**
+   * Returns the anomalies matching any of the filters, with a single query.
+   */
+  List<AnomalyDTO> filterAny(@NonNull List<AnomalyFilter> anomalyFilters);
+
+  /**
+   * Same as filter, but the children of the anomalies are not fetched: children is empty and
+   * only childIds is set. Use when the children are not needed or are fetched by the caller.
+   */
+  List<AnomalyDTO> filterWithoutChildren(@NonNull AnomalyFilter anomalyFilter);
   
   List<AnomalyDTO> filterWithNamespace(final @NonNull AnomalyFilter anomalyFilter,
       final @Nullable String namespace);
@@ -19,4 +19,11 @@ import java.util.List;
 
 public interface EnumerationItemManager extends AbstractManager<EnumerationItemDTO> {
   List<EnumerationItemDTO> filter(EnumerationItemFilter filter);
+
+  /**
+   * Creates the new enumeration items with batch inserts and updates the existing ones. Same
+   * semantics as calling save on each item. The ids are set in the new items. The id of an item
+   * that could not be created is null.
+   */
+  void saveAll(List<EnumerationItemDTO> enumerationItems);
 }
@@ -13,8 +13,12 @@
  */
 package ai.startree.thirdeye.spi.datalayer.bao;
 
+import ai.startree.thirdeye.spi.datalayer.ScheduleView;
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
+import java.util.List;
 
 public interface SubscriptionGroupManager extends AbstractManager<SubscriptionGroupDTO> {
 
+  // for internal use only. Reads the index table only, with dirty reads
+  List<ScheduleView> findAllScheduleViews();
 }
@@ -45,6 +45,23 @@ public interface TaskManager extends AbstractManager<TaskDTO> {
 
   TaskDTO acquireNextTaskToRun(final long workerId) throws Exception;
 
+  /**
+   * Acquires up to maxTasks tasks in a single transaction. At most one task is acquired per
+   * referenced entity.
+   */
+  List<TaskDTO> acquireNextTasksToRun(final long workerId, final int maxTasks) throws Exception;
+
+  /**
+   * Registers a listener notified every time a new task is saved by this instance.
+   * Used to wake up idle workers running in the same JVM.
+   */
+  void addTaskCreatedListener(final Runnable listener);
+
+  /**
+   * Unregisters a listener registered with {@link #addTaskCreatedListener(Runnable)}.
+   */
+  void removeTaskCreatedListener(final Runnable listener);
+
   List<TaskDTO> findByStatusAndWorkerId(Long workerId, TaskStatus status);
 
   void updateStatusAndTaskEndTime(Long id, TaskStatus oldStatus, TaskStatus newStatus,
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Cache of the serialized query results of a datasource. Provided to the datasource in its
+ * {@link ThirdEyeDataSourceContext}.
+ *
+ * The results of all the datasources share a single byte budget. Keys of different datasources
+ * never collide. Values are stored off-heap: a datasource writes and reads its results as bytes.
+ */
+public interface DataSourceResultCache {
+
+  /**
+   * Returns the value read from the cached bytes of the key, or null if the key is not cached.
+   *
+   * @param reader reads the value from a read-only buffer positioned at the first byte. The
+   *     buffer is only valid during the call: the reader must not keep a reference to it.
+   */
+  <T> @Nullable T get(Object key, Function<ByteBuffer, T> reader);
+
+  /**
+   * Caches the bytes written by the writer. The result is not cached if it is larger than the
+   * budget.
+   *
+   * @param sizeInBytes the exact number of bytes written by the writer
+   * @param writer writes the value in a buffer of sizeInBytes bytes, from position 0
+   */
+  void put(Object key, int sizeInBytes, Consumer<ByteBuffer> writer);
+
+  void invalidate(Object key);
+
+  /**
+   * Removes all the results of the datasource.
+   */
+  void invalidateAll();
+}
@@ -20,6 +20,7 @@ public class ThirdEyeDataSourceContext {
 
   private DataSourceDTO dataSourceDTO;
   private QuotasConfiguration quotasConfiguration;
+  private DataSourceResultCache resultCache;
 
   public DataSourceDTO getDataSourceDTO() {
     return dataSourceDTO;
@@ -40,4 +41,13 @@ public class ThirdEyeDataSourceContext {
     this.quotasConfiguration = quotasConfiguration;
     return this;
   }
+
+  public DataSourceResultCache getResultCache() {
+    return resultCache;
+  }
+
+  public ThirdEyeDataSourceContext setResultCache(final DataSourceResultCache resultCache) {
+    this.resultCache = resultCache;
+    return this;
+  }
 }
@@ -15,6 +15,7 @@ package ai.startree.thirdeye.spi.datasource.loader;
 
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
 import ai.startree.thirdeye.spi.metric.MetricSlice;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
 
@@ -35,6 +36,21 @@ public interface AggregationLoader {
    */
   DataFrame loadBreakdown(MetricSlice slice, int limit) throws Exception;
 
+  /**
+   * Returns the de-aggregation data frames of multiple slices, in the order of the slices.
+   * Implementations should fetch the slices concurrently, eg the current and baseline windows.
+   *
+   * @see #loadBreakdown(MetricSlice, int)
+   */
+  default List<DataFrame> loadBreakdowns(final List<MetricSlice> slices, final int limit)
+      throws Exception {
+    final List<DataFrame> breakdowns = new ArrayList<>(slices.size());
+    for (final MetricSlice slice : slices) {
+      breakdowns.add(loadBreakdown(slice, limit));
+    }
+    return breakdowns;
+  }
+
   /**
    * Returns metric aggregates grouped by the given dimensions (or none).
    *
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.worker.task;
+
+import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
+import ai.startree.thirdeye.spi.datalayer.dto.TaskDTO;
+import ai.startree.thirdeye.spi.task.TaskStatus;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Acquires tasks for all the {@link TaskDriverRunnable} of a worker.
+ *
+ * Tasks are acquired in batch: a single transaction claims as many tasks as there are idle
+ * runners, capped by {@link TaskDriverConfiguration#getTaskFetchSizeCap()}.
+ * The first task is returned to the calling runner, the others are handed off to the idle
+ * runners through an in-process queue. Only one runner queries the database at a time.
+ *
+ * Because the batch size is bounded by the number of idle runners, an acquired task is never
+ * left in the RUNNING state without a runner to execute it. At shutdown, the acquired tasks that
+ * no runner has taken yet are set back to WAITING, see {@link #shutdown()}.
+ *
+ * Idle runners can be woken up with {@link #wakeUp()}, for instance when a task is created in the
+ * same JVM. Waiting with a timeout remains the fallback for tasks created by other instances.
+ */
+public class TaskAcquirer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TaskAcquirer.class);
+
+  private final TaskManager taskManager;
+  private final long workerId;
+  private final int taskFetchSizeCap;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition taskAvailable = lock.newCondition();
+  // guarded by lock
+  private final Deque<TaskDTO> acquiredTasks = new ArrayDeque<>();
+  // guarded by lock - number of idle runners that should query the database again
+  private int pendingWakeUps = 0;
+  // guarded by lock
+  private boolean shutdown = false;
+
+  private final AtomicInteger idleRunners = new AtomicInteger();
+  private final Object acquisitionMonitor = new Object();
+
+  public TaskAcquirer(final TaskManager taskManager, final long workerId,
+      final int taskFetchSizeCap) {
+    this.taskManager = taskManager;
+    this.workerId = workerId;
+    this.taskFetchSizeCap = taskFetchSizeCap;
+  }
+
+  public void runnerIdle() {
+    idleRunners.incrementAndGet();
+  }
+
+  public void runnerBusy() {
+    idleRunners.decrementAndGet();
+  }
+
+  /**
+   * @return a task acquired by this worker, or null if no task is available.
+   */
+  public @Nullable TaskDTO acquire() throws Exception {
+    final TaskDTO handedOff = pollAcquiredTask();
+    if (handedOff != null) {
+      return handedOff;
+    }
+    synchronized (acquisitionMonitor) {
+      // another runner may have acquired a batch while this runner was waiting for the monitor
+      final TaskDTO acquiredMeanwhile = pollAcquiredTask();
+      if (acquiredMeanwhile != null) {
+        return acquiredMeanwhile;
+      }
+      if (isShutdown()) {
+        return null;
+      }
+      final int batchSize = Math.max(1, Math.min(taskFetchSizeCap, idleRunners.get()));
+      final List<TaskDTO> tasks = taskManager.acquireNextTasksToRun(workerId, batchSize);
+      if (tasks.isEmpty()) {
+        return null;
+      }
+      handOff(tasks.subList(1, tasks.size()));
+      return tasks.get(0);
+    }
+  }
+
+  /**
+   * Waits for a task acquired by another runner of this worker, or for a wake-up signal.
+   *
+   * @return a task, or null if no task was handed off before the timeout or the wake-up.
+   */
+  public @Nullable TaskDTO awaitHandoff(final Duration timeout) throws InterruptedException {
+    long remainingNanos = timeout.toNanos();
+    lock.lock();
+    try {
+      while (true) {
+        final TaskDTO task = acquiredTasks.poll();
+        if (task != null) {
+          return task;
+        }
+        if (pendingWakeUps > 0) {
+          pendingWakeUps--;
+          return null;
+        }
+        if (remainingNanos <= 0) {
+          return null;
+        }
+        remainingNanos = taskAvailable.awaitNanos(remainingNanos);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wakes up one idle runner, so that it queries the database for new tasks without waiting
+   * for the end of its idle delay. Does nothing if no runner is idle.
+   */
+  public void wakeUp() {
+    lock.lock();
+    try {
+      if (pendingWakeUps < idleRunners.get()) {
+        pendingWakeUps++;
+        taskAvailable.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops the acquisition of tasks. The acquired tasks that are waiting for a runner are set back
+   * to WAITING, so that they are run by another worker without waiting for the orphan task
+   * cleanup. Tasks handed off after the shutdown are released too.
+   */
+  public void shutdown() {
+    final List<TaskDTO> tasks;
+    lock.lock();
+    try {
+      shutdown = true;
+      tasks = new ArrayList<>(acquiredTasks);
+      acquiredTasks.clear();
+    } finally {
+      lock.unlock();
+    }
+    release(tasks);
+  }
+
+  /**
+   * Sets acquired tasks that will not be run by this worker back to WAITING.
+   */
+  public void release(final List<TaskDTO> tasks) {
+    for (final TaskDTO task : tasks) {
+      try {
+        taskManager.updateStatusAndTaskEndTime(task.getId(),
+            TaskStatus.RUNNING,
+            TaskStatus.WAITING,
+            null,
+            String.format("Released by worker %d at shutdown", workerId));
+        LOG.info("Task {} released at shutdown", task.getId());
+      } catch (final Exception e) {
+        // the orphan task cleanup will handle the task
+        LOG.error("Failed to release task {} at shutdown", task.getId(), e);
+      }
+    }
+  }
+
+  private boolean isShutdown() {
+    lock.lock();
+    try {
+      return shutdown;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private @Nullable TaskDTO pollAcquiredTask() {
+    lock.lock();
+    try {
+      return acquiredTasks.poll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void handOff(final List<TaskDTO> tasks) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    lock.lock();
+    try {
+      if (!shutdown) {
+        acquiredTasks.addAll(tasks);
+        taskAvailable.signalAll();
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    release(tasks);
+  }
+}
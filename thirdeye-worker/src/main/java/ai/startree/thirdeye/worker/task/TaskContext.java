@@ -23,6 +23,7 @@ public class TaskContext {
   private TaskDriverThreadPoolManager taskDriverThreadPoolManager;
   private TaskManager taskManager;
   private TaskRunnerFactory taskRunnerFactory;
+  private TaskAcquirer taskAcquirer;
 
   public TaskDriverConfiguration getConfig() {
     return config;
@@ -70,4 +71,13 @@ public class TaskContext {
     this.taskRunnerFactory = taskRunnerFactory;
     return this;
   }
+
+  public TaskAcquirer getTaskAcquirer() {
+    return taskAcquirer;
+  }
+
+  public TaskContext setTaskAcquirer(final TaskAcquirer taskAcquirer) {
+    this.taskAcquirer = taskAcquirer;
+    return this;
+  }
 }
@@ -37,6 +37,8 @@ public class TaskDriver {
   private final TaskDriverConfiguration config;
   private final Long workerId;
   private final TaskDriverThreadPoolManager taskDriverThreadPoolManager;
+  private final TaskAcquirer taskAcquirer;
+  private final Runnable taskCreatedListener;
 
   @Inject
   public TaskDriver(final TaskManager taskManager,
@@ -47,13 +49,16 @@ public class TaskDriver {
     this.taskDriverThreadPoolManager = taskDriverThreadPoolManager;
     config = taskDriverConfiguration;
     workerId = fetchWorkerId(config);
+    taskAcquirer = new TaskAcquirer(taskManager, workerId, config.getTaskFetchSizeCap());
+    taskCreatedListener = taskAcquirer::wakeUp;
 
     taskContext = new TaskContext()
         .setTaskManager(taskManager)
         .setTaskDriverThreadPoolManager(taskDriverThreadPoolManager)
         .setTaskRunnerFactory(taskRunnerFactory)
         .setConfig(taskDriverConfiguration)
-        .setWorkerId(workerId);
+        .setWorkerId(workerId)
+        .setTaskAcquirer(taskAcquirer);
   }
 
   private Long fetchWorkerId(final TaskDriverConfiguration config) {
@@ -76,6 +81,8 @@ public class TaskDriver {
 
   public void start() {
     handleLeftoverTasks();
+    // tasks created in this JVM wake up idle runners - tasks created elsewhere are found by polling
+    taskManager.addTaskCreatedListener(taskCreatedListener);
     runTasksInParallel();
   }
 
@@ -106,6 +113,9 @@ public class TaskDriver {
   }
 
   public void shutdown() {
+    taskManager.removeTaskCreatedListener(taskCreatedListener);
+    // release the acquired tasks that are waiting for a runner before waiting for running tasks
+    taskAcquirer.shutdown();
     taskDriverThreadPoolManager.shutdown();
   }
 }
@@ -26,6 +26,7 @@ import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.Timer.Sample;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Future;
@@ -46,6 +47,7 @@ public class TaskDriverRunnable implements Runnable {
   private final TaskDriverConfiguration config;
   private final long workerId;
   private final TaskRunnerFactory taskRunnerFactory;
+  private final TaskAcquirer taskAcquirer;
   
   private final TaskDriverThreadPoolManager taskDriverThreadPoolManager;
   private final Timer taskRunTimerOfSuccess;
@@ -60,6 +62,7 @@ public class TaskDriverRunnable implements Runnable {
     this.config = taskContext.getConfig();
     this.workerId = taskContext.getWorkerId();
     this.taskRunnerFactory = taskContext.getTaskRunnerFactory();
+    this.taskAcquirer = taskContext.getTaskAcquirer();
 
     final String description = "Start: a taskDTO is passed for execution. End: the task has run or failed. Tag exception=true means an exception was thrown by the method call.";
     this.taskRunTimerOfSuccess = Timer.builder("thirdeye_task_run")
@@ -161,39 +164,57 @@ public class TaskDriverRunnable implements Runnable {
    * @return null if system is shutting down.
    */
   private TaskDTO waitForTask() {
-    while (!isShutdown()) {
-      final TaskDTO nextTask;
-      try {
-        nextTask = taskManager.acquireNextTaskToRun(workerId);
-      } catch (Exception e) {
-        LOG.error("Failed to fetch a new task to run", e);
-        idleTimer().record(() -> sleep(true));
-        continue;
-      }
-      if (nextTask == null) {
-        // no task found
-        idleTimer().record(() -> sleep(false));
-        continue;
-      }
-      if (isShutdown()) {
-        break;
+    taskAcquirer.runnerIdle();
+    try {
+      while (!isShutdown()) {
+        TaskDTO nextTask;
+        try {
+          nextTask = taskAcquirer.acquire();
+        } catch (Exception e) {
+          LOG.error("Failed to fetch a new task to run", e);
+          idleTimer().record(this::sleepAfterFetchError);
+          continue;
+        }
+        if (nextTask == null) {
+          // no task found - wait for a task acquired by another runner of this worker
+          nextTask = idleTimer().record(this::awaitHandoff);
+          if (nextTask == null) {
+            continue;
+          }
+        }
+        if (isShutdown()) {
+          // the task will not be run by this worker
+          taskAcquirer.release(List.of(nextTask));
+          break;
+        }
+        final long waitTime = System.currentTimeMillis() - nextTask.getCreateTime().getTime();
+        taskWaitTimer.record(waitTime, TimeUnit.MILLISECONDS);
+        return nextTask;
       }
-      final long waitTime = System.currentTimeMillis() - nextTask.getCreateTime().getTime();
-      taskWaitTimer.record(waitTime, TimeUnit.MILLISECONDS);
-      return nextTask;
+      return null;
+    } finally {
+      taskAcquirer.runnerBusy();
     }
-    return null;
   }
 
-  private void sleep(final boolean hasFetchError) {
-    final long sleepTime = hasFetchError
-        ? config.getTaskFailureDelay().toMillis()
-        : config.getNoTaskDelay().toMillis() + RANDOM
-            .nextInt((int) config.getRandomDelayCap().toMillis());
-    // sleep for few seconds if not tasks found - avoid cpu thrashing
+  private TaskDTO awaitHandoff() {
+    final long waitTime = config.getNoTaskDelay().toMillis() + RANDOM
+        .nextInt((int) config.getRandomDelayCap().toMillis());
+    // wait for few seconds if not tasks found - avoid cpu thrashing
     // also add some extra random number of milliseconds to allow threads to start at different times
     try {
-      Thread.sleep(sleepTime);
+      return taskAcquirer.awaitHandoff(Duration.ofMillis(waitTime));
+    } catch (InterruptedException e) {
+      if (!isShutdown()) {
+        LOG.warn(e.getMessage(), e);
+      }
+      return null;
+    }
+  }
+
+  private void sleepAfterFetchError() {
+    try {
+      Thread.sleep(config.getTaskFailureDelay().toMillis());
     } catch (InterruptedException e) {
       if (!isShutdown()) {
         LOG.warn(e.getMessage(), e);
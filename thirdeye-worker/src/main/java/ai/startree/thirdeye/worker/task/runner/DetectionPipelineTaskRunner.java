@@ -24,11 +24,16 @@ import static java.util.Objects.requireNonNull;
 import ai.startree.thirdeye.alert.AlertTemplateRenderer;
 import ai.startree.thirdeye.detectionpipeline.DetectionPipelineContext;
 import ai.startree.thirdeye.detectionpipeline.PlanExecutor;
+import ai.startree.thirdeye.detectionpipeline.PlanExecutor.EnumerationItemPipeline;
+import ai.startree.thirdeye.spi.datalayer.EnumerationItemFilter;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
+import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.DetectionPipelineTaskInfo;
+import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.detection.DetectionPipelineUsage;
 import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
 import ai.startree.thirdeye.spi.task.TaskInfo;
@@ -39,6 +44,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -59,16 +65,19 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
 
   private final AlertManager alertManager;
   private final AnomalyManager anomalyManager;
+  private final EnumerationItemManager enumerationItemManager;
   private final PlanExecutor planExecutor;
   private final AlertTemplateRenderer alertTemplateRenderer;
 
   @Inject
   public DetectionPipelineTaskRunner(final AlertManager alertManager,
       final AnomalyManager anomalyManager,
+      final EnumerationItemManager enumerationItemManager,
       final PlanExecutor planExecutor,
       final AlertTemplateRenderer alertTemplateRenderer) {
     this.alertManager = alertManager;
     this.anomalyManager = anomalyManager;
+    this.enumerationItemManager = enumerationItemManager;
     this.planExecutor = planExecutor;
     this.alertTemplateRenderer = alertTemplateRenderer;
   }
@@ -104,9 +113,13 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
         info.getStart(), info.getEnd(), 
         renderedTemplate);
 
-    final OperatorResult result = run(alert, detectionInterval, renderedTemplate);
+    final List<OperatorResult> results = run(alert, detectionInterval, renderedTemplate);
+    final long lastTimestamp = results.stream()
+        .mapToLong(OperatorResult::getLastTimestamp)
+        .max()
+        .orElse(-1L);
 
-    if (result.getLastTimestamp() < 0) {
+    if (lastTimestamp < 0) {
       // notice lastTimestamp is not updated
       LOG.info("No data returned for detection run for id {} between {} and {}",
           alert.getId(),
@@ -114,6 +127,10 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
           detectionInterval.getEnd());
       return Collections.emptyList();
     }
+    final List<AnomalyDTO> anomalies = results.stream()
+        .flatMap(result -> optional(result.getAnomalies()).orElse(Collections.emptyList())
+            .stream())
+        .toList();
 
     /*
      * a detection can be replayed on specific period (eg if the data has mutated) - ensure the
@@ -129,9 +146,7 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
     // TODO CYRIL: lastTimestamp and updateTime are used by consumers to known when an alert has run
     //  to improve consistency the anomaly save and the update of the alert should be in a single
     //  transaction this would also improve failure cases
-    optional(result.getAnomalies())
-        .orElse(Collections.emptyList())
-        .forEach(anomalyManager::save);
+    anomalyManager.saveAll(anomalies);
     alertManager.update(alert);
 
     // TODO CYRIL - improve this log compute stats: new anomalies: child, parent, existing anomalies, child, parent
@@ -139,24 +154,64 @@ public class DetectionPipelineTaskRunner implements TaskRunner {
         alert.getId(),
         detectionInterval.getStart(),
         detectionInterval.getEnd(),
-        optional(result.getAnomalies()).map(List::size).orElse(0));
+        anomalies.size());
 
     return Collections.emptyList();
   }
 
-  private OperatorResult run(final AlertDTO alert, final Interval detectionInterval,
+  /**
+   * Runs the detection pipeline of the alert. The enumeration execution mode of the PlanExecutor
+   * is opt-in: if a DataFetcher node of the template declares a groupedQuery and
+   * enumerationDimensions, the pipeline of each enumeration item of the alert is run in this
+   * mode. Any other template is run as a single pipeline, whatever the persisted enumeration
+   * items.
+   *
+   * @return the root output of each pipeline
+   */
+  private List<OperatorResult> run(final AlertDTO alert, final Interval detectionInterval,
       final AlertTemplateDTO renderedTemplate)
       throws Exception {
     LOG.info("Running detection pipeline for alert: {}, start: {}, end: {}",
         alert.getId(), detectionInterval.getStart(), detectionInterval.getEnd());
-    final DetectionPipelineContext context = new DetectionPipelineContext()
+    final List<EnumerationItemDTO> enumerationItems = isEnumerationExecutionMode(renderedTemplate)
+        ? enumerationItemManager.filter(new EnumerationItemFilter().setAlertId(alert.getId()))
+        : List.of();
+    if (enumerationItems.isEmpty()) {
+      final Map<String, OperatorResult> detectionPipelineResultMap =
+          planExecutor.runAndGetRootOutputs(renderedTemplate.getNodes(),
+              newContext(alert, detectionInterval));
+      return List.of(singleOutput(detectionPipelineResultMap));
+    }
+
+    LOG.info("Running detection pipeline for alert: {} on {} enumeration items",
+        alert.getId(), enumerationItems.size());
+    final List<EnumerationItemPipeline> pipelines = new ArrayList<>(enumerationItems.size());
+    for (final EnumerationItemDTO enumerationItem : enumerationItems) {
+      pipelines.add(new EnumerationItemPipeline(
+          alertTemplateRenderer.renderAlert(alert, enumerationItem).getNodes(),
+          newContext(alert, detectionInterval).setEnumerationItem(enumerationItem)));
+    }
+    final List<Map<String, OperatorResult>> outputs = planExecutor.runEnumerationItems(pipelines,
+        PlanExecutor.ROOT_NODE_NAME);
+    return outputs.stream().map(DetectionPipelineTaskRunner::singleOutput).toList();
+  }
+
+  private static boolean isEnumerationExecutionMode(final AlertTemplateDTO renderedTemplate) {
+    return PlanExecutor.isEnumerationExecutionMode(
+        optional(renderedTemplate.getNodes()).orElse(List.of()));
+  }
+
+  private static DetectionPipelineContext newContext(final AlertDTO alert,
+      final Interval detectionInterval) {
+    return new DetectionPipelineContext()
         .setAlertId(alert.getId())
         .setNamespace(alert.namespace())
         .setUsage(DetectionPipelineUsage.DETECTION)
         .setDetectionInterval(detectionInterval);
-    final Map<String, OperatorResult> detectionPipelineResultMap = planExecutor.runAndGetRootOutputs(
-        renderedTemplate.getNodes(),
-        context);
+  }
+
+  private static OperatorResult singleOutput(
+      final Map<String, OperatorResult> detectionPipelineResultMap) {
     checkState(detectionPipelineResultMap.size() == 1,
         "Only a single output from the pipeline is supported at the moment.");
     return detectionPipelineResultMap.values().iterator().next();
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.worker.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
+import ai.startree.thirdeye.spi.datalayer.dto.TaskDTO;
+import ai.startree.thirdeye.spi.task.TaskStatus;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+public class TaskAcquirerTest {
+
+  private static TaskDTO task(final long id) {
+    final TaskDTO task = new TaskDTO();
+    task.setId(id);
+    return task;
+  }
+
+  @Test
+  public void testBatchIsHandedOffToIdleRunners() throws Exception {
+    final TaskManager taskManager = mock(TaskManager.class);
+    when(taskManager.acquireNextTasksToRun(anyLong(), anyInt()))
+        .thenReturn(List.of(task(1L), task(2L), task(3L)))
+        .thenReturn(List.of());
+    final TaskAcquirer taskAcquirer = new TaskAcquirer(taskManager, 0L, 50);
+    taskAcquirer.runnerIdle();
+    taskAcquirer.runnerIdle();
+    taskAcquirer.runnerIdle();
+
+    assertThat(taskAcquirer.acquire().getId()).isEqualTo(1L);
+    assertThat(taskAcquirer.awaitHandoff(Duration.ofMillis(10)).getId()).isEqualTo(2L);
+    assertThat(taskAcquirer.acquire().getId()).isEqualTo(3L);
+    assertThat(taskAcquirer.acquire()).isNull();
+
+    // handed off tasks do not hit the database
+    verify(taskManager, times(2)).acquireNextTasksToRun(0L, 3);
+  }
+
+  @Test
+  public void testBatchSizeIsCapped() throws Exception {
+    final TaskManager taskManager = mock(TaskManager.class);
+    when(taskManager.acquireNextTasksToRun(anyLong(), anyInt())).thenReturn(List.of());
+    final TaskAcquirer taskAcquirer = new TaskAcquirer(taskManager, 0L, 2);
+    for (int i = 0; i < 5; i++) {
+      taskAcquirer.runnerIdle();
+    }
+
+    assertThat(taskAcquirer.acquire()).isNull();
+    assertThat(taskAcquirer.awaitHandoff(Duration.ofMillis(10))).isNull();
+
+    verify(taskManager).acquireNextTasksToRun(anyLong(), eq(2));
+  }
+
+  @Test(timeOut = 10_000)
+  public void testWakeUpInterruptsIdleWait() throws Exception {
+    final TaskAcquirer taskAcquirer = new TaskAcquirer(mock(TaskManager.class), 0L, 50);
+    taskAcquirer.runnerIdle();
+
+    final CompletableFuture<TaskDTO> waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return taskAcquirer.awaitHandoff(Duration.ofMinutes(5));
+      } catch (final InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    // wake ups are not lost if they happen before the runner waits
+    taskAcquirer.wakeUp();
+
+    assertThat(waiting.get(5, TimeUnit.SECONDS)).isNull();
+  }
+
+  @Test
+  public void testWakeUpWithoutIdleRunnerIsIgnored() throws Exception {
+    final TaskAcquirer taskAcquirer = new TaskAcquirer(mock(TaskManager.class), 0L, 50);
+    taskAcquirer.wakeUp();
+    taskAcquirer.runnerIdle();
+
+    final long start = System.nanoTime();
+    assertThat(taskAcquirer.awaitHandoff(Duration.ofMillis(200))).isNull();
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(200).toNanos());
+  }
+
+  @Test
+  public void testShutdownReleasesTasksWaitingForARunner() throws Exception {
+    final TaskManager taskManager = mock(TaskManager.class);
+    when(taskManager.acquireNextTasksToRun(anyLong(), anyInt()))
+        .thenReturn(List.of(task(1L), task(2L), task(3L)));
+    final TaskAcquirer taskAcquirer = new TaskAcquirer(taskManager, 0L, 50);
+    taskAcquirer.runnerIdle();
+    taskAcquirer.runnerIdle();
+    taskAcquirer.runnerIdle();
+
+    assertThat(taskAcquirer.acquire().getId()).isEqualTo(1L);
+    taskAcquirer.shutdown();
+
+    verify(taskManager).updateStatusAndTaskEndTime(eq(2L), eq(TaskStatus.RUNNING),
+        eq(TaskStatus.WAITING), eq(null), anyString());
+    verify(taskManager).updateStatusAndTaskEndTime(eq(3L), eq(TaskStatus.RUNNING),
+        eq(TaskStatus.WAITING), eq(null), anyString());
+    // the task taken by a runner is not released
+    verify(taskManager, never()).updateStatusAndTaskEndTime(eq(1L), eq(TaskStatus.RUNNING),
+        eq(TaskStatus.WAITING), eq(null), anyString());
+    assertThat(taskAcquirer.awaitHandoff(Duration.ofMillis(10))).isNull();
+    // no task is acquired after the shutdown
+    assertThat(taskAcquirer.acquire()).isNull();
+    verify(taskManager, times(1)).acquireNextTasksToRun(anyLong(), anyInt());
+  }
+
+  @Test(timeOut = 10_000)
+  public void testTasksHandedOffAfterShutdownAreReleased() throws Exception {
+    final TaskManager taskManager = mock(TaskManager.class);
+    final CompletableFuture<Void> acquiring = new CompletableFuture<>();
+    final CompletableFuture<Void> shutdownDone = new CompletableFuture<>();
+    when(taskManager.acquireNextTasksToRun(anyLong(), anyInt())).thenAnswer(invocation -> {
+      // the worker shuts down while the batch is acquired
+      acquiring.complete(null);
+      shutdownDone.get(5, TimeUnit.SECONDS);
+      return List.of(task(1L), task(2L));
+    });
+    final TaskAcquirer taskAcquirer = new TaskAcquirer(taskManager, 0L, 50);
+    taskAcquirer.runnerIdle();
+    taskAcquirer.runnerIdle();
+
+    final CompletableFuture<TaskDTO> acquired = CompletableFuture.supplyAsync(() -> {
+      try {
+        return taskAcquirer.acquire();
+      } catch (final Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    acquiring.get(5, TimeUnit.SECONDS);
+    taskAcquirer.shutdown();
+    shutdownDone.complete(null);
+
+    assertThat(acquired.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+    verify(taskManager).updateStatusAndTaskEndTime(eq(2L), eq(TaskStatus.RUNNING),
+        eq(TaskStatus.WAITING), eq(null), anyString());
+    assertThat(taskAcquirer.awaitHandoff(Duration.ofMillis(10))).isNull();
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2024 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.worker.task.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.alert.AlertTemplateRenderer;
+import ai.startree.thirdeye.detectionpipeline.DetectionPipelineContext;
+import ai.startree.thirdeye.detectionpipeline.PlanExecutor;
+import ai.startree.thirdeye.detectionpipeline.PlanExecutor.EnumerationItemPipeline;
+import ai.startree.thirdeye.spi.Constants;
+import ai.startree.thirdeye.spi.datalayer.EnumerationItemFilter;
+import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.datalayer.bao.AnomalyManager;
+import ai.startree.thirdeye.spi.datalayer.bao.EnumerationItemManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertMetadataDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AnomalyDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.DetectionPipelineTaskInfo;
+import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
+import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import com.google.common.io.Resources;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DetectionPipelineTaskRunnerTest {
+
+  private static final long ALERT_ID = 1L;
+  private static final long HOUR = 3_600_000L;
+
+  private AlertManager alertManager;
+  private AnomalyManager anomalyManager;
+  private EnumerationItemManager enumerationItemManager;
+  private PlanExecutor planExecutor;
+  private AlertTemplateRenderer alertTemplateRenderer;
+  private DetectionPipelineTaskRunner runner;
+
+  private static AlertTemplateDTO template(final String nodeName) {
+    return new AlertTemplateDTO()
+        .setNodes(List.of(new PlanNodeBean().setName(nodeName)))
+        .setMetadata(new AlertMetadataDTO().setGranularity("PT1H").setTimezone("UTC"));
+  }
+
+  // a template that opts in the enumeration execution mode
+  private static AlertTemplateDTO sharedFetchTemplate() {
+    return new AlertTemplateDTO()
+        .setNodes(List.of(new PlanNodeBean()
+            .setName("currentDataFetcher")
+            .setType("DataFetcher")
+            .setParams(TemplatableMap.fromValueMap(Map.of(
+                "component.dataSource", "pinot",
+                "component.query", "SELECT ts, met FROM t WHERE country = '${country}'",
+                "component.groupedQuery", "SELECT ts, country, met FROM t GROUP BY ts, country",
+                "component.enumerationDimensions", List.of("country"))))))
+        .setMetadata(new AlertMetadataDTO().setGranularity("PT1H").setTimezone("UTC"));
+  }
+
+  private static AlertTemplateDTO forkJoinTemplate() throws Exception {
+    final URL resource = DetectionPipelineTaskRunnerTest.class.getClassLoader()
+        .getResource("dimension-exploration-template.json");
+    return Constants.TEMPLATABLE_OBJECT_MAPPER.readValue(
+        Resources.toString(resource, StandardCharsets.UTF_8),
+        AlertTemplateDTO.class);
+  }
+
+  private static EnumerationItemDTO enumerationItem(final long id) {
+    final EnumerationItemDTO enumerationItem = new EnumerationItemDTO()
+        .setName("item" + id)
+        .setParams(Map.of("country", "c" + id));
+    enumerationItem.setId(id);
+    return enumerationItem;
+  }
+
+  private static Map<String, OperatorResult> rootOutput(final long lastTimestamp,
+      final AnomalyDTO... anomalies) {
+    return Map.of("output", new OperatorResult() {
+      @Override
+      public long getLastTimestamp() {
+        return lastTimestamp;
+      }
+
+      @Override
+      public List<AnomalyDTO> getAnomalies() {
+        return List.of(anomalies);
+      }
+    });
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    final AlertDTO alert = new AlertDTO().setName("alert").setLastTimestamp(0L);
+    alert.setId(ALERT_ID);
+    alertManager = mock(AlertManager.class);
+    when(alertManager.findById(ALERT_ID)).thenReturn(alert);
+    anomalyManager = mock(AnomalyManager.class);
+    enumerationItemManager = mock(EnumerationItemManager.class);
+    planExecutor = mock(PlanExecutor.class);
+    alertTemplateRenderer = mock(AlertTemplateRenderer.class);
+    when(alertTemplateRenderer.renderAlert(alert)).thenReturn(template("root"));
+    when(alertTemplateRenderer.renderAlert(eq(alert), any(EnumerationItemDTO.class))).thenAnswer(
+        i -> template("root-" + i.<EnumerationItemDTO>getArgument(1).getName()));
+    runner = new DetectionPipelineTaskRunner(alertManager,
+        anomalyManager,
+        enumerationItemManager,
+        planExecutor,
+        alertTemplateRenderer);
+  }
+
+  private void optInEnumerationExecutionMode() {
+    when(alertTemplateRenderer.renderAlert(alertManager.findById(ALERT_ID)))
+        .thenReturn(sharedFetchTemplate());
+  }
+
+  @Test
+  public void testAlertWithoutEnumerationItemsRunsASinglePipeline() throws Exception {
+    when(enumerationItemManager.filter(any(EnumerationItemFilter.class))).thenReturn(List.of());
+    final AnomalyDTO anomaly = new AnomalyDTO();
+    when(planExecutor.runAndGetRootOutputs(anyList(), any(DetectionPipelineContext.class)))
+        .thenReturn(rootOutput(10 * HOUR, anomaly));
+
+    runner.execute(new DetectionPipelineTaskInfo(ALERT_ID, 0L, 10 * HOUR), null, null);
+
+    verify(planExecutor, never()).runEnumerationItems(anyList(), any());
+    verify(anomalyManager).saveAll(List.of(anomaly));
+    verify(alertManager).update(any(AlertDTO.class));
+  }
+
+  @Test
+  public void testAlertWithEnumerationItemsWithoutOptInRunsASinglePipeline() throws Exception {
+    // eg stale items of an edited template, or items created with the API
+    when(enumerationItemManager.filter(any(EnumerationItemFilter.class))).thenReturn(List.of(
+        enumerationItem(1L), enumerationItem(2L), enumerationItem(3L)));
+    final AnomalyDTO anomaly = new AnomalyDTO();
+    when(planExecutor.runAndGetRootOutputs(anyList(), any(DetectionPipelineContext.class)))
+        .thenReturn(rootOutput(10 * HOUR, anomaly));
+
+    runner.execute(new DetectionPipelineTaskInfo(ALERT_ID, 0L, 10 * HOUR), null, null);
+
+    verify(planExecutor).runAndGetRootOutputs(anyList(), any(DetectionPipelineContext.class));
+    verify(planExecutor, never()).runEnumerationItems(anyList(), any());
+    verify(enumerationItemManager, never()).filter(any(EnumerationItemFilter.class));
+    verify(anomalyManager).saveAll(List.of(anomaly));
+  }
+
+  @Test
+  public void testAlertWithEnumerationItemsRunsTheEnumerationExecutionMode() throws Exception {
+    optInEnumerationExecutionMode();
+    when(enumerationItemManager.filter(any(EnumerationItemFilter.class))).thenReturn(List.of(
+        enumerationItem(1L), enumerationItem(2L), enumerationItem(3L)));
+    final AnomalyDTO anomaly1 = new AnomalyDTO();
+    final AnomalyDTO anomaly3 = new AnomalyDTO();
+    when(planExecutor.runEnumerationItems(anyList(), eq(PlanExecutor.ROOT_NODE_NAME)))
+        .thenReturn(List.of(rootOutput(10 * HOUR, anomaly1),
+            rootOutput(-1L),
+            rootOutput(10 * HOUR, anomaly3)));
+
+    runner.execute(new DetectionPipelineTaskInfo(ALERT_ID, 0L, 10 * HOUR), null, null);
+
+    final ArgumentCaptor<List<EnumerationItemPipeline>> pipelines = ArgumentCaptor.captor();
+    verify(planExecutor).runEnumerationItems(pipelines.capture(),
+        eq(PlanExecutor.ROOT_NODE_NAME));
+    verify(planExecutor, never()).runAndGetRootOutputs(anyList(), any());
+    assertThat(pipelines.getValue()).hasSize(3);
+    for (int i = 0; i < 3; i++) {
+      final EnumerationItemPipeline pipeline = pipelines.getValue().get(i);
+      final EnumerationItemDTO enumerationItem = pipeline.context().getEnumerationItem();
+      assertThat(enumerationItem.getId()).isEqualTo(i + 1L);
+      assertThat(pipeline.context().getAlertId()).isEqualTo(ALERT_ID);
+      // the pipeline of each item is rendered with the params of the item
+      assertThat(pipeline.planNodeBeans().getFirst().getName())
+          .isEqualTo("root-" + enumerationItem.getName());
+    }
+    verify(anomalyManager).saveAll(List.of(anomaly1, anomaly3));
+    verify(alertManager).update(any(AlertDTO.class));
+  }
+
+  @Test
+  public void testEnumerationItemsWithoutDataDoNotUpdateTheAlert() throws Exception {
+    optInEnumerationExecutionMode();
+    when(enumerationItemManager.filter(any(EnumerationItemFilter.class))).thenReturn(List.of(
+        enumerationItem(1L), enumerationItem(2L)));
+    when(planExecutor.runEnumerationItems(anyList(), eq(PlanExecutor.ROOT_NODE_NAME)))
+        .thenReturn(List.of(rootOutput(-1L), rootOutput(-1L)));
+
+    runner.execute(new DetectionPipelineTaskInfo(ALERT_ID, 0L, 10 * HOUR), null, null);
+
+    verify(anomalyManager, never()).saveAll(anyList());
+    verify(alertManager, never()).update(any(AlertDTO.class));
+  }
+
+  @Test
+  public void testForkJoinTemplateRunsASinglePipeline() throws Exception {
+    // the enumeration items of a fork-join template are persisted by its fork-join node
+    final AlertTemplateDTO forkJoinTemplate = forkJoinTemplate();
+    when(alertTemplateRenderer.renderAlert(alertManager.findById(ALERT_ID)))
+        .thenReturn(forkJoinTemplate);
+    when(enumerationItemManager.filter(any(EnumerationItemFilter.class))).thenReturn(List.of(
+        enumerationItem(1L), enumerationItem(2L), enumerationItem(3L)));
+    final AnomalyDTO anomaly = new AnomalyDTO();
+    when(planExecutor.runAndGetRootOutputs(anyList(), any(DetectionPipelineContext.class)))
+        .thenReturn(rootOutput(10 * HOUR, anomaly));
+
+    runner.execute(new DetectionPipelineTaskInfo(ALERT_ID, 0L, 10 * HOUR), null, null);
+
+    verify(planExecutor).runAndGetRootOutputs(eq(forkJoinTemplate.getNodes()),
+        any(DetectionPipelineContext.class));
+    verify(planExecutor, never()).runEnumerationItems(anyList(), any());
+    verify(alertTemplateRenderer, never()).renderAlert(any(AlertDTO.class),
+        any(EnumerationItemDTO.class));
+    verify(anomalyManager).saveAll(List.of(anomaly));
+    verify(alertManager).update(any(AlertDTO.class));
+  }
+}